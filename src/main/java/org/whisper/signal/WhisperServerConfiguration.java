@@ -12,6 +12,7 @@
 package org.whisper.signal;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.whisper.signal.configuration.AccountCacheConfiguration;
 import org.whisper.signal.configuration.ApnConfiguration;
 import org.whisper.signal.configuration.FederationConfiguration;
 import org.whisper.signal.configuration.GcmConfiguration;
@@ -20,10 +21,12 @@ import org.whisper.signal.configuration.PushConfiguration;
 import org.whisper.signal.configuration.RateLimitsConfiguration;
 import org.whisper.signal.configuration.RedPhoneConfiguration;
 import org.whisper.signal.configuration.RedisConfiguration;
+import org.whisper.signal.configuration.ReplicaConfiguration;
 import org.whisper.signal.configuration.S3Configuration;
 import org.whisper.signal.configuration.TestDeviceConfiguration;
 import org.whisper.signal.configuration.TurnConfiguration;
 import org.whisper.signal.configuration.TwilioConfiguration;
+import org.whisper.signal.configuration.WebSocketDrainConfiguration;
 import org.whispersystems.websocket.configuration.WebSocketConfiguration;
 
 import javax.validation.Valid;
@@ -91,6 +94,11 @@ public class WhisperServerConfiguration extends Configuration {
     @JsonProperty
     private DataSourceFactory read_database;
 
+    @Valid
+    @NotNull
+    @JsonProperty
+    private ReplicaConfiguration replicas = new ReplicaConfiguration();
+
     @Valid
     @NotNull
     @JsonProperty
@@ -109,6 +117,16 @@ public class WhisperServerConfiguration extends Configuration {
     @JsonProperty
     private WebSocketConfiguration webSocket = new WebSocketConfiguration();
 
+    @Valid
+    @NotNull
+    @JsonProperty
+    private WebSocketDrainConfiguration webSocketDrain = new WebSocketDrainConfiguration();
+
+    @Valid
+    @NotNull
+    @JsonProperty
+    private AccountCacheConfiguration accountCache = new AccountCacheConfiguration();
+
     @Valid
     @NotNull
     @JsonProperty
@@ -128,6 +146,14 @@ public class WhisperServerConfiguration extends Configuration {
         return webSocket;
     }
 
+    public WebSocketDrainConfiguration getWebSocketDrainConfiguration() {
+        return webSocketDrain;
+    }
+
+    public AccountCacheConfiguration getAccountCacheConfiguration() {
+        return accountCache;
+    }
+
     public TwilioConfiguration getTwilioConfiguration() {
         return twilio;
     }
@@ -164,6 +190,10 @@ public class WhisperServerConfiguration extends Configuration {
         return read_database;
     }
 
+    public ReplicaConfiguration getReplicaConfiguration() {
+        return replicas;
+    }
+
     public RateLimitsConfiguration getLimitsConfiguration() {
         return limits;
     }
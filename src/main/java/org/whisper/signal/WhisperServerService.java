@@ -56,17 +56,25 @@ import org.whisper.signal.providers.RedisHealthCheck;
 import org.whisper.signal.providers.TimeProvider;
 import org.whisper.signal.push.APNSender;
 import org.whisper.signal.push.ApnFallbackManager;
+import org.whisper.signal.push.ApnFallbackSchedule;
 import org.whisper.signal.push.GCMSender;
+import org.whisper.signal.push.PushLatencyTracker;
 import org.whisper.signal.push.PushSender;
+import org.whisper.signal.push.PushTokenInvalidator;
 import org.whisper.signal.push.ReceiptSender;
 import org.whisper.signal.push.WebsocketSender;
 import org.whisper.signal.sms.SmsSender;
 import org.whisper.signal.sms.TwilioSmsSender;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.Accounts;
+import org.whisper.signal.storage.AccountCacheTask;
 import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.ActiveUsers;
+import org.whisper.signal.storage.AccountsNearCache;
 import org.whisper.signal.storage.DirectoryManager;
 import org.whisper.signal.storage.Keys;
+import org.whisper.signal.storage.LastSeen;
+import org.whisper.signal.storage.LastSeenTracker;
 import org.whisper.signal.storage.Messages;
 import org.whisper.signal.storage.MessagesManager;
 import org.whisper.signal.storage.PendingAccounts;
@@ -74,12 +82,22 @@ import org.whisper.signal.storage.PendingAccountsManager;
 import org.whisper.signal.storage.PendingDevices;
 import org.whisper.signal.storage.PendingDevicesManager;
 import org.whisper.signal.storage.PubSubManager;
+import org.whisper.signal.storage.ReplicaMonitor;
+import org.whisper.signal.storage.ReplicaRouter;
 import org.whisper.signal.util.Constants;
 import org.whisper.signal.util.UrlSigner;
 import org.whisper.signal.websocket.AuthenticatedConnectListener;
 import org.whisper.signal.websocket.DeadLetterHandler;
+import org.whisper.signal.websocket.DrainingWebSocketResourceProviderFactory;
 import org.whisper.signal.websocket.ProvisioningConnectListener;
 import org.whisper.signal.websocket.WebSocketAccountAuthenticator;
+import org.whisper.signal.websocket.WebSocketConnection;
+import org.whisper.signal.websocket.WebSocketConnectionDrainer;
+import org.whisper.signal.websocket.WebSocketConnectionRegistry;
+import org.whisper.signal.websocket.WebSocketConnectionsServlet;
+import org.whisper.signal.websocket.WebSocketDrainHealthCheck;
+import org.whisper.signal.websocket.WebSocketDrainTask;
+import org.whisper.signal.websocket.WebSocketPresencePublisher;
 import org.whisper.signal.workers.DeleteUserCommand;
 import org.whisper.signal.workers.DirectoryCommand;
 import org.whisper.signal.workers.PeriodicStatsCommand;
@@ -93,6 +111,10 @@ import javax.servlet.FilterRegistration;
 import javax.servlet.ServletRegistration;
 import java.security.Security;
 import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import io.dropwizard.Application;
@@ -152,6 +174,16 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         Keys keys = database.onDemand(Keys.class);
         Messages messages = messagedb.onDemand(Messages.class);
 
+        List<DBI> replicaDatabases = new LinkedList<>();
+
+        for (int i = 0; i < config.getReplicaConfiguration().getDatabases().size(); i++) {
+            replicaDatabases.add(dbiFactory.build(environment, config.getReplicaConfiguration().getDatabases().get(i), "accountdb-replica-" + i));
+        }
+
+        ReplicaMonitor replicaMonitor = new ReplicaMonitor(replicaDatabases, config.getReplicaConfiguration().getMaxLag(), config.getReplicaConfiguration().getProbeInterval());
+        ReplicaRouter<Accounts> accountsReplicas = replicaMonitor.route("accounts", Accounts.class, accounts);
+        ReplicaRouter<Keys> keysReplicas = replicaMonitor.route("keys", Keys.class, keys);
+
         RedisClientFactory cacheClientFactory = new RedisClientFactory(config.getCacheConfiguration().getUrl());
         JedisPool cacheClient = cacheClientFactory.getRedisClientPool();
         JedisPool directoryClient = new RedisClientFactory(config.getDirectoryConfiguration().getUrl()).getRedisClientPool();
@@ -159,36 +191,56 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         DirectoryManager directory = new DirectoryManager(directoryClient);
         PendingAccountsManager pendingAccountsManager = new PendingAccountsManager(pendingAccounts, cacheClient);
         PendingDevicesManager pendingDevicesManager = new PendingDevicesManager(pendingDevices, cacheClient);
-        AccountsManager accountsManager = new AccountsManager(accounts, directory, cacheClient);
-        FederatedClientManager federatedClientManager = new FederatedClientManager(environment, config.getJerseyClientConfiguration(), config.getFederationConfiguration());
         MessagesManager messagesManager = new MessagesManager(messages);
         DeadLetterHandler deadLetterHandler = new DeadLetterHandler(messagesManager);
         DispatchManager dispatchManager = new DispatchManager(cacheClientFactory, Optional.<DispatchChannel>of(deadLetterHandler));
         PubSubManager pubSubManager = new PubSubManager(cacheClient, dispatchManager);
-        APNSender apnSender = new APNSender(accountsManager, config.getApnConfiguration());
-        GCMSender gcmSender = new GCMSender(accountsManager, config.getGcmConfiguration().getApiKey());
+        AccountsNearCache accountsNearCache = new AccountsNearCache(pubSubManager, config.getAccountCacheConfiguration().isEnabled(),
+            config.getAccountCacheConfiguration().getMaxSize(), config.getAccountCacheConfiguration().getTtl(), TimeUnit.SECONDS);
+        AccountsManager accountsManager = new AccountsManager(accounts, directory, cacheClient, accountsNearCache, accountsReplicas);
+        FederatedClientManager federatedClientManager = new FederatedClientManager(environment, config.getJerseyClientConfiguration(), config.getFederationConfiguration());
+        PushTokenInvalidator pushTokenInvalidator = new PushTokenInvalidator(accountsManager);
+        APNSender apnSender = new APNSender(pushTokenInvalidator, config.getApnConfiguration());
+        GCMSender gcmSender = new GCMSender(accountsManager, pushTokenInvalidator, config.getGcmConfiguration().getApiKey(), config.getGcmConfiguration().getBatchWindow());
         WebsocketSender websocketSender = new WebsocketSender(messagesManager, pubSubManager);
-        AccountAuthenticator deviceAuthenticator = new AccountAuthenticator(accountsManager);
+        ActiveUsers activeUsers = new ActiveUsers(cacheClient);
+        LastSeenTracker lastSeenTracker = new LastSeenTracker(database.onDemand(LastSeen.class), activeUsers);
+        AccountAuthenticator deviceAuthenticator = new AccountAuthenticator(accountsManager, lastSeenTracker);
         FederatedPeerAuthenticator federatedPeerAuthenticator = new FederatedPeerAuthenticator(config.getFederationConfiguration());
         RateLimiters rateLimiters = new RateLimiters(config.getLimitsConfiguration(), cacheClient);
 
-        ApnFallbackManager apnFallbackManager = new ApnFallbackManager(apnSender, pubSubManager);
+        ApnFallbackManager apnFallbackManager = new ApnFallbackManager(apnSender, new ApnFallbackSchedule(cacheClient));
         TwilioSmsSender twilioSmsSender = new TwilioSmsSender(config.getTwilioConfiguration());
         SmsSender smsSender = new SmsSender(twilioSmsSender);
         UrlSigner urlSigner = new UrlSigner(config.getS3Configuration());
-        PushSender pushSender = new PushSender(apnFallbackManager, gcmSender, apnSender, websocketSender, config.getPushConfiguration().getQueueSize());
+        PushLatencyTracker pushLatencyTracker = new PushLatencyTracker(cacheClient);
+        PushSender pushSender = new PushSender(apnFallbackManager, gcmSender, apnSender, websocketSender, pushLatencyTracker,
+            config.getPushConfiguration().getQueueSize(), config.getPushConfiguration().getCoalesceWindow());
         ReceiptSender receiptSender = new ReceiptSender(accountsManager, pushSender, federatedClientManager);
         TurnTokenGenerator turnTokenGenerator = new TurnTokenGenerator(config.getTurnConfiguration());
         Optional<byte[]> authorizationKey = config.getRedphoneConfiguration().getAuthorizationKey();
 
-        apnSender.setApnFallbackManager(apnFallbackManager);
+        pushTokenInvalidator.setApnFallbackManager(apnFallbackManager);
+        environment.lifecycle().manage(pushTokenInvalidator);
+        environment.metrics().registerAll(pushTokenInvalidator);
         environment.lifecycle().manage(apnFallbackManager);
+        environment.lifecycle().manage(lastSeenTracker);
+        environment.lifecycle().manage(activeUsers);
+        environment.lifecycle().manage(pushLatencyTracker);
+        environment.lifecycle().manage(replicaMonitor);
+        environment.metrics().registerAll(lastSeenTracker);
+        environment.metrics().registerAll(activeUsers);
+        environment.metrics().registerAll(pushLatencyTracker);
+        environment.metrics().registerAll(replicaMonitor);
         environment.lifecycle().manage(pubSubManager);
+        environment.lifecycle().manage(accountsNearCache);
+        environment.admin().addTask(new AccountCacheTask(accountsNearCache));
         environment.lifecycle().manage(pushSender);
+        environment.lifecycle().manage(receiptSender);
 
         AttachmentController attachmentController = new AttachmentController(rateLimiters, federatedClientManager, urlSigner);
-        KeysController keysController = new KeysController(rateLimiters, keys, accountsManager, federatedClientManager);
-        MessageController messageController = new MessageController(rateLimiters, pushSender, receiptSender, accountsManager, messagesManager, federatedClientManager);
+        KeysController keysController = new KeysController(rateLimiters, keys, accountsManager, federatedClientManager, keysReplicas);
+        MessageController messageController = new MessageController(rateLimiters, pushSender, receiptSender, accountsManager, messagesManager, federatedClientManager, pushLatencyTracker);
 
         environment.jersey().register(new AuthDynamicFeature(new BasicCredentialAuthFilter.Builder<Account>()
             .setAuthenticator(deviceAuthenticator)
@@ -200,7 +252,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
             .buildAuthFilter()));
         environment.jersey().register(new AuthValueFactoryProvider.Binder());
 
-        environment.jersey().register(new AccountController(pendingAccountsManager, accountsManager, rateLimiters, smsSender, messagesManager, new TimeProvider(), authorizationKey, turnTokenGenerator, config.getTestDevices()));
+        environment.jersey().register(new AccountController(pendingAccountsManager, accountsManager, rateLimiters, smsSender, messagesManager, new TimeProvider(), authorizationKey, turnTokenGenerator, config.getTestDevices(), activeUsers));
         environment.jersey().register(new DeviceController(pendingDevicesManager, accountsManager, messagesManager, rateLimiters, config.getMaxDevices()));
         environment.jersey().register(new DirectoryController(rateLimiters, directory));
         environment.jersey().register(new FederationControllerV1(accountsManager, attachmentController, messageController));
@@ -211,10 +263,23 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         environment.jersey().register(keysController);
         environment.jersey().register(messageController);
 
+        ExecutorService prefetchExecutor = environment.lifecycle().executorService(name(WebSocketConnection.class, "prefetch") + "-%d")
+            .minThreads(8).maxThreads(8).build();
+
+        WebSocketConnectionRegistry connectionRegistry = new WebSocketConnectionRegistry();
+        environment.metrics().registerAll(connectionRegistry);
+        environment.admin().addServlet("websocket-connections", new WebSocketConnectionsServlet(connectionRegistry))
+            .addMapping("/websocket/connections");
+        environment.lifecycle().manage(new WebSocketPresencePublisher(cacheClient, connectionRegistry));
+
+        WebSocketConnectionDrainer drainer = new WebSocketConnectionDrainer(config.getWebSocketDrainConfiguration(), connectionRegistry);
+        environment.lifecycle().addLifeCycleListener(drainer);
+        environment.admin().addTask(new WebSocketDrainTask(drainer));
+
         ///
         WebSocketEnvironment webSocketEnvironment = new WebSocketEnvironment(environment, config.getWebSocketConfiguration(), 90000);
         webSocketEnvironment.setAuthenticator(new WebSocketAccountAuthenticator(deviceAuthenticator));
-        webSocketEnvironment.setConnectListener(new AuthenticatedConnectListener(accountsManager, pushSender, receiptSender, messagesManager, pubSubManager));
+        webSocketEnvironment.setConnectListener(new AuthenticatedConnectListener(accountsManager, pushSender, receiptSender, messagesManager, pubSubManager, apnFallbackManager, pushLatencyTracker, prefetchExecutor, connectionRegistry));
         webSocketEnvironment.jersey().register(new KeepAliveController(pubSubManager));
         webSocketEnvironment.jersey().register(messageController);
 
@@ -222,7 +287,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         provisioningEnvironment.setConnectListener(new ProvisioningConnectListener(pubSubManager));
         provisioningEnvironment.jersey().register(new KeepAliveController(pubSubManager));
 
-        WebSocketResourceProviderFactory webSocketServlet = new WebSocketResourceProviderFactory(webSocketEnvironment);
+        WebSocketResourceProviderFactory webSocketServlet = new DrainingWebSocketResourceProviderFactory(webSocketEnvironment, drainer);
         WebSocketResourceProviderFactory provisioningServlet = new WebSocketResourceProviderFactory(provisioningEnvironment);
 
         ServletRegistration.Dynamic websocket = environment.servlets().addServlet("WebSocket", webSocketServlet);
@@ -248,6 +313,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
 
         environment.healthChecks().register("directory", new RedisHealthCheck(directoryClient));
         environment.healthChecks().register("cache", new RedisHealthCheck(cacheClient));
+        environment.healthChecks().register("websocket-drain", new WebSocketDrainHealthCheck(drainer));
 
         environment.jersey().register(new IOExceptionMapper());
         environment.jersey().register(new RateLimitExceededExceptionMapper());
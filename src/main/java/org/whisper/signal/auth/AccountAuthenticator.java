@@ -14,6 +14,7 @@ package org.whisper.signal.auth;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,9 +22,12 @@ import org.whispersystems.dropwizard.simpleauth.Authenticator;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.Device;
+import org.whisper.signal.storage.LastSeenTracker;
 import org.whisper.signal.util.Constants;
 import org.whisper.signal.util.Util;
 
+import java.util.concurrent.TimeUnit;
+
 import static com.codahale.metrics.MetricRegistry.name;
 import io.dropwizard.auth.AuthenticationException;
 import io.dropwizard.auth.basic.BasicCredentials;
@@ -36,10 +40,22 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Acc
 
     private final Logger logger = LoggerFactory.getLogger(AccountAuthenticator.class);
 
+    private static final long CREDENTIAL_CACHE_SIZE = 100000;
+    private static final long CREDENTIAL_CACHE_TTL = TimeUnit.MINUTES.toSeconds(5);
+
     private final AccountsManager accountsManager;
+    private final LastSeenTracker lastSeenTracker;
+    private final CredentialCache credentialCache;
+
+    public AccountAuthenticator(AccountsManager accountsManager, LastSeenTracker lastSeenTracker) {
+        this(accountsManager, lastSeenTracker, new CredentialCache(CREDENTIAL_CACHE_SIZE, CREDENTIAL_CACHE_TTL, TimeUnit.SECONDS));
+    }
 
-    public AccountAuthenticator(AccountsManager accountsManager) {
+    @VisibleForTesting
+    public AccountAuthenticator(AccountsManager accountsManager, LastSeenTracker lastSeenTracker, CredentialCache credentialCache) {
         this.accountsManager = accountsManager;
+        this.lastSeenTracker = lastSeenTracker;
+        this.credentialCache = credentialCache;
     }
 
     @Override
@@ -59,7 +75,9 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Acc
                 return Optional.absent();
             }
 
-            if (device.get().getAuthenticationCredentials().verify(basicCredentials.getPassword())) {
+            if (credentialCache.verify(authorizationHeader.getNumber(), authorizationHeader.getDeviceId(),
+                                       basicCredentials.getPassword(), device.get().getAuthenticationCredentials()))
+            {
                 authenticationSucceededMeter.mark();
                 account.get().setAuthenticatedDevice(device.get());
                 updateLastSeen(account.get(), device.get());
@@ -74,9 +92,9 @@ public class AccountAuthenticator implements Authenticator<BasicCredentials, Acc
     }
 
     private void updateLastSeen(Account account, Device device) {
-        if (device.getLastSeen() != Util.todayInMillis()) {
+        if (lastSeenTracker.onAuthenticated(account, device)) {
             device.setLastSeen(Util.todayInMillis());
-            accountsManager.update(account);
+            accountsManager.updateDevice(account, device);
         }
     }
 
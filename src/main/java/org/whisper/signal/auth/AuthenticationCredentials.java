@@ -12,18 +12,15 @@
 package org.whisper.signal.auth;
 
 import org.apache.commons.codec.binary.Hex;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
 public class AuthenticationCredentials {
 
-    private final Logger logger = LoggerFactory.getLogger(AuthenticationCredentials.class);
-
     private final String hashedAuthenticationToken;
     private final String salt;
 
@@ -46,17 +43,17 @@ public class AuthenticationCredentials {
     }
 
     public boolean verify(String authenticationToken) {
-        String theirValue = getHashedValue(salt, authenticationToken);
+        if (hashedAuthenticationToken == null) {
+            return false;
+        }
 
-        logger.debug("Comparing: " + theirValue + " , " + this.hashedAuthenticationToken);
+        String theirValue = getHashedValue(salt, authenticationToken);
 
-        return theirValue.equals(this.hashedAuthenticationToken);
+        return MessageDigest.isEqual(theirValue.getBytes(StandardCharsets.UTF_8),
+                                     hashedAuthenticationToken.getBytes(StandardCharsets.UTF_8));
     }
 
     private static String getHashedValue(String salt, String token) {
-        Logger logger = LoggerFactory.getLogger(AuthenticationCredentials.class);
-        logger.debug("Getting hashed token: " + salt + " , " + token);
-
         try {
             return new String(Hex.encodeHex(MessageDigest.getInstance("SHA1").digest((salt + token).getBytes("UTF-8"))));
         } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
@@ -0,0 +1,42 @@
+package org.whisper.signal.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+public class AccountCacheConfiguration {
+
+    /**
+     * Whether accounts are cached in process in front of Redis. Can be changed at
+     * runtime with the account-cache admin task.
+     */
+    @JsonProperty
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of accounts held in process.
+     */
+    @JsonProperty
+    @Min(1)
+    private long maxSize = 100000;
+
+    /**
+     * Time, in seconds, an account stays cached after it was loaded. This bounds how stale
+     * an entry can get if an invalidation is lost.
+     */
+    @JsonProperty
+    @Min(1)
+    private int ttl = 30;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public int getTtl() {
+        return ttl;
+    }
+}
@@ -14,6 +14,7 @@ package org.whisper.signal.configuration;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 public class GcmConfiguration {
@@ -26,6 +27,10 @@ public class GcmConfiguration {
     @JsonProperty
     private String apiKey;
 
+    @JsonProperty
+    @Min(0)
+    private long batchWindow = 50;
+
     public String getApiKey() {
         return apiKey;
     }
@@ -34,4 +39,8 @@ public class GcmConfiguration {
         return senderId;
     }
 
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
 }
@@ -27,6 +27,10 @@ public class PushConfiguration {
     @Min(0)
     private int queueSize = 200;
 
+    @JsonProperty
+    @Min(0)
+    private long coalesceWindow = 1000;
+
     public String getHost() {
         return host;
     }
@@ -46,4 +50,8 @@ public class PushConfiguration {
     public int getQueueSize() {
         return queueSize;
     }
+
+    public long getCoalesceWindow() {
+        return coalesceWindow;
+    }
 }
@@ -0,0 +1,48 @@
+package org.whisper.signal.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.LinkedList;
+import java.util.List;
+
+import io.dropwizard.db.DataSourceFactory;
+
+public class ReplicaConfiguration {
+
+    /**
+     * Streaming replicas of the account database. Reads stay on the primary when empty.
+     */
+    @Valid
+    @NotNull
+    @JsonProperty
+    private List<DataSourceFactory> databases = new LinkedList<>();
+
+    /**
+     * Replication lag, in milliseconds, beyond which a replica stops taking reads.
+     */
+    @JsonProperty
+    @Min(0)
+    private long maxLag = 1000;
+
+    /**
+     * How often, in milliseconds, each replica's lag is measured.
+     */
+    @JsonProperty
+    @Min(100)
+    private long probeInterval = 1000;
+
+    public List<DataSourceFactory> getDatabases() {
+        return databases;
+    }
+
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    public long getProbeInterval() {
+        return probeInterval;
+    }
+}
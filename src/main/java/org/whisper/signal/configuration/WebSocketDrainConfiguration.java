@@ -0,0 +1,41 @@
+package org.whisper.signal.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+public class WebSocketDrainConfiguration {
+
+    /**
+     * Number of websocket connections closed per second while draining.
+     */
+    @JsonProperty
+    @Min(1)
+    private int closeRate = 50;
+
+    /**
+     * Upper bound, in seconds, of the randomized reconnect delay hinted to closed clients.
+     */
+    @JsonProperty
+    @Min(0)
+    private int maxReconnectDelay = 60;
+
+    /**
+     * Maximum time, in seconds, a shutdown will wait for connections to drain.
+     */
+    @JsonProperty
+    @Min(0)
+    private int timeout = 120;
+
+    public int getCloseRate() {
+        return closeRate;
+    }
+
+    public int getMaxReconnectDelay() {
+        return maxReconnectDelay;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+}
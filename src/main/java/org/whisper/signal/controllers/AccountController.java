@@ -36,6 +36,7 @@ import org.whisper.signal.sms.SmsSender;
 import org.whisper.signal.sms.TwilioSmsSender;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.ActiveUsers;
 import org.whisper.signal.storage.Device;
 import org.whisper.signal.storage.MessagesManager;
 import org.whisper.signal.storage.PendingAccountsManager;
@@ -80,6 +81,7 @@ public class AccountController {
     private final Optional<AuthorizationTokenGenerator> tokenGenerator;
     private final TurnTokenGenerator turnTokenGenerator;
     private final Map<String, Integer> testDevices;
+    private final ActiveUsers activeUsers;
 
     public AccountController(PendingAccountsManager pendingAccounts,
         AccountsManager accounts,
@@ -89,7 +91,8 @@ public class AccountController {
         TimeProvider timeProvider,
         Optional<byte[]> authorizationKey,
         TurnTokenGenerator turnTokenGenerator,
-        Map<String, Integer> testDevices) {
+        Map<String, Integer> testDevices,
+        ActiveUsers activeUsers) {
         this.pendingAccounts = pendingAccounts;
         this.accounts = accounts;
         this.rateLimiters = rateLimiters;
@@ -98,6 +101,7 @@ public class AccountController {
         this.timeProvider = timeProvider;
         this.testDevices = testDevices;
         this.turnTokenGenerator = turnTokenGenerator;
+        this.activeUsers = activeUsers;
 
         if (authorizationKey.isPresent()) {
             tokenGenerator = Optional.of(new AuthorizationTokenGenerator(authorizationKey.get()));
@@ -256,7 +260,8 @@ public class AccountController {
             device.setFetchesMessages(false);
         }
 
-        accounts.update(account);
+        accounts.updateDevice(account, device);
+        activeUsers.record(account, device);
     }
 
     @Timed
@@ -266,7 +271,7 @@ public class AccountController {
         Device device = account.getAuthenticatedDevice().get();
         device.setGcmId(null);
         device.setFetchesMessages(false);
-        accounts.update(account);
+        accounts.updateDevice(account, device);
     }
 
     @Timed
@@ -279,7 +284,8 @@ public class AccountController {
         device.setVoipApnId(registrationId.getVoipRegistrationId());
         device.setGcmId(null);
         device.setFetchesMessages(true);
-        accounts.update(account);
+        accounts.updateDevice(account, device);
+        activeUsers.record(account, device);
     }
 
     @Timed
@@ -289,7 +295,7 @@ public class AccountController {
         Device device = account.getAuthenticatedDevice().get();
         device.setApnId(null);
         device.setFetchesMessages(false);
-        accounts.update(account);
+        accounts.updateDevice(account, device);
     }
 
     @Timed
@@ -306,11 +312,12 @@ public class AccountController {
         device.setLastSeen(Util.todayInMillis());
         device.setVoiceSupported(attributes.getVoice());
         device.setVideoSupported(attributes.getVideo());
+        device.setMultiReceiptsSupported(attributes.getMultiReceipts());
         device.setRegistrationId(attributes.getRegistrationId());
         device.setSignalingKey(attributes.getSignalingKey());
         device.setUserAgent(userAgent);
 
-        accounts.update(account);
+        accounts.updateDevice(account, device);
     }
 
     @Timed
@@ -332,6 +339,7 @@ public class AccountController {
         device.setName(accountAttributes.getName());
         device.setVoiceSupported(accountAttributes.getVoice());
         device.setVideoSupported(accountAttributes.getVideo());
+        device.setMultiReceiptsSupported(accountAttributes.getMultiReceipts());
         device.setCreated(System.currentTimeMillis());
         device.setLastSeen(Util.todayInMillis());
         device.setUserAgent(userAgent);
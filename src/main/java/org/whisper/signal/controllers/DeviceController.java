@@ -180,6 +180,7 @@ public class DeviceController {
             device.setFetchesMessages(accountAttributes.getFetchesMessages());
             device.setId(account.get().getNextDeviceId());
             device.setRegistrationId(accountAttributes.getRegistrationId());
+            device.setMultiReceiptsSupported(accountAttributes.getMultiReceipts());
             device.setLastSeen(Util.todayInMillis());
             device.setCreated(System.currentTimeMillis());
 
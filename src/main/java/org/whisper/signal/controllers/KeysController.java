@@ -30,6 +30,7 @@ import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.Device;
 import org.whisper.signal.storage.KeyRecord;
 import org.whisper.signal.storage.Keys;
+import org.whisper.signal.storage.ReplicaRouter;
 
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
@@ -56,19 +57,26 @@ public class KeysController {
     private final Keys keys;
     private final AccountsManager accounts;
     private final FederatedClientManager federatedClientManager;
+    private final ReplicaRouter<Keys> replicas;
 
     public KeysController(RateLimiters rateLimiters, Keys keys, AccountsManager accounts,
         FederatedClientManager federatedClientManager) {
+        this(rateLimiters, keys, accounts, federatedClientManager, ReplicaRouter.primaryOnly(keys));
+    }
+
+    public KeysController(RateLimiters rateLimiters, Keys keys, AccountsManager accounts,
+        FederatedClientManager federatedClientManager, ReplicaRouter<Keys> replicas) {
         this.rateLimiters = rateLimiters;
         this.keys = keys;
         this.accounts = accounts;
         this.federatedClientManager = federatedClientManager;
+        this.replicas = replicas;
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public PreKeyCount getStatus(@Auth Account account) {
-        int count = keys.getCount(account.getNumber(), account.getAuthenticatedDevice().get().getId());
+        int count = replicas.forRead(account.getNumber()).getCount(account.getNumber(), account.getAuthenticatedDevice().get().getId());
 
         if (count > 0) {
             count = count - 1;
@@ -82,11 +90,12 @@ public class KeysController {
     @Consumes(MediaType.APPLICATION_JSON)
     public void setKeys(@Auth Account account, @Valid PreKeyState preKeys) {
         Device device = account.getAuthenticatedDevice().get();
+        boolean updateDevice = false;
         boolean updateAccount = false;
 
         if (!preKeys.getSignedPreKey().equals(device.getSignedPreKey())) {
             device.setSignedPreKey(preKeys.getSignedPreKey());
-            updateAccount = true;
+            updateDevice = true;
         }
 
         if (!preKeys.getIdentityKey().equals(account.getIdentityKey())) {
@@ -96,8 +105,11 @@ public class KeysController {
 
         if (updateAccount) {
             accounts.update(account);
+        } else if (updateDevice) {
+            accounts.updateDevice(account, device);
         }
 
+        replicas.onWrite(account.getNumber());
         keys.store(account.getNumber(), device.getId(), preKeys.getPreKeys());
     }
 
@@ -160,7 +172,7 @@ public class KeysController {
     public void setSignedKey(@Auth Account account, @Valid SignedPreKey signedPreKey) {
         Device device = account.getAuthenticatedDevice().get();
         device.setSignedPreKey(signedPreKey);
-        accounts.update(account);
+        accounts.updateDevice(account, device);
     }
 
     @Timed
@@ -180,6 +192,9 @@ public class KeysController {
 
     private Optional<List<KeyRecord>> getLocalKeys(Account destination, String deviceIdSelector)
         throws NoSuchUserException {
+        // Fetching a prekey consumes it, so the owner's next count has to see that.
+        replicas.onWrite(destination.getNumber());
+
         try {
             if (deviceIdSelector.equals("*")) {
                 return keys.get(destination.getNumber());
@@ -29,9 +29,9 @@ import org.whisper.signal.federation.FederatedClientManager;
 import org.whisper.signal.federation.NoSuchPeerException;
 import org.whisper.signal.limits.RateLimiters;
 import org.whisper.signal.push.NotPushRegisteredException;
+import org.whisper.signal.push.PushLatencyTracker;
 import org.whisper.signal.push.PushSender;
 import org.whisper.signal.push.ReceiptSender;
-import org.whisper.signal.push.TransientPushFailureException;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.Device;
@@ -70,19 +70,22 @@ public class MessageController {
     private final FederatedClientManager federatedClientManager;
     private final AccountsManager accountsManager;
     private final MessagesManager messagesManager;
+    private final PushLatencyTracker latencyTracker;
 
     public MessageController(RateLimiters rateLimiters,
         PushSender pushSender,
         ReceiptSender receiptSender,
         AccountsManager accountsManager,
         MessagesManager messagesManager,
-        FederatedClientManager federatedClientManager) {
+        FederatedClientManager federatedClientManager,
+        PushLatencyTracker latencyTracker) {
         this.rateLimiters = rateLimiters;
         this.pushSender = pushSender;
         this.receiptSender = receiptSender;
         this.accountsManager = accountsManager;
         this.messagesManager = messagesManager;
         this.federatedClientManager = federatedClientManager;
+        this.latencyTracker = latencyTracker;
     }
 
     @Timed
@@ -126,6 +129,9 @@ public class MessageController {
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public OutgoingMessageEntityList getPendingMessages(@Auth Account account) {
+        latencyTracker.onDeviceArrived(account.getNumber(), account.getAuthenticatedDevice().get().getId(),
+            PushLatencyTracker.Arrival.FETCH);
+
         return messagesManager.getMessagesForDevice(account.getNumber(),
             account.getAuthenticatedDevice().get().getId());
     }
@@ -137,23 +143,17 @@ public class MessageController {
         @PathParam("source") String source,
         @PathParam("timestamp") long timestamp)
         throws IOException {
-        try {
-            WebSocketConnection.messageTime.update(System.currentTimeMillis() - timestamp);
+        WebSocketConnection.messageTime.update(System.currentTimeMillis() - timestamp);
 
-            Optional<OutgoingMessageEntity> message = messagesManager.delete(account.getNumber(),
-                account.getAuthenticatedDevice().get().getId(),
-                source, timestamp);
+        Optional<OutgoingMessageEntity> message = messagesManager.delete(account.getNumber(),
+            account.getAuthenticatedDevice().get().getId(),
+            source, timestamp);
 
-            if (message.isPresent() && message.get().getType() != Envelope.Type.RECEIPT_VALUE) {
-                receiptSender.sendReceipt(account,
-                    message.get().getSource(),
-                    message.get().getTimestamp(),
-                    Optional.fromNullable(message.get().getRelay()));
-            }
-        } catch (NotPushRegisteredException e) {
-            logger.info("User no longer push registered for delivery receipt: " + e.getMessage());
-        } catch (NoSuchUserException | TransientPushFailureException e) {
-            logger.warn("Sending delivery receipt", e);
+        if (message.isPresent() && message.get().getType() != Envelope.Type.RECEIPT_VALUE) {
+            receiptSender.sendReceiptAsync(account,
+                message.get().getSource(),
+                message.get().getTimestamp(),
+                Optional.fromNullable(message.get().getRelay()));
         }
     }
 
@@ -38,6 +38,9 @@ public class AccountAttributes {
     @JsonProperty
     private boolean video;
 
+    @JsonProperty
+    private boolean multiReceipts;
+
     public AccountAttributes() {
     }
 
@@ -80,4 +83,8 @@ public class AccountAttributes {
         return video;
     }
 
+    public boolean getMultiReceipts() {
+        return multiReceipts;
+    }
+
 }
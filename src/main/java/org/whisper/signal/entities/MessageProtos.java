@@ -1,145 +1,146 @@
 // Generated by the protocol buffer compiler.  DO NOT EDIT!
 // source: TextSecure.proto
+
 package org.whisper.signal.entities;
 
 public final class MessageProtos {
-
-    private MessageProtos() {
-    }
-
+    private MessageProtos() {}
     public static void registerAllExtensions(
-        com.google.protobuf.ExtensionRegistry registry) {
+            com.google.protobuf.ExtensionRegistry registry) {
     }
+    public interface EnvelopeOrBuilder extends
+            // @@protoc_insertion_point(interface_extends:textsecure.Envelope)
+            com.google.protobuf.MessageOrBuilder {
 
-    public interface EnvelopeOrBuilder
-        extends com.google.protobuf.MessageOrBuilder {
-
-        // optional .textsecure.Envelope.Type type = 1;
         /**
-         * <code>optional .textsecure.Envelope.Type type = 1;</code>
-         */
+          * <code>optional .textsecure.Envelope.Type type = 1;</code>
+          */
         boolean hasType();
-
         /**
-         * <code>optional .textsecure.Envelope.Type type = 1;</code>
-         */
+          * <code>optional .textsecure.Envelope.Type type = 1;</code>
+          */
         org.whisper.signal.entities.MessageProtos.Envelope.Type getType();
 
-        // optional string source = 2;
         /**
-         * <code>optional string source = 2;</code>
-         */
+          * <code>optional string source = 2;</code>
+          */
         boolean hasSource();
-
         /**
-         * <code>optional string source = 2;</code>
-         */
+          * <code>optional string source = 2;</code>
+          */
         java.lang.String getSource();
-
         /**
-         * <code>optional string source = 2;</code>
-         */
+          * <code>optional string source = 2;</code>
+          */
         com.google.protobuf.ByteString
-            getSourceBytes();
+                getSourceBytes();
 
-        // optional uint32 sourceDevice = 7;
         /**
-         * <code>optional uint32 sourceDevice = 7;</code>
-         */
+          * <code>optional uint32 sourceDevice = 7;</code>
+          */
         boolean hasSourceDevice();
-
         /**
-         * <code>optional uint32 sourceDevice = 7;</code>
-         */
+          * <code>optional uint32 sourceDevice = 7;</code>
+          */
         int getSourceDevice();
 
-        // optional string relay = 3;
         /**
-         * <code>optional string relay = 3;</code>
-         */
+          * <code>optional string relay = 3;</code>
+          */
         boolean hasRelay();
-
         /**
-         * <code>optional string relay = 3;</code>
-         */
+          * <code>optional string relay = 3;</code>
+          */
         java.lang.String getRelay();
-
         /**
-         * <code>optional string relay = 3;</code>
-         */
+          * <code>optional string relay = 3;</code>
+          */
         com.google.protobuf.ByteString
-            getRelayBytes();
+                getRelayBytes();
 
-        // optional uint64 timestamp = 5;
         /**
-         * <code>optional uint64 timestamp = 5;</code>
-         */
+          * <code>optional uint64 timestamp = 5;</code>
+          */
         boolean hasTimestamp();
-
         /**
-         * <code>optional uint64 timestamp = 5;</code>
-         */
+          * <code>optional uint64 timestamp = 5;</code>
+          */
         long getTimestamp();
 
-        // optional bytes legacyMessage = 6;
         /**
-         * <code>optional bytes legacyMessage = 6;</code>
-         *
-         * <pre>
-         * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
-         * </pre>
-         */
+          * <code>optional bytes legacyMessage = 6;</code>
+          *
+          * <pre>
+          * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
+          * </pre>
+          */
         boolean hasLegacyMessage();
-
         /**
-         * <code>optional bytes legacyMessage = 6;</code>
-         *
-         * <pre>
-         * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
-         * </pre>
-         */
+          * <code>optional bytes legacyMessage = 6;</code>
+          *
+          * <pre>
+          * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
+          * </pre>
+          */
         com.google.protobuf.ByteString getLegacyMessage();
 
-        // optional bytes content = 8;
         /**
-         * <code>optional bytes content = 8;</code>
-         *
-         * <pre>
-         * Contains an encrypted Content
-         * </pre>
-         */
+          * <code>optional bytes content = 8;</code>
+          *
+          * <pre>
+          * Contains an encrypted Content
+          * </pre>
+          */
         boolean hasContent();
-
         /**
-         * <code>optional bytes content = 8;</code>
-         *
-         * <pre>
-         * Contains an encrypted Content
-         * </pre>
-         */
+          * <code>optional bytes content = 8;</code>
+          *
+          * <pre>
+          * Contains an encrypted Content
+          * </pre>
+          */
         com.google.protobuf.ByteString getContent();
-    }
 
+        /**
+          * <code>repeated uint64 timestamps = 9;</code>
+          *
+          * <pre>
+          * Every timestamp acknowledged by an aggregated RECEIPT
+          * </pre>
+          */
+        java.util.List<java.lang.Long> getTimestampsList();
+        /**
+          * <code>repeated uint64 timestamps = 9;</code>
+          *
+          * <pre>
+          * Every timestamp acknowledged by an aggregated RECEIPT
+          * </pre>
+          */
+        int getTimestampsCount();
+        /**
+          * <code>repeated uint64 timestamps = 9;</code>
+          *
+          * <pre>
+          * Every timestamp acknowledged by an aggregated RECEIPT
+          * </pre>
+          */
+        long getTimestamps(int index);
+    }
     /**
-     * Protobuf type {@code textsecure.Envelope}
-     */
+      * Protobuf type {@code textsecure.Envelope}
+      */
     public static final class Envelope extends
-        com.google.protobuf.GeneratedMessage
-        implements EnvelopeOrBuilder {
-
+            com.google.protobuf.GeneratedMessage implements
+            // @@protoc_insertion_point(message_implements:textsecure.Envelope)
+            EnvelopeOrBuilder {
         // Use Envelope.newBuilder() to construct.
-
         private Envelope(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
             super(builder);
             this.unknownFields = builder.getUnknownFields();
         }
-
-        private Envelope(boolean noInit) {
-            this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance();
-        }
+        private Envelope(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
 
         private static final Envelope defaultInstance;
-
         public static Envelope getDefaultInstance() {
             return defaultInstance;
         }
@@ -149,21 +150,19 @@ public final class MessageProtos {
         }
 
         private final com.google.protobuf.UnknownFieldSet unknownFields;
-
         @java.lang.Override
         public final com.google.protobuf.UnknownFieldSet
-            getUnknownFields() {
+                getUnknownFields() {
             return this.unknownFields;
         }
-
         private Envelope(
-            com.google.protobuf.CodedInputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             initFields();
             int mutable_bitField0_ = 0;
-            com.google.protobuf.UnknownFieldSet.Builder unknownFields
-                = com.google.protobuf.UnknownFieldSet.newBuilder();
+            com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+                    com.google.protobuf.UnknownFieldSet.newBuilder();
             try {
                 boolean done = false;
                 while (!done) {
@@ -174,7 +173,7 @@ public final class MessageProtos {
                             break;
                         default: {
                             if (!parseUnknownField(input, unknownFields,
-                                extensionRegistry, tag)) {
+                                                                          extensionRegistry, tag)) {
                                 done = true;
                             }
                             break;
@@ -191,13 +190,15 @@ public final class MessageProtos {
                             break;
                         }
                         case 18: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
                             bitField0_ |= 0x00000002;
-                            source_ = input.readBytes();
+                            source_ = bs;
                             break;
                         }
                         case 26: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
                             bitField0_ |= 0x00000008;
-                            relay_ = input.readBytes();
+                            relay_ = bs;
                             break;
                         }
                         case 40: {
@@ -220,39 +221,63 @@ public final class MessageProtos {
                             content_ = input.readBytes();
                             break;
                         }
+                        case 72: {
+                            if (!((mutable_bitField0_ & 0x00000080) == 0x00000080)) {
+                                timestamps_ = new java.util.ArrayList<java.lang.Long>();
+                                mutable_bitField0_ |= 0x00000080;
+                            }
+                            timestamps_.add(input.readUInt64());
+                            break;
+                        }
+                        case 74: {
+                            int length = input.readRawVarint32();
+                            int limit = input.pushLimit(length);
+                            if (!((mutable_bitField0_ & 0x00000080) == 0x00000080) && input.getBytesUntilLimit() > 0) {
+                                timestamps_ = new java.util.ArrayList<java.lang.Long>();
+                                mutable_bitField0_ |= 0x00000080;
+                            }
+                            while (input.getBytesUntilLimit() > 0) {
+                                timestamps_.add(input.readUInt64());
+                            }
+                            input.popLimit(limit);
+                            break;
+                        }
                     }
                 }
             } catch (com.google.protobuf.InvalidProtocolBufferException e) {
                 throw e.setUnfinishedMessage(this);
             } catch (java.io.IOException e) {
                 throw new com.google.protobuf.InvalidProtocolBufferException(
-                    e.getMessage()).setUnfinishedMessage(this);
+                        e.getMessage()).setUnfinishedMessage(this);
             } finally {
+                if (((mutable_bitField0_ & 0x00000080) == 0x00000080)) {
+                    timestamps_ = java.util.Collections.unmodifiableList(timestamps_);
+                }
                 this.unknownFields = unknownFields.build();
                 makeExtensionsImmutable();
             }
         }
-
         public static final com.google.protobuf.Descriptors.Descriptor
-            getDescriptor() {
+                getDescriptor() {
             return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_Envelope_descriptor;
         }
 
         protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
-            internalGetFieldAccessorTable() {
+                internalGetFieldAccessorTable() {
             return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_Envelope_fieldAccessorTable
-                .ensureFieldAccessorsInitialized(org.whisper.signal.entities.MessageProtos.Envelope.class, org.whisper.signal.entities.MessageProtos.Envelope.Builder.class);
+                    .ensureFieldAccessorsInitialized(
+                            org.whisper.signal.entities.MessageProtos.Envelope.class, org.whisper.signal.entities.MessageProtos.Envelope.Builder.class);
         }
 
-        public static com.google.protobuf.Parser<Envelope> PARSER
-            = new com.google.protobuf.AbstractParser<Envelope>() {
-                public Envelope parsePartialFrom(
+        public static com.google.protobuf.Parser<Envelope> PARSER =
+                new com.google.protobuf.AbstractParser<Envelope>() {
+            public Envelope parsePartialFrom(
                     com.google.protobuf.CodedInputStream input,
                     com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-                throws com.google.protobuf.InvalidProtocolBufferException {
-                    return new Envelope(input, extensionRegistry);
-                }
-            };
+                    throws com.google.protobuf.InvalidProtocolBufferException {
+                return new Envelope(input, extensionRegistry);
+            }
+        };
 
         @java.lang.Override
         public com.google.protobuf.Parser<Envelope> getParserForType() {
@@ -260,104 +285,96 @@ public final class MessageProtos {
         }
 
         /**
-         * Protobuf enum {@code textsecure.Envelope.Type}
-         */
+          * Protobuf enum {@code textsecure.Envelope.Type}
+          */
         public enum Type
-            implements com.google.protobuf.ProtocolMessageEnum {
-
+                implements com.google.protobuf.ProtocolMessageEnum {
             /**
-             * <code>UNKNOWN = 0;</code>
-             */
+              * <code>UNKNOWN = 0;</code>
+              */
             UNKNOWN(0, 0),
             /**
-             * <code>CIPHERTEXT = 1;</code>
-             */
+              * <code>CIPHERTEXT = 1;</code>
+              */
             CIPHERTEXT(1, 1),
             /**
-             * <code>KEY_EXCHANGE = 2;</code>
-             */
+              * <code>KEY_EXCHANGE = 2;</code>
+              */
             KEY_EXCHANGE(2, 2),
             /**
-             * <code>PREKEY_BUNDLE = 3;</code>
-             */
+              * <code>PREKEY_BUNDLE = 3;</code>
+              */
             PREKEY_BUNDLE(3, 3),
             /**
-             * <code>RECEIPT = 5;</code>
-             */
-            RECEIPT(4, 5),;
+              * <code>RECEIPT = 5;</code>
+              */
+            RECEIPT(4, 5),
+            ;
 
             /**
-             * <code>UNKNOWN = 0;</code>
-             */
+              * <code>UNKNOWN = 0;</code>
+              */
             public static final int UNKNOWN_VALUE = 0;
             /**
-             * <code>CIPHERTEXT = 1;</code>
-             */
+              * <code>CIPHERTEXT = 1;</code>
+              */
             public static final int CIPHERTEXT_VALUE = 1;
             /**
-             * <code>KEY_EXCHANGE = 2;</code>
-             */
+              * <code>KEY_EXCHANGE = 2;</code>
+              */
             public static final int KEY_EXCHANGE_VALUE = 2;
             /**
-             * <code>PREKEY_BUNDLE = 3;</code>
-             */
+              * <code>PREKEY_BUNDLE = 3;</code>
+              */
             public static final int PREKEY_BUNDLE_VALUE = 3;
             /**
-             * <code>RECEIPT = 5;</code>
-             */
+              * <code>RECEIPT = 5;</code>
+              */
             public static final int RECEIPT_VALUE = 5;
 
-            public final int getNumber() {
-                return value;
-            }
+
+            public final int getNumber() { return value; }
 
             public static Type valueOf(int value) {
                 switch (value) {
-                    case 0:
-                        return UNKNOWN;
-                    case 1:
-                        return CIPHERTEXT;
-                    case 2:
-                        return KEY_EXCHANGE;
-                    case 3:
-                        return PREKEY_BUNDLE;
-                    case 5:
-                        return RECEIPT;
-                    default:
-                        return null;
+                    case 0: return UNKNOWN;
+                    case 1: return CIPHERTEXT;
+                    case 2: return KEY_EXCHANGE;
+                    case 3: return PREKEY_BUNDLE;
+                    case 5: return RECEIPT;
+                    default: return null;
                 }
             }
 
             public static com.google.protobuf.Internal.EnumLiteMap<Type>
-                internalGetValueMap() {
+                    internalGetValueMap() {
                 return internalValueMap;
             }
-            private static com.google.protobuf.Internal.EnumLiteMap<Type> internalValueMap
-                = new com.google.protobuf.Internal.EnumLiteMap<Type>() {
-                    public Type findValueByNumber(int number) {
-                        return Type.valueOf(number);
-                    }
-                };
+            private static com.google.protobuf.Internal.EnumLiteMap<Type>
+                    internalValueMap =
+                        new com.google.protobuf.Internal.EnumLiteMap<Type>() {
+                            public Type findValueByNumber(int number) {
+                                return Type.valueOf(number);
+                            }
+                        };
 
             public final com.google.protobuf.Descriptors.EnumValueDescriptor
-                getValueDescriptor() {
+                    getValueDescriptor() {
                 return getDescriptor().getValues().get(index);
             }
-
             public final com.google.protobuf.Descriptors.EnumDescriptor
-                getDescriptorForType() {
+                    getDescriptorForType() {
                 return getDescriptor();
             }
-
             public static final com.google.protobuf.Descriptors.EnumDescriptor
-                getDescriptor() {
+                    getDescriptor() {
                 return org.whisper.signal.entities.MessageProtos.Envelope.getDescriptor().getEnumTypes().get(0);
             }
 
             private static final Type[] VALUES = values();
 
             public static Type valueOf(
-                com.google.protobuf.Descriptors.EnumValueDescriptor desc) {
+                    com.google.protobuf.Descriptors.EnumValueDescriptor desc) {
                 if (desc.getType() != getDescriptor()) {
                     throw new java.lang.IllegalArgumentException(
                         "EnumValueDescriptor is not for this type.");
@@ -377,45 +394,39 @@ public final class MessageProtos {
         }
 
         private int bitField0_;
-        // optional .textsecure.Envelope.Type type = 1;
         public static final int TYPE_FIELD_NUMBER = 1;
         private org.whisper.signal.entities.MessageProtos.Envelope.Type type_;
-
         /**
-         * <code>optional .textsecure.Envelope.Type type = 1;</code>
-         */
+          * <code>optional .textsecure.Envelope.Type type = 1;</code>
+          */
         public boolean hasType() {
             return ((bitField0_ & 0x00000001) == 0x00000001);
         }
-
         /**
-         * <code>optional .textsecure.Envelope.Type type = 1;</code>
-         */
+          * <code>optional .textsecure.Envelope.Type type = 1;</code>
+          */
         public org.whisper.signal.entities.MessageProtos.Envelope.Type getType() {
             return type_;
         }
 
-        // optional string source = 2;
         public static final int SOURCE_FIELD_NUMBER = 2;
         private java.lang.Object source_;
-
         /**
-         * <code>optional string source = 2;</code>
-         */
+          * <code>optional string source = 2;</code>
+          */
         public boolean hasSource() {
             return ((bitField0_ & 0x00000002) == 0x00000002);
         }
-
         /**
-         * <code>optional string source = 2;</code>
-         */
+          * <code>optional string source = 2;</code>
+          */
         public java.lang.String getSource() {
             java.lang.Object ref = source_;
             if (ref instanceof java.lang.String) {
                 return (java.lang.String) ref;
             } else {
-                com.google.protobuf.ByteString bs
-                    = (com.google.protobuf.ByteString) ref;
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
                 java.lang.String s = bs.toStringUtf8();
                 if (bs.isValidUtf8()) {
                     source_ = s;
@@ -423,17 +434,16 @@ public final class MessageProtos {
                 return s;
             }
         }
-
         /**
-         * <code>optional string source = 2;</code>
-         */
+          * <code>optional string source = 2;</code>
+          */
         public com.google.protobuf.ByteString
-            getSourceBytes() {
+                getSourceBytes() {
             java.lang.Object ref = source_;
             if (ref instanceof java.lang.String) {
-                com.google.protobuf.ByteString b
-                    = com.google.protobuf.ByteString.copyFromUtf8(
-                        (java.lang.String) ref);
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
                 source_ = b;
                 return b;
             } else {
@@ -441,45 +451,39 @@ public final class MessageProtos {
             }
         }
 
-        // optional uint32 sourceDevice = 7;
         public static final int SOURCEDEVICE_FIELD_NUMBER = 7;
         private int sourceDevice_;
-
         /**
-         * <code>optional uint32 sourceDevice = 7;</code>
-         */
+          * <code>optional uint32 sourceDevice = 7;</code>
+          */
         public boolean hasSourceDevice() {
             return ((bitField0_ & 0x00000004) == 0x00000004);
         }
-
         /**
-         * <code>optional uint32 sourceDevice = 7;</code>
-         */
+          * <code>optional uint32 sourceDevice = 7;</code>
+          */
         public int getSourceDevice() {
             return sourceDevice_;
         }
 
-        // optional string relay = 3;
         public static final int RELAY_FIELD_NUMBER = 3;
         private java.lang.Object relay_;
-
         /**
-         * <code>optional string relay = 3;</code>
-         */
+          * <code>optional string relay = 3;</code>
+          */
         public boolean hasRelay() {
             return ((bitField0_ & 0x00000008) == 0x00000008);
         }
-
         /**
-         * <code>optional string relay = 3;</code>
-         */
+          * <code>optional string relay = 3;</code>
+          */
         public java.lang.String getRelay() {
             java.lang.Object ref = relay_;
             if (ref instanceof java.lang.String) {
                 return (java.lang.String) ref;
             } else {
-                com.google.protobuf.ByteString bs
-                    = (com.google.protobuf.ByteString) ref;
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
                 java.lang.String s = bs.toStringUtf8();
                 if (bs.isValidUtf8()) {
                     relay_ = s;
@@ -487,17 +491,16 @@ public final class MessageProtos {
                 return s;
             }
         }
-
         /**
-         * <code>optional string relay = 3;</code>
-         */
+          * <code>optional string relay = 3;</code>
+          */
         public com.google.protobuf.ByteString
-            getRelayBytes() {
+                getRelayBytes() {
             java.lang.Object ref = relay_;
             if (ref instanceof java.lang.String) {
-                com.google.protobuf.ByteString b
-                    = com.google.protobuf.ByteString.copyFromUtf8(
-                        (java.lang.String) ref);
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
                 relay_ = b;
                 return b;
             } else {
@@ -505,76 +508,101 @@ public final class MessageProtos {
             }
         }
 
-        // optional uint64 timestamp = 5;
         public static final int TIMESTAMP_FIELD_NUMBER = 5;
         private long timestamp_;
-
         /**
-         * <code>optional uint64 timestamp = 5;</code>
-         */
+          * <code>optional uint64 timestamp = 5;</code>
+          */
         public boolean hasTimestamp() {
             return ((bitField0_ & 0x00000010) == 0x00000010);
         }
-
         /**
-         * <code>optional uint64 timestamp = 5;</code>
-         */
+          * <code>optional uint64 timestamp = 5;</code>
+          */
         public long getTimestamp() {
             return timestamp_;
         }
 
-        // optional bytes legacyMessage = 6;
         public static final int LEGACYMESSAGE_FIELD_NUMBER = 6;
         private com.google.protobuf.ByteString legacyMessage_;
-
         /**
-         * <code>optional bytes legacyMessage = 6;</code>
-         *
-         * <pre>
-         * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
-         * </pre>
-         */
+          * <code>optional bytes legacyMessage = 6;</code>
+          *
+          * <pre>
+          * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
+          * </pre>
+          */
         public boolean hasLegacyMessage() {
             return ((bitField0_ & 0x00000020) == 0x00000020);
         }
-
         /**
-         * <code>optional bytes legacyMessage = 6;</code>
-         *
-         * <pre>
-         * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
-         * </pre>
-         */
+          * <code>optional bytes legacyMessage = 6;</code>
+          *
+          * <pre>
+          * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
+          * </pre>
+          */
         public com.google.protobuf.ByteString getLegacyMessage() {
             return legacyMessage_;
         }
 
-        // optional bytes content = 8;
         public static final int CONTENT_FIELD_NUMBER = 8;
         private com.google.protobuf.ByteString content_;
-
         /**
-         * <code>optional bytes content = 8;</code>
-         *
-         * <pre>
-         * Contains an encrypted Content
-         * </pre>
-         */
+          * <code>optional bytes content = 8;</code>
+          *
+          * <pre>
+          * Contains an encrypted Content
+          * </pre>
+          */
         public boolean hasContent() {
             return ((bitField0_ & 0x00000040) == 0x00000040);
         }
-
         /**
-         * <code>optional bytes content = 8;</code>
-         *
-         * <pre>
-         * Contains an encrypted Content
-         * </pre>
-         */
+          * <code>optional bytes content = 8;</code>
+          *
+          * <pre>
+          * Contains an encrypted Content
+          * </pre>
+          */
         public com.google.protobuf.ByteString getContent() {
             return content_;
         }
 
+        public static final int TIMESTAMPS_FIELD_NUMBER = 9;
+        private java.util.List<java.lang.Long> timestamps_;
+        /**
+          * <code>repeated uint64 timestamps = 9;</code>
+          *
+          * <pre>
+          * Every timestamp acknowledged by an aggregated RECEIPT
+          * </pre>
+          */
+        public java.util.List<java.lang.Long>
+                getTimestampsList() {
+            return timestamps_;
+        }
+        /**
+          * <code>repeated uint64 timestamps = 9;</code>
+          *
+          * <pre>
+          * Every timestamp acknowledged by an aggregated RECEIPT
+          * </pre>
+          */
+        public int getTimestampsCount() {
+            return timestamps_.size();
+        }
+        /**
+          * <code>repeated uint64 timestamps = 9;</code>
+          *
+          * <pre>
+          * Every timestamp acknowledged by an aggregated RECEIPT
+          * </pre>
+          */
+        public long getTimestamps(int index) {
+            return timestamps_.get(index);
+        }
+
         private void initFields() {
             type_ = org.whisper.signal.entities.MessageProtos.Envelope.Type.UNKNOWN;
             source_ = "";
@@ -583,21 +611,20 @@ public final class MessageProtos {
             timestamp_ = 0L;
             legacyMessage_ = com.google.protobuf.ByteString.EMPTY;
             content_ = com.google.protobuf.ByteString.EMPTY;
+            timestamps_ = java.util.Collections.emptyList();
         }
         private byte memoizedIsInitialized = -1;
-
         public final boolean isInitialized() {
             byte isInitialized = memoizedIsInitialized;
-            if (isInitialized != -1) {
-                return isInitialized == 1;
-            }
+            if (isInitialized == 1) return true;
+            if (isInitialized == 0) return false;
 
             memoizedIsInitialized = 1;
             return true;
         }
 
         public void writeTo(com.google.protobuf.CodedOutputStream output)
-            throws java.io.IOException {
+                                                throws java.io.IOException {
             getSerializedSize();
             if (((bitField0_ & 0x00000001) == 0x00000001)) {
                 output.writeEnum(1, type_.getNumber());
@@ -620,16 +647,16 @@ public final class MessageProtos {
             if (((bitField0_ & 0x00000040) == 0x00000040)) {
                 output.writeBytes(8, content_);
             }
+            for (int i = 0; i < timestamps_.size(); i++) {
+                output.writeUInt64(9, timestamps_.get(i));
+            }
             getUnknownFields().writeTo(output);
         }
 
         private int memoizedSerializedSize = -1;
-
         public int getSerializedSize() {
             int size = memoizedSerializedSize;
-            if (size != -1) {
-                return size;
-            }
+            if (size != -1) return size;
 
             size = 0;
             if (((bitField0_ & 0x00000001) == 0x00000001)) {
@@ -660,138 +687,126 @@ public final class MessageProtos {
                 size += com.google.protobuf.CodedOutputStream
                     .computeBytesSize(8, content_);
             }
+            {
+                int dataSize = 0;
+                for (int i = 0; i < timestamps_.size(); i++) {
+                    dataSize += com.google.protobuf.CodedOutputStream
+                        .computeUInt64SizeNoTag(timestamps_.get(i));
+                }
+                size += dataSize;
+                size += 1 * getTimestampsList().size();
+            }
             size += getUnknownFields().getSerializedSize();
             memoizedSerializedSize = size;
             return size;
         }
 
         private static final long serialVersionUID = 0L;
-
         @java.lang.Override
         protected java.lang.Object writeReplace()
-            throws java.io.ObjectStreamException {
+                throws java.io.ObjectStreamException {
             return super.writeReplace();
         }
 
         public static org.whisper.signal.entities.MessageProtos.Envelope parseFrom(
-            com.google.protobuf.ByteString data)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                com.google.protobuf.ByteString data)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data);
         }
-
         public static org.whisper.signal.entities.MessageProtos.Envelope parseFrom(
-            com.google.protobuf.ByteString data,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                com.google.protobuf.ByteString data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data, extensionRegistry);
         }
-
         public static org.whisper.signal.entities.MessageProtos.Envelope parseFrom(byte[] data)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data);
         }
-
         public static org.whisper.signal.entities.MessageProtos.Envelope parseFrom(
-            byte[] data,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                byte[] data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data, extensionRegistry);
         }
-
         public static org.whisper.signal.entities.MessageProtos.Envelope parseFrom(java.io.InputStream input)
-            throws java.io.IOException {
+                throws java.io.IOException {
             return PARSER.parseFrom(input);
         }
-
         public static org.whisper.signal.entities.MessageProtos.Envelope parseFrom(
-            java.io.InputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws java.io.IOException {
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
             return PARSER.parseFrom(input, extensionRegistry);
         }
-
         public static org.whisper.signal.entities.MessageProtos.Envelope parseDelimitedFrom(java.io.InputStream input)
-            throws java.io.IOException {
+                throws java.io.IOException {
             return PARSER.parseDelimitedFrom(input);
         }
-
         public static org.whisper.signal.entities.MessageProtos.Envelope parseDelimitedFrom(
-            java.io.InputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws java.io.IOException {
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
             return PARSER.parseDelimitedFrom(input, extensionRegistry);
         }
-
         public static org.whisper.signal.entities.MessageProtos.Envelope parseFrom(
-            com.google.protobuf.CodedInputStream input)
-            throws java.io.IOException {
+                com.google.protobuf.CodedInputStream input)
+                throws java.io.IOException {
             return PARSER.parseFrom(input);
         }
-
         public static org.whisper.signal.entities.MessageProtos.Envelope parseFrom(
-            com.google.protobuf.CodedInputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws java.io.IOException {
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
             return PARSER.parseFrom(input, extensionRegistry);
         }
 
-        public static Builder newBuilder() {
-            return Builder.create();
-        }
-
-        public Builder newBuilderForType() {
-            return newBuilder();
-        }
-
+        public static Builder newBuilder() { return Builder.create(); }
+        public Builder newBuilderForType() { return newBuilder(); }
         public static Builder newBuilder(org.whisper.signal.entities.MessageProtos.Envelope prototype) {
             return newBuilder().mergeFrom(prototype);
         }
-
-        public Builder toBuilder() {
-            return newBuilder(this);
-        }
+        public Builder toBuilder() { return newBuilder(this); }
 
         @java.lang.Override
         protected Builder newBuilderForType(
-            com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+                com.google.protobuf.GeneratedMessage.BuilderParent parent) {
             Builder builder = new Builder(parent);
             return builder;
         }
-
         /**
-         * Protobuf type {@code textsecure.Envelope}
-         */
+          * Protobuf type {@code textsecure.Envelope}
+          */
         public static final class Builder extends
-            com.google.protobuf.GeneratedMessage.Builder<Builder>
-            implements org.whisper.signal.entities.MessageProtos.EnvelopeOrBuilder {
-
+                com.google.protobuf.GeneratedMessage.Builder<Builder> implements
+                // @@protoc_insertion_point(builder_implements:textsecure.Envelope)
+                org.whisper.signal.entities.MessageProtos.EnvelopeOrBuilder {
             public static final com.google.protobuf.Descriptors.Descriptor
-                getDescriptor() {
+                    getDescriptor() {
                 return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_Envelope_descriptor;
             }
 
             protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
-                internalGetFieldAccessorTable() {
+                    internalGetFieldAccessorTable() {
                 return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_Envelope_fieldAccessorTable
-                    .ensureFieldAccessorsInitialized(org.whisper.signal.entities.MessageProtos.Envelope.class, org.whisper.signal.entities.MessageProtos.Envelope.Builder.class);
+                        .ensureFieldAccessorsInitialized(
+                                org.whisper.signal.entities.MessageProtos.Envelope.class, org.whisper.signal.entities.MessageProtos.Envelope.Builder.class);
             }
 
-            // Construct using org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope.newBuilder()
+            // Construct using org.whisper.signal.entities.MessageProtos.Envelope.newBuilder()
             private Builder() {
                 maybeForceBuilderInitialization();
             }
 
             private Builder(
-                com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+                    com.google.protobuf.GeneratedMessage.BuilderParent parent) {
                 super(parent);
                 maybeForceBuilderInitialization();
             }
-
             private void maybeForceBuilderInitialization() {
                 if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
                 }
             }
-
             private static Builder create() {
                 return new Builder();
             }
@@ -812,6 +827,8 @@ public final class MessageProtos {
                 bitField0_ = (bitField0_ & ~0x00000020);
                 content_ = com.google.protobuf.ByteString.EMPTY;
                 bitField0_ = (bitField0_ & ~0x00000040);
+                timestamps_ = java.util.Collections.emptyList();
+                bitField0_ = (bitField0_ & ~0x00000080);
                 return this;
             }
 
@@ -820,7 +837,7 @@ public final class MessageProtos {
             }
 
             public com.google.protobuf.Descriptors.Descriptor
-                getDescriptorForType() {
+                    getDescriptorForType() {
                 return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_Envelope_descriptor;
             }
 
@@ -868,6 +885,11 @@ public final class MessageProtos {
                     to_bitField0_ |= 0x00000040;
                 }
                 result.content_ = content_;
+                if (((bitField0_ & 0x00000080) == 0x00000080)) {
+                    timestamps_ = java.util.Collections.unmodifiableList(timestamps_);
+                    bitField0_ = (bitField0_ & ~0x00000080);
+                }
+                result.timestamps_ = timestamps_;
                 result.bitField0_ = to_bitField0_;
                 onBuilt();
                 return result;
@@ -875,7 +897,7 @@ public final class MessageProtos {
 
             public Builder mergeFrom(com.google.protobuf.Message other) {
                 if (other instanceof org.whisper.signal.entities.MessageProtos.Envelope) {
-                    return mergeFrom((org.whisper.signal.entities.MessageProtos.Envelope) other);
+                    return mergeFrom((org.whisper.signal.entities.MessageProtos.Envelope)other);
                 } else {
                     super.mergeFrom(other);
                     return this;
@@ -883,9 +905,7 @@ public final class MessageProtos {
             }
 
             public Builder mergeFrom(org.whisper.signal.entities.MessageProtos.Envelope other) {
-                if (other == org.whisper.signal.entities.MessageProtos.Envelope.getDefaultInstance()) {
-                    return this;
-                }
+                if (other == org.whisper.signal.entities.MessageProtos.Envelope.getDefaultInstance()) return this;
                 if (other.hasType()) {
                     setType(other.getType());
                 }
@@ -911,6 +931,16 @@ public final class MessageProtos {
                 if (other.hasContent()) {
                     setContent(other.getContent());
                 }
+                if (!other.timestamps_.isEmpty()) {
+                    if (timestamps_.isEmpty()) {
+                        timestamps_ = other.timestamps_;
+                        bitField0_ = (bitField0_ & ~0x00000080);
+                    } else {
+                        ensureTimestampsIsMutable();
+                        timestamps_.addAll(other.timestamps_);
+                    }
+                    onChanged();
+                }
                 this.mergeUnknownFields(other.getUnknownFields());
                 return this;
             }
@@ -920,9 +950,9 @@ public final class MessageProtos {
             }
 
             public Builder mergeFrom(
-                com.google.protobuf.CodedInputStream input,
-                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-                throws java.io.IOException {
+                    com.google.protobuf.CodedInputStream input,
+                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                    throws java.io.IOException {
                 org.whisper.signal.entities.MessageProtos.Envelope parsedMessage = null;
                 try {
                     parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
@@ -938,26 +968,22 @@ public final class MessageProtos {
             }
             private int bitField0_;
 
-            // optional .textsecure.Envelope.Type type = 1;
             private org.whisper.signal.entities.MessageProtos.Envelope.Type type_ = org.whisper.signal.entities.MessageProtos.Envelope.Type.UNKNOWN;
-
             /**
-             * <code>optional .textsecure.Envelope.Type type = 1;</code>
-             */
+              * <code>optional .textsecure.Envelope.Type type = 1;</code>
+              */
             public boolean hasType() {
                 return ((bitField0_ & 0x00000001) == 0x00000001);
             }
-
             /**
-             * <code>optional .textsecure.Envelope.Type type = 1;</code>
-             */
+              * <code>optional .textsecure.Envelope.Type type = 1;</code>
+              */
             public org.whisper.signal.entities.MessageProtos.Envelope.Type getType() {
                 return type_;
             }
-
             /**
-             * <code>optional .textsecure.Envelope.Type type = 1;</code>
-             */
+              * <code>optional .textsecure.Envelope.Type type = 1;</code>
+              */
             public Builder setType(org.whisper.signal.entities.MessageProtos.Envelope.Type value) {
                 if (value == null) {
                     throw new NullPointerException();
@@ -967,10 +993,9 @@ public final class MessageProtos {
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional .textsecure.Envelope.Type type = 1;</code>
-             */
+              * <code>optional .textsecure.Envelope.Type type = 1;</code>
+              */
             public Builder clearType() {
                 bitField0_ = (bitField0_ & ~0x00000001);
                 type_ = org.whisper.signal.entities.MessageProtos.Envelope.Type.UNKNOWN;
@@ -978,116 +1003,107 @@ public final class MessageProtos {
                 return this;
             }
 
-            // optional string source = 2;
             private java.lang.Object source_ = "";
-
             /**
-             * <code>optional string source = 2;</code>
-             */
+              * <code>optional string source = 2;</code>
+              */
             public boolean hasSource() {
                 return ((bitField0_ & 0x00000002) == 0x00000002);
             }
-
             /**
-             * <code>optional string source = 2;</code>
-             */
+              * <code>optional string source = 2;</code>
+              */
             public java.lang.String getSource() {
                 java.lang.Object ref = source_;
                 if (!(ref instanceof java.lang.String)) {
-                    java.lang.String s = ((com.google.protobuf.ByteString) ref)
-                        .toStringUtf8();
-                    source_ = s;
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        source_ = s;
+                    }
                     return s;
                 } else {
                     return (java.lang.String) ref;
                 }
             }
-
             /**
-             * <code>optional string source = 2;</code>
-             */
+              * <code>optional string source = 2;</code>
+              */
             public com.google.protobuf.ByteString
-                getSourceBytes() {
+                    getSourceBytes() {
                 java.lang.Object ref = source_;
                 if (ref instanceof String) {
-                    com.google.protobuf.ByteString b
-                        = com.google.protobuf.ByteString.copyFromUtf8(
-                            (java.lang.String) ref);
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
                     source_ = b;
                     return b;
                 } else {
                     return (com.google.protobuf.ByteString) ref;
                 }
             }
-
             /**
-             * <code>optional string source = 2;</code>
-             */
+              * <code>optional string source = 2;</code>
+              */
             public Builder setSource(
-                java.lang.String value) {
+                    java.lang.String value) {
                 if (value == null) {
-                    throw new NullPointerException();
-                }
-                bitField0_ |= 0x00000002;
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000002;
                 source_ = value;
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional string source = 2;</code>
-             */
+              * <code>optional string source = 2;</code>
+              */
             public Builder clearSource() {
                 bitField0_ = (bitField0_ & ~0x00000002);
                 source_ = getDefaultInstance().getSource();
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional string source = 2;</code>
-             */
+              * <code>optional string source = 2;</code>
+              */
             public Builder setSourceBytes(
-                com.google.protobuf.ByteString value) {
+                    com.google.protobuf.ByteString value) {
                 if (value == null) {
-                    throw new NullPointerException();
-                }
-                bitField0_ |= 0x00000002;
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000002;
                 source_ = value;
                 onChanged();
                 return this;
             }
 
-            // optional uint32 sourceDevice = 7;
-            private int sourceDevice_;
-
+            private int sourceDevice_ ;
             /**
-             * <code>optional uint32 sourceDevice = 7;</code>
-             */
+              * <code>optional uint32 sourceDevice = 7;</code>
+              */
             public boolean hasSourceDevice() {
                 return ((bitField0_ & 0x00000004) == 0x00000004);
             }
-
             /**
-             * <code>optional uint32 sourceDevice = 7;</code>
-             */
+              * <code>optional uint32 sourceDevice = 7;</code>
+              */
             public int getSourceDevice() {
                 return sourceDevice_;
             }
-
             /**
-             * <code>optional uint32 sourceDevice = 7;</code>
-             */
+              * <code>optional uint32 sourceDevice = 7;</code>
+              */
             public Builder setSourceDevice(int value) {
                 bitField0_ |= 0x00000004;
                 sourceDevice_ = value;
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional uint32 sourceDevice = 7;</code>
-             */
+              * <code>optional uint32 sourceDevice = 7;</code>
+              */
             public Builder clearSourceDevice() {
                 bitField0_ = (bitField0_ & ~0x00000004);
                 sourceDevice_ = 0;
@@ -1095,116 +1111,107 @@ public final class MessageProtos {
                 return this;
             }
 
-            // optional string relay = 3;
             private java.lang.Object relay_ = "";
-
             /**
-             * <code>optional string relay = 3;</code>
-             */
+              * <code>optional string relay = 3;</code>
+              */
             public boolean hasRelay() {
                 return ((bitField0_ & 0x00000008) == 0x00000008);
             }
-
             /**
-             * <code>optional string relay = 3;</code>
-             */
+              * <code>optional string relay = 3;</code>
+              */
             public java.lang.String getRelay() {
                 java.lang.Object ref = relay_;
                 if (!(ref instanceof java.lang.String)) {
-                    java.lang.String s = ((com.google.protobuf.ByteString) ref)
-                        .toStringUtf8();
-                    relay_ = s;
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        relay_ = s;
+                    }
                     return s;
                 } else {
                     return (java.lang.String) ref;
                 }
             }
-
             /**
-             * <code>optional string relay = 3;</code>
-             */
+              * <code>optional string relay = 3;</code>
+              */
             public com.google.protobuf.ByteString
-                getRelayBytes() {
+                    getRelayBytes() {
                 java.lang.Object ref = relay_;
                 if (ref instanceof String) {
-                    com.google.protobuf.ByteString b
-                        = com.google.protobuf.ByteString.copyFromUtf8(
-                            (java.lang.String) ref);
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
                     relay_ = b;
                     return b;
                 } else {
                     return (com.google.protobuf.ByteString) ref;
                 }
             }
-
             /**
-             * <code>optional string relay = 3;</code>
-             */
+              * <code>optional string relay = 3;</code>
+              */
             public Builder setRelay(
-                java.lang.String value) {
+                    java.lang.String value) {
                 if (value == null) {
-                    throw new NullPointerException();
-                }
-                bitField0_ |= 0x00000008;
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000008;
                 relay_ = value;
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional string relay = 3;</code>
-             */
+              * <code>optional string relay = 3;</code>
+              */
             public Builder clearRelay() {
                 bitField0_ = (bitField0_ & ~0x00000008);
                 relay_ = getDefaultInstance().getRelay();
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional string relay = 3;</code>
-             */
+              * <code>optional string relay = 3;</code>
+              */
             public Builder setRelayBytes(
-                com.google.protobuf.ByteString value) {
+                    com.google.protobuf.ByteString value) {
                 if (value == null) {
-                    throw new NullPointerException();
-                }
-                bitField0_ |= 0x00000008;
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000008;
                 relay_ = value;
                 onChanged();
                 return this;
             }
 
-            // optional uint64 timestamp = 5;
-            private long timestamp_;
-
+            private long timestamp_ ;
             /**
-             * <code>optional uint64 timestamp = 5;</code>
-             */
+              * <code>optional uint64 timestamp = 5;</code>
+              */
             public boolean hasTimestamp() {
                 return ((bitField0_ & 0x00000010) == 0x00000010);
             }
-
             /**
-             * <code>optional uint64 timestamp = 5;</code>
-             */
+              * <code>optional uint64 timestamp = 5;</code>
+              */
             public long getTimestamp() {
                 return timestamp_;
             }
-
             /**
-             * <code>optional uint64 timestamp = 5;</code>
-             */
+              * <code>optional uint64 timestamp = 5;</code>
+              */
             public Builder setTimestamp(long value) {
                 bitField0_ |= 0x00000010;
                 timestamp_ = value;
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional uint64 timestamp = 5;</code>
-             */
+              * <code>optional uint64 timestamp = 5;</code>
+              */
             public Builder clearTimestamp() {
                 bitField0_ = (bitField0_ & ~0x00000010);
                 timestamp_ = 0L;
@@ -1212,55 +1219,50 @@ public final class MessageProtos {
                 return this;
             }
 
-            // optional bytes legacyMessage = 6;
             private com.google.protobuf.ByteString legacyMessage_ = com.google.protobuf.ByteString.EMPTY;
-
             /**
-             * <code>optional bytes legacyMessage = 6;</code>
-             *
-             * <pre>
-             * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
-             * </pre>
-             */
+              * <code>optional bytes legacyMessage = 6;</code>
+              *
+              * <pre>
+              * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
+              * </pre>
+              */
             public boolean hasLegacyMessage() {
                 return ((bitField0_ & 0x00000020) == 0x00000020);
             }
-
             /**
-             * <code>optional bytes legacyMessage = 6;</code>
-             *
-             * <pre>
-             * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
-             * </pre>
-             */
+              * <code>optional bytes legacyMessage = 6;</code>
+              *
+              * <pre>
+              * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
+              * </pre>
+              */
             public com.google.protobuf.ByteString getLegacyMessage() {
                 return legacyMessage_;
             }
-
             /**
-             * <code>optional bytes legacyMessage = 6;</code>
-             *
-             * <pre>
-             * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
-             * </pre>
-             */
+              * <code>optional bytes legacyMessage = 6;</code>
+              *
+              * <pre>
+              * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
+              * </pre>
+              */
             public Builder setLegacyMessage(com.google.protobuf.ByteString value) {
                 if (value == null) {
-                    throw new NullPointerException();
-                }
-                bitField0_ |= 0x00000020;
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000020;
                 legacyMessage_ = value;
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional bytes legacyMessage = 6;</code>
-             *
-             * <pre>
-             * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
-             * </pre>
-             */
+              * <code>optional bytes legacyMessage = 6;</code>
+              *
+              * <pre>
+              * Contains an encrypted DataMessage XXX -- Remove after 10/01/15
+              * </pre>
+              */
             public Builder clearLegacyMessage() {
                 bitField0_ = (bitField0_ & ~0x00000020);
                 legacyMessage_ = getDefaultInstance().getLegacyMessage();
@@ -1268,55 +1270,50 @@ public final class MessageProtos {
                 return this;
             }
 
-            // optional bytes content = 8;
             private com.google.protobuf.ByteString content_ = com.google.protobuf.ByteString.EMPTY;
-
             /**
-             * <code>optional bytes content = 8;</code>
-             *
-             * <pre>
-             * Contains an encrypted Content
-             * </pre>
-             */
+              * <code>optional bytes content = 8;</code>
+              *
+              * <pre>
+              * Contains an encrypted Content
+              * </pre>
+              */
             public boolean hasContent() {
                 return ((bitField0_ & 0x00000040) == 0x00000040);
             }
-
             /**
-             * <code>optional bytes content = 8;</code>
-             *
-             * <pre>
-             * Contains an encrypted Content
-             * </pre>
-             */
+              * <code>optional bytes content = 8;</code>
+              *
+              * <pre>
+              * Contains an encrypted Content
+              * </pre>
+              */
             public com.google.protobuf.ByteString getContent() {
                 return content_;
             }
-
             /**
-             * <code>optional bytes content = 8;</code>
-             *
-             * <pre>
-             * Contains an encrypted Content
-             * </pre>
-             */
+              * <code>optional bytes content = 8;</code>
+              *
+              * <pre>
+              * Contains an encrypted Content
+              * </pre>
+              */
             public Builder setContent(com.google.protobuf.ByteString value) {
                 if (value == null) {
-                    throw new NullPointerException();
-                }
-                bitField0_ |= 0x00000040;
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000040;
                 content_ = value;
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional bytes content = 8;</code>
-             *
-             * <pre>
-             * Contains an encrypted Content
-             * </pre>
-             */
+              * <code>optional bytes content = 8;</code>
+              *
+              * <pre>
+              * Contains an encrypted Content
+              * </pre>
+              */
             public Builder clearContent() {
                 bitField0_ = (bitField0_ & ~0x00000040);
                 content_ = getDefaultInstance().getContent();
@@ -1324,6 +1321,100 @@ public final class MessageProtos {
                 return this;
             }
 
+            private java.util.List<java.lang.Long> timestamps_ = java.util.Collections.emptyList();
+            private void ensureTimestampsIsMutable() {
+                if (!((bitField0_ & 0x00000080) == 0x00000080)) {
+                    timestamps_ = new java.util.ArrayList<java.lang.Long>(timestamps_);
+                    bitField0_ |= 0x00000080;
+                  }
+            }
+            /**
+              * <code>repeated uint64 timestamps = 9;</code>
+              *
+              * <pre>
+              * Every timestamp acknowledged by an aggregated RECEIPT
+              * </pre>
+              */
+            public java.util.List<java.lang.Long>
+                    getTimestampsList() {
+                return java.util.Collections.unmodifiableList(timestamps_);
+            }
+            /**
+              * <code>repeated uint64 timestamps = 9;</code>
+              *
+              * <pre>
+              * Every timestamp acknowledged by an aggregated RECEIPT
+              * </pre>
+              */
+            public int getTimestampsCount() {
+                return timestamps_.size();
+            }
+            /**
+              * <code>repeated uint64 timestamps = 9;</code>
+              *
+              * <pre>
+              * Every timestamp acknowledged by an aggregated RECEIPT
+              * </pre>
+              */
+            public long getTimestamps(int index) {
+                return timestamps_.get(index);
+            }
+            /**
+              * <code>repeated uint64 timestamps = 9;</code>
+              *
+              * <pre>
+              * Every timestamp acknowledged by an aggregated RECEIPT
+              * </pre>
+              */
+            public Builder setTimestamps(
+                    int index, long value) {
+                ensureTimestampsIsMutable();
+                timestamps_.set(index, value);
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>repeated uint64 timestamps = 9;</code>
+              *
+              * <pre>
+              * Every timestamp acknowledged by an aggregated RECEIPT
+              * </pre>
+              */
+            public Builder addTimestamps(long value) {
+                ensureTimestampsIsMutable();
+                timestamps_.add(value);
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>repeated uint64 timestamps = 9;</code>
+              *
+              * <pre>
+              * Every timestamp acknowledged by an aggregated RECEIPT
+              * </pre>
+              */
+            public Builder addAllTimestamps(
+                    java.lang.Iterable<? extends java.lang.Long> values) {
+                ensureTimestampsIsMutable();
+                com.google.protobuf.AbstractMessageLite.Builder.addAll(
+                        values, timestamps_);
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>repeated uint64 timestamps = 9;</code>
+              *
+              * <pre>
+              * Every timestamp acknowledged by an aggregated RECEIPT
+              * </pre>
+              */
+            public Builder clearTimestamps() {
+                timestamps_ = java.util.Collections.emptyList();
+                bitField0_ = (bitField0_ & ~0x00000080);
+                onChanged();
+                return this;
+            }
+
             // @@protoc_insertion_point(builder_scope:textsecure.Envelope)
         }
 
@@ -1335,47 +1426,39 @@ public final class MessageProtos {
         // @@protoc_insertion_point(class_scope:textsecure.Envelope)
     }
 
-    public interface ProvisioningUuidOrBuilder
-        extends com.google.protobuf.MessageOrBuilder {
+    public interface ProvisioningUuidOrBuilder extends
+            // @@protoc_insertion_point(interface_extends:textsecure.ProvisioningUuid)
+            com.google.protobuf.MessageOrBuilder {
 
-        // optional string uuid = 1;
         /**
-         * <code>optional string uuid = 1;</code>
-         */
+          * <code>optional string uuid = 1;</code>
+          */
         boolean hasUuid();
-
         /**
-         * <code>optional string uuid = 1;</code>
-         */
+          * <code>optional string uuid = 1;</code>
+          */
         java.lang.String getUuid();
-
         /**
-         * <code>optional string uuid = 1;</code>
-         */
+          * <code>optional string uuid = 1;</code>
+          */
         com.google.protobuf.ByteString
-            getUuidBytes();
+                getUuidBytes();
     }
-
     /**
-     * Protobuf type {@code textsecure.ProvisioningUuid}
-     */
+      * Protobuf type {@code textsecure.ProvisioningUuid}
+      */
     public static final class ProvisioningUuid extends
-        com.google.protobuf.GeneratedMessage
-        implements ProvisioningUuidOrBuilder {
-
+            com.google.protobuf.GeneratedMessage implements
+            // @@protoc_insertion_point(message_implements:textsecure.ProvisioningUuid)
+            ProvisioningUuidOrBuilder {
         // Use ProvisioningUuid.newBuilder() to construct.
-
         private ProvisioningUuid(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
             super(builder);
             this.unknownFields = builder.getUnknownFields();
         }
-
-        private ProvisioningUuid(boolean noInit) {
-            this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance();
-        }
+        private ProvisioningUuid(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
 
         private static final ProvisioningUuid defaultInstance;
-
         public static ProvisioningUuid getDefaultInstance() {
             return defaultInstance;
         }
@@ -1385,21 +1468,19 @@ public final class MessageProtos {
         }
 
         private final com.google.protobuf.UnknownFieldSet unknownFields;
-
         @java.lang.Override
         public final com.google.protobuf.UnknownFieldSet
-            getUnknownFields() {
+                getUnknownFields() {
             return this.unknownFields;
         }
-
         private ProvisioningUuid(
-            com.google.protobuf.CodedInputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             initFields();
             int mutable_bitField0_ = 0;
-            com.google.protobuf.UnknownFieldSet.Builder unknownFields
-                = com.google.protobuf.UnknownFieldSet.newBuilder();
+            com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+                    com.google.protobuf.UnknownFieldSet.newBuilder();
             try {
                 boolean done = false;
                 while (!done) {
@@ -1410,14 +1491,15 @@ public final class MessageProtos {
                             break;
                         default: {
                             if (!parseUnknownField(input, unknownFields,
-                                extensionRegistry, tag)) {
+                                                                          extensionRegistry, tag)) {
                                 done = true;
                             }
                             break;
                         }
                         case 10: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
                             bitField0_ |= 0x00000001;
-                            uuid_ = input.readBytes();
+                            uuid_ = bs;
                             break;
                         }
                     }
@@ -1426,33 +1508,33 @@ public final class MessageProtos {
                 throw e.setUnfinishedMessage(this);
             } catch (java.io.IOException e) {
                 throw new com.google.protobuf.InvalidProtocolBufferException(
-                    e.getMessage()).setUnfinishedMessage(this);
+                        e.getMessage()).setUnfinishedMessage(this);
             } finally {
                 this.unknownFields = unknownFields.build();
                 makeExtensionsImmutable();
             }
         }
-
         public static final com.google.protobuf.Descriptors.Descriptor
-            getDescriptor() {
+                getDescriptor() {
             return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_ProvisioningUuid_descriptor;
         }
 
         protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
-            internalGetFieldAccessorTable() {
+                internalGetFieldAccessorTable() {
             return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_ProvisioningUuid_fieldAccessorTable
-                .ensureFieldAccessorsInitialized(org.whisper.signal.entities.MessageProtos.ProvisioningUuid.class, org.whisper.signal.entities.MessageProtos.ProvisioningUuid.Builder.class);
+                    .ensureFieldAccessorsInitialized(
+                            org.whisper.signal.entities.MessageProtos.ProvisioningUuid.class, org.whisper.signal.entities.MessageProtos.ProvisioningUuid.Builder.class);
         }
 
-        public static com.google.protobuf.Parser<ProvisioningUuid> PARSER
-            = new com.google.protobuf.AbstractParser<ProvisioningUuid>() {
-                public ProvisioningUuid parsePartialFrom(
+        public static com.google.protobuf.Parser<ProvisioningUuid> PARSER =
+                new com.google.protobuf.AbstractParser<ProvisioningUuid>() {
+            public ProvisioningUuid parsePartialFrom(
                     com.google.protobuf.CodedInputStream input,
                     com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-                throws com.google.protobuf.InvalidProtocolBufferException {
-                    return new ProvisioningUuid(input, extensionRegistry);
-                }
-            };
+                    throws com.google.protobuf.InvalidProtocolBufferException {
+                return new ProvisioningUuid(input, extensionRegistry);
+            }
+        };
 
         @java.lang.Override
         public com.google.protobuf.Parser<ProvisioningUuid> getParserForType() {
@@ -1460,27 +1542,24 @@ public final class MessageProtos {
         }
 
         private int bitField0_;
-        // optional string uuid = 1;
         public static final int UUID_FIELD_NUMBER = 1;
         private java.lang.Object uuid_;
-
         /**
-         * <code>optional string uuid = 1;</code>
-         */
+          * <code>optional string uuid = 1;</code>
+          */
         public boolean hasUuid() {
             return ((bitField0_ & 0x00000001) == 0x00000001);
         }
-
         /**
-         * <code>optional string uuid = 1;</code>
-         */
+          * <code>optional string uuid = 1;</code>
+          */
         public java.lang.String getUuid() {
             java.lang.Object ref = uuid_;
             if (ref instanceof java.lang.String) {
                 return (java.lang.String) ref;
             } else {
-                com.google.protobuf.ByteString bs
-                    = (com.google.protobuf.ByteString) ref;
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
                 java.lang.String s = bs.toStringUtf8();
                 if (bs.isValidUtf8()) {
                     uuid_ = s;
@@ -1488,17 +1567,16 @@ public final class MessageProtos {
                 return s;
             }
         }
-
         /**
-         * <code>optional string uuid = 1;</code>
-         */
+          * <code>optional string uuid = 1;</code>
+          */
         public com.google.protobuf.ByteString
-            getUuidBytes() {
+                getUuidBytes() {
             java.lang.Object ref = uuid_;
             if (ref instanceof java.lang.String) {
-                com.google.protobuf.ByteString b
-                    = com.google.protobuf.ByteString.copyFromUtf8(
-                        (java.lang.String) ref);
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
                 uuid_ = b;
                 return b;
             } else {
@@ -1510,19 +1588,17 @@ public final class MessageProtos {
             uuid_ = "";
         }
         private byte memoizedIsInitialized = -1;
-
         public final boolean isInitialized() {
             byte isInitialized = memoizedIsInitialized;
-            if (isInitialized != -1) {
-                return isInitialized == 1;
-            }
+            if (isInitialized == 1) return true;
+            if (isInitialized == 0) return false;
 
             memoizedIsInitialized = 1;
             return true;
         }
 
         public void writeTo(com.google.protobuf.CodedOutputStream output)
-            throws java.io.IOException {
+                                                throws java.io.IOException {
             getSerializedSize();
             if (((bitField0_ & 0x00000001) == 0x00000001)) {
                 output.writeBytes(1, getUuidBytes());
@@ -1531,12 +1607,9 @@ public final class MessageProtos {
         }
 
         private int memoizedSerializedSize = -1;
-
         public int getSerializedSize() {
             int size = memoizedSerializedSize;
-            if (size != -1) {
-                return size;
-            }
+            if (size != -1) return size;
 
             size = 0;
             if (((bitField0_ & 0x00000001) == 0x00000001)) {
@@ -1549,132 +1622,111 @@ public final class MessageProtos {
         }
 
         private static final long serialVersionUID = 0L;
-
         @java.lang.Override
         protected java.lang.Object writeReplace()
-            throws java.io.ObjectStreamException {
+                throws java.io.ObjectStreamException {
             return super.writeReplace();
         }
 
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseFrom(
-            com.google.protobuf.ByteString data)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                com.google.protobuf.ByteString data)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data);
         }
-
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseFrom(
-            com.google.protobuf.ByteString data,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                com.google.protobuf.ByteString data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data, extensionRegistry);
         }
-
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseFrom(byte[] data)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data);
         }
-
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseFrom(
-            byte[] data,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                byte[] data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data, extensionRegistry);
         }
-
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseFrom(java.io.InputStream input)
-            throws java.io.IOException {
+                throws java.io.IOException {
             return PARSER.parseFrom(input);
         }
-
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseFrom(
-            java.io.InputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws java.io.IOException {
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
             return PARSER.parseFrom(input, extensionRegistry);
         }
-
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseDelimitedFrom(java.io.InputStream input)
-            throws java.io.IOException {
+                throws java.io.IOException {
             return PARSER.parseDelimitedFrom(input);
         }
-
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseDelimitedFrom(
-            java.io.InputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws java.io.IOException {
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
             return PARSER.parseDelimitedFrom(input, extensionRegistry);
         }
-
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseFrom(
-            com.google.protobuf.CodedInputStream input)
-            throws java.io.IOException {
+                com.google.protobuf.CodedInputStream input)
+                throws java.io.IOException {
             return PARSER.parseFrom(input);
         }
-
         public static org.whisper.signal.entities.MessageProtos.ProvisioningUuid parseFrom(
-            com.google.protobuf.CodedInputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws java.io.IOException {
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
             return PARSER.parseFrom(input, extensionRegistry);
         }
 
-        public static Builder newBuilder() {
-            return Builder.create();
-        }
-
-        public Builder newBuilderForType() {
-            return newBuilder();
-        }
-
+        public static Builder newBuilder() { return Builder.create(); }
+        public Builder newBuilderForType() { return newBuilder(); }
         public static Builder newBuilder(org.whisper.signal.entities.MessageProtos.ProvisioningUuid prototype) {
             return newBuilder().mergeFrom(prototype);
         }
-
-        public Builder toBuilder() {
-            return newBuilder(this);
-        }
+        public Builder toBuilder() { return newBuilder(this); }
 
         @java.lang.Override
         protected Builder newBuilderForType(
-            com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+                com.google.protobuf.GeneratedMessage.BuilderParent parent) {
             Builder builder = new Builder(parent);
             return builder;
         }
-
         /**
-         * Protobuf type {@code textsecure.ProvisioningUuid}
-         */
+          * Protobuf type {@code textsecure.ProvisioningUuid}
+          */
         public static final class Builder extends
-            com.google.protobuf.GeneratedMessage.Builder<Builder>
-            implements org.whisper.signal.entities.MessageProtos.ProvisioningUuidOrBuilder {
-
+                com.google.protobuf.GeneratedMessage.Builder<Builder> implements
+                // @@protoc_insertion_point(builder_implements:textsecure.ProvisioningUuid)
+                org.whisper.signal.entities.MessageProtos.ProvisioningUuidOrBuilder {
             public static final com.google.protobuf.Descriptors.Descriptor
-                getDescriptor() {
+                    getDescriptor() {
                 return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_ProvisioningUuid_descriptor;
             }
 
             protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
-                internalGetFieldAccessorTable() {
+                    internalGetFieldAccessorTable() {
                 return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_ProvisioningUuid_fieldAccessorTable
-                    .ensureFieldAccessorsInitialized(org.whisper.signal.entities.MessageProtos.ProvisioningUuid.class, org.whisper.signal.entities.MessageProtos.ProvisioningUuid.Builder.class);
+                        .ensureFieldAccessorsInitialized(
+                                org.whisper.signal.entities.MessageProtos.ProvisioningUuid.class, org.whisper.signal.entities.MessageProtos.ProvisioningUuid.Builder.class);
             }
 
-            // Construct using org.whispersystems.textsecuregcm.entities.MessageProtos.ProvisioningUuid.newBuilder()
+            // Construct using org.whisper.signal.entities.MessageProtos.ProvisioningUuid.newBuilder()
             private Builder() {
                 maybeForceBuilderInitialization();
             }
 
             private Builder(
-                com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+                    com.google.protobuf.GeneratedMessage.BuilderParent parent) {
                 super(parent);
                 maybeForceBuilderInitialization();
             }
-
             private void maybeForceBuilderInitialization() {
                 if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
                 }
             }
-
             private static Builder create() {
                 return new Builder();
             }
@@ -1691,7 +1743,7 @@ public final class MessageProtos {
             }
 
             public com.google.protobuf.Descriptors.Descriptor
-                getDescriptorForType() {
+                    getDescriptorForType() {
                 return org.whisper.signal.entities.MessageProtos.internal_static_textsecure_ProvisioningUuid_descriptor;
             }
 
@@ -1722,7 +1774,7 @@ public final class MessageProtos {
 
             public Builder mergeFrom(com.google.protobuf.Message other) {
                 if (other instanceof org.whisper.signal.entities.MessageProtos.ProvisioningUuid) {
-                    return mergeFrom((org.whisper.signal.entities.MessageProtos.ProvisioningUuid) other);
+                    return mergeFrom((org.whisper.signal.entities.MessageProtos.ProvisioningUuid)other);
                 } else {
                     super.mergeFrom(other);
                     return this;
@@ -1730,9 +1782,7 @@ public final class MessageProtos {
             }
 
             public Builder mergeFrom(org.whisper.signal.entities.MessageProtos.ProvisioningUuid other) {
-                if (other == org.whisper.signal.entities.MessageProtos.ProvisioningUuid.getDefaultInstance()) {
-                    return this;
-                }
+                if (other == org.whisper.signal.entities.MessageProtos.ProvisioningUuid.getDefaultInstance()) return this;
                 if (other.hasUuid()) {
                     bitField0_ |= 0x00000001;
                     uuid_ = other.uuid_;
@@ -1747,9 +1797,9 @@ public final class MessageProtos {
             }
 
             public Builder mergeFrom(
-                com.google.protobuf.CodedInputStream input,
-                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-                throws java.io.IOException {
+                    com.google.protobuf.CodedInputStream input,
+                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                    throws java.io.IOException {
                 org.whisper.signal.entities.MessageProtos.ProvisioningUuid parsedMessage = null;
                 try {
                     parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
@@ -1765,81 +1815,77 @@ public final class MessageProtos {
             }
             private int bitField0_;
 
-            // optional string uuid = 1;
             private java.lang.Object uuid_ = "";
-
             /**
-             * <code>optional string uuid = 1;</code>
-             */
+              * <code>optional string uuid = 1;</code>
+              */
             public boolean hasUuid() {
                 return ((bitField0_ & 0x00000001) == 0x00000001);
             }
-
             /**
-             * <code>optional string uuid = 1;</code>
-             */
+              * <code>optional string uuid = 1;</code>
+              */
             public java.lang.String getUuid() {
                 java.lang.Object ref = uuid_;
                 if (!(ref instanceof java.lang.String)) {
-                    java.lang.String s = ((com.google.protobuf.ByteString) ref)
-                        .toStringUtf8();
-                    uuid_ = s;
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        uuid_ = s;
+                    }
                     return s;
                 } else {
                     return (java.lang.String) ref;
                 }
             }
-
             /**
-             * <code>optional string uuid = 1;</code>
-             */
+              * <code>optional string uuid = 1;</code>
+              */
             public com.google.protobuf.ByteString
-                getUuidBytes() {
+                    getUuidBytes() {
                 java.lang.Object ref = uuid_;
                 if (ref instanceof String) {
-                    com.google.protobuf.ByteString b
-                        = com.google.protobuf.ByteString.copyFromUtf8(
-                            (java.lang.String) ref);
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
                     uuid_ = b;
                     return b;
                 } else {
                     return (com.google.protobuf.ByteString) ref;
                 }
             }
-
             /**
-             * <code>optional string uuid = 1;</code>
-             */
+              * <code>optional string uuid = 1;</code>
+              */
             public Builder setUuid(
-                java.lang.String value) {
+                    java.lang.String value) {
                 if (value == null) {
-                    throw new NullPointerException();
-                }
-                bitField0_ |= 0x00000001;
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000001;
                 uuid_ = value;
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional string uuid = 1;</code>
-             */
+              * <code>optional string uuid = 1;</code>
+              */
             public Builder clearUuid() {
                 bitField0_ = (bitField0_ & ~0x00000001);
                 uuid_ = getDefaultInstance().getUuid();
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional string uuid = 1;</code>
-             */
+              * <code>optional string uuid = 1;</code>
+              */
             public Builder setUuidBytes(
-                com.google.protobuf.ByteString value) {
+                    com.google.protobuf.ByteString value) {
                 if (value == null) {
-                    throw new NullPointerException();
-                }
-                bitField0_ |= 0x00000001;
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000001;
                 uuid_ = value;
                 onChanged();
                 return this;
@@ -1856,52 +1902,61 @@ public final class MessageProtos {
         // @@protoc_insertion_point(class_scope:textsecure.ProvisioningUuid)
     }
 
-    private static com.google.protobuf.Descriptors.Descriptor internal_static_textsecure_Envelope_descriptor;
-    private static com.google.protobuf.GeneratedMessage.FieldAccessorTable internal_static_textsecure_Envelope_fieldAccessorTable;
-    private static com.google.protobuf.Descriptors.Descriptor internal_static_textsecure_ProvisioningUuid_descriptor;
-    private static com.google.protobuf.GeneratedMessage.FieldAccessorTable internal_static_textsecure_ProvisioningUuid_fieldAccessorTable;
+    private static final com.google.protobuf.Descriptors.Descriptor
+        internal_static_textsecure_Envelope_descriptor;
+    private static
+        com.google.protobuf.GeneratedMessage.FieldAccessorTable
+            internal_static_textsecure_Envelope_fieldAccessorTable;
+    private static final com.google.protobuf.Descriptors.Descriptor
+        internal_static_textsecure_ProvisioningUuid_descriptor;
+    private static
+        com.google.protobuf.GeneratedMessage.FieldAccessorTable
+            internal_static_textsecure_ProvisioningUuid_fieldAccessorTable;
 
     public static com.google.protobuf.Descriptors.FileDescriptor
-        getDescriptor() {
+            getDescriptor() {
         return descriptor;
     }
-    private static com.google.protobuf.Descriptors.FileDescriptor descriptor;
-
+    private static com.google.protobuf.Descriptors.FileDescriptor
+            descriptor;
     static {
         java.lang.String[] descriptorData = {
-            "\n\020TextSecure.proto\022\ntextsecure\"\372\001\n\010Envel"
-            + "ope\022\'\n\004type\030\001 \001(\0162\031.textsecure.Envelope."
-            + "Type\022\016\n\006source\030\002 \001(\t\022\024\n\014sourceDevice\030\007 \001"
-            + "(\r\022\r\n\005relay\030\003 \001(\t\022\021\n\ttimestamp\030\005 \001(\004\022\025\n\r"
-            + "legacyMessage\030\006 \001(\014\022\017\n\007content\030\010 \001(\014\"U\n\004"
-            + "Type\022\013\n\007UNKNOWN\020\000\022\016\n\nCIPHERTEXT\020\001\022\020\n\014KEY"
-            + "_EXCHANGE\020\002\022\021\n\rPREKEY_BUNDLE\020\003\022\013\n\007RECEIP"
-            + "T\020\005\" \n\020ProvisioningUuid\022\014\n\004uuid\030\001 \001(\tB:\n"
-            + ")org.whispersystems.textsecuregcm.entiti"
-            + "esB\rMessageProtos"
+            "\n\020TextSecure.proto\022\ntextsecure\"\216\002\n\010Envel" +
+            "ope\022\'\n\004type\030\001 \001(\0162\031.textsecure.Envelope." +
+            "Type\022\016\n\006source\030\002 \001(\t\022\024\n\014sourceDevice\030\007 \001" +
+            "(\r\022\r\n\005relay\030\003 \001(\t\022\021\n\ttimestamp\030\005 \001(\004\022\025\n\r" +
+            "legacyMessage\030\006 \001(\014\022\017\n\007content\030\010 \001(\014\022\022\n\n" +
+            "timestamps\030\t \003(\004\"U\n\004Type\022\013\n\007UNKNOWN\020\000\022\016\n" +
+            "\nCIPHERTEXT\020\001\022\020\n\014KEY_EXCHANGE\020\002\022\021\n\rPREKE" +
+            "Y_BUNDLE\020\003\022\013\n\007RECEIPT\020\005\" \n\020ProvisioningU" +
+            "uid\022\014\n\004uuid\030\001 \001(\tB,\n\033org.whisper.signal." +
+            "entitiesB\rMessageProtos"
         };
-        com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner
-            = new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
-                public com.google.protobuf.ExtensionRegistry assignDescriptors(
-                    com.google.protobuf.Descriptors.FileDescriptor root) {
+        com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
+                new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
+                    public com.google.protobuf.ExtensionRegistry assignDescriptors(
+                            com.google.protobuf.Descriptors.FileDescriptor root) {
                         descriptor = root;
-                        internal_static_textsecure_Envelope_descriptor
-                        = getDescriptor().getMessageTypes().get(0);
-                        internal_static_textsecure_Envelope_fieldAccessorTable = new com.google.protobuf.GeneratedMessage.FieldAccessorTable(
-                            internal_static_textsecure_Envelope_descriptor,
-                            new java.lang.String[]{"Type", "Source", "SourceDevice", "Relay", "Timestamp", "LegacyMessage", "Content",});
-                        internal_static_textsecure_ProvisioningUuid_descriptor
-                        = getDescriptor().getMessageTypes().get(1);
-                        internal_static_textsecure_ProvisioningUuid_fieldAccessorTable = new com.google.protobuf.GeneratedMessage.FieldAccessorTable(
-                            internal_static_textsecure_ProvisioningUuid_descriptor,
-                            new java.lang.String[]{"Uuid",});
                         return null;
                     }
-            };
+                };
         com.google.protobuf.Descriptors.FileDescriptor
             .internalBuildGeneratedFileFrom(descriptorData,
-                new com.google.protobuf.Descriptors.FileDescriptor[]{}, assigner);
+                new com.google.protobuf.Descriptors.FileDescriptor[] {
+                }, assigner);
+        internal_static_textsecure_Envelope_descriptor =
+            getDescriptor().getMessageTypes().get(0);
+        internal_static_textsecure_Envelope_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+                internal_static_textsecure_Envelope_descriptor,
+                new java.lang.String[] { "Type", "Source", "SourceDevice", "Relay", "Timestamp", "LegacyMessage", "Content", "Timestamps", });
+        internal_static_textsecure_ProvisioningUuid_descriptor =
+            getDescriptor().getMessageTypes().get(1);
+        internal_static_textsecure_ProvisioningUuid_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+                internal_static_textsecure_ProvisioningUuid_descriptor,
+                new java.lang.String[] { "Uuid", });
     }
 
-  // @@protoc_insertion_point(outer_class_scope)
+    // @@protoc_insertion_point(outer_class_scope)
 }
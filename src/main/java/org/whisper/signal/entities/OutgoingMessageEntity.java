@@ -1,8 +1,11 @@
 package org.whisper.signal.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.List;
+
 public class OutgoingMessageEntity {
 
     @JsonIgnore
@@ -29,12 +32,22 @@ public class OutgoingMessageEntity {
     @JsonProperty
     private byte[] content;
 
+    @JsonProperty
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Long> timestamps;
+
     public OutgoingMessageEntity() {
     }
 
     public OutgoingMessageEntity(long id, int type, String relay, long timestamp,
         String source, int sourceDevice, byte[] message,
         byte[] content) {
+        this(id, type, relay, timestamp, source, sourceDevice, message, content, null);
+    }
+
+    public OutgoingMessageEntity(long id, int type, String relay, long timestamp,
+        String source, int sourceDevice, byte[] message,
+        byte[] content, List<Long> timestamps) {
         this.id = id;
         this.type = type;
         this.relay = relay;
@@ -43,6 +56,7 @@ public class OutgoingMessageEntity {
         this.sourceDevice = sourceDevice;
         this.message = message;
         this.content = content;
+        this.timestamps = timestamps;
     }
 
     public int getType() {
@@ -73,6 +87,10 @@ public class OutgoingMessageEntity {
         return content;
     }
 
+    public List<Long> getTimestamps() {
+        return timestamps;
+    }
+
     public long getId() {
         return id;
     }
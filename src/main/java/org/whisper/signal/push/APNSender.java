@@ -11,19 +11,19 @@
  */
 package org.whisper.signal.push;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Optional;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whisper.signal.configuration.ApnConfiguration;
 import org.whisper.signal.push.RetryingApnsClient.ApnResult;
-import org.whisper.signal.storage.Account;
-import org.whisper.signal.storage.AccountsManager;
-import org.whisper.signal.storage.Device;
-import org.whisper.signal.websocket.WebsocketAddress;
+import org.whisper.signal.util.Constants;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -32,39 +32,61 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import io.dropwizard.lifecycle.Managed;
 
 public class APNSender implements Managed {
 
+    private static final int  RETRY_COUNT       = 3;
+    private static final long LATENCY_THRESHOLD = 500;
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Timer successTimer = metricRegistry.timer(name(APNSender.class, "latency", "success"));
+    private static final Timer unregisteredTimer = metricRegistry.timer(name(APNSender.class, "latency", "unregistered"));
+    private static final Timer failureTimer = metricRegistry.timer(name(APNSender.class, "latency", "failure"));
+    private static final Timer errorTimer = metricRegistry.timer(name(APNSender.class, "latency", "error"));
+
     private final Logger logger = LoggerFactory.getLogger(APNSender.class);
 
     private ExecutorService executor;
-    private ApnFallbackManager fallbackManager;
 
-    private final AccountsManager accountsManager;
+    private final PushTokenInvalidator tokenInvalidator;
     private final String bundleId;
     private final boolean sandbox;
     private final RetryingApnsClient apnsClient;
+    private final ConcurrencyLimiter limiter;
 
-    public APNSender(AccountsManager accountsManager, ApnConfiguration configuration)
+    public APNSender(PushTokenInvalidator tokenInvalidator, ApnConfiguration configuration)
         throws IOException {
-        this.accountsManager = accountsManager;
+        this.tokenInvalidator = tokenInvalidator;
         this.bundleId = configuration.getBundleId();
         this.sandbox = configuration.isSandboxEnabled();
         this.apnsClient = new RetryingApnsClient(configuration.getPushCertificate(),
             configuration.getPushKey(),
-            10);
+            RETRY_COUNT);
+        this.limiter = createLimiter();
+    }
+
+    @VisibleForTesting
+    public APNSender(ExecutorService executor, PushTokenInvalidator tokenInvalidator, RetryingApnsClient apnsClient, String bundleId, boolean sandbox) {
+        this(executor, tokenInvalidator, apnsClient, createLimiter(), bundleId, sandbox);
     }
 
     @VisibleForTesting
-    public APNSender(ExecutorService executor, AccountsManager accountsManager, RetryingApnsClient apnsClient, String bundleId, boolean sandbox) {
+    public APNSender(ExecutorService executor, PushTokenInvalidator tokenInvalidator, RetryingApnsClient apnsClient,
+        ConcurrencyLimiter limiter, String bundleId, boolean sandbox) {
         this.executor = executor;
-        this.accountsManager = accountsManager;
+        this.tokenInvalidator = tokenInvalidator;
         this.apnsClient = apnsClient;
+        this.limiter = limiter;
         this.sandbox = sandbox;
         this.bundleId = bundleId;
     }
 
+    private static ConcurrencyLimiter createLimiter() {
+        return new ConcurrencyLimiter("apn", 100, 10, 1000, LATENCY_THRESHOLD);
+    }
+
     public ListenableFuture<ApnResult> sendMessage(final ApnMessage message)
         throws TransientPushFailureException {
         String topic = bundleId;
@@ -73,9 +95,42 @@ public class APNSender implements Managed {
             topic = topic + ".voip";
         }
 
-        ListenableFuture<ApnResult> future = apnsClient.send(message.getApnId(), topic,
-            message.getMessage(),
-            new Date(message.getExpirationTime()));
+        if (!limiter.tryAcquire()) {
+            throw new TransientPushFailureException("APNs limit reached (" + limiter.getState() + ")");
+        }
+
+        final long start = System.nanoTime();
+
+        ListenableFuture<ApnResult> future;
+
+        try {
+            future = apnsClient.send(message.getApnId(), topic,
+                message.getMessage(),
+                new Date(message.getExpirationTime()));
+        } catch (RuntimeException e) {
+            limiter.onFailure();
+            errorTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+
+        Futures.addCallback(future, new FutureCallback<ApnResult>() {
+            @Override
+            public void onSuccess(@Nullable ApnResult result) {
+                long latency = System.nanoTime() - start;
+                limiter.onSuccess(latency, TimeUnit.NANOSECONDS);
+
+                if      (result == null)                                      failureTimer.update(latency, TimeUnit.NANOSECONDS);
+                else if (result.getStatus() == ApnResult.Status.SUCCESS)      successTimer.update(latency, TimeUnit.NANOSECONDS);
+                else if (result.getStatus() == ApnResult.Status.NO_SUCH_USER) unregisteredTimer.update(latency, TimeUnit.NANOSECONDS);
+                else                                                          failureTimer.update(latency, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void onFailure(@Nullable Throwable t) {
+                limiter.onFailure();
+                errorTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }, MoreExecutors.directExecutor());
 
         Futures.addCallback(future, new FutureCallback<ApnResult>() {
             @Override
@@ -110,50 +165,8 @@ public class APNSender implements Managed {
         this.apnsClient.disconnect();
     }
 
-    public void setApnFallbackManager(ApnFallbackManager fallbackManager) {
-        this.fallbackManager = fallbackManager;
-    }
-
     private void handleUnregisteredUser(String registrationId, String number, int deviceId) {
         logger.info("Got APN Unregistered: " + number + "," + deviceId);
-
-        Optional<Account> account = accountsManager.get(number);
-
-        if (!account.isPresent()) {
-            logger.info("No account found: " + number);
-            return;
-        }
-
-        Optional<Device> device = account.get().getDevice(deviceId);
-
-        if (!device.isPresent()) {
-            logger.info("No device found: " + number);
-            return;
-        }
-
-        if (!registrationId.equals(device.get().getApnId())
-            && !registrationId.equals(device.get().getVoipApnId())) {
-            logger.info("Registration ID does not match: " + registrationId + ", " + device.get().getApnId() + ", " + device.get().getVoipApnId());
-            return;
-        }
-
-        logger.info("APN Unregister APN ID matches! " + number + ", " + deviceId);
-
-        long tokenTimestamp = device.get().getPushTimestamp();
-
-        if (tokenTimestamp != 0 && System.currentTimeMillis() < tokenTimestamp + TimeUnit.SECONDS.toMillis(10)) {
-            logger.info("APN Unregister push timestamp is more recent: " + tokenTimestamp + ", " + number);
-            return;
-        }
-
-        logger.info("APN Unregister timestamp matches!");
-        device.get().setApnId(null);
-        device.get().setVoipApnId(null);
-        device.get().setFetchesMessages(false);
-        accountsManager.update(account.get());
-
-        if (fallbackManager != null) {
-            fallbackManager.cancel(new WebsocketAddress(number, deviceId));
-        }
+        tokenInvalidator.invalidateApnId(number, deviceId, registrationId);
     }
 }
@@ -6,133 +6,177 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.RatioGauge;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.common.base.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.whisper.signal.dispatch.DispatchChannel;
-import org.whisper.signal.storage.PubSubManager;
-import org.whisper.signal.storage.PubSubProtos.PubSubMessage;
 import org.whisper.signal.util.Constants;
-import org.whisper.signal.util.Util;
-import org.whisper.signal.websocket.WebSocketConnectionInfo;
 import org.whisper.signal.websocket.WebsocketAddress;
 
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import io.dropwizard.lifecycle.Managed;
 
-public class ApnFallbackManager implements Managed, Runnable, DispatchChannel {
+public class ApnFallbackManager implements Managed, ApnFallbackTaskWheel.Listener {
 
     private static final Logger logger = LoggerFactory.getLogger(ApnFallbackManager.class);
 
     public static final int FALLBACK_DURATION = 15;
 
+    private static final int FIRING_THREADS = 4;
+
+    private static final long ORPHAN_POLL_INTERVAL = 1000;
+    private static final long ORPHAN_GRACE_PERIOD = 2000;
+    private static final int ORPHAN_BATCH_SIZE = 100;
+
+    private static final long TRANSIENT_RETRY_DELAY = 1000;
+    private static final int MAX_TRANSIENT_RETRIES = 5;
+
     private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
     private static final Meter voipOneSuccess = metricRegistry.meter(name(ApnFallbackManager.class, "voip_one_success"));
     private static final Meter voipOneDelivery = metricRegistry.meter(name(ApnFallbackManager.class, "voip_one_failure"));
     private static final Histogram voipOneSuccessHistogram = metricRegistry.histogram(name(ApnFallbackManager.class, "voip_one_success_histogram"));
+    private static final Meter orphanClaimed = metricRegistry.meter(name(ApnFallbackManager.class, "orphan_claimed"));
+    private static final Meter transientRetried = metricRegistry.meter(name(ApnFallbackManager.class, "transient_retried"));
+    private static final Meter transientDropped = metricRegistry.meter(name(ApnFallbackManager.class, "transient_dropped"));
 
     static {
         metricRegistry.register(name(ApnFallbackManager.class, "voip_one_success_ratio"), new VoipRatioGauge(voipOneSuccess, voipOneDelivery));
     }
 
-    private final ApnFallbackTaskQueue taskQueue = new ApnFallbackTaskQueue();
-
     private final APNSender apnSender;
-    private final PubSubManager pubSubManager;
+    private final ApnFallbackSchedule schedule;
+    private final ApnFallbackTaskWheel taskQueue;
 
-    public ApnFallbackManager(APNSender apnSender, PubSubManager pubSubManager) {
+    private ScheduledExecutorService orphanPoller;
+
+    public ApnFallbackManager(APNSender apnSender, ApnFallbackSchedule schedule) {
         this.apnSender = apnSender;
-        this.pubSubManager = pubSubManager;
+        this.schedule = schedule;
+        this.taskQueue = new ApnFallbackTaskWheel(this, FIRING_THREADS);
     }
 
     public void schedule(final WebsocketAddress address, ApnFallbackTask task) {
         voipOneDelivery.mark();
 
-        if (taskQueue.put(address, task)) {
-            pubSubManager.subscribe(new WebSocketConnectionInfo(address), this);
-        }
+        schedule.put(address, task);
+        taskQueue.put(address, task);
     }
 
     private void scheduleRetry(final WebsocketAddress address, ApnFallbackTask task) {
-        if (taskQueue.putIfMissing(address, task)) {
-            pubSubManager.subscribe(new WebSocketConnectionInfo(address), this);
+        if (schedule.putIfMissing(address, task)) {
+            taskQueue.putIfMissing(address, task);
         }
     }
 
     public void cancel(WebsocketAddress address) {
-        ApnFallbackTask task = taskQueue.remove(address);
+        Optional<ApnFallbackTask> task = schedule.remove(address);
+        taskQueue.remove(address);
 
-        if (task != null) {
-            pubSubManager.unsubscribe(new WebSocketConnectionInfo(address), this);
+        if (task.isPresent()) {
             voipOneSuccess.mark();
-            voipOneSuccessHistogram.update(System.currentTimeMillis() - task.getScheduledTime());
+            voipOneSuccessHistogram.update(System.currentTimeMillis() - task.get().getScheduledTime());
         }
     }
 
     @Override
     public void start() throws Exception {
-        new Thread(this).start();
+        orphanPoller = Executors.newSingleThreadScheduledExecutor();
+        orphanPoller.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                claimOrphans();
+            }
+        }, ORPHAN_POLL_INTERVAL, ORPHAN_POLL_INTERVAL, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void stop() throws Exception {
+        if (orphanPoller != null) {
+            orphanPoller.shutdownNow();
+        }
 
+        taskQueue.stop();
     }
 
+    /**
+     * Fires a task from the local wheel, provided no other node (or a cancel) got to it first.
+     */
     @Override
-    public void run() {
-        while (true) {
-            try {
-                Entry<WebsocketAddress, ApnFallbackTask> taskEntry = taskQueue.get();
-                ApnFallbackTask task = taskEntry.getValue();
-
-                ApnMessage message;
-
-                if (task.getAttempt() == 0) {
-                    message = new ApnMessage(task.getMessage(), task.getVoipApnId(), true, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(FALLBACK_DURATION));
-                    scheduleRetry(taskEntry.getKey(), new ApnFallbackTask(task.getApnId(), task.getVoipApnId(), task.getMessage(), task.getDelay(), 1));
-                } else {
-                    message = new ApnMessage(task.getMessage(), task.getApnId(), false, ApnMessage.MAX_EXPIRATION);
-                    pubSubManager.unsubscribe(new WebSocketConnectionInfo(taskEntry.getKey()), this);
-                }
+    public void onExpired(WebsocketAddress address, ApnFallbackTask task) {
+        Optional<ApnFallbackTask> claimed = schedule.claim(address);
 
-                apnSender.sendMessage(message);
-            } catch (Throwable e) {
-                logger.warn("ApnFallbackThread", e);
-            }
+        if (claimed.isPresent()) {
+            fire(address, claimed.get());
         }
     }
 
-    @Override
-    public void onDispatchMessage(String channel, byte[] message) {
+    /**
+     * Picks up overdue tasks that no local wheel fired, such as those scheduled by a node
+     * that has since restarted.
+     */
+    @VisibleForTesting
+    public void claimOrphans() {
         try {
-            PubSubMessage notification = PubSubMessage.parseFrom(message);
+            for (WebsocketAddress address : schedule.getDue(System.currentTimeMillis() - ORPHAN_GRACE_PERIOD, ORPHAN_BATCH_SIZE)) {
+                Optional<ApnFallbackTask> claimed = schedule.claim(address);
+
+                if (claimed.isPresent()) {
+                    orphanClaimed.mark();
+                    taskQueue.remove(address);
+                    fire(address, claimed.get());
+                }
+            }
+        } catch (Throwable t) {
+            logger.warn("Orphaned fallback poll", t);
+        }
+    }
+
+    private void fire(WebsocketAddress address, ApnFallbackTask task) {
+        ApnMessage message;
+
+        if (task.getAttempt() == 0) {
+            message = new ApnMessage(task.getMessage(), task.getVoipApnId(), true, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(FALLBACK_DURATION));
+        } else {
+            message = new ApnMessage(task.getMessage(), task.getApnId(), false, ApnMessage.MAX_EXPIRATION);
+        }
 
-            if (notification.getType().getNumber() == PubSubMessage.Type.CONNECTED_VALUE) {
-                WebSocketConnectionInfo address = new WebSocketConnectionInfo(channel);
-                cancel(address.getWebsocketAddress());
-            } else {
-                logger.warn("Got strange pubsub type: " + notification.getType().getNumber());
+        try {
+            apnSender.sendMessage(message);
+        } catch (TransientPushFailureException e) {
+            if (retryTransient(address, task)) {
+                return;
             }
+        } catch (Throwable e) {
+            logger.warn("ApnFallbackThread", e);
+        }
 
-        } catch (WebSocketConnectionInfo.FormattingException e) {
-            logger.warn("Bad formatting?", e);
-        } catch (InvalidProtocolBufferException e) {
-            logger.warn("Bad protobuf", e);
+        if (task.getAttempt() == 0) {
+            scheduleRetry(address, new ApnFallbackTask(task.getApnId(), task.getVoipApnId(), task.getMessage(), task.getDelay(), 1));
         }
     }
 
-    @Override
-    public void onDispatchSubscribed(String channel) {
-    }
+    /**
+     * Puts a task that APNs refused while over its limit back on the schedule, with the delay
+     * doubling on each refusal. Gives up after {@code MAX_TRANSIENT_RETRIES}, in which case a
+     * VoIP attempt still moves on to the regular APN fallback.
+     *
+     * @return whether the task was rescheduled.
+     */
+    private boolean retryTransient(WebsocketAddress address, ApnFallbackTask task) {
+        if (task.getFailures() >= MAX_TRANSIENT_RETRIES) {
+            logger.warn("Giving up on fallback for " + address + " after " + task.getFailures() + " transient failures");
+            transientDropped.mark();
+            return false;
+        }
 
-    @Override
-    public void onDispatchUnsubscribed(String channel) {
+        transientRetried.mark();
+        scheduleRetry(address, new ApnFallbackTask(task.getApnId(), task.getVoipApnId(), task.getMessage(),
+            System.currentTimeMillis(), TRANSIENT_RETRY_DELAY << task.getFailures(),
+            task.getAttempt(), task.getFailures() + 1));
+        return true;
     }
 
     public static class ApnFallbackTask {
@@ -143,6 +187,7 @@ public class ApnFallbackManager implements Managed, Runnable, DispatchChannel {
         private final String voipApnId;
         private final ApnMessage message;
         private final int attempt;
+        private final int failures;
 
         public ApnFallbackTask(String apnId, String voipApnId, ApnMessage message) {
             this(apnId, voipApnId, message, TimeUnit.SECONDS.toMillis(FALLBACK_DURATION), 0);
@@ -150,12 +195,24 @@ public class ApnFallbackManager implements Managed, Runnable, DispatchChannel {
 
         @VisibleForTesting
         public ApnFallbackTask(String apnId, String voipApnId, ApnMessage message, long delay, int attempt) {
-            this.scheduledTime = System.currentTimeMillis();
+            this(apnId, voipApnId, message, System.currentTimeMillis(), delay, attempt);
+        }
+
+        public ApnFallbackTask(String apnId, String voipApnId, ApnMessage message, long scheduledTime, long delay, int attempt) {
+            this(apnId, voipApnId, message, scheduledTime, delay, attempt, 0);
+        }
+
+        /**
+         * @param failures how many times this attempt has already been refused as a transient failure.
+         */
+        public ApnFallbackTask(String apnId, String voipApnId, ApnMessage message, long scheduledTime, long delay, int attempt, int failures) {
+            this.scheduledTime = scheduledTime;
             this.delay = delay;
             this.apnId = apnId;
             this.voipApnId = voipApnId;
             this.message = message;
             this.attempt = attempt;
+            this.failures = failures;
         }
 
         public String getApnId() {
@@ -185,59 +242,9 @@ public class ApnFallbackManager implements Managed, Runnable, DispatchChannel {
         public int getAttempt() {
             return attempt;
         }
-    }
-
-    @VisibleForTesting
-    public static class ApnFallbackTaskQueue {
-
-        private final LinkedHashMap<WebsocketAddress, ApnFallbackTask> tasks = new LinkedHashMap<>();
-
-        public Entry<WebsocketAddress, ApnFallbackTask> get() {
-            while (true) {
-                long timeDelta;
-
-                synchronized (tasks) {
-                    while (tasks.isEmpty()) {
-                        Util.wait(tasks);
-                    }
-
-                    Iterator<Entry<WebsocketAddress, ApnFallbackTask>> iterator = tasks.entrySet().iterator();
-                    Entry<WebsocketAddress, ApnFallbackTask> nextTask = iterator.next();
-
-                    timeDelta = nextTask.getValue().getExecutionTime() - System.currentTimeMillis();
-
-                    if (timeDelta <= 0) {
-                        iterator.remove();
-                        return nextTask;
-                    }
-                }
-
-                Util.sleep(timeDelta);
-            }
-        }
 
-        public boolean put(WebsocketAddress address, ApnFallbackTask task) {
-            synchronized (tasks) {
-                ApnFallbackTask previous = tasks.put(address, task);
-                tasks.notifyAll();
-
-                return previous == null;
-            }
-        }
-
-        public boolean putIfMissing(WebsocketAddress address, ApnFallbackTask task) {
-            synchronized (tasks) {
-                if (tasks.containsKey(address)) {
-                    return false;
-                }
-                return put(address, task);
-            }
-        }
-
-        public ApnFallbackTask remove(WebsocketAddress address) {
-            synchronized (tasks) {
-                return tasks.remove(address);
-            }
+        public int getFailures() {
+            return failures;
         }
     }
 
@@ -0,0 +1,185 @@
+package org.whisper.signal.push;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTask;
+import org.whisper.signal.util.SystemMapper;
+import org.whisper.signal.websocket.InvalidWebsocketAddressException;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Transaction;
+
+/**
+ * The cluster-wide APN fallback schedule.
+ *
+ * Pending addresses live in a sorted set scored by execution time, with the task
+ * details in a hash alongside it. Every change to both is a single Lua script, so
+ * they never disagree. Any node may claim a due task; the claim removes it from both
+ * at once, so each task fires exactly once.
+ */
+public class ApnFallbackSchedule {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApnFallbackSchedule.class);
+
+    private static final String SCHEDULE_KEY = "apn_fallback::schedule";
+    private static final String TASKS_KEY = "apn_fallback::tasks";
+
+    private static final String PUT_IF_MISSING_SCRIPT =
+        "if redis.call('hsetnx', KEYS[2], ARGV[1], ARGV[2]) == 1 then " +
+        "  redis.call('zadd', KEYS[1], ARGV[3], ARGV[1]); " +
+        "  return 1; " +
+        "end " +
+        "return 0";
+
+    private static final String CLAIM_SCRIPT =
+        "if redis.call('zrem', KEYS[1], ARGV[1]) == 1 then " +
+        "  local task = redis.call('hget', KEYS[2], ARGV[1]); " +
+        "  redis.call('hdel', KEYS[2], ARGV[1]); " +
+        "  return task; " +
+        "end " +
+        "return false";
+
+    private final JedisPool jedisPool;
+
+    public ApnFallbackSchedule(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    public void put(WebsocketAddress address, ApnFallbackTask task) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Transaction transaction = jedis.multi();
+            transaction.hset(TASKS_KEY, address.serialize(), serialize(task));
+            transaction.zadd(SCHEDULE_KEY, task.getExecutionTime(), address.serialize());
+            transaction.exec();
+        }
+    }
+
+    public boolean putIfMissing(WebsocketAddress address, ApnFallbackTask task) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object added = jedis.eval(PUT_IF_MISSING_SCRIPT, Arrays.asList(SCHEDULE_KEY, TASKS_KEY),
+                Arrays.asList(address.serialize(), serialize(task), String.valueOf(task.getExecutionTime())));
+
+            return Long.valueOf(1).equals(added);
+        }
+    }
+
+    /**
+     * Cancels a pending task. This is the same operation as a claim, under the name
+     * callers cancelling a fallback expect.
+     */
+    public Optional<ApnFallbackTask> remove(WebsocketAddress address) {
+        return claim(address);
+    }
+
+    public Optional<ApnFallbackTask> claim(WebsocketAddress address) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object task = jedis.eval(CLAIM_SCRIPT, Arrays.asList(SCHEDULE_KEY, TASKS_KEY),
+                Collections.singletonList(address.serialize()));
+
+            return task instanceof String ? deserialize((String) task) : Optional.<ApnFallbackTask>absent();
+        }
+    }
+
+    public List<WebsocketAddress> getDue(long executionTime, int limit) {
+        List<WebsocketAddress> due = new LinkedList<>();
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            for (String address : jedis.zrangeByScore(SCHEDULE_KEY, 0, executionTime, 0, limit)) {
+                try {
+                    due.add(new WebsocketAddress(address));
+                } catch (InvalidWebsocketAddressException e) {
+                    logger.warn("Bad scheduled address", e);
+                    jedis.zrem(SCHEDULE_KEY, address);
+                }
+            }
+        }
+
+        return due;
+    }
+
+    public long size() {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.zcard(SCHEDULE_KEY);
+        }
+    }
+
+    private String serialize(ApnFallbackTask task) {
+        try {
+            return SystemMapper.getMapper().writeValueAsString(new StoredTask(task));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private Optional<ApnFallbackTask> deserialize(String serialized) {
+        if (serialized == null) {
+            return Optional.absent();
+        }
+
+        try {
+            return Optional.of(SystemMapper.getMapper().readValue(serialized, StoredTask.class).toTask());
+        } catch (IOException e) {
+            logger.warn("Bad stored fallback task", e);
+            return Optional.absent();
+        }
+    }
+
+    private static class StoredTask {
+
+        @JsonProperty
+        private String apnId;
+
+        @JsonProperty
+        private String voipApnId;
+
+        @JsonProperty
+        private String number;
+
+        @JsonProperty
+        private int deviceId;
+
+        @JsonProperty
+        private String message;
+
+        @JsonProperty
+        private long scheduledTime;
+
+        @JsonProperty
+        private long delay;
+
+        @JsonProperty
+        private int attempt;
+
+        @JsonProperty
+        private int failures;
+
+        public StoredTask() {}
+
+        StoredTask(ApnFallbackTask task) {
+            this.apnId = task.getApnId();
+            this.voipApnId = task.getVoipApnId();
+            this.number = task.getMessage().getNumber();
+            this.deviceId = task.getMessage().getDeviceId();
+            this.message = task.getMessage().getMessage();
+            this.scheduledTime = task.getScheduledTime();
+            this.delay = task.getDelay();
+            this.attempt = task.getAttempt();
+            this.failures = task.getFailures();
+        }
+
+        ApnFallbackTask toTask() {
+            ApnMessage apnMessage = new ApnMessage(voipApnId, number, deviceId, message, true, scheduledTime + delay);
+            return new ApnFallbackTask(apnId, voipApnId, apnMessage, scheduledTime, delay, attempt, failures);
+        }
+    }
+}
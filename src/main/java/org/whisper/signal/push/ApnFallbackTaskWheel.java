@@ -0,0 +1,142 @@
+package org.whisper.signal.push;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTask;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+
+/**
+ * Schedules APN fallback tasks, one per address, on a hashed timing wheel.
+ *
+ * Scheduling and cancelling are O(1) and don't share a lock. The wheel thread only
+ * hands expired tasks off, the listener runs on a separate pool of firing threads.
+ */
+public class ApnFallbackTaskWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApnFallbackTaskWheel.class);
+
+    private static final long TICK_MILLIS = 10;
+    private static final int TICKS_PER_WHEEL = 2048;
+
+    private final ConcurrentHashMap<WebsocketAddress, ScheduledTask> tasks = new ConcurrentHashMap<>();
+
+    private final Listener listener;
+    private final HashedWheelTimer timer;
+    private final ExecutorService firingExecutor;
+
+    public ApnFallbackTaskWheel(Listener listener, int firingThreads) {
+        this.listener = listener;
+        this.timer = new HashedWheelTimer(TICK_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+        this.firingExecutor = Executors.newFixedThreadPool(firingThreads);
+    }
+
+    /**
+     * Schedules a task, replacing any task already scheduled for the address.
+     *
+     * @return true if no task was scheduled for the address.
+     */
+    public boolean put(WebsocketAddress address, ApnFallbackTask task) {
+        ScheduledTask scheduled = new ScheduledTask(address, task);
+        ScheduledTask previous = tasks.put(address, scheduled);
+
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        scheduled.schedule();
+        return previous == null;
+    }
+
+    /**
+     * Schedules a task only if none is scheduled for the address.
+     *
+     * @return true if the task was scheduled.
+     */
+    public boolean putIfMissing(WebsocketAddress address, ApnFallbackTask task) {
+        ScheduledTask scheduled = new ScheduledTask(address, task);
+
+        if (tasks.putIfAbsent(address, scheduled) != null) {
+            return false;
+        }
+
+        scheduled.schedule();
+        return true;
+    }
+
+    public ApnFallbackTask remove(WebsocketAddress address) {
+        ScheduledTask scheduled = tasks.remove(address);
+
+        if (scheduled == null) {
+            return null;
+        }
+
+        scheduled.cancel();
+        return scheduled.task;
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    public void stop() {
+        timer.stop();
+        firingExecutor.shutdownNow();
+    }
+
+    public interface Listener {
+        void onExpired(WebsocketAddress address, ApnFallbackTask task);
+    }
+
+    private class ScheduledTask implements TimerTask, Runnable {
+
+        private final WebsocketAddress address;
+        private final ApnFallbackTask task;
+
+        private volatile Timeout timeout;
+
+        ScheduledTask(WebsocketAddress address, ApnFallbackTask task) {
+            this.address = address;
+            this.task = task;
+        }
+
+        void schedule() {
+            long delay = Math.max(0, task.getExecutionTime() - System.currentTimeMillis());
+            timeout = timer.newTimeout(this, delay, TimeUnit.MILLISECONDS);
+        }
+
+        void cancel() {
+            Timeout timeout = this.timeout;
+
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            // A task that was replaced or cancelled is no longer mapped, even if its
+            // timeout fired before the cancel reached the wheel.
+            if (tasks.remove(address, this)) {
+                firingExecutor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                listener.onExpired(address, task);
+            } catch (Throwable t) {
+                logger.warn("ApnFallbackTask", t);
+            }
+        }
+    }
+}
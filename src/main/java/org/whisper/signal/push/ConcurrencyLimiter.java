@@ -0,0 +1,218 @@
+package org.whisper.signal.push;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.util.Constants;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Caps the number of requests in flight to a push provider, with a circuit breaker.
+ *
+ * The limit follows AIMD: it grows by roughly one per limit's worth of fast responses
+ * while the limit is actually in use, and is cut by a quarter on every failure or on
+ * a response slower than {@code latencyThreshold}. When at least half of the requests
+ * in a ten second window fail, the breaker opens and {@link #tryAcquire} refuses
+ * everything for {@code openMillis}; after that a single probe is let through, and its
+ * outcome either closes the breaker or opens it again.
+ */
+public class ConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    private static final double BACKOFF_RATIO = 0.75;
+
+    private static final long   WINDOW_MILLIS        = TimeUnit.SECONDS.toMillis(10);
+    private static final int    MINIMUM_REQUESTS     = 20;
+    private static final double FAILURE_RATIO        = 0.5;
+    private static final long   DEFAULT_OPEN_MILLIS  = TimeUnit.SECONDS.toMillis(5);
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+
+    private final String name;
+    private final int    minLimit;
+    private final int    maxLimit;
+    private final long   latencyThreshold;
+    private final long   openMillis;
+    private final Meter  rejectedMeter;
+    private final Meter  openedMeter;
+
+    private double limit;
+    private int    inFlight;
+    private State  state = State.CLOSED;
+    private long   openedAt;
+    private boolean probing;
+
+    private long windowStart = System.currentTimeMillis();
+    private int  windowRequests;
+    private int  windowFailures;
+
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, long latencyThreshold) {
+        this(name, initialLimit, minLimit, maxLimit, latencyThreshold, DEFAULT_OPEN_MILLIS);
+    }
+
+    @VisibleForTesting
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, long latencyThreshold, long openMillis) {
+        this.name             = name;
+        this.limit            = initialLimit;
+        this.minLimit         = minLimit;
+        this.maxLimit         = maxLimit;
+        this.latencyThreshold = latencyThreshold;
+        this.openMillis       = openMillis;
+        this.rejectedMeter    = metricRegistry.meter(name(ConcurrencyLimiter.class, name, "rejected"));
+        this.openedMeter      = metricRegistry.meter(name(ConcurrencyLimiter.class, name, "opened"));
+
+        registerGauge("limit", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getLimit();
+            }
+        });
+
+        registerGauge("in_flight", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getInFlight();
+            }
+        });
+
+        registerGauge("state", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getState().ordinal();
+            }
+        });
+    }
+
+    /**
+     * @return true if the caller may send one request, which it must later report with
+     *         {@link #onSuccess} or {@link #onFailure}.
+     */
+    public synchronized boolean tryAcquire() {
+        boolean acquired;
+
+        if (isOpen()) {
+            acquired = false;
+        } else if (state == State.HALF_OPEN) {
+            acquired = !probing;
+            probing  = true;
+        } else {
+            acquired = inFlight < (int) limit;
+        }
+
+        if (acquired) inFlight++;
+        else          rejectedMeter.mark();
+
+        return acquired;
+    }
+
+    public synchronized void onSuccess(long latency, TimeUnit unit) {
+        inFlight--;
+
+        if (unit.toMillis(latency) > latencyThreshold) {
+            decrease();
+        } else if (inFlight >= limit / 2) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+
+        if (state == State.HALF_OPEN) {
+            logger.info("Closing " + name + " circuit");
+            state   = State.CLOSED;
+            probing = false;
+            resetWindow(System.currentTimeMillis());
+        } else {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        inFlight--;
+        decrease();
+
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            open();
+        } else {
+            record(true);
+        }
+    }
+
+    /**
+     * @return true while the breaker refuses everything. Once {@code openMillis} have
+     *         passed it moves to half open, so the next {@link #tryAcquire} can probe.
+     */
+    public synchronized boolean isOpen() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+
+        return state == State.OPEN;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    }
+
+    private void record(boolean failure) {
+        long now = System.currentTimeMillis();
+
+        if (now - windowStart >= WINDOW_MILLIS) {
+            resetWindow(now);
+        }
+
+        windowRequests++;
+        if (failure) windowFailures++;
+
+        if (state == State.CLOSED && windowRequests >= MINIMUM_REQUESTS &&
+            windowFailures >= windowRequests * FAILURE_RATIO)
+        {
+            open();
+        }
+    }
+
+    private void open() {
+        logger.warn("Opening " + name + " circuit, limit: " + (int) limit);
+
+        state    = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        openedMeter.mark();
+        resetWindow(openedAt);
+    }
+
+    private void resetWindow(long now) {
+        windowStart    = now;
+        windowRequests = 0;
+        windowFailures = 0;
+    }
+
+    private void registerGauge(String metric, Gauge<Integer> gauge) {
+        String metricName = name(ConcurrencyLimiter.class, name, metric);
+
+        if (!metricRegistry.getGauges().containsKey(metricName)) {
+            metricRegistry.register(metricName, gauge);
+        }
+    }
+}
@@ -1,35 +1,53 @@
 package org.whisper.signal.push;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.whispersystems.gcm.server.Message;
-import org.whispersystems.gcm.server.Result;
-import org.whispersystems.gcm.server.Sender;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.Device;
+import org.whisper.signal.push.GcmMulticastSender.Result;
 import org.whisper.signal.util.Constants;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import io.dropwizard.lifecycle.Managed;
 
+/**
+ * Sends GCM notifications in multicast batches.
+ *
+ * Every notification carries the same empty data payload for its kind, so pending
+ * notifications are grouped by payload and sent together once a batch is full or the
+ * oldest one has waited {@code batchWindow} milliseconds, whichever comes first.
+ *
+ * Each multicast request takes a slot from a {@link ConcurrencyLimiter}. A batch that
+ * can't get one goes back to the front of its pending list for the next flush, and new
+ * notifications are refused while that list is full or the circuit is open.
+ */
 public class GCMSender implements Managed {
 
+    private static final int  MAX_CONNECTIONS   = 50;
+    private static final long LATENCY_THRESHOLD = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(GCMSender.class);
 
     private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
@@ -37,6 +55,18 @@ public class GCMSender implements Managed {
     private final Meter failure = metricRegistry.meter(name(getClass(), "sent", "failure"));
     private final Meter unregistered = metricRegistry.meter(name(getClass(), "sent", "unregistered"));
     private final Meter canonical = metricRegistry.meter(name(getClass(), "sent", "canonical"));
+    private final Meter deferred = metricRegistry.meter(name(getClass(), "deferred"));
+    private final Histogram batchSize = metricRegistry.histogram(name(getClass(), "batch_size"));
+    private final Timer batchedTimer = metricRegistry.timer(name(getClass(), "latency", "batched"));
+    private final Timer errorTimer = metricRegistry.timer(name(getClass(), "latency", "error"));
+
+    private final Map<String, Timer> resultTimers = new HashMap<String, Timer>() {
+        {
+            for (String outcome : new String[] {"success", "unregistered", "canonical", "failure"}) {
+                put(outcome, metricRegistry.timer(name(GCMSender.class, "latency", outcome)));
+            }
+        }
+    };
 
     private final Map<String, Meter> outboundMeters = new HashMap<String, Meter>() {
         {
@@ -45,84 +75,231 @@ public class GCMSender implements Managed {
         }
     };
 
+    private final Map<String, List<GcmMessage>> pending = new HashMap<>();
+
     private final AccountsManager accountsManager;
-    private final Sender signalSender;
+    private final PushTokenInvalidator tokenInvalidator;
+    private final GcmMulticastSender signalSender;
+    private final ConcurrencyLimiter limiter;
+    private final long batchWindow;
     private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
 
-    public GCMSender(AccountsManager accountsManager, String signalKey) {
+    public GCMSender(AccountsManager accountsManager, PushTokenInvalidator tokenInvalidator, String signalKey, long batchWindow) {
         this.accountsManager = accountsManager;
-        this.signalSender = new Sender(signalKey, 50);
+        this.tokenInvalidator = tokenInvalidator;
+        this.signalSender = new GcmMulticastSender(signalKey, MAX_CONNECTIONS);
+        this.limiter = createLimiter();
+        this.batchWindow = batchWindow;
     }
 
     @VisibleForTesting
-    public GCMSender(AccountsManager accountsManager, Sender sender, ExecutorService executor) {
+    public GCMSender(AccountsManager accountsManager, PushTokenInvalidator tokenInvalidator, GcmMulticastSender sender,
+        ExecutorService executor, ScheduledExecutorService scheduler, long batchWindow) {
+        this(accountsManager, tokenInvalidator, sender, createLimiter(), executor, scheduler, batchWindow);
+    }
+
+    @VisibleForTesting
+    public GCMSender(AccountsManager accountsManager, PushTokenInvalidator tokenInvalidator, GcmMulticastSender sender,
+        ConcurrencyLimiter limiter, ExecutorService executor, ScheduledExecutorService scheduler, long batchWindow) {
         this.accountsManager = accountsManager;
+        this.tokenInvalidator = tokenInvalidator;
         this.signalSender = sender;
+        this.limiter = limiter;
         this.executor = executor;
+        this.scheduler = scheduler;
+        this.batchWindow = batchWindow;
     }
 
-    public void sendMessage(GcmMessage message) {
-        Message.Builder builder = Message.newBuilder()
-            .withDestination(message.getGcmId())
-            .withPriority("high");
+    private static ConcurrencyLimiter createLimiter() {
+        return new ConcurrencyLimiter("gcm", 10, 1, MAX_CONNECTIONS, LATENCY_THRESHOLD);
+    }
 
-        String key = message.isReceipt() ? "receipt" : "notification";
-        Message request = builder.withDataPart(key, "").build();
+    public void sendMessage(GcmMessage message) throws TransientPushFailureException {
+        final String key = message.isReceipt() ? "receipt" : "notification";
+        List<GcmMessage> ready = null;
+
+        if (limiter.isOpen()) {
+            throw new TransientPushFailureException("GCM circuit open");
+        }
+
+        synchronized (pending) {
+            List<GcmMessage> batch = pending.get(key);
+
+            if (batch == null) {
+                batch = new ArrayList<>();
+                pending.put(key, batch);
+                scheduleFlush(key);
+            } else if (batch.size() >= GcmMulticastSender.MAX_REGISTRATION_IDS) {
+                throw new TransientPushFailureException("GCM backlog full");
+            }
+
+            batch.add(message);
+
+            if (batch.size() >= GcmMulticastSender.MAX_REGISTRATION_IDS) {
+                ready = pending.remove(key);
+            }
+        }
 
-        ListenableFuture<Result> future = signalSender.send(request, message);
         markOutboundMeter(key);
 
-        Futures.addCallback(future, new FutureCallback<Result>() {
+        if (ready != null) {
+            sendBatch(key, ready);
+        }
+    }
+
+    @VisibleForTesting
+    public void flush() {
+        for (String key : new String[] {"receipt", "notification"}) {
+            flush(key);
+        }
+    }
+
+    private void flush(String key) {
+        List<GcmMessage> batch;
+
+        synchronized (pending) {
+            batch = pending.remove(key);
+        }
+
+        if (batch != null) {
+            sendBatch(key, batch);
+        }
+    }
+
+    private void scheduleFlush(final String key) {
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush(key);
+            }
+        }, batchWindow, TimeUnit.MILLISECONDS);
+    }
+
+    private void sendBatch(String key, List<GcmMessage> messages) {
+        for (int offset = 0; offset < messages.size(); offset += GcmMulticastSender.MAX_REGISTRATION_IDS) {
+            if (!limiter.tryAcquire()) {
+                requeue(key, messages.subList(offset, messages.size()));
+                return;
+            }
+
+            sendChunk(key, messages.subList(offset, Math.min(messages.size(), offset + GcmMulticastSender.MAX_REGISTRATION_IDS)));
+        }
+    }
+
+    private void requeue(String key, List<GcmMessage> messages) {
+        deferred.mark(messages.size());
+
+        synchronized (pending) {
+            List<GcmMessage> batch = new ArrayList<>(messages);
+            List<GcmMessage> newer = pending.remove(key);
+
+            if (newer != null) batch.addAll(newer);
+
+            pending.put(key, batch);
+
+            if (!scheduler.isShutdown()) {
+                scheduleFlush(key);
+            }
+        }
+    }
+
+    private void sendChunk(String key, final List<GcmMessage> batch) {
+        List<String> registrationIds = new ArrayList<>(batch.size());
+
+        for (GcmMessage message : batch) {
+            registrationIds.add(message.getGcmId());
+        }
+
+        batchSize.update(batch.size());
+
+        final long start = System.nanoTime();
+
+        for (GcmMessage message : batch) {
+            batchedTimer.update(start - message.getCreatedAt(), TimeUnit.NANOSECONDS);
+        }
+
+        ListenableFuture<List<Result>> future = signalSender.send(key, registrationIds);
+
+        Futures.addCallback(future, new FutureCallback<List<Result>>() {
+            @Override
+            public void onSuccess(List<Result> results) {
+                long latency = System.nanoTime() - start;
+                limiter.onSuccess(latency, TimeUnit.NANOSECONDS);
+
+                for (Result result : results) {
+                    resultTimers.get(getOutcome(result)).update(latency, TimeUnit.NANOSECONDS);
+                }
+            }
+
             @Override
-            public void onSuccess(Result result) {
-                if (result.isUnregistered() || result.isInvalidRegistrationId()) {
-                    handleBadRegistration(result);
-                } else if (result.hasCanonicalRegistrationId()) {
-                    handleCanonicalRegistrationId(result);
-                } else if (!result.isSuccess()) {
-                    handleGenericError(result);
-                } else {
-                    success.mark();
+            public void onFailure(Throwable throwable) {
+                long latency = System.nanoTime() - start;
+                limiter.onFailure();
+
+                for (int i = 0; i < batch.size(); i++) {
+                    errorTimer.update(latency, TimeUnit.NANOSECONDS);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+
+        Futures.addCallback(future, new FutureCallback<List<Result>>() {
+            @Override
+            public void onSuccess(List<Result> results) {
+                for (int i = 0; i < batch.size(); i++) {
+                    handleResult(batch.get(i), results.get(i));
                 }
             }
 
             @Override
             public void onFailure(Throwable throwable) {
                 logger.warn("GCM Failed: " + throwable);
+                failure.mark(batch.size());
             }
         }, executor);
     }
 
+    private static String getOutcome(Result result) {
+        if      (result.isUnregistered() || result.isInvalidRegistrationId()) return "unregistered";
+        else if (result.hasCanonicalRegistrationId())                         return "canonical";
+        else if (!result.isSuccess())                                         return "failure";
+        else                                                                  return "success";
+    }
+
+    private void handleResult(GcmMessage message, Result result) {
+        if (result.isUnregistered() || result.isInvalidRegistrationId()) {
+            handleBadRegistration(message);
+        } else if (result.hasCanonicalRegistrationId()) {
+            handleCanonicalRegistrationId(message, result);
+        } else if (!result.isSuccess()) {
+            handleGenericError(message, result);
+        } else {
+            success.mark();
+        }
+    }
+
     @Override
     public void start() {
         executor = Executors.newSingleThreadExecutor();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
     }
 
     @Override
     public void stop() throws IOException {
+        flush();
+
+        this.scheduler.shutdown();
         this.signalSender.stop();
         this.executor.shutdown();
     }
 
-    private void handleBadRegistration(Result result) {
-        GcmMessage message = (GcmMessage) result.getContext();
+    private void handleBadRegistration(GcmMessage message) {
         logger.warn("Got GCM unregistered notice! " + message.getGcmId());
-
-        Optional<Account> account = getAccountForEvent(message);
-
-        if (account.isPresent()) {
-            Device device = account.get().getDevice(message.getDeviceId()).get();
-            device.setGcmId(null);
-            device.setFetchesMessages(false);
-
-            accountsManager.update(account.get());
-        }
-
+        tokenInvalidator.invalidateGcmId(message.getNumber(), message.getDeviceId(), message.getGcmId());
         unregistered.mark();
     }
 
-    private void handleCanonicalRegistrationId(Result result) {
-        GcmMessage message = (GcmMessage) result.getContext();
+    private void handleCanonicalRegistrationId(GcmMessage message, Result result) {
         logger.warn(String.format("Actually received 'CanonicalRegistrationId' ::: (canonical=%s), (original=%s)",
             result.getCanonicalRegistrationId(), message.getGcmId()));
 
@@ -132,14 +309,13 @@ public class GCMSender implements Managed {
             Device device = account.get().getDevice(message.getDeviceId()).get();
             device.setGcmId(result.getCanonicalRegistrationId());
 
-            accountsManager.update(account.get());
+            accountsManager.updateDevice(account.get(), device);
         }
 
         canonical.mark();
     }
 
-    private void handleGenericError(Result result) {
-        GcmMessage message = (GcmMessage) result.getContext();
+    private void handleGenericError(GcmMessage message, Result result) {
         logger.warn(String.format("Unrecoverable Error ::: (error=%s), (gcm_id=%s), "
             + "(destination=%s), (device_id=%d)",
             result.getError(), message.getGcmId(), message.getNumber(),
@@ -6,6 +6,7 @@ public class GcmMessage {
     private final String number;
     private final int deviceId;
     private final boolean receipt;
+    private final long createdAt = System.nanoTime();
 
     public GcmMessage(String gcmId, String number, int deviceId, boolean receipt) {
         this.gcmId = gcmId;
@@ -29,4 +30,8 @@ public class GcmMessage {
     public int getDeviceId() {
         return deviceId;
     }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
 }
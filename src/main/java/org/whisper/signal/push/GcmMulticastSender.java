@@ -0,0 +1,235 @@
+package org.whisper.signal.push;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.nurkiewicz.asyncretry.AsyncRetryExecutor;
+import com.nurkiewicz.asyncretry.RetryContext;
+import com.nurkiewicz.asyncretry.RetryExecutor;
+import com.nurkiewicz.asyncretry.function.RetryCallable;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.util.EntityUtils;
+import org.whisper.signal.util.SystemMapper;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Sends one data payload to many GCM registration ids in a single HTTP request.
+ *
+ * GCM answers with one result per registration id, in request order. Server errors and
+ * I/O failures are retried with a backoff. A rejected request, or an accepted one whose
+ * results can't be matched to the registration ids, fails the whole batch without a retry,
+ * since GCM may already have delivered it.
+ */
+public class GcmMulticastSender {
+
+    public static final int MAX_REGISTRATION_IDS = 1000;
+
+    private static final String PRODUCTION_URL = "https://android.googleapis.com/gcm/send";
+
+    private final CloseableHttpAsyncClient client;
+    private final RetryExecutor            retryExecutor;
+    private final String                   authorizationHeader;
+    private final String                   url;
+
+    public GcmMulticastSender(String apiKey, int maxConnections) {
+        this(apiKey, maxConnections, PRODUCTION_URL);
+    }
+
+    public GcmMulticastSender(String apiKey, int maxConnections, String url) {
+        this.authorizationHeader = String.format("key=%s", apiKey);
+        this.url                 = url;
+        this.client              = HttpAsyncClients.custom()
+                                                   .setMaxConnTotal(maxConnections)
+                                                   .setMaxConnPerRoute(maxConnections)
+                                                   .build();
+        this.retryExecutor       = new AsyncRetryExecutor(Executors.newSingleThreadScheduledExecutor())
+                                                   .retryOn(IOException.class)
+                                                   .withExponentialBackoff(100, 2.0)
+                                                   .withUniformJitter()
+                                                   .withMaxDelay(4000)
+                                                   .withMaxRetries(5);
+        this.client.start();
+    }
+
+    public ListenableFuture<List<Result>> send(String dataKey, final List<String> registrationIds) {
+        if (registrationIds.size() > MAX_REGISTRATION_IDS) {
+            throw new IllegalArgumentException("Too many registration ids: " + registrationIds.size());
+        }
+
+        final String body = createRequest(dataKey, registrationIds);
+
+        return retryExecutor.getFutureWithRetry(new RetryCallable<ListenableFuture<List<Result>>>() {
+            @Override
+            public ListenableFuture<List<Result>> call(RetryContext context) throws Exception {
+                SettableFuture<List<Result>> future = SettableFuture.create();
+                send(body, registrationIds.size(), future);
+
+                return future;
+            }
+        });
+    }
+
+    public void stop() throws IOException {
+        client.close();
+    }
+
+    private void send(String body, final int count, final SettableFuture<List<Result>> future) {
+        HttpPost request = new HttpPost(url);
+        request.setHeader("Authorization", authorizationHeader);
+        request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+
+        client.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                int status = response.getStatusLine().getStatusCode();
+
+                try {
+                    if (status == 200) {
+                        future.set(parseResults(EntityUtils.toString(response.getEntity()), count));
+                    } else if (status >= 500) {
+                        future.setException(new IOException("GCM server error: " + status));
+                    } else {
+                        future.setException(new RequestRejectedException(status));
+                    }
+                } catch (IOException | MalformedResponseException e) {
+                    future.setException(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                future.setException(e);
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+    }
+
+    private String createRequest(String dataKey, List<String> registrationIds) {
+        try {
+            return SystemMapper.getMapper().writeValueAsString(new RequestEntity(dataKey, registrationIds));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private List<Result> parseResults(String body, int count) {
+        ResponseEntity response;
+
+        try {
+            response = SystemMapper.getMapper().readValue(body, ResponseEntity.class);
+        } catch (IOException e) {
+            throw new MalformedResponseException("Unparseable GCM response: " + e.getMessage());
+        }
+
+        if (response.results == null || response.results.size() != count) {
+            throw new MalformedResponseException("Expected " + count + " GCM results, got " +
+                                                 (response.results == null ? 0 : response.results.size()));
+        }
+
+        return response.results;
+    }
+
+    public static class RequestRejectedException extends RuntimeException {
+        public RequestRejectedException(int status) {
+            super("GCM request rejected: " + status);
+        }
+    }
+
+    public static class MalformedResponseException extends RuntimeException {
+        public MalformedResponseException(String message) {
+            super(message);
+        }
+    }
+
+    private static class RequestEntity {
+
+        @JsonProperty
+        private String priority = "high";
+
+        @JsonProperty
+        private Map<String, String> data;
+
+        @JsonProperty("registration_ids")
+        private List<String> registrationIds;
+
+        private RequestEntity(String dataKey, List<String> registrationIds) {
+            this.data            = Collections.singletonMap(dataKey, "");
+            this.registrationIds = registrationIds;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class ResponseEntity {
+
+        @JsonProperty
+        private List<Result> results = new LinkedList<>();
+
+        public ResponseEntity() {}
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Result {
+
+        @JsonProperty("message_id")
+        private String messageId;
+
+        @JsonProperty("registration_id")
+        private String canonicalRegistrationId;
+
+        @JsonProperty
+        private String error;
+
+        public Result() {}
+
+        public Result(String messageId, String canonicalRegistrationId, String error) {
+            this.messageId               = messageId;
+            this.canonicalRegistrationId = canonicalRegistrationId;
+            this.error                   = error;
+        }
+
+        public String getMessageId() {
+            return messageId;
+        }
+
+        public String getCanonicalRegistrationId() {
+            return canonicalRegistrationId;
+        }
+
+        public boolean hasCanonicalRegistrationId() {
+            return canonicalRegistrationId != null && !canonicalRegistrationId.isEmpty();
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return messageId != null && !messageId.isEmpty() && error == null;
+        }
+
+        public boolean isUnregistered() {
+            return "NotRegistered".equals(error);
+        }
+
+        public boolean isInvalidRegistrationId() {
+            return "InvalidRegistration".equals(error);
+        }
+    }
+}
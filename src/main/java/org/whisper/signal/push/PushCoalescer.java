@@ -0,0 +1,181 @@
+package org.whisper.signal.push;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.util.Constants;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Merges push notifications to the same device that arrive within a short window.
+ *
+ * The first notification after a device has gone quiet is sent straight away and opens
+ * a window. Anything that arrives while the window is open is held back, and when it
+ * closes only the latest notification is sent (with its badge count), which opens the
+ * next window. A window that closes with nothing pending returns the device to idle.
+ */
+public class PushCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushCoalescer.class);
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter suppressedMeter = metricRegistry.meter(name(PushCoalescer.class, "suppressed"));
+    private static final Meter coalescedMeter = metricRegistry.meter(name(PushCoalescer.class, "coalesced"));
+
+    private final ConcurrentHashMap<WebsocketAddress, Window> windows = new ConcurrentHashMap<>();
+
+    private final long windowMillis;
+    private final NotificationSender sender;
+    private final ScheduledExecutorService executor;
+
+    public PushCoalescer(long windowMillis, NotificationSender sender) {
+        this(windowMillis, sender, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    public PushCoalescer(long windowMillis, NotificationSender sender, ScheduledExecutorService executor) {
+        this.windowMillis = windowMillis;
+        this.sender = sender;
+        this.executor = executor;
+    }
+
+    public void send(Account account, Device device, int messageQueueDepth, boolean fallback) {
+        Notification notification = new Notification(account, device, messageQueueDepth, fallback);
+
+        if (windowMillis <= 0) {
+            sender.send(notification);
+            return;
+        }
+
+        WebsocketAddress address = new WebsocketAddress(account.getNumber(), device.getId());
+
+        while (true) {
+            Window window = windows.get(address);
+
+            if (window == null) {
+                window = new Window();
+
+                if (windows.putIfAbsent(address, window) == null) {
+                    schedule(address, window);
+
+                    try {
+                        sender.send(notification);
+                    } catch (Exception e) {
+                        logger.warn("Push failed", e);
+                    }
+
+                    return;
+                }
+            } else if (window.hold(notification)) {
+                suppressedMeter.mark();
+                return;
+            }
+        }
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(final WebsocketAddress address, final Window window) {
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                close(address, window);
+            }
+        }, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void close(WebsocketAddress address, Window window) {
+        Notification pending = window.close();
+
+        if (pending == null) {
+            windows.remove(address, window);
+            return;
+        }
+
+        Window next = new Window();
+
+        if (windows.replace(address, window, next)) {
+            schedule(address, next);
+        } else {
+            windows.remove(address, window);
+        }
+
+        coalescedMeter.mark();
+
+        try {
+            sender.send(pending);
+        } catch (Exception e) {
+            logger.warn("Coalesced push failed", e);
+        }
+    }
+
+    public interface NotificationSender {
+        void send(Notification notification);
+    }
+
+    public static class Notification {
+
+        private final Account account;
+        private final Device device;
+        private final int messageQueueDepth;
+        private final boolean fallback;
+
+        Notification(Account account, Device device, int messageQueueDepth, boolean fallback) {
+            this.account = account;
+            this.device = device;
+            this.messageQueueDepth = messageQueueDepth;
+            this.fallback = fallback;
+        }
+
+        public Account getAccount() {
+            return account;
+        }
+
+        public Device getDevice() {
+            return device;
+        }
+
+        public int getMessageQueueDepth() {
+            return messageQueueDepth;
+        }
+
+        public boolean isFallback() {
+            return fallback;
+        }
+
+        Notification mergeWith(Notification newer) {
+            return new Notification(newer.account, newer.device, newer.messageQueueDepth, fallback || newer.fallback);
+        }
+    }
+
+    private static class Window {
+
+        private Notification pending;
+        private boolean closed;
+
+        synchronized boolean hold(Notification notification) {
+            if (closed) {
+                return false;
+            }
+
+            pending = pending == null ? notification : pending.mergeWith(notification);
+            return true;
+        }
+
+        synchronized Notification close() {
+            closed = true;
+            return pending;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.whisper.signal.push;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.util.Constants;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * A fixed pool of push workers fed by one bounded queue per {@link Lane}.
+ *
+ * Workers always take from the highest priority lane that has work, so a backlog of
+ * receipts never delays user messages. Admission never blocks: {@link #offer} returns
+ * false when a lane is full and the caller decides what to do with the task.
+ */
+public class PushLaneExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushLaneExecutor.class);
+
+    public enum Lane {
+        USER, SYNC, RECEIPT
+    }
+
+    private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+
+    private final LaneQueue[] lanes = new LaneQueue[Lane.values().length];
+    private final Semaphore available = new Semaphore(0);
+    private final ExecutorService workers;
+
+    private volatile boolean running = true;
+
+    public PushLaneExecutor(int threads, int laneCapacity) {
+        for (Lane lane : Lane.values()) {
+            lanes[lane.ordinal()] = new LaneQueue(lane, laneCapacity);
+        }
+
+        this.workers = Executors.newFixedThreadPool(threads);
+
+        for (int i = 0; i < threads; i++) {
+            workers.execute(new Worker());
+        }
+    }
+
+    public boolean offer(Lane lane, Runnable task) {
+        if (!running) {
+            return false;
+        }
+
+        if (!lanes[lane.ordinal()].offer(task)) {
+            return false;
+        }
+
+        available.release();
+        return true;
+    }
+
+    public int getSize(Lane lane) {
+        return lanes[lane.ordinal()].queue.size();
+    }
+
+    public void shutdown() {
+        running = false;
+        workers.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    private QueuedTask take() throws InterruptedException {
+        while (running || available.availablePermits() > 0) {
+            if (available.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                for (LaneQueue lane : lanes) {
+                    QueuedTask task = lane.queue.poll();
+                    if (task != null) return task;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private class Worker implements Runnable {
+        @Override
+        public void run() {
+            try {
+                QueuedTask task;
+
+                while ((task = take()) != null) {
+                    task.run();
+                }
+            } catch (InterruptedException e) {
+                logger.warn("Push worker interrupted", e);
+            }
+        }
+    }
+
+    private class LaneQueue {
+
+        private final ArrayBlockingQueue<QueuedTask> queue;
+        private final Timer waitTimer;
+        private final Timer runTimer;
+        private final Meter rejectedMeter;
+
+        private LaneQueue(Lane lane, int capacity) {
+            String laneName = lane.name().toLowerCase();
+
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.waitTimer = metricRegistry.timer(name(PushLaneExecutor.class, laneName, "wait"));
+            this.runTimer = metricRegistry.timer(name(PushLaneExecutor.class, laneName, "run"));
+            this.rejectedMeter = metricRegistry.meter(name(PushLaneExecutor.class, laneName, "rejected"));
+        }
+
+        private boolean offer(Runnable task) {
+            if (queue.offer(new QueuedTask(this, task))) {
+                return true;
+            }
+
+            rejectedMeter.mark();
+            return false;
+        }
+    }
+
+    private static class QueuedTask {
+
+        private final LaneQueue lane;
+        private final Runnable  task;
+        private final long      queuedAt = System.nanoTime();
+
+        private QueuedTask(LaneQueue lane, Runnable task) {
+            this.lane = lane;
+            this.task = task;
+        }
+
+        private void run() {
+            lane.waitTimer.update(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+
+            try (Timer.Context timer = lane.runTimer.time()) {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn("Push task failed", t);
+            }
+        }
+    }
+}
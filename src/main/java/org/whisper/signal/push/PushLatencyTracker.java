@@ -0,0 +1,238 @@
+package org.whisper.signal.push;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.util.Constants;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import io.dropwizard.lifecycle.Managed;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Measures how long a device takes to come back after we push to it.
+ *
+ * The time of the first push since the device was last seen is kept in Redis, so the
+ * node that handles the device's next websocket connect or message fetch can record
+ * the gap in a per-provider timer, whichever node sent the push.
+ *
+ * Pushes and arrivals are only noted in memory on the calling thread, and written to or
+ * read from Redis in pipelined batches every {@code FLUSH_INTERVAL} milliseconds. Arrivals
+ * are timed when they happen, not when they're flushed. A device that arrives before the
+ * mark for its push was flushed is matched locally.
+ */
+public class PushLatencyTracker implements Managed, MetricSet {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushLatencyTracker.class);
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter droppedMeter = metricRegistry.meter(name(PushLatencyTracker.class, "dropped"));
+
+    private static final String PREFIX = "push_sent::";
+    private static final int    EXPIRATION_SECONDS = (int) TimeUnit.HOURS.toSeconds(1);
+
+    private static final long FLUSH_INTERVAL = 1000;
+    private static final int  BATCH_SIZE     = 500;
+    private static final int  MAX_PENDING    = 50000;
+
+    private static final String TAKE_SCRIPT =
+        "local sent = redis.call('get', KEYS[1]); " +
+        "redis.call('del', KEYS[1]); " +
+        "return sent";
+
+    public enum Arrival {
+        WEBSOCKET, FETCH
+    }
+
+    private final ConcurrentHashMap<WebsocketAddress, String>        sent    = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<WebsocketAddress, ArrivedDevice> arrived = new ConcurrentHashMap<>();
+
+    private final JedisPool jedisPool;
+
+    private ScheduledExecutorService executor;
+
+    public PushLatencyTracker(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    public void onPushSent(String provider, String number, long deviceId) {
+        if (sent.size() >= MAX_PENDING) {
+            droppedMeter.mark();
+            return;
+        }
+
+        sent.putIfAbsent(new WebsocketAddress(number, deviceId), provider + ":" + System.currentTimeMillis());
+    }
+
+    public void onDeviceArrived(String number, long deviceId, Arrival arrival) {
+        if (arrived.size() >= MAX_PENDING) {
+            droppedMeter.mark();
+            return;
+        }
+
+        WebsocketAddress address = new WebsocketAddress(number, deviceId);
+        String           local   = sent.remove(address);
+
+        arrived.putIfAbsent(address, new ArrivedDevice(arrival, System.currentTimeMillis(), local));
+    }
+
+    public int getBacklog() {
+        return sent.size() + arrived.size();
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        flush();
+    }
+
+    /**
+     * Takes pending arrivals before recording pending pushes, so a push made after a
+     * device arrived isn't consumed by that arrival.
+     */
+    @VisibleForTesting
+    public synchronized void flush() {
+        try {
+            List<Map.Entry<WebsocketAddress, ArrivedDevice>> arrivals;
+
+            while (!(arrivals = drain(arrived)).isEmpty()) {
+                takeMarks(arrivals);
+            }
+
+            List<Map.Entry<WebsocketAddress, String>> pushes;
+
+            while (!(pushes = drain(sent)).isEmpty()) {
+                setMarks(pushes);
+            }
+        } catch (JedisException e) {
+            logger.warn("Push latency flush", e);
+        }
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+
+        metrics.put(name(PushLatencyTracker.class, "backlog"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getBacklog();
+            }
+        });
+
+        return metrics;
+    }
+
+    private void takeMarks(List<Map.Entry<WebsocketAddress, ArrivedDevice>> arrivals) {
+        List<Response<String>> marks = new ArrayList<>(arrivals.size());
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+
+            for (Map.Entry<WebsocketAddress, ArrivedDevice> entry : arrivals) {
+                marks.add(pipeline.eval(TAKE_SCRIPT, Collections.singletonList(getKey(entry.getKey())), Collections.<String>emptyList()));
+            }
+
+            pipeline.sync();
+        }
+
+        for (int i = 0; i < arrivals.size(); i++) {
+            ArrivedDevice device = arrivals.get(i).getValue();
+            String        mark   = marks.get(i).get();
+
+            if (mark == null) mark = device.localMark;
+            if (mark != null) record(mark, device);
+        }
+    }
+
+    private void setMarks(List<Map.Entry<WebsocketAddress, String>> pushes) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+
+            for (Map.Entry<WebsocketAddress, String> entry : pushes) {
+                pipeline.set(getKey(entry.getKey()), entry.getValue(), "NX", "EX", EXPIRATION_SECONDS);
+            }
+
+            pipeline.sync();
+        }
+    }
+
+    private <T> List<Map.Entry<WebsocketAddress, T>> drain(ConcurrentHashMap<WebsocketAddress, T> pending) {
+        List<Map.Entry<WebsocketAddress, T>> batch = new ArrayList<>();
+
+        for (Map.Entry<WebsocketAddress, T> entry : pending.entrySet()) {
+            if (batch.size() >= BATCH_SIZE) break;
+
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        return batch;
+    }
+
+    private void record(String value, ArrivedDevice device) {
+        int separator = value.lastIndexOf(':');
+
+        try {
+            String provider = value.substring(0, separator);
+            long   sentAt   = Long.parseLong(value.substring(separator + 1));
+
+            metricRegistry.timer(name(PushLatencyTracker.class, provider, "push_to_" + device.arrival.name().toLowerCase()))
+                          .update(Math.max(0, device.arrivedAt - sentAt), TimeUnit.MILLISECONDS);
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            logger.warn("Bad push latency mark: " + value);
+        }
+    }
+
+    private String getKey(WebsocketAddress address) {
+        return PREFIX + address.serialize();
+    }
+
+    private static class ArrivedDevice {
+
+        private final Arrival arrival;
+        private final long    arrivedAt;
+        private final String  localMark;
+
+        private ArrivedDevice(Arrival arrival, long arrivedAt, String localMark) {
+            this.arrival   = arrival;
+            this.arrivedAt = arrivedAt;
+            this.localMark = localMark;
+        }
+    }
+}
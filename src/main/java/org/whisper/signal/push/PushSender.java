@@ -17,18 +17,28 @@
 package org.whisper.signal.push;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTask;
+import org.whisper.signal.push.PushLaneExecutor.Lane;
 import org.whisper.signal.push.WebsocketSender.DeliveryStatus;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.Device;
-import org.whisper.signal.util.BlockingThreadPoolExecutor;
 import org.whisper.signal.util.Constants;
 import org.whisper.signal.util.Util;
 import org.whisper.signal.websocket.WebsocketAddress;
 
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -39,33 +49,98 @@ public class PushSender implements Managed {
 
     private final Logger logger = LoggerFactory.getLogger(PushSender.class);
 
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter shedMeter = metricRegistry.meter(name(PushSender.class, "shed"));
+    private static final Meter shedInlineMeter = metricRegistry.meter(name(PushSender.class, "shed_inline"));
+    private static final Meter deferredMeter = metricRegistry.meter(name(PushSender.class, "deferred"));
+    private static final Meter expiredMeter = metricRegistry.meter(name(PushSender.class, "deferred_expired"));
+    private static final Timer gcmQueuedTimer = metricRegistry.timer(name(PushSender.class, "gcm", "queued"));
+    private static final Timer apnQueuedTimer = metricRegistry.timer(name(PushSender.class, "apn", "queued"));
+    private static final Timer webQueuedTimer = metricRegistry.timer(name(PushSender.class, "websocket", "queued"));
+
+    private static final long RETRY_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_DEFERRAL = TimeUnit.MINUTES.toMillis(10);
+    private static final int SHED_THREADS = 4;
+
     public static final String APN_PAYLOAD = "{\"aps\":{\"sound\":\"default\",\"badge\":%d,\"alert\":{\"loc-key\":\"APN_Message\"}}}";
 
     private final ApnFallbackManager apnFallbackManager;
     private final GCMSender gcmSender;
     private final APNSender apnSender;
     private final WebsocketSender webSocketSender;
-    private final BlockingThreadPoolExecutor executor;
+    private final PushLatencyTracker latencyTracker;
+    private final PushLaneExecutor executor;
+    private final PushCoalescer coalescer;
+    private final ConcurrentHashMap<WebsocketAddress, DeferredNotification> deferred = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final ThreadPoolExecutor shedExecutor;
     private final int queueSize;
 
     public PushSender(ApnFallbackManager apnFallbackManager,
         GCMSender gcmSender, APNSender apnSender,
-        WebsocketSender websocketSender, int queueSize) {
+        WebsocketSender websocketSender, PushLatencyTracker latencyTracker,
+        int queueSize, long coalesceWindow) {
         this.apnFallbackManager = apnFallbackManager;
         this.gcmSender = gcmSender;
         this.apnSender = apnSender;
         this.webSocketSender = websocketSender;
+        this.latencyTracker = latencyTracker;
         this.queueSize = queueSize;
-        this.executor = new BlockingThreadPoolExecutor(50, queueSize);
+        this.executor = new PushLaneExecutor(50, queueSize);
+        this.shedExecutor = new ThreadPoolExecutor(SHED_THREADS, SHED_THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(Math.max(queueSize, 1)), new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                    shedInlineMeter.mark();
+                    task.run();
+                }
+            });
+        this.coalescer = new PushCoalescer(coalesceWindow, new PushCoalescer.NotificationSender() {
+            @Override
+            public void send(PushCoalescer.Notification notification) {
+                sendNotification(notification, System.currentTimeMillis());
+            }
+        });
+
+        if (!metricRegistry.getGauges().containsKey(name(PushSender.class, "deferred_depth"))) {
+            metricRegistry.register(name(PushSender.class, "deferred_depth"), new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    return deferred.size();
+                }
+            });
+        }
+
+        if (!metricRegistry.getGauges().containsKey(name(PushSender.class, "send_queue_depth"))) {
+            metricRegistry.register(name(PushSender.class, "send_queue_depth"), new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    int depth = 0;
+
+                    for (Lane lane : Lane.values()) {
+                        depth += executor.getSize(lane);
+                    }
+
+                    return depth;
+                }
+            });
 
-        SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME)
-            .register(name(PushSender.class, "send_queue_depth"),
-                new Gauge<Integer>() {
+            for (final Lane lane : Lane.values()) {
+                metricRegistry.register(name(PushSender.class, "send_queue_depth", lane.name().toLowerCase()), new Gauge<Integer>() {
                     @Override
                     public Integer getValue() {
-                        return executor.getSize();
+                        return executor.getSize(lane);
                     }
                 });
+            }
+
+            metricRegistry.register(name(PushSender.class, "shed_queue_depth"), new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    return shedExecutor.getQueue().size();
+                }
+            });
+        }
     }
 
     public void sendMessage(final Account account, final Device device, final Envelope message, final boolean silent)
@@ -75,12 +150,19 @@ public class PushSender implements Managed {
         }
 
         if (queueSize > 0) {
-            executor.execute(new Runnable() {
+            final long queuedAt = System.nanoTime();
+
+            boolean accepted = executor.offer(getLane(account, message), new Runnable() {
                 @Override
                 public void run() {
+                    getQueuedTimer(device).update(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
                     sendSynchronousMessage(account, device, message, silent);
                 }
             });
+
+            if (!accepted) {
+                shedMessage(account, device, message);
+            }
         } else {
             sendSynchronousMessage(account, device, message, silent);
         }
@@ -88,10 +170,8 @@ public class PushSender implements Managed {
 
     public void sendQueuedNotification(Account account, Device device, int messageQueueDepth, boolean fallback)
         throws NotPushRegisteredException, TransientPushFailureException {
-        if (device.getGcmId() != null) {
-            sendGcmNotification(account, device);
-        } else if (device.getApnId() != null) {
-            sendApnNotification(account, device, messageQueueDepth, fallback);
+        if (device.getGcmId() != null || device.getApnId() != null) {
+            coalescer.send(account, device, messageQueueDepth, fallback);
         } else if (!device.getFetchesMessages()) {
             throw new NotPushRegisteredException("No notification possible!");
         }
@@ -101,6 +181,44 @@ public class PushSender implements Managed {
         return webSocketSender;
     }
 
+    private Timer getQueuedTimer(Device device) {
+        if      (device.getGcmId() != null) return gcmQueuedTimer;
+        else if (device.getApnId() != null) return apnQueuedTimer;
+        else                                return webQueuedTimer;
+    }
+
+    private Lane getLane(Account account, Envelope message) {
+        if (message.getType() == Envelope.Type.RECEIPT) return Lane.RECEIPT;
+        else if (account.getNumber().equals(message.getSource())) return Lane.SYNC;
+        else return Lane.USER;
+    }
+
+    /**
+     * Called when the push lanes are full. The message is stored for the device to fetch
+     * (connected sockets are told to pull it), and push devices still get a coalesced
+     * notification, so nothing is lost and the caller never waits on a slow provider.
+     * The store itself runs on a small pool of its own; only if that is backed up too does
+     * the caller write it, rather than drop it.
+     */
+    private void shedMessage(final Account account, final Device device, final Envelope message) {
+        shedMeter.mark();
+
+        shedExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int messageQueueDepth = webSocketSender.queueMessage(account, device, message);
+
+                    if ((device.getGcmId() != null || device.getApnId() != null) && message.getType() != Envelope.Type.RECEIPT) {
+                        coalescer.send(account, device, messageQueueDepth, false);
+                    }
+                } catch (Throwable t) {
+                    logger.warn("Shed message store", t);
+                }
+            }
+        });
+    }
+
     private void sendSynchronousMessage(Account account, Device device, Envelope message, boolean silent) {
         if (device.getGcmId() != null) {
             sendGcmMessage(account, device, message);
@@ -117,15 +235,51 @@ public class PushSender implements Managed {
         DeliveryStatus deliveryStatus = webSocketSender.sendMessage(account, device, message, WebsocketSender.Type.GCM);
 
         if (!deliveryStatus.isDelivered()) {
-            sendGcmNotification(account, device);
+            coalescer.send(account, device, deliveryStatus.getMessageQueueDepth(), false);
+        }
+    }
+
+    private void sendNotification(PushCoalescer.Notification notification, long since) {
+        Account account = notification.getAccount();
+        Device device = notification.getDevice();
+
+        try {
+            if (device.getGcmId() != null) {
+                sendGcmNotification(account, device);
+            } else if (device.getApnId() != null) {
+                sendApnNotification(account, device, notification.getMessageQueueDepth(), notification.isFallback());
+            }
+        } catch (TransientPushFailureException e) {
+            deferredMeter.mark();
+            deferred.put(new WebsocketAddress(account.getNumber(), device.getId()), new DeferredNotification(notification, since));
+        }
+    }
+
+    /**
+     * Resends notifications that a provider refused while it was over its concurrency
+     * limit or its circuit was open. The messages themselves are already stored, so one
+     * notification per device is kept, and it is given up after {@code MAX_DEFERRAL}.
+     */
+    private void retryDeferred() {
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<WebsocketAddress, DeferredNotification> entry : deferred.entrySet()) {
+            if (!deferred.remove(entry.getKey(), entry.getValue())) continue;
+
+            if (now - entry.getValue().since > MAX_DEFERRAL) {
+                expiredMeter.mark();
+            } else {
+                sendNotification(entry.getValue().notification, entry.getValue().since);
+            }
         }
     }
 
-    private void sendGcmNotification(Account account, Device device) {
+    private void sendGcmNotification(Account account, Device device) throws TransientPushFailureException {
         GcmMessage gcmMessage = new GcmMessage(device.getGcmId(), account.getNumber(),
             (int) device.getId(), false);
 
         gcmSender.sendMessage(gcmMessage);
+        latencyTracker.onPushSent("gcm", account.getNumber(), device.getId());
     }
 
     private void sendApnMessage(Account account, Device device, Envelope outgoingMessage, boolean silent) {
@@ -133,11 +287,12 @@ public class PushSender implements Managed {
 
         if (!deliveryStatus.isDelivered() && outgoingMessage.getType() != Envelope.Type.RECEIPT) {
             boolean fallback = !silent && !outgoingMessage.getSource().equals(account.getNumber());
-            sendApnNotification(account, device, deliveryStatus.getMessageQueueDepth(), fallback);
+            coalescer.send(account, device, deliveryStatus.getMessageQueueDepth(), fallback);
         }
     }
 
-    private void sendApnNotification(Account account, Device device, int messageQueueDepth, boolean fallback) {
+    private void sendApnNotification(Account account, Device device, int messageQueueDepth, boolean fallback)
+        throws TransientPushFailureException {
         ApnMessage apnMessage;
 
         if (!Util.isEmpty(device.getVoipApnId())) {
@@ -155,11 +310,8 @@ public class PushSender implements Managed {
                 false, ApnMessage.MAX_EXPIRATION);
         }
 
-        try {
-            apnSender.sendMessage(apnMessage);
-        } catch (TransientPushFailureException e) {
-            logger.warn("SILENT PUSH LOSS", e);
-        }
+        apnSender.sendMessage(apnMessage);
+        latencyTracker.onPushSent("apn", account.getNumber(), device.getId());
     }
 
     private void sendWebSocketMessage(Account account, Device device, Envelope outgoingMessage) {
@@ -170,14 +322,40 @@ public class PushSender implements Managed {
     public void start() throws Exception {
         apnSender.start();
         gcmSender.start();
+
+        retryExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    retryDeferred();
+                } catch (Throwable t) {
+                    logger.warn("Deferred push retry", t);
+                }
+            }
+        }, RETRY_INTERVAL, RETRY_INTERVAL, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void stop() throws Exception {
         executor.shutdown();
         executor.awaitTermination(5, TimeUnit.MINUTES);
+        shedExecutor.shutdown();
+        shedExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        coalescer.stop();
+        retryExecutor.shutdownNow();
 
         apnSender.stop();
         gcmSender.stop();
     }
+
+    private static class DeferredNotification {
+
+        private final PushCoalescer.Notification notification;
+        private final long since;
+
+        private DeferredNotification(PushCoalescer.Notification notification, long since) {
+            this.notification = notification;
+            this.since = since;
+        }
+    }
 }
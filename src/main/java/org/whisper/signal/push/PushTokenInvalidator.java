@@ -0,0 +1,230 @@
+package org.whisper.signal.push;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.DeviceToken;
+import org.whisper.signal.util.Constants;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * Collects push tokens that APNs or GCM reported as dead and clears them in batches.
+ *
+ * Reports are keyed by device, so repeated failures for one device collapse into a single
+ * write. Pending reports are flushed every {@code FLUSH_INTERVAL} milliseconds, or sooner
+ * once a full batch is waiting, using a partial update of the device's push fields. A
+ * batch that fails to write goes back into the pending set for the next flush.
+ */
+public class PushTokenInvalidator implements Managed, MetricSet {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushTokenInvalidator.class);
+
+    private static final long FLUSH_INTERVAL = 1000;
+    private static final int BATCH_SIZE = 500;
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter reportedMeter = metricRegistry.meter(name(PushTokenInvalidator.class, "reported"));
+    private static final Meter deduplicatedMeter = metricRegistry.meter(name(PushTokenInvalidator.class, "deduplicated"));
+    private static final Meter clearedMeter = metricRegistry.meter(name(PushTokenInvalidator.class, "cleared"));
+    private static final Meter skippedMeter = metricRegistry.meter(name(PushTokenInvalidator.class, "skipped"));
+    private static final Meter failedMeter = metricRegistry.meter(name(PushTokenInvalidator.class, "failed"));
+    private static final Timer flushTimer = metricRegistry.timer(name(PushTokenInvalidator.class, "flush"));
+
+    private final ConcurrentHashMap<WebsocketAddress, String> apnIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<WebsocketAddress, String> gcmIds = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final AccountsManager accountsManager;
+
+    private ScheduledExecutorService executor;
+    private ApnFallbackManager fallbackManager;
+
+    public PushTokenInvalidator(AccountsManager accountsManager) {
+        this.accountsManager = accountsManager;
+    }
+
+    public void setApnFallbackManager(ApnFallbackManager fallbackManager) {
+        this.fallbackManager = fallbackManager;
+    }
+
+    public void invalidateApnId(String number, long deviceId, String apnId) {
+        report(apnIds, new WebsocketAddress(number, deviceId), apnId);
+    }
+
+    public void invalidateGcmId(String number, long deviceId, String gcmId) {
+        report(gcmIds, new WebsocketAddress(number, deviceId), gcmId);
+    }
+
+    public int getBacklog() {
+        return apnIds.size() + gcmIds.size();
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        flush();
+    }
+
+    @VisibleForTesting
+    public synchronized void flush() {
+        flushScheduled.set(false);
+
+        try (Timer.Context timer = flushTimer.time()) {
+            while (true) {
+                List<DeviceToken> apnBatch = drain(apnIds);
+                List<DeviceToken> gcmBatch = drain(gcmIds);
+
+                if (apnBatch.isEmpty() && gcmBatch.isEmpty()) {
+                    break;
+                }
+
+                if (!apnBatch.isEmpty() && !clearApnIds(apnBatch)) {
+                    requeue(gcmIds, gcmBatch);
+                    break;
+                }
+
+                if (!gcmBatch.isEmpty() && !clearGcmIds(gcmBatch)) {
+                    break;
+                }
+            }
+        } catch (Throwable t) {
+            logger.warn("Push token flush", t);
+        }
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+
+        metrics.put(name(PushTokenInvalidator.class, "backlog"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getBacklog();
+            }
+        });
+
+        return metrics;
+    }
+
+    private void report(ConcurrentHashMap<WebsocketAddress, String> pending, WebsocketAddress address, String token) {
+        reportedMeter.mark();
+
+        if (pending.put(address, token) != null) {
+            deduplicatedMeter.mark();
+        }
+
+        if (pending.size() >= BATCH_SIZE && executor != null && flushScheduled.compareAndSet(false, true)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            });
+        }
+    }
+
+    private List<DeviceToken> drain(ConcurrentHashMap<WebsocketAddress, String> pending) {
+        List<DeviceToken> batch = new ArrayList<>(Math.min(pending.size(), BATCH_SIZE));
+
+        for (Map.Entry<WebsocketAddress, String> entry : pending.entrySet()) {
+            if (batch.size() >= BATCH_SIZE) break;
+
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(new DeviceToken(entry.getKey().getNumber(), entry.getKey().getDeviceId(), entry.getValue()));
+            }
+        }
+
+        return batch;
+    }
+
+    private boolean clearApnIds(List<DeviceToken> batch) {
+        List<DeviceToken> cleared;
+
+        try {
+            cleared = accountsManager.clearApnIds(batch);
+        } catch (Exception e) {
+            logger.warn("APN token flush", e);
+            failedMeter.mark(batch.size());
+            requeue(apnIds, batch);
+            return false;
+        }
+
+        cancelFallbacks(record(batch, cleared));
+        return true;
+    }
+
+    private boolean clearGcmIds(List<DeviceToken> batch) {
+        List<DeviceToken> cleared;
+
+        try {
+            cleared = accountsManager.clearGcmIds(batch);
+        } catch (Exception e) {
+            logger.warn("GCM token flush", e);
+            failedMeter.mark(batch.size());
+            requeue(gcmIds, batch);
+            return false;
+        }
+
+        record(batch, cleared);
+        return true;
+    }
+
+    /**
+     * Puts a batch that didn't reach the database back for the next flush. A newer
+     * report for the same device, made meanwhile, wins.
+     */
+    private void requeue(ConcurrentHashMap<WebsocketAddress, String> pending, List<DeviceToken> batch) {
+        for (DeviceToken token : batch) {
+            pending.putIfAbsent(new WebsocketAddress(token.getNumber(), token.getDeviceId()), token.getToken());
+        }
+    }
+
+    private List<DeviceToken> record(List<DeviceToken> batch, List<DeviceToken> cleared) {
+        clearedMeter.mark(cleared.size());
+        skippedMeter.mark(batch.size() - cleared.size());
+
+        logger.info("Cleared " + cleared.size() + " of " + batch.size() + " reported push tokens");
+        return cleared;
+    }
+
+    private void cancelFallbacks(List<DeviceToken> cleared) {
+        if (fallbackManager == null) return;
+
+        for (DeviceToken token : cleared) {
+            fallbackManager.cancel(new WebsocketAddress(token.getNumber(), token.getDeviceId()));
+        }
+    }
+}
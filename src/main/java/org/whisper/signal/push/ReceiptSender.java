@@ -1,6 +1,15 @@
 package org.whisper.signal.push;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.whisper.signal.controllers.NoSuchUserException;
 import org.whisper.signal.entities.MessageProtos.Envelope;
 import org.whisper.signal.federation.FederatedClientManager;
@@ -8,11 +17,68 @@ import org.whisper.signal.federation.NoSuchPeerException;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.Device;
+import org.whisper.signal.util.Constants;
 
+import javax.ws.rs.WebApplicationException;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-public class ReceiptSender {
+import static com.codahale.metrics.MetricRegistry.name;
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * Delivers receipts to the original sender of a message.
+ *
+ * Receipts generated by acknowledgements go through {@link #sendReceiptAsync}, which
+ * hands them to one of a fixed set of single-threaded stripes chosen by destination, so
+ * receipts to one destination keep their order while the ack returns immediately. Each
+ * stripe has a bounded queue; a full queue drops the receipt. After a transient failure
+ * only the destination devices (or relayed receipts) that failed are retried, in place on
+ * the stripe after a growing delay, up to {@code MAX_ATTEMPTS} in total, so later receipts
+ * to the same destination wait for the retry and never overtake it.
+ *
+ * Direct receipts from one source device to one destination are held for a short
+ * aggregation window and delivered together. Destination devices that advertise
+ * multi-receipt support get a single RECEIPT envelope carrying every timestamp, the
+ * rest get one envelope per timestamp as before.
+ */
+public class ReceiptSender implements Managed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptSender.class);
+
+    private static final int STRIPES = 8;
+    private static final int STRIPE_CAPACITY = 1000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 250;
+    private static final long AGGREGATION_WINDOW = 500;
+    private static final int MAX_AGGREGATED = 100;
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter droppedMeter = metricRegistry.meter(name(ReceiptSender.class, "dropped"));
+    private static final Meter retriedMeter = metricRegistry.meter(name(ReceiptSender.class, "retried"));
+    private static final Meter failedMeter = metricRegistry.meter(name(ReceiptSender.class, "failed"));
+    private static final Timer waitTimer = metricRegistry.timer(name(ReceiptSender.class, "wait"));
+    private static final Timer sendTimer = metricRegistry.timer(name(ReceiptSender.class, "send"));
+    private static final Histogram aggregatedHistogram = metricRegistry.histogram(name(ReceiptSender.class, "aggregated"));
+    private static final Meter multiReceiptMeter = metricRegistry.meter(name(ReceiptSender.class, "multi_receipt"));
+
+    private final ThreadPoolExecutor[] stripes;
+    private final long retryDelay;
+    private final long aggregationWindow;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, PendingReceipts> pending = new HashMap<>();
 
     private final PushSender pushSender;
     private final FederatedClientManager federatedClientManager;
@@ -21,9 +87,116 @@ public class ReceiptSender {
     public ReceiptSender(AccountsManager accountManager,
         PushSender pushSender,
         FederatedClientManager federatedClientManager) {
+        this(accountManager, pushSender, federatedClientManager, STRIPES, STRIPE_CAPACITY, RETRY_DELAY, AGGREGATION_WINDOW);
+    }
+
+    @VisibleForTesting
+    public ReceiptSender(AccountsManager accountManager,
+        PushSender pushSender,
+        FederatedClientManager federatedClientManager,
+        int stripeCount, int stripeCapacity, long retryDelay, long aggregationWindow) {
         this.federatedClientManager = federatedClientManager;
         this.accountManager = accountManager;
         this.pushSender = pushSender;
+        this.retryDelay = retryDelay;
+        this.aggregationWindow = aggregationWindow;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.stripes = new ThreadPoolExecutor[stripeCount];
+
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(stripeCapacity));
+        }
+
+        if (!metricRegistry.getGauges().containsKey(name(ReceiptSender.class, "queue_depth"))) {
+            metricRegistry.register(name(ReceiptSender.class, "queue_depth"), new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    return getQueueDepth();
+                }
+            });
+        }
+    }
+
+    public void sendReceiptAsync(final Account source, final String destination,
+        final long messageId, final Optional<String> relay) {
+        if (source.getNumber().equals(destination)) {
+            return;
+        }
+
+        if (aggregationWindow <= 0 || (relay.isPresent() && !relay.get().isEmpty())) {
+            submit(source, destination, Collections.singletonList(messageId), relay);
+            return;
+        }
+
+        final String key = source.getNumber() + "." + source.getAuthenticatedDevice().get().getId() + ":" + destination;
+        PendingReceipts full = null;
+
+        synchronized (pending) {
+            PendingReceipts receipts = pending.get(key);
+
+            if (receipts == null) {
+                receipts = new PendingReceipts(source, destination);
+                pending.put(key, receipts);
+
+                try {
+                    scheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            flush(key);
+                        }
+                    }, aggregationWindow, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    logger.debug("Aggregation stopped", e);
+                }
+            }
+
+            receipts.messageIds.add(messageId);
+
+            if (receipts.messageIds.size() >= MAX_AGGREGATED) {
+                full = pending.remove(key);
+            }
+        }
+
+        if (full != null) {
+            submit(full.source, full.destination, full.messageIds, relay);
+        }
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+
+        for (ThreadPoolExecutor stripe : stripes) {
+            depth += stripe.getQueue().size();
+        }
+
+        return depth;
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void stop() throws InterruptedException {
+        scheduler.shutdownNow();
+
+        List<PendingReceipts> remaining;
+
+        synchronized (pending) {
+            remaining = new LinkedList<>(pending.values());
+            pending.clear();
+        }
+
+        for (PendingReceipts receipts : remaining) {
+            submit(receipts.source, receipts.destination, receipts.messageIds, Optional.<String>absent());
+        }
+
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.awaitTermination(1, TimeUnit.MINUTES);
+        }
     }
 
     public void sendReceipt(Account source, String destination,
@@ -37,8 +210,145 @@ public class ReceiptSender {
         if (relay.isPresent() && !relay.get().isEmpty()) {
             sendRelayedReceipt(source, destination, messageId, relay.get());
         } else {
-            sendDirectReceipt(source, destination, messageId);
+            sendDirectReceipt(source, destination, Collections.singletonList(messageId));
+        }
+    }
+
+    private void flush(String key) {
+        PendingReceipts receipts;
+
+        synchronized (pending) {
+            receipts = pending.remove(key);
+        }
+
+        if (receipts != null) {
+            submit(receipts.source, receipts.destination, receipts.messageIds, Optional.<String>absent());
+        }
+    }
+
+    private void submit(Account source, String destination, List<Long> messageIds, Optional<String> relay) {
+        submit(new Delivery(source, destination, messageIds, relay));
+    }
+
+    private void submit(final Delivery delivery) {
+        final long queuedAt = System.nanoTime();
+
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                waitTimer.update(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                aggregatedHistogram.update(delivery.messageIds.size());
+
+                try (Timer.Context timer = sendTimer.time()) {
+                    deliverWithRetry(delivery);
+                }
+            }
+        };
+
+        try {
+            getStripe(delivery.destination).execute(task);
+        } catch (RejectedExecutionException e) {
+            droppedMeter.mark(delivery.messageIds.size());
+            logger.warn("Receipt queue full, dropping " + delivery.messageIds.size() + " receipts for " + delivery.destination);
+        }
+    }
+
+    /**
+     * Retries on the stripe's own thread, so everything queued behind the delivery for
+     * the same destination waits until it has settled.
+     */
+    private void deliverWithRetry(Delivery delivery) {
+        Delivery retry = deliver(delivery);
+
+        while (retry != null) {
+            retriedMeter.mark();
+
+            try {
+                Thread.sleep(retryDelay * (retry.attempt - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedMeter.mark();
+                logger.warn("Interrupted retrying receipts for " + retry.destination);
+                return;
+            }
+
+            retry = deliver(retry);
+        }
+    }
+
+    /**
+     * Makes one attempt at the delivery.
+     *
+     * @return what's left to retry after a transient failure, or null if nothing is.
+     */
+    private Delivery deliver(Delivery delivery) {
+        try {
+            if (delivery.relay.isPresent() && !delivery.relay.get().isEmpty()) {
+                return deliverRelayed(delivery);
+            } else {
+                return deliverDirect(delivery);
+            }
+        } catch (NoSuchUserException e) {
+            logger.info("No longer registered " + e.getMessage());
+            return null;
+        } catch (WebApplicationException e) {
+            logger.warn("Bad federated response for receipt: " + e.getResponse().getStatus());
+            return null;
+        }
+    }
+
+    private Delivery deliverRelayed(Delivery delivery) throws NoSuchUserException {
+        for (int i = 0; i < delivery.messageIds.size(); i++) {
+            try {
+                sendRelayedReceipt(delivery.source, delivery.destination, delivery.messageIds.get(i), delivery.relay.get());
+            } catch (IOException e) {
+                List<Long> remaining = new LinkedList<>(delivery.messageIds.subList(i, delivery.messageIds.size()));
+                return getRetry(delivery, remaining, delivery.deviceIds, e);
+            }
+        }
+
+        return null;
+    }
+
+    private Delivery deliverDirect(Delivery delivery) throws NoSuchUserException {
+        Account          destinationAccount = getDestinationAccount(delivery.destination);
+        Set<Long>        failedDevices      = new HashSet<>();
+        RuntimeException failure            = null;
+
+        for (Device destinationDevice : destinationAccount.getDevices()) {
+            if (delivery.deviceIds != null && !delivery.deviceIds.contains(destinationDevice.getId())) {
+                continue;
+            }
+
+            try {
+                sendDirectReceipt(delivery.source, destinationAccount, destinationDevice, delivery.messageIds);
+            } catch (NotPushRegisteredException e) {
+                logger.info("No longer registered " + e.getMessage());
+            } catch (RuntimeException e) {
+                failedDevices.add(destinationDevice.getId());
+                failure = e;
+            }
+        }
+
+        if (failedDevices.isEmpty()) {
+            return null;
+        }
+
+        return getRetry(delivery, delivery.messageIds, failedDevices, failure);
+    }
+
+    private Delivery getRetry(Delivery delivery, List<Long> messageIds, Set<Long> deviceIds, Exception failure) {
+        if (delivery.attempt >= MAX_ATTEMPTS) {
+            failedMeter.mark();
+            logger.warn("Receipt failed after " + delivery.attempt + " attempts", failure);
+            return null;
         }
+
+        return new Delivery(delivery.source, delivery.destination, messageIds, delivery.relay, deviceIds, delivery.attempt + 1);
+    }
+
+    private ThreadPoolExecutor getStripe(String destination) {
+        return stripes[(destination.hashCode() & Integer.MAX_VALUE) % stripes.length];
     }
 
     private void sendRelayedReceipt(Account source, String destination, long messageId, String relay)
@@ -53,10 +363,31 @@ public class ReceiptSender {
         }
     }
 
-    private void sendDirectReceipt(Account source, String destination, long messageId)
-        throws NotPushRegisteredException, TransientPushFailureException, NoSuchUserException {
+    private void sendDirectReceipt(Account source, String destination, List<Long> messageIds)
+        throws NotPushRegisteredException, NoSuchUserException {
         Account destinationAccount = getDestinationAccount(destination);
-        Set<Device> destinationDevices = destinationAccount.getDevices();
+
+        for (Device destinationDevice : destinationAccount.getDevices()) {
+            sendDirectReceipt(source, destinationAccount, destinationDevice, messageIds);
+        }
+    }
+
+    private void sendDirectReceipt(Account source, Account destinationAccount, Device destinationDevice, List<Long> messageIds)
+        throws NotPushRegisteredException {
+        if (messageIds.size() > 1 && destinationDevice.isMultiReceiptsSupported()) {
+            Envelope.Builder message = getReceipt(source, messageIds.get(0));
+            message.addAllTimestamps(messageIds);
+
+            pushSender.sendMessage(destinationAccount, destinationDevice, message.build(), true);
+            multiReceiptMeter.mark();
+        } else {
+            for (long messageId : messageIds) {
+                pushSender.sendMessage(destinationAccount, destinationDevice, getReceipt(source, messageId).build(), true);
+            }
+        }
+    }
+
+    private Envelope.Builder getReceipt(Account source, long messageId) {
         Envelope.Builder message = Envelope.newBuilder()
             .setSource(source.getNumber())
             .setSourceDevice((int) source.getAuthenticatedDevice().get().getId())
@@ -67,9 +398,7 @@ public class ReceiptSender {
             message.setRelay(source.getRelay().get());
         }
 
-        for (Device destinationDevice : destinationDevices) {
-            pushSender.sendMessage(destinationAccount, destinationDevice, message.build(), true);
-        }
+        return message;
     }
 
     private Account getDestinationAccount(String destination)
@@ -83,4 +412,38 @@ public class ReceiptSender {
         return account.get();
     }
 
+    private static class PendingReceipts {
+        private final Account source;
+        private final String destination;
+        private final List<Long> messageIds = new LinkedList<>();
+
+        private PendingReceipts(Account source, String destination) {
+            this.source = source;
+            this.destination = destination;
+        }
+    }
+
+    private static class Delivery {
+        private final Account source;
+        private final String destination;
+        private final List<Long> messageIds;
+        private final Optional<String> relay;
+        private final Set<Long> deviceIds;
+        private final int attempt;
+
+        private Delivery(Account source, String destination, List<Long> messageIds, Optional<String> relay) {
+            this(source, destination, messageIds, relay, null, 1);
+        }
+
+        private Delivery(Account source, String destination, List<Long> messageIds, Optional<String> relay,
+            Set<Long> deviceIds, int attempt) {
+            this.source = source;
+            this.destination = destination;
+            this.messageIds = messageIds;
+            this.relay = relay;
+            this.deviceIds = deviceIds;
+            this.attempt = attempt;
+        }
+    }
+
 }
@@ -21,6 +21,7 @@ import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.Device;
 import org.whisper.signal.storage.MessagesManager;
 import org.whisper.signal.storage.PubSubManager;
+import org.whisper.signal.storage.StoredMessageInfo;
 import org.whisper.signal.util.Constants;
 import org.whisper.signal.websocket.ProvisioningAddress;
 import org.whisper.signal.websocket.WebsocketAddress;
@@ -98,13 +99,17 @@ public class WebsocketSender {
         websocketRequeueMeter.mark();
 
         WebsocketAddress address = new WebsocketAddress(account.getNumber(), device.getId());
-        int queueDepth = messagesManager.insert(account.getNumber(), device.getId(), message);
+        StoredMessageInfo stored = messagesManager.insert(account.getNumber(), device.getId(), message);
 
         pubSubManager.publish(address, PubSubMessage.newBuilder()
             .setType(PubSubMessage.Type.QUERY_DB)
+            .setContent(message.toByteString())
+            .setId(stored.getId())
+            .setPending(stored.getPendingCount())
+            .addAllAhead(stored.getAheadIds())
             .build());
 
-        return queueDepth;
+        return stored.getQueueDepth();
     }
 
     public boolean sendProvisioningMessage(ProvisioningAddress address, byte[] body) {
@@ -156,6 +156,21 @@ public class Account {
         return identityKey;
     }
 
+    /**
+     * @return a copy of this account and its devices, without an authenticated device.
+     */
+    public Account copy() {
+        Account copy = new Account();
+        copy.number = number;
+        copy.identityKey = identityKey;
+
+        for (Device device : devices) {
+            copy.devices.add(device.copy());
+        }
+
+        return copy;
+    }
+
     public long getLastSeen() {
         long lastSeen = 0;
 
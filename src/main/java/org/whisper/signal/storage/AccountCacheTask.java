@@ -0,0 +1,25 @@
+package org.whisper.signal.storage;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+
+public class AccountCacheTask extends Task {
+
+    private final AccountsNearCache nearCache;
+
+    public AccountCacheTask(AccountsNearCache nearCache) {
+        super("account-cache");
+        this.nearCache = nearCache;
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) throws Exception {
+        if (parameters.containsKey("enabled")) {
+            nearCache.setEnabled(Boolean.parseBoolean(parameters.get("enabled").iterator().next()));
+        }
+
+        output.println("Account near-cache " + (nearCache.isEnabled() ? "enabled" : "disabled") + ", " + nearCache.size() + " entries");
+    }
+}
@@ -0,0 +1,149 @@
+package org.whisper.signal.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.whisper.signal.auth.AuthenticationCredentials;
+import org.whisper.signal.entities.SignedPreKey;
+import org.whisper.signal.storage.AccountProtos.AccountRecord;
+import org.whisper.signal.storage.AccountProtos.DeviceRecord;
+import org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord;
+import org.whisper.signal.util.SystemMapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Versioned binary encoding of an {@link Account}.
+ *
+ * An encoded account is a one byte version followed by an {@link AccountRecord}. Decoding
+ * also accepts the JSON documents written before, which always start with '{', so old
+ * entries stay readable and are rewritten in the binary form the next time the account
+ * is stored.
+ */
+public class AccountCodec {
+
+    public static final byte VERSION_1 = 1;
+
+    private static final byte JSON_START = '{';
+
+    private static final ObjectMapper mapper = SystemMapper.getMapper();
+
+    public static byte[] encode(Account account) {
+        AccountRecord.Builder record = AccountRecord.newBuilder();
+
+        if (account.getNumber() != null)      record.setNumber(account.getNumber());
+        if (account.getIdentityKey() != null) record.setIdentityKey(account.getIdentityKey());
+
+        for (Device device : account.getDevices()) {
+            record.addDevices(encode(device));
+        }
+
+        byte[] serialized = record.build().toByteArray();
+        byte[] encoded    = new byte[serialized.length + 1];
+
+        encoded[0] = VERSION_1;
+        System.arraycopy(serialized, 0, encoded, 1, serialized.length);
+
+        return encoded;
+    }
+
+    public static Account decode(byte[] encoded) throws IOException {
+        if (encoded.length == 0) {
+            throw new IOException("Empty account");
+        }
+
+        if (encoded[0] == JSON_START) {
+            return mapper.readValue(encoded, Account.class);
+        }
+
+        if (encoded[0] != VERSION_1) {
+            throw new IOException("Unknown account encoding: " + encoded[0]);
+        }
+
+        try {
+            AccountRecord record  = AccountRecord.parseFrom(Arrays.copyOfRange(encoded, 1, encoded.length));
+            Account       account = new Account();
+
+            if (record.hasNumber())      account.setNumber(record.getNumber());
+            if (record.hasIdentityKey()) account.setIdentityKey(record.getIdentityKey());
+
+            for (DeviceRecord device : record.getDevicesList()) {
+                account.addDevice(decode(device));
+            }
+
+            return account;
+        } catch (InvalidProtocolBufferException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static DeviceRecord encode(Device device) {
+        DeviceRecord.Builder record = DeviceRecord.newBuilder()
+            .setId(device.getId())
+            .setPushTimestamp(device.getPushTimestamp())
+            .setFetchesMessages(device.getFetchesMessages())
+            .setRegistrationId(device.getRegistrationId())
+            .setLastSeen(device.getLastSeen())
+            .setCreated(device.getCreated())
+            .setVoice(device.isVoiceSupported())
+            .setVideo(device.isVideoSupported())
+            .setMultiReceipts(device.isMultiReceiptsSupported());
+
+        AuthenticationCredentials credentials = device.getAuthenticationCredentials();
+
+        if (device.getName() != null)                              record.setName(device.getName());
+        if (credentials.getHashedAuthenticationToken() != null)   record.setAuthToken(credentials.getHashedAuthenticationToken());
+        if (credentials.getSalt() != null)                         record.setSalt(credentials.getSalt());
+        if (device.getSignalingKey() != null)                      record.setSignalingKey(device.getSignalingKey());
+        if (device.getGcmId() != null)                             record.setGcmId(device.getGcmId());
+        if (device.getApnId() != null)                             record.setApnId(device.getApnId());
+        if (device.getVoipApnId() != null)                         record.setVoipApnId(device.getVoipApnId());
+        if (device.getUserAgent() != null)                         record.setUserAgent(device.getUserAgent());
+
+        SignedPreKey signedPreKey = device.getSignedPreKey();
+
+        if (signedPreKey != null) {
+            SignedPreKeyRecord.Builder key = SignedPreKeyRecord.newBuilder().setKeyId(signedPreKey.getKeyId());
+
+            if (signedPreKey.getPublicKey() != null) key.setPublicKey(signedPreKey.getPublicKey());
+            if (signedPreKey.getSignature() != null) key.setSignature(signedPreKey.getSignature());
+
+            record.setSignedPreKey(key);
+        }
+
+        return record.build();
+    }
+
+    private static Device decode(DeviceRecord record) {
+        SignedPreKey signedPreKey = null;
+
+        if (record.hasSignedPreKey()) {
+            SignedPreKeyRecord key = record.getSignedPreKey();
+            signedPreKey = new SignedPreKey(key.getKeyId(),
+                key.hasPublicKey() ? key.getPublicKey() : null,
+                key.hasSignature() ? key.getSignature() : null);
+        }
+
+        Device device = new Device(record.getId(),
+            record.hasName() ? record.getName() : null,
+            record.hasAuthToken() ? record.getAuthToken() : null,
+            record.hasSalt() ? record.getSalt() : null,
+            record.hasSignalingKey() ? record.getSignalingKey() : null,
+            record.hasGcmId() ? record.getGcmId() : null,
+            record.hasApnId() ? record.getApnId() : null,
+            record.hasVoipApnId() ? record.getVoipApnId() : null,
+            record.getFetchesMessages(),
+            record.getRegistrationId(),
+            signedPreKey,
+            record.getLastSeen(),
+            record.getCreated(),
+            record.getVoice(),
+            record.getVideo(),
+            record.hasUserAgent() ? record.getUserAgent() : null);
+
+        device.setPushTimestamp(record.getPushTimestamp());
+        device.setMultiReceiptsSupported(record.getMultiReceipts());
+
+        return device;
+    }
+}
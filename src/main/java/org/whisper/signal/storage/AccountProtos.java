@@ -0,0 +1,4255 @@
+// Generated by the protocol buffer compiler.  DO NOT EDIT!
+// source: AccountRecord.proto
+
+package org.whisper.signal.storage;
+
+public final class AccountProtos {
+    private AccountProtos() {}
+    public static void registerAllExtensions(
+            com.google.protobuf.ExtensionRegistry registry) {
+    }
+    public interface AccountRecordOrBuilder extends
+            // @@protoc_insertion_point(interface_extends:textsecure.AccountRecord)
+            com.google.protobuf.MessageOrBuilder {
+
+        /**
+          * <code>optional string number = 1;</code>
+          */
+        boolean hasNumber();
+        /**
+          * <code>optional string number = 1;</code>
+          */
+        java.lang.String getNumber();
+        /**
+          * <code>optional string number = 1;</code>
+          */
+        com.google.protobuf.ByteString
+                getNumberBytes();
+
+        /**
+          * <code>optional string identityKey = 2;</code>
+          */
+        boolean hasIdentityKey();
+        /**
+          * <code>optional string identityKey = 2;</code>
+          */
+        java.lang.String getIdentityKey();
+        /**
+          * <code>optional string identityKey = 2;</code>
+          */
+        com.google.protobuf.ByteString
+                getIdentityKeyBytes();
+
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        java.util.List<org.whisper.signal.storage.AccountProtos.DeviceRecord> 
+                getDevicesList();
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        org.whisper.signal.storage.AccountProtos.DeviceRecord getDevices(int index);
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        int getDevicesCount();
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        java.util.List<? extends org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder> 
+                getDevicesOrBuilderList();
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder getDevicesOrBuilder(
+                int index);
+    }
+    /**
+      * Protobuf type {@code textsecure.AccountRecord}
+      */
+    public static final class AccountRecord extends
+            com.google.protobuf.GeneratedMessage implements
+            // @@protoc_insertion_point(message_implements:textsecure.AccountRecord)
+            AccountRecordOrBuilder {
+        // Use AccountRecord.newBuilder() to construct.
+        private AccountRecord(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+            super(builder);
+            this.unknownFields = builder.getUnknownFields();
+        }
+        private AccountRecord(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+        private static final AccountRecord defaultInstance;
+        public static AccountRecord getDefaultInstance() {
+            return defaultInstance;
+        }
+
+        public AccountRecord getDefaultInstanceForType() {
+            return defaultInstance;
+        }
+
+        private final com.google.protobuf.UnknownFieldSet unknownFields;
+        @java.lang.Override
+        public final com.google.protobuf.UnknownFieldSet
+                getUnknownFields() {
+            return this.unknownFields;
+        }
+        private AccountRecord(
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            initFields();
+            int mutable_bitField0_ = 0;
+            com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+                    com.google.protobuf.UnknownFieldSet.newBuilder();
+            try {
+                boolean done = false;
+                while (!done) {
+                    int tag = input.readTag();
+                    switch (tag) {
+                        case 0:
+                            done = true;
+                            break;
+                        default: {
+                            if (!parseUnknownField(input, unknownFields,
+                                                                          extensionRegistry, tag)) {
+                                done = true;
+                            }
+                            break;
+                        }
+                        case 10: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000001;
+                            number_ = bs;
+                            break;
+                        }
+                        case 18: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000002;
+                            identityKey_ = bs;
+                            break;
+                        }
+                        case 26: {
+                            if (!((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
+                                devices_ = new java.util.ArrayList<org.whisper.signal.storage.AccountProtos.DeviceRecord>();
+                                mutable_bitField0_ |= 0x00000004;
+                            }
+                            devices_.add(input.readMessage(org.whisper.signal.storage.AccountProtos.DeviceRecord.PARSER, extensionRegistry));
+                            break;
+                        }
+                    }
+                }
+            } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+                throw e.setUnfinishedMessage(this);
+            } catch (java.io.IOException e) {
+                throw new com.google.protobuf.InvalidProtocolBufferException(
+                        e.getMessage()).setUnfinishedMessage(this);
+            } finally {
+                if (((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
+                    devices_ = java.util.Collections.unmodifiableList(devices_);
+                }
+                this.unknownFields = unknownFields.build();
+                makeExtensionsImmutable();
+            }
+        }
+        public static final com.google.protobuf.Descriptors.Descriptor
+                getDescriptor() {
+            return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_AccountRecord_descriptor;
+        }
+
+        protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+                internalGetFieldAccessorTable() {
+            return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_AccountRecord_fieldAccessorTable
+                    .ensureFieldAccessorsInitialized(
+                            org.whisper.signal.storage.AccountProtos.AccountRecord.class, org.whisper.signal.storage.AccountProtos.AccountRecord.Builder.class);
+        }
+
+        public static com.google.protobuf.Parser<AccountRecord> PARSER =
+                new com.google.protobuf.AbstractParser<AccountRecord>() {
+            public AccountRecord parsePartialFrom(
+                    com.google.protobuf.CodedInputStream input,
+                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                    throws com.google.protobuf.InvalidProtocolBufferException {
+                return new AccountRecord(input, extensionRegistry);
+            }
+        };
+
+        @java.lang.Override
+        public com.google.protobuf.Parser<AccountRecord> getParserForType() {
+            return PARSER;
+        }
+
+        private int bitField0_;
+        public static final int NUMBER_FIELD_NUMBER = 1;
+        private java.lang.Object number_;
+        /**
+          * <code>optional string number = 1;</code>
+          */
+        public boolean hasNumber() {
+            return ((bitField0_ & 0x00000001) == 0x00000001);
+        }
+        /**
+          * <code>optional string number = 1;</code>
+          */
+        public java.lang.String getNumber() {
+            java.lang.Object ref = number_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    number_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string number = 1;</code>
+          */
+        public com.google.protobuf.ByteString
+                getNumberBytes() {
+            java.lang.Object ref = number_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                number_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int IDENTITYKEY_FIELD_NUMBER = 2;
+        private java.lang.Object identityKey_;
+        /**
+          * <code>optional string identityKey = 2;</code>
+          */
+        public boolean hasIdentityKey() {
+            return ((bitField0_ & 0x00000002) == 0x00000002);
+        }
+        /**
+          * <code>optional string identityKey = 2;</code>
+          */
+        public java.lang.String getIdentityKey() {
+            java.lang.Object ref = identityKey_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    identityKey_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string identityKey = 2;</code>
+          */
+        public com.google.protobuf.ByteString
+                getIdentityKeyBytes() {
+            java.lang.Object ref = identityKey_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                identityKey_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int DEVICES_FIELD_NUMBER = 3;
+        private java.util.List<org.whisper.signal.storage.AccountProtos.DeviceRecord> devices_;
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        public java.util.List<org.whisper.signal.storage.AccountProtos.DeviceRecord> getDevicesList() {
+            return devices_;
+        }
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        public java.util.List<? extends org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder> 
+                getDevicesOrBuilderList() {
+            return devices_;
+        }
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        public int getDevicesCount() {
+            return devices_.size();
+        }
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        public org.whisper.signal.storage.AccountProtos.DeviceRecord getDevices(int index) {
+            return devices_.get(index);
+        }
+        /**
+          * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+          */
+        public org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder getDevicesOrBuilder(
+                int index) {
+            return devices_.get(index);
+        }
+
+        private void initFields() {
+            number_ = "";
+            identityKey_ = "";
+            devices_ = java.util.Collections.emptyList();
+        }
+        private byte memoizedIsInitialized = -1;
+        public final boolean isInitialized() {
+            byte isInitialized = memoizedIsInitialized;
+            if (isInitialized == 1) return true;
+            if (isInitialized == 0) return false;
+
+            memoizedIsInitialized = 1;
+            return true;
+        }
+
+        public void writeTo(com.google.protobuf.CodedOutputStream output)
+                                                throws java.io.IOException {
+            getSerializedSize();
+            if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                output.writeBytes(1, getNumberBytes());
+            }
+            if (((bitField0_ & 0x00000002) == 0x00000002)) {
+                output.writeBytes(2, getIdentityKeyBytes());
+            }
+            for (int i = 0; i < devices_.size(); i++) {
+                output.writeMessage(3, devices_.get(i));
+            }
+            getUnknownFields().writeTo(output);
+        }
+
+        private int memoizedSerializedSize = -1;
+        public int getSerializedSize() {
+            int size = memoizedSerializedSize;
+            if (size != -1) return size;
+
+            size = 0;
+            if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(1, getNumberBytes());
+            }
+            if (((bitField0_ & 0x00000002) == 0x00000002)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(2, getIdentityKeyBytes());
+            }
+            for (int i = 0; i < devices_.size(); i++) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeMessageSize(3, devices_.get(i));
+            }
+            size += getUnknownFields().getSerializedSize();
+            memoizedSerializedSize = size;
+            return size;
+        }
+
+        private static final long serialVersionUID = 0L;
+        @java.lang.Override
+        protected java.lang.Object writeReplace()
+                throws java.io.ObjectStreamException {
+            return super.writeReplace();
+        }
+
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseFrom(
+                com.google.protobuf.ByteString data)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data);
+        }
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseFrom(
+                com.google.protobuf.ByteString data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseFrom(byte[] data)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data);
+        }
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseFrom(
+                byte[] data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseFrom(java.io.InputStream input)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input);
+        }
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseFrom(
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseDelimitedFrom(java.io.InputStream input)
+                throws java.io.IOException {
+            return PARSER.parseDelimitedFrom(input);
+        }
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseDelimitedFrom(
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
+            return PARSER.parseDelimitedFrom(input, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseFrom(
+                com.google.protobuf.CodedInputStream input)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input);
+        }
+        public static org.whisper.signal.storage.AccountProtos.AccountRecord parseFrom(
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input, extensionRegistry);
+        }
+
+        public static Builder newBuilder() { return Builder.create(); }
+        public Builder newBuilderForType() { return newBuilder(); }
+        public static Builder newBuilder(org.whisper.signal.storage.AccountProtos.AccountRecord prototype) {
+            return newBuilder().mergeFrom(prototype);
+        }
+        public Builder toBuilder() { return newBuilder(this); }
+
+        @java.lang.Override
+        protected Builder newBuilderForType(
+                com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+            Builder builder = new Builder(parent);
+            return builder;
+        }
+        /**
+          * Protobuf type {@code textsecure.AccountRecord}
+          */
+        public static final class Builder extends
+                com.google.protobuf.GeneratedMessage.Builder<Builder> implements
+                // @@protoc_insertion_point(builder_implements:textsecure.AccountRecord)
+                org.whisper.signal.storage.AccountProtos.AccountRecordOrBuilder {
+            public static final com.google.protobuf.Descriptors.Descriptor
+                    getDescriptor() {
+                return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_AccountRecord_descriptor;
+            }
+
+            protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+                    internalGetFieldAccessorTable() {
+                return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_AccountRecord_fieldAccessorTable
+                        .ensureFieldAccessorsInitialized(
+                                org.whisper.signal.storage.AccountProtos.AccountRecord.class, org.whisper.signal.storage.AccountProtos.AccountRecord.Builder.class);
+            }
+
+            // Construct using org.whisper.signal.storage.AccountProtos.AccountRecord.newBuilder()
+            private Builder() {
+                maybeForceBuilderInitialization();
+            }
+
+            private Builder(
+                    com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+                super(parent);
+                maybeForceBuilderInitialization();
+            }
+            private void maybeForceBuilderInitialization() {
+                if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+                    getDevicesFieldBuilder();
+                }
+            }
+            private static Builder create() {
+                return new Builder();
+            }
+
+            public Builder clear() {
+                super.clear();
+                number_ = "";
+                bitField0_ = (bitField0_ & ~0x00000001);
+                identityKey_ = "";
+                bitField0_ = (bitField0_ & ~0x00000002);
+                if (devicesBuilder_ == null) {
+                    devices_ = java.util.Collections.emptyList();
+                    bitField0_ = (bitField0_ & ~0x00000004);
+                } else {
+                    devicesBuilder_.clear();
+                }
+                return this;
+            }
+
+            public Builder clone() {
+                return create().mergeFrom(buildPartial());
+            }
+
+            public com.google.protobuf.Descriptors.Descriptor
+                    getDescriptorForType() {
+                return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_AccountRecord_descriptor;
+            }
+
+            public org.whisper.signal.storage.AccountProtos.AccountRecord getDefaultInstanceForType() {
+                return org.whisper.signal.storage.AccountProtos.AccountRecord.getDefaultInstance();
+            }
+
+            public org.whisper.signal.storage.AccountProtos.AccountRecord build() {
+                org.whisper.signal.storage.AccountProtos.AccountRecord result = buildPartial();
+                if (!result.isInitialized()) {
+                    throw newUninitializedMessageException(result);
+                }
+                return result;
+            }
+
+            public org.whisper.signal.storage.AccountProtos.AccountRecord buildPartial() {
+                org.whisper.signal.storage.AccountProtos.AccountRecord result = new org.whisper.signal.storage.AccountProtos.AccountRecord(this);
+                int from_bitField0_ = bitField0_;
+                int to_bitField0_ = 0;
+                if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+                    to_bitField0_ |= 0x00000001;
+                }
+                result.number_ = number_;
+                if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+                    to_bitField0_ |= 0x00000002;
+                }
+                result.identityKey_ = identityKey_;
+                if (devicesBuilder_ == null) {
+                    if (((bitField0_ & 0x00000004) == 0x00000004)) {
+                        devices_ = java.util.Collections.unmodifiableList(devices_);
+                        bitField0_ = (bitField0_ & ~0x00000004);
+                    }
+                    result.devices_ = devices_;
+                } else {
+                    result.devices_ = devicesBuilder_.build();
+                }
+                result.bitField0_ = to_bitField0_;
+                onBuilt();
+                return result;
+            }
+
+            public Builder mergeFrom(com.google.protobuf.Message other) {
+                if (other instanceof org.whisper.signal.storage.AccountProtos.AccountRecord) {
+                    return mergeFrom((org.whisper.signal.storage.AccountProtos.AccountRecord)other);
+                } else {
+                    super.mergeFrom(other);
+                    return this;
+                }
+            }
+
+            public Builder mergeFrom(org.whisper.signal.storage.AccountProtos.AccountRecord other) {
+                if (other == org.whisper.signal.storage.AccountProtos.AccountRecord.getDefaultInstance()) return this;
+                if (other.hasNumber()) {
+                    bitField0_ |= 0x00000001;
+                    number_ = other.number_;
+                    onChanged();
+                }
+                if (other.hasIdentityKey()) {
+                    bitField0_ |= 0x00000002;
+                    identityKey_ = other.identityKey_;
+                    onChanged();
+                }
+                if (devicesBuilder_ == null) {
+                    if (!other.devices_.isEmpty()) {
+                        if (devices_.isEmpty()) {
+                            devices_ = other.devices_;
+                            bitField0_ = (bitField0_ & ~0x00000004);
+                        } else {
+                            ensureDevicesIsMutable();
+                            devices_.addAll(other.devices_);
+                        }
+                        onChanged();
+                    }
+                } else {
+                    if (!other.devices_.isEmpty()) {
+                        if (devicesBuilder_.isEmpty()) {
+                            devicesBuilder_.dispose();
+                            devicesBuilder_ = null;
+                            devices_ = other.devices_;
+                            bitField0_ = (bitField0_ & ~0x00000004);
+                            devicesBuilder_ = 
+                                com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders ?
+                                      getDevicesFieldBuilder() : null;
+                        } else {
+                            devicesBuilder_.addAllMessages(other.devices_);
+                        }
+                    }
+                }
+                this.mergeUnknownFields(other.getUnknownFields());
+                return this;
+            }
+
+            public final boolean isInitialized() {
+                return true;
+            }
+
+            public Builder mergeFrom(
+                    com.google.protobuf.CodedInputStream input,
+                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                    throws java.io.IOException {
+                org.whisper.signal.storage.AccountProtos.AccountRecord parsedMessage = null;
+                try {
+                    parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+                } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+                    parsedMessage = (org.whisper.signal.storage.AccountProtos.AccountRecord) e.getUnfinishedMessage();
+                    throw e;
+                } finally {
+                    if (parsedMessage != null) {
+                        mergeFrom(parsedMessage);
+                    }
+                }
+                return this;
+            }
+            private int bitField0_;
+
+            private java.lang.Object number_ = "";
+            /**
+              * <code>optional string number = 1;</code>
+              */
+            public boolean hasNumber() {
+                return ((bitField0_ & 0x00000001) == 0x00000001);
+            }
+            /**
+              * <code>optional string number = 1;</code>
+              */
+            public java.lang.String getNumber() {
+                java.lang.Object ref = number_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        number_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string number = 1;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getNumberBytes() {
+                java.lang.Object ref = number_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    number_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string number = 1;</code>
+              */
+            public Builder setNumber(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000001;
+                number_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string number = 1;</code>
+              */
+            public Builder clearNumber() {
+                bitField0_ = (bitField0_ & ~0x00000001);
+                number_ = getDefaultInstance().getNumber();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string number = 1;</code>
+              */
+            public Builder setNumberBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000001;
+                number_ = value;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object identityKey_ = "";
+            /**
+              * <code>optional string identityKey = 2;</code>
+              */
+            public boolean hasIdentityKey() {
+                return ((bitField0_ & 0x00000002) == 0x00000002);
+            }
+            /**
+              * <code>optional string identityKey = 2;</code>
+              */
+            public java.lang.String getIdentityKey() {
+                java.lang.Object ref = identityKey_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        identityKey_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string identityKey = 2;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getIdentityKeyBytes() {
+                java.lang.Object ref = identityKey_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    identityKey_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string identityKey = 2;</code>
+              */
+            public Builder setIdentityKey(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000002;
+                identityKey_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string identityKey = 2;</code>
+              */
+            public Builder clearIdentityKey() {
+                bitField0_ = (bitField0_ & ~0x00000002);
+                identityKey_ = getDefaultInstance().getIdentityKey();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string identityKey = 2;</code>
+              */
+            public Builder setIdentityKeyBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000002;
+                identityKey_ = value;
+                onChanged();
+                return this;
+            }
+
+            private java.util.List<org.whisper.signal.storage.AccountProtos.DeviceRecord> devices_ =
+                java.util.Collections.emptyList();
+            private void ensureDevicesIsMutable() {
+                if (!((bitField0_ & 0x00000004) == 0x00000004)) {
+                    devices_ = new java.util.ArrayList<org.whisper.signal.storage.AccountProtos.DeviceRecord>(devices_);
+                    bitField0_ |= 0x00000004;
+                  }
+            }
+
+            private com.google.protobuf.RepeatedFieldBuilder<
+                    org.whisper.signal.storage.AccountProtos.DeviceRecord, org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder, org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder> devicesBuilder_;
+
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public java.util.List<org.whisper.signal.storage.AccountProtos.DeviceRecord> getDevicesList() {
+                if (devicesBuilder_ == null) {
+                    return java.util.Collections.unmodifiableList(devices_);
+                } else {
+                    return devicesBuilder_.getMessageList();
+                }
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public int getDevicesCount() {
+                if (devicesBuilder_ == null) {
+                    return devices_.size();
+                } else {
+                    return devicesBuilder_.getCount();
+                }
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public org.whisper.signal.storage.AccountProtos.DeviceRecord getDevices(int index) {
+                if (devicesBuilder_ == null) {
+                    return devices_.get(index);
+                } else {
+                    return devicesBuilder_.getMessage(index);
+                }
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public Builder setDevices(
+                    int index, org.whisper.signal.storage.AccountProtos.DeviceRecord value) {
+                if (devicesBuilder_ == null) {
+                    if (value == null) {
+                        throw new NullPointerException();
+                    }
+                    ensureDevicesIsMutable();
+                    devices_.set(index, value);
+                    onChanged();
+                } else {
+                    devicesBuilder_.setMessage(index, value);
+                }
+                return this;
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public Builder setDevices(
+                    int index, org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder builderForValue) {
+                if (devicesBuilder_ == null) {
+                    ensureDevicesIsMutable();
+                    devices_.set(index, builderForValue.build());
+                    onChanged();
+                } else {
+                    devicesBuilder_.setMessage(index, builderForValue.build());
+                }
+                return this;
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public Builder addDevices(org.whisper.signal.storage.AccountProtos.DeviceRecord value) {
+                if (devicesBuilder_ == null) {
+                    if (value == null) {
+                        throw new NullPointerException();
+                    }
+                    ensureDevicesIsMutable();
+                    devices_.add(value);
+                    onChanged();
+                } else {
+                    devicesBuilder_.addMessage(value);
+                }
+                return this;
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public Builder addDevices(
+                    int index, org.whisper.signal.storage.AccountProtos.DeviceRecord value) {
+                if (devicesBuilder_ == null) {
+                    if (value == null) {
+                        throw new NullPointerException();
+                    }
+                    ensureDevicesIsMutable();
+                    devices_.add(index, value);
+                    onChanged();
+                } else {
+                    devicesBuilder_.addMessage(index, value);
+                }
+                return this;
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public Builder addDevices(
+                    org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder builderForValue) {
+                if (devicesBuilder_ == null) {
+                    ensureDevicesIsMutable();
+                    devices_.add(builderForValue.build());
+                    onChanged();
+                } else {
+                    devicesBuilder_.addMessage(builderForValue.build());
+                }
+                return this;
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public Builder addDevices(
+                    int index, org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder builderForValue) {
+                if (devicesBuilder_ == null) {
+                    ensureDevicesIsMutable();
+                    devices_.add(index, builderForValue.build());
+                    onChanged();
+                } else {
+                    devicesBuilder_.addMessage(index, builderForValue.build());
+                }
+                return this;
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public Builder addAllDevices(
+                    java.lang.Iterable<? extends org.whisper.signal.storage.AccountProtos.DeviceRecord> values) {
+                if (devicesBuilder_ == null) {
+                    ensureDevicesIsMutable();
+                    com.google.protobuf.AbstractMessageLite.Builder.addAll(
+                            values, devices_);
+                    onChanged();
+                } else {
+                    devicesBuilder_.addAllMessages(values);
+                }
+                return this;
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public Builder clearDevices() {
+                if (devicesBuilder_ == null) {
+                    devices_ = java.util.Collections.emptyList();
+                    bitField0_ = (bitField0_ & ~0x00000004);
+                    onChanged();
+                } else {
+                    devicesBuilder_.clear();
+                }
+                return this;
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public Builder removeDevices(int index) {
+                if (devicesBuilder_ == null) {
+                    ensureDevicesIsMutable();
+                    devices_.remove(index);
+                    onChanged();
+                } else {
+                    devicesBuilder_.remove(index);
+                }
+                return this;
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder getDevicesBuilder(
+                    int index) {
+                return getDevicesFieldBuilder().getBuilder(index);
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder getDevicesOrBuilder(
+                    int index) {
+                if (devicesBuilder_ == null) {
+                    return devices_.get(index);  } else {
+                    return devicesBuilder_.getMessageOrBuilder(index);
+                }
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public java.util.List<? extends org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder> 
+                      getDevicesOrBuilderList() {
+                if (devicesBuilder_ != null) {
+                    return devicesBuilder_.getMessageOrBuilderList();
+                } else {
+                    return java.util.Collections.unmodifiableList(devices_);
+                }
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder addDevicesBuilder() {
+                return getDevicesFieldBuilder().addBuilder(
+                        org.whisper.signal.storage.AccountProtos.DeviceRecord.getDefaultInstance());
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder addDevicesBuilder(
+                    int index) {
+                return getDevicesFieldBuilder().addBuilder(
+                        index, org.whisper.signal.storage.AccountProtos.DeviceRecord.getDefaultInstance());
+            }
+            /**
+              * <code>repeated .textsecure.DeviceRecord devices = 3;</code>
+              */
+            public java.util.List<org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder> 
+                      getDevicesBuilderList() {
+                return getDevicesFieldBuilder().getBuilderList();
+            }
+            private com.google.protobuf.RepeatedFieldBuilder<
+                    org.whisper.signal.storage.AccountProtos.DeviceRecord, org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder, org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder> 
+                    getDevicesFieldBuilder() {
+                if (devicesBuilder_ == null) {
+                    devicesBuilder_ = new com.google.protobuf.RepeatedFieldBuilder<
+                            org.whisper.signal.storage.AccountProtos.DeviceRecord, org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder, org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder>(
+                                    devices_,
+                                    ((bitField0_ & 0x00000004) == 0x00000004),
+                                    getParentForChildren(),
+                                    isClean());
+                    devices_ = null;
+                }
+                return devicesBuilder_;
+            }
+
+            // @@protoc_insertion_point(builder_scope:textsecure.AccountRecord)
+        }
+
+        static {
+            defaultInstance = new AccountRecord(true);
+            defaultInstance.initFields();
+        }
+
+        // @@protoc_insertion_point(class_scope:textsecure.AccountRecord)
+    }
+
+    public interface DeviceRecordOrBuilder extends
+            // @@protoc_insertion_point(interface_extends:textsecure.DeviceRecord)
+            com.google.protobuf.MessageOrBuilder {
+
+        /**
+          * <code>optional uint64 id = 1;</code>
+          */
+        boolean hasId();
+        /**
+          * <code>optional uint64 id = 1;</code>
+          */
+        long getId();
+
+        /**
+          * <code>optional string name = 2;</code>
+          */
+        boolean hasName();
+        /**
+          * <code>optional string name = 2;</code>
+          */
+        java.lang.String getName();
+        /**
+          * <code>optional string name = 2;</code>
+          */
+        com.google.protobuf.ByteString
+                getNameBytes();
+
+        /**
+          * <code>optional string authToken = 3;</code>
+          */
+        boolean hasAuthToken();
+        /**
+          * <code>optional string authToken = 3;</code>
+          */
+        java.lang.String getAuthToken();
+        /**
+          * <code>optional string authToken = 3;</code>
+          */
+        com.google.protobuf.ByteString
+                getAuthTokenBytes();
+
+        /**
+          * <code>optional string salt = 4;</code>
+          */
+        boolean hasSalt();
+        /**
+          * <code>optional string salt = 4;</code>
+          */
+        java.lang.String getSalt();
+        /**
+          * <code>optional string salt = 4;</code>
+          */
+        com.google.protobuf.ByteString
+                getSaltBytes();
+
+        /**
+          * <code>optional string signalingKey = 5;</code>
+          */
+        boolean hasSignalingKey();
+        /**
+          * <code>optional string signalingKey = 5;</code>
+          */
+        java.lang.String getSignalingKey();
+        /**
+          * <code>optional string signalingKey = 5;</code>
+          */
+        com.google.protobuf.ByteString
+                getSignalingKeyBytes();
+
+        /**
+          * <code>optional string gcmId = 6;</code>
+          */
+        boolean hasGcmId();
+        /**
+          * <code>optional string gcmId = 6;</code>
+          */
+        java.lang.String getGcmId();
+        /**
+          * <code>optional string gcmId = 6;</code>
+          */
+        com.google.protobuf.ByteString
+                getGcmIdBytes();
+
+        /**
+          * <code>optional string apnId = 7;</code>
+          */
+        boolean hasApnId();
+        /**
+          * <code>optional string apnId = 7;</code>
+          */
+        java.lang.String getApnId();
+        /**
+          * <code>optional string apnId = 7;</code>
+          */
+        com.google.protobuf.ByteString
+                getApnIdBytes();
+
+        /**
+          * <code>optional string voipApnId = 8;</code>
+          */
+        boolean hasVoipApnId();
+        /**
+          * <code>optional string voipApnId = 8;</code>
+          */
+        java.lang.String getVoipApnId();
+        /**
+          * <code>optional string voipApnId = 8;</code>
+          */
+        com.google.protobuf.ByteString
+                getVoipApnIdBytes();
+
+        /**
+          * <code>optional uint64 pushTimestamp = 9;</code>
+          */
+        boolean hasPushTimestamp();
+        /**
+          * <code>optional uint64 pushTimestamp = 9;</code>
+          */
+        long getPushTimestamp();
+
+        /**
+          * <code>optional bool fetchesMessages = 10;</code>
+          */
+        boolean hasFetchesMessages();
+        /**
+          * <code>optional bool fetchesMessages = 10;</code>
+          */
+        boolean getFetchesMessages();
+
+        /**
+          * <code>optional uint32 registrationId = 11;</code>
+          */
+        boolean hasRegistrationId();
+        /**
+          * <code>optional uint32 registrationId = 11;</code>
+          */
+        int getRegistrationId();
+
+        /**
+          * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+          */
+        boolean hasSignedPreKey();
+        /**
+          * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+          */
+        org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord getSignedPreKey();
+        /**
+          * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+          */
+        org.whisper.signal.storage.AccountProtos.SignedPreKeyRecordOrBuilder getSignedPreKeyOrBuilder();
+
+        /**
+          * <code>optional uint64 lastSeen = 13;</code>
+          */
+        boolean hasLastSeen();
+        /**
+          * <code>optional uint64 lastSeen = 13;</code>
+          */
+        long getLastSeen();
+
+        /**
+          * <code>optional uint64 created = 14;</code>
+          */
+        boolean hasCreated();
+        /**
+          * <code>optional uint64 created = 14;</code>
+          */
+        long getCreated();
+
+        /**
+          * <code>optional bool voice = 15;</code>
+          */
+        boolean hasVoice();
+        /**
+          * <code>optional bool voice = 15;</code>
+          */
+        boolean getVoice();
+
+        /**
+          * <code>optional bool video = 16;</code>
+          */
+        boolean hasVideo();
+        /**
+          * <code>optional bool video = 16;</code>
+          */
+        boolean getVideo();
+
+        /**
+          * <code>optional bool multiReceipts = 17;</code>
+          */
+        boolean hasMultiReceipts();
+        /**
+          * <code>optional bool multiReceipts = 17;</code>
+          */
+        boolean getMultiReceipts();
+
+        /**
+          * <code>optional string userAgent = 18;</code>
+          */
+        boolean hasUserAgent();
+        /**
+          * <code>optional string userAgent = 18;</code>
+          */
+        java.lang.String getUserAgent();
+        /**
+          * <code>optional string userAgent = 18;</code>
+          */
+        com.google.protobuf.ByteString
+                getUserAgentBytes();
+    }
+    /**
+      * Protobuf type {@code textsecure.DeviceRecord}
+      */
+    public static final class DeviceRecord extends
+            com.google.protobuf.GeneratedMessage implements
+            // @@protoc_insertion_point(message_implements:textsecure.DeviceRecord)
+            DeviceRecordOrBuilder {
+        // Use DeviceRecord.newBuilder() to construct.
+        private DeviceRecord(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+            super(builder);
+            this.unknownFields = builder.getUnknownFields();
+        }
+        private DeviceRecord(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+        private static final DeviceRecord defaultInstance;
+        public static DeviceRecord getDefaultInstance() {
+            return defaultInstance;
+        }
+
+        public DeviceRecord getDefaultInstanceForType() {
+            return defaultInstance;
+        }
+
+        private final com.google.protobuf.UnknownFieldSet unknownFields;
+        @java.lang.Override
+        public final com.google.protobuf.UnknownFieldSet
+                getUnknownFields() {
+            return this.unknownFields;
+        }
+        private DeviceRecord(
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            initFields();
+            int mutable_bitField0_ = 0;
+            com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+                    com.google.protobuf.UnknownFieldSet.newBuilder();
+            try {
+                boolean done = false;
+                while (!done) {
+                    int tag = input.readTag();
+                    switch (tag) {
+                        case 0:
+                            done = true;
+                            break;
+                        default: {
+                            if (!parseUnknownField(input, unknownFields,
+                                                                          extensionRegistry, tag)) {
+                                done = true;
+                            }
+                            break;
+                        }
+                        case 8: {
+                            bitField0_ |= 0x00000001;
+                            id_ = input.readUInt64();
+                            break;
+                        }
+                        case 18: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000002;
+                            name_ = bs;
+                            break;
+                        }
+                        case 26: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000004;
+                            authToken_ = bs;
+                            break;
+                        }
+                        case 34: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000008;
+                            salt_ = bs;
+                            break;
+                        }
+                        case 42: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000010;
+                            signalingKey_ = bs;
+                            break;
+                        }
+                        case 50: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000020;
+                            gcmId_ = bs;
+                            break;
+                        }
+                        case 58: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000040;
+                            apnId_ = bs;
+                            break;
+                        }
+                        case 66: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000080;
+                            voipApnId_ = bs;
+                            break;
+                        }
+                        case 72: {
+                            bitField0_ |= 0x00000100;
+                            pushTimestamp_ = input.readUInt64();
+                            break;
+                        }
+                        case 80: {
+                            bitField0_ |= 0x00000200;
+                            fetchesMessages_ = input.readBool();
+                            break;
+                        }
+                        case 88: {
+                            bitField0_ |= 0x00000400;
+                            registrationId_ = input.readUInt32();
+                            break;
+                        }
+                        case 98: {
+                            org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.Builder subBuilder = null;
+                            if (((bitField0_ & 0x00000800) == 0x00000800)) {
+                                subBuilder = signedPreKey_.toBuilder();
+                            }
+                            signedPreKey_ = input.readMessage(org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.PARSER, extensionRegistry);
+                            if (subBuilder != null) {
+                                subBuilder.mergeFrom(signedPreKey_);
+                                signedPreKey_ = subBuilder.buildPartial();
+                            }
+                            bitField0_ |= 0x00000800;
+                            break;
+                        }
+                        case 104: {
+                            bitField0_ |= 0x00001000;
+                            lastSeen_ = input.readUInt64();
+                            break;
+                        }
+                        case 112: {
+                            bitField0_ |= 0x00002000;
+                            created_ = input.readUInt64();
+                            break;
+                        }
+                        case 120: {
+                            bitField0_ |= 0x00004000;
+                            voice_ = input.readBool();
+                            break;
+                        }
+                        case 128: {
+                            bitField0_ |= 0x00008000;
+                            video_ = input.readBool();
+                            break;
+                        }
+                        case 136: {
+                            bitField0_ |= 0x00010000;
+                            multiReceipts_ = input.readBool();
+                            break;
+                        }
+                        case 146: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00020000;
+                            userAgent_ = bs;
+                            break;
+                        }
+                    }
+                }
+            } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+                throw e.setUnfinishedMessage(this);
+            } catch (java.io.IOException e) {
+                throw new com.google.protobuf.InvalidProtocolBufferException(
+                        e.getMessage()).setUnfinishedMessage(this);
+            } finally {
+                this.unknownFields = unknownFields.build();
+                makeExtensionsImmutable();
+            }
+        }
+        public static final com.google.protobuf.Descriptors.Descriptor
+                getDescriptor() {
+            return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_DeviceRecord_descriptor;
+        }
+
+        protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+                internalGetFieldAccessorTable() {
+            return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_DeviceRecord_fieldAccessorTable
+                    .ensureFieldAccessorsInitialized(
+                            org.whisper.signal.storage.AccountProtos.DeviceRecord.class, org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder.class);
+        }
+
+        public static com.google.protobuf.Parser<DeviceRecord> PARSER =
+                new com.google.protobuf.AbstractParser<DeviceRecord>() {
+            public DeviceRecord parsePartialFrom(
+                    com.google.protobuf.CodedInputStream input,
+                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                    throws com.google.protobuf.InvalidProtocolBufferException {
+                return new DeviceRecord(input, extensionRegistry);
+            }
+        };
+
+        @java.lang.Override
+        public com.google.protobuf.Parser<DeviceRecord> getParserForType() {
+            return PARSER;
+        }
+
+        private int bitField0_;
+        public static final int ID_FIELD_NUMBER = 1;
+        private long id_;
+        /**
+          * <code>optional uint64 id = 1;</code>
+          */
+        public boolean hasId() {
+            return ((bitField0_ & 0x00000001) == 0x00000001);
+        }
+        /**
+          * <code>optional uint64 id = 1;</code>
+          */
+        public long getId() {
+            return id_;
+        }
+
+        public static final int NAME_FIELD_NUMBER = 2;
+        private java.lang.Object name_;
+        /**
+          * <code>optional string name = 2;</code>
+          */
+        public boolean hasName() {
+            return ((bitField0_ & 0x00000002) == 0x00000002);
+        }
+        /**
+          * <code>optional string name = 2;</code>
+          */
+        public java.lang.String getName() {
+            java.lang.Object ref = name_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    name_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string name = 2;</code>
+          */
+        public com.google.protobuf.ByteString
+                getNameBytes() {
+            java.lang.Object ref = name_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                name_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int AUTHTOKEN_FIELD_NUMBER = 3;
+        private java.lang.Object authToken_;
+        /**
+          * <code>optional string authToken = 3;</code>
+          */
+        public boolean hasAuthToken() {
+            return ((bitField0_ & 0x00000004) == 0x00000004);
+        }
+        /**
+          * <code>optional string authToken = 3;</code>
+          */
+        public java.lang.String getAuthToken() {
+            java.lang.Object ref = authToken_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    authToken_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string authToken = 3;</code>
+          */
+        public com.google.protobuf.ByteString
+                getAuthTokenBytes() {
+            java.lang.Object ref = authToken_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                authToken_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int SALT_FIELD_NUMBER = 4;
+        private java.lang.Object salt_;
+        /**
+          * <code>optional string salt = 4;</code>
+          */
+        public boolean hasSalt() {
+            return ((bitField0_ & 0x00000008) == 0x00000008);
+        }
+        /**
+          * <code>optional string salt = 4;</code>
+          */
+        public java.lang.String getSalt() {
+            java.lang.Object ref = salt_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    salt_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string salt = 4;</code>
+          */
+        public com.google.protobuf.ByteString
+                getSaltBytes() {
+            java.lang.Object ref = salt_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                salt_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int SIGNALINGKEY_FIELD_NUMBER = 5;
+        private java.lang.Object signalingKey_;
+        /**
+          * <code>optional string signalingKey = 5;</code>
+          */
+        public boolean hasSignalingKey() {
+            return ((bitField0_ & 0x00000010) == 0x00000010);
+        }
+        /**
+          * <code>optional string signalingKey = 5;</code>
+          */
+        public java.lang.String getSignalingKey() {
+            java.lang.Object ref = signalingKey_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    signalingKey_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string signalingKey = 5;</code>
+          */
+        public com.google.protobuf.ByteString
+                getSignalingKeyBytes() {
+            java.lang.Object ref = signalingKey_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                signalingKey_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int GCMID_FIELD_NUMBER = 6;
+        private java.lang.Object gcmId_;
+        /**
+          * <code>optional string gcmId = 6;</code>
+          */
+        public boolean hasGcmId() {
+            return ((bitField0_ & 0x00000020) == 0x00000020);
+        }
+        /**
+          * <code>optional string gcmId = 6;</code>
+          */
+        public java.lang.String getGcmId() {
+            java.lang.Object ref = gcmId_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    gcmId_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string gcmId = 6;</code>
+          */
+        public com.google.protobuf.ByteString
+                getGcmIdBytes() {
+            java.lang.Object ref = gcmId_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                gcmId_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int APNID_FIELD_NUMBER = 7;
+        private java.lang.Object apnId_;
+        /**
+          * <code>optional string apnId = 7;</code>
+          */
+        public boolean hasApnId() {
+            return ((bitField0_ & 0x00000040) == 0x00000040);
+        }
+        /**
+          * <code>optional string apnId = 7;</code>
+          */
+        public java.lang.String getApnId() {
+            java.lang.Object ref = apnId_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    apnId_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string apnId = 7;</code>
+          */
+        public com.google.protobuf.ByteString
+                getApnIdBytes() {
+            java.lang.Object ref = apnId_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                apnId_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int VOIPAPNID_FIELD_NUMBER = 8;
+        private java.lang.Object voipApnId_;
+        /**
+          * <code>optional string voipApnId = 8;</code>
+          */
+        public boolean hasVoipApnId() {
+            return ((bitField0_ & 0x00000080) == 0x00000080);
+        }
+        /**
+          * <code>optional string voipApnId = 8;</code>
+          */
+        public java.lang.String getVoipApnId() {
+            java.lang.Object ref = voipApnId_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    voipApnId_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string voipApnId = 8;</code>
+          */
+        public com.google.protobuf.ByteString
+                getVoipApnIdBytes() {
+            java.lang.Object ref = voipApnId_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                voipApnId_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int PUSHTIMESTAMP_FIELD_NUMBER = 9;
+        private long pushTimestamp_;
+        /**
+          * <code>optional uint64 pushTimestamp = 9;</code>
+          */
+        public boolean hasPushTimestamp() {
+            return ((bitField0_ & 0x00000100) == 0x00000100);
+        }
+        /**
+          * <code>optional uint64 pushTimestamp = 9;</code>
+          */
+        public long getPushTimestamp() {
+            return pushTimestamp_;
+        }
+
+        public static final int FETCHESMESSAGES_FIELD_NUMBER = 10;
+        private boolean fetchesMessages_;
+        /**
+          * <code>optional bool fetchesMessages = 10;</code>
+          */
+        public boolean hasFetchesMessages() {
+            return ((bitField0_ & 0x00000200) == 0x00000200);
+        }
+        /**
+          * <code>optional bool fetchesMessages = 10;</code>
+          */
+        public boolean getFetchesMessages() {
+            return fetchesMessages_;
+        }
+
+        public static final int REGISTRATIONID_FIELD_NUMBER = 11;
+        private int registrationId_;
+        /**
+          * <code>optional uint32 registrationId = 11;</code>
+          */
+        public boolean hasRegistrationId() {
+            return ((bitField0_ & 0x00000400) == 0x00000400);
+        }
+        /**
+          * <code>optional uint32 registrationId = 11;</code>
+          */
+        public int getRegistrationId() {
+            return registrationId_;
+        }
+
+        public static final int SIGNEDPREKEY_FIELD_NUMBER = 12;
+        private org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord signedPreKey_;
+        /**
+          * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+          */
+        public boolean hasSignedPreKey() {
+            return ((bitField0_ & 0x00000800) == 0x00000800);
+        }
+        /**
+          * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+          */
+        public org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord getSignedPreKey() {
+            return signedPreKey_;
+        }
+        /**
+          * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+          */
+        public org.whisper.signal.storage.AccountProtos.SignedPreKeyRecordOrBuilder getSignedPreKeyOrBuilder() {
+            return signedPreKey_;
+        }
+
+        public static final int LASTSEEN_FIELD_NUMBER = 13;
+        private long lastSeen_;
+        /**
+          * <code>optional uint64 lastSeen = 13;</code>
+          */
+        public boolean hasLastSeen() {
+            return ((bitField0_ & 0x00001000) == 0x00001000);
+        }
+        /**
+          * <code>optional uint64 lastSeen = 13;</code>
+          */
+        public long getLastSeen() {
+            return lastSeen_;
+        }
+
+        public static final int CREATED_FIELD_NUMBER = 14;
+        private long created_;
+        /**
+          * <code>optional uint64 created = 14;</code>
+          */
+        public boolean hasCreated() {
+            return ((bitField0_ & 0x00002000) == 0x00002000);
+        }
+        /**
+          * <code>optional uint64 created = 14;</code>
+          */
+        public long getCreated() {
+            return created_;
+        }
+
+        public static final int VOICE_FIELD_NUMBER = 15;
+        private boolean voice_;
+        /**
+          * <code>optional bool voice = 15;</code>
+          */
+        public boolean hasVoice() {
+            return ((bitField0_ & 0x00004000) == 0x00004000);
+        }
+        /**
+          * <code>optional bool voice = 15;</code>
+          */
+        public boolean getVoice() {
+            return voice_;
+        }
+
+        public static final int VIDEO_FIELD_NUMBER = 16;
+        private boolean video_;
+        /**
+          * <code>optional bool video = 16;</code>
+          */
+        public boolean hasVideo() {
+            return ((bitField0_ & 0x00008000) == 0x00008000);
+        }
+        /**
+          * <code>optional bool video = 16;</code>
+          */
+        public boolean getVideo() {
+            return video_;
+        }
+
+        public static final int MULTIRECEIPTS_FIELD_NUMBER = 17;
+        private boolean multiReceipts_;
+        /**
+          * <code>optional bool multiReceipts = 17;</code>
+          */
+        public boolean hasMultiReceipts() {
+            return ((bitField0_ & 0x00010000) == 0x00010000);
+        }
+        /**
+          * <code>optional bool multiReceipts = 17;</code>
+          */
+        public boolean getMultiReceipts() {
+            return multiReceipts_;
+        }
+
+        public static final int USERAGENT_FIELD_NUMBER = 18;
+        private java.lang.Object userAgent_;
+        /**
+          * <code>optional string userAgent = 18;</code>
+          */
+        public boolean hasUserAgent() {
+            return ((bitField0_ & 0x00020000) == 0x00020000);
+        }
+        /**
+          * <code>optional string userAgent = 18;</code>
+          */
+        public java.lang.String getUserAgent() {
+            java.lang.Object ref = userAgent_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    userAgent_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string userAgent = 18;</code>
+          */
+        public com.google.protobuf.ByteString
+                getUserAgentBytes() {
+            java.lang.Object ref = userAgent_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                userAgent_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        private void initFields() {
+            id_ = 0L;
+            name_ = "";
+            authToken_ = "";
+            salt_ = "";
+            signalingKey_ = "";
+            gcmId_ = "";
+            apnId_ = "";
+            voipApnId_ = "";
+            pushTimestamp_ = 0L;
+            fetchesMessages_ = false;
+            registrationId_ = 0;
+            signedPreKey_ = org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.getDefaultInstance();
+            lastSeen_ = 0L;
+            created_ = 0L;
+            voice_ = false;
+            video_ = false;
+            multiReceipts_ = false;
+            userAgent_ = "";
+        }
+        private byte memoizedIsInitialized = -1;
+        public final boolean isInitialized() {
+            byte isInitialized = memoizedIsInitialized;
+            if (isInitialized == 1) return true;
+            if (isInitialized == 0) return false;
+
+            memoizedIsInitialized = 1;
+            return true;
+        }
+
+        public void writeTo(com.google.protobuf.CodedOutputStream output)
+                                                throws java.io.IOException {
+            getSerializedSize();
+            if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                output.writeUInt64(1, id_);
+            }
+            if (((bitField0_ & 0x00000002) == 0x00000002)) {
+                output.writeBytes(2, getNameBytes());
+            }
+            if (((bitField0_ & 0x00000004) == 0x00000004)) {
+                output.writeBytes(3, getAuthTokenBytes());
+            }
+            if (((bitField0_ & 0x00000008) == 0x00000008)) {
+                output.writeBytes(4, getSaltBytes());
+            }
+            if (((bitField0_ & 0x00000010) == 0x00000010)) {
+                output.writeBytes(5, getSignalingKeyBytes());
+            }
+            if (((bitField0_ & 0x00000020) == 0x00000020)) {
+                output.writeBytes(6, getGcmIdBytes());
+            }
+            if (((bitField0_ & 0x00000040) == 0x00000040)) {
+                output.writeBytes(7, getApnIdBytes());
+            }
+            if (((bitField0_ & 0x00000080) == 0x00000080)) {
+                output.writeBytes(8, getVoipApnIdBytes());
+            }
+            if (((bitField0_ & 0x00000100) == 0x00000100)) {
+                output.writeUInt64(9, pushTimestamp_);
+            }
+            if (((bitField0_ & 0x00000200) == 0x00000200)) {
+                output.writeBool(10, fetchesMessages_);
+            }
+            if (((bitField0_ & 0x00000400) == 0x00000400)) {
+                output.writeUInt32(11, registrationId_);
+            }
+            if (((bitField0_ & 0x00000800) == 0x00000800)) {
+                output.writeMessage(12, signedPreKey_);
+            }
+            if (((bitField0_ & 0x00001000) == 0x00001000)) {
+                output.writeUInt64(13, lastSeen_);
+            }
+            if (((bitField0_ & 0x00002000) == 0x00002000)) {
+                output.writeUInt64(14, created_);
+            }
+            if (((bitField0_ & 0x00004000) == 0x00004000)) {
+                output.writeBool(15, voice_);
+            }
+            if (((bitField0_ & 0x00008000) == 0x00008000)) {
+                output.writeBool(16, video_);
+            }
+            if (((bitField0_ & 0x00010000) == 0x00010000)) {
+                output.writeBool(17, multiReceipts_);
+            }
+            if (((bitField0_ & 0x00020000) == 0x00020000)) {
+                output.writeBytes(18, getUserAgentBytes());
+            }
+            getUnknownFields().writeTo(output);
+        }
+
+        private int memoizedSerializedSize = -1;
+        public int getSerializedSize() {
+            int size = memoizedSerializedSize;
+            if (size != -1) return size;
+
+            size = 0;
+            if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeUInt64Size(1, id_);
+            }
+            if (((bitField0_ & 0x00000002) == 0x00000002)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(2, getNameBytes());
+            }
+            if (((bitField0_ & 0x00000004) == 0x00000004)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(3, getAuthTokenBytes());
+            }
+            if (((bitField0_ & 0x00000008) == 0x00000008)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(4, getSaltBytes());
+            }
+            if (((bitField0_ & 0x00000010) == 0x00000010)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(5, getSignalingKeyBytes());
+            }
+            if (((bitField0_ & 0x00000020) == 0x00000020)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(6, getGcmIdBytes());
+            }
+            if (((bitField0_ & 0x00000040) == 0x00000040)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(7, getApnIdBytes());
+            }
+            if (((bitField0_ & 0x00000080) == 0x00000080)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(8, getVoipApnIdBytes());
+            }
+            if (((bitField0_ & 0x00000100) == 0x00000100)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeUInt64Size(9, pushTimestamp_);
+            }
+            if (((bitField0_ & 0x00000200) == 0x00000200)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBoolSize(10, fetchesMessages_);
+            }
+            if (((bitField0_ & 0x00000400) == 0x00000400)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeUInt32Size(11, registrationId_);
+            }
+            if (((bitField0_ & 0x00000800) == 0x00000800)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeMessageSize(12, signedPreKey_);
+            }
+            if (((bitField0_ & 0x00001000) == 0x00001000)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeUInt64Size(13, lastSeen_);
+            }
+            if (((bitField0_ & 0x00002000) == 0x00002000)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeUInt64Size(14, created_);
+            }
+            if (((bitField0_ & 0x00004000) == 0x00004000)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBoolSize(15, voice_);
+            }
+            if (((bitField0_ & 0x00008000) == 0x00008000)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBoolSize(16, video_);
+            }
+            if (((bitField0_ & 0x00010000) == 0x00010000)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBoolSize(17, multiReceipts_);
+            }
+            if (((bitField0_ & 0x00020000) == 0x00020000)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(18, getUserAgentBytes());
+            }
+            size += getUnknownFields().getSerializedSize();
+            memoizedSerializedSize = size;
+            return size;
+        }
+
+        private static final long serialVersionUID = 0L;
+        @java.lang.Override
+        protected java.lang.Object writeReplace()
+                throws java.io.ObjectStreamException {
+            return super.writeReplace();
+        }
+
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseFrom(
+                com.google.protobuf.ByteString data)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data);
+        }
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseFrom(
+                com.google.protobuf.ByteString data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseFrom(byte[] data)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data);
+        }
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseFrom(
+                byte[] data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseFrom(java.io.InputStream input)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input);
+        }
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseFrom(
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseDelimitedFrom(java.io.InputStream input)
+                throws java.io.IOException {
+            return PARSER.parseDelimitedFrom(input);
+        }
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseDelimitedFrom(
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
+            return PARSER.parseDelimitedFrom(input, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseFrom(
+                com.google.protobuf.CodedInputStream input)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input);
+        }
+        public static org.whisper.signal.storage.AccountProtos.DeviceRecord parseFrom(
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input, extensionRegistry);
+        }
+
+        public static Builder newBuilder() { return Builder.create(); }
+        public Builder newBuilderForType() { return newBuilder(); }
+        public static Builder newBuilder(org.whisper.signal.storage.AccountProtos.DeviceRecord prototype) {
+            return newBuilder().mergeFrom(prototype);
+        }
+        public Builder toBuilder() { return newBuilder(this); }
+
+        @java.lang.Override
+        protected Builder newBuilderForType(
+                com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+            Builder builder = new Builder(parent);
+            return builder;
+        }
+        /**
+          * Protobuf type {@code textsecure.DeviceRecord}
+          */
+        public static final class Builder extends
+                com.google.protobuf.GeneratedMessage.Builder<Builder> implements
+                // @@protoc_insertion_point(builder_implements:textsecure.DeviceRecord)
+                org.whisper.signal.storage.AccountProtos.DeviceRecordOrBuilder {
+            public static final com.google.protobuf.Descriptors.Descriptor
+                    getDescriptor() {
+                return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_DeviceRecord_descriptor;
+            }
+
+            protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+                    internalGetFieldAccessorTable() {
+                return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_DeviceRecord_fieldAccessorTable
+                        .ensureFieldAccessorsInitialized(
+                                org.whisper.signal.storage.AccountProtos.DeviceRecord.class, org.whisper.signal.storage.AccountProtos.DeviceRecord.Builder.class);
+            }
+
+            // Construct using org.whisper.signal.storage.AccountProtos.DeviceRecord.newBuilder()
+            private Builder() {
+                maybeForceBuilderInitialization();
+            }
+
+            private Builder(
+                    com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+                super(parent);
+                maybeForceBuilderInitialization();
+            }
+            private void maybeForceBuilderInitialization() {
+                if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+                    getSignedPreKeyFieldBuilder();
+                }
+            }
+            private static Builder create() {
+                return new Builder();
+            }
+
+            public Builder clear() {
+                super.clear();
+                id_ = 0L;
+                bitField0_ = (bitField0_ & ~0x00000001);
+                name_ = "";
+                bitField0_ = (bitField0_ & ~0x00000002);
+                authToken_ = "";
+                bitField0_ = (bitField0_ & ~0x00000004);
+                salt_ = "";
+                bitField0_ = (bitField0_ & ~0x00000008);
+                signalingKey_ = "";
+                bitField0_ = (bitField0_ & ~0x00000010);
+                gcmId_ = "";
+                bitField0_ = (bitField0_ & ~0x00000020);
+                apnId_ = "";
+                bitField0_ = (bitField0_ & ~0x00000040);
+                voipApnId_ = "";
+                bitField0_ = (bitField0_ & ~0x00000080);
+                pushTimestamp_ = 0L;
+                bitField0_ = (bitField0_ & ~0x00000100);
+                fetchesMessages_ = false;
+                bitField0_ = (bitField0_ & ~0x00000200);
+                registrationId_ = 0;
+                bitField0_ = (bitField0_ & ~0x00000400);
+                if (signedPreKeyBuilder_ == null) {
+                    signedPreKey_ = org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.getDefaultInstance();
+                } else {
+                    signedPreKeyBuilder_.clear();
+                }
+                bitField0_ = (bitField0_ & ~0x00000800);
+                lastSeen_ = 0L;
+                bitField0_ = (bitField0_ & ~0x00001000);
+                created_ = 0L;
+                bitField0_ = (bitField0_ & ~0x00002000);
+                voice_ = false;
+                bitField0_ = (bitField0_ & ~0x00004000);
+                video_ = false;
+                bitField0_ = (bitField0_ & ~0x00008000);
+                multiReceipts_ = false;
+                bitField0_ = (bitField0_ & ~0x00010000);
+                userAgent_ = "";
+                bitField0_ = (bitField0_ & ~0x00020000);
+                return this;
+            }
+
+            public Builder clone() {
+                return create().mergeFrom(buildPartial());
+            }
+
+            public com.google.protobuf.Descriptors.Descriptor
+                    getDescriptorForType() {
+                return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_DeviceRecord_descriptor;
+            }
+
+            public org.whisper.signal.storage.AccountProtos.DeviceRecord getDefaultInstanceForType() {
+                return org.whisper.signal.storage.AccountProtos.DeviceRecord.getDefaultInstance();
+            }
+
+            public org.whisper.signal.storage.AccountProtos.DeviceRecord build() {
+                org.whisper.signal.storage.AccountProtos.DeviceRecord result = buildPartial();
+                if (!result.isInitialized()) {
+                    throw newUninitializedMessageException(result);
+                }
+                return result;
+            }
+
+            public org.whisper.signal.storage.AccountProtos.DeviceRecord buildPartial() {
+                org.whisper.signal.storage.AccountProtos.DeviceRecord result = new org.whisper.signal.storage.AccountProtos.DeviceRecord(this);
+                int from_bitField0_ = bitField0_;
+                int to_bitField0_ = 0;
+                if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+                    to_bitField0_ |= 0x00000001;
+                }
+                result.id_ = id_;
+                if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+                    to_bitField0_ |= 0x00000002;
+                }
+                result.name_ = name_;
+                if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+                    to_bitField0_ |= 0x00000004;
+                }
+                result.authToken_ = authToken_;
+                if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+                    to_bitField0_ |= 0x00000008;
+                }
+                result.salt_ = salt_;
+                if (((from_bitField0_ & 0x00000010) == 0x00000010)) {
+                    to_bitField0_ |= 0x00000010;
+                }
+                result.signalingKey_ = signalingKey_;
+                if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+                    to_bitField0_ |= 0x00000020;
+                }
+                result.gcmId_ = gcmId_;
+                if (((from_bitField0_ & 0x00000040) == 0x00000040)) {
+                    to_bitField0_ |= 0x00000040;
+                }
+                result.apnId_ = apnId_;
+                if (((from_bitField0_ & 0x00000080) == 0x00000080)) {
+                    to_bitField0_ |= 0x00000080;
+                }
+                result.voipApnId_ = voipApnId_;
+                if (((from_bitField0_ & 0x00000100) == 0x00000100)) {
+                    to_bitField0_ |= 0x00000100;
+                }
+                result.pushTimestamp_ = pushTimestamp_;
+                if (((from_bitField0_ & 0x00000200) == 0x00000200)) {
+                    to_bitField0_ |= 0x00000200;
+                }
+                result.fetchesMessages_ = fetchesMessages_;
+                if (((from_bitField0_ & 0x00000400) == 0x00000400)) {
+                    to_bitField0_ |= 0x00000400;
+                }
+                result.registrationId_ = registrationId_;
+                if (((from_bitField0_ & 0x00000800) == 0x00000800)) {
+                    to_bitField0_ |= 0x00000800;
+                }
+                if (signedPreKeyBuilder_ == null) {
+                    result.signedPreKey_ = signedPreKey_;
+                } else {
+                    result.signedPreKey_ = signedPreKeyBuilder_.build();
+                }
+                if (((from_bitField0_ & 0x00001000) == 0x00001000)) {
+                    to_bitField0_ |= 0x00001000;
+                }
+                result.lastSeen_ = lastSeen_;
+                if (((from_bitField0_ & 0x00002000) == 0x00002000)) {
+                    to_bitField0_ |= 0x00002000;
+                }
+                result.created_ = created_;
+                if (((from_bitField0_ & 0x00004000) == 0x00004000)) {
+                    to_bitField0_ |= 0x00004000;
+                }
+                result.voice_ = voice_;
+                if (((from_bitField0_ & 0x00008000) == 0x00008000)) {
+                    to_bitField0_ |= 0x00008000;
+                }
+                result.video_ = video_;
+                if (((from_bitField0_ & 0x00010000) == 0x00010000)) {
+                    to_bitField0_ |= 0x00010000;
+                }
+                result.multiReceipts_ = multiReceipts_;
+                if (((from_bitField0_ & 0x00020000) == 0x00020000)) {
+                    to_bitField0_ |= 0x00020000;
+                }
+                result.userAgent_ = userAgent_;
+                result.bitField0_ = to_bitField0_;
+                onBuilt();
+                return result;
+            }
+
+            public Builder mergeFrom(com.google.protobuf.Message other) {
+                if (other instanceof org.whisper.signal.storage.AccountProtos.DeviceRecord) {
+                    return mergeFrom((org.whisper.signal.storage.AccountProtos.DeviceRecord)other);
+                } else {
+                    super.mergeFrom(other);
+                    return this;
+                }
+            }
+
+            public Builder mergeFrom(org.whisper.signal.storage.AccountProtos.DeviceRecord other) {
+                if (other == org.whisper.signal.storage.AccountProtos.DeviceRecord.getDefaultInstance()) return this;
+                if (other.hasId()) {
+                    setId(other.getId());
+                }
+                if (other.hasName()) {
+                    bitField0_ |= 0x00000002;
+                    name_ = other.name_;
+                    onChanged();
+                }
+                if (other.hasAuthToken()) {
+                    bitField0_ |= 0x00000004;
+                    authToken_ = other.authToken_;
+                    onChanged();
+                }
+                if (other.hasSalt()) {
+                    bitField0_ |= 0x00000008;
+                    salt_ = other.salt_;
+                    onChanged();
+                }
+                if (other.hasSignalingKey()) {
+                    bitField0_ |= 0x00000010;
+                    signalingKey_ = other.signalingKey_;
+                    onChanged();
+                }
+                if (other.hasGcmId()) {
+                    bitField0_ |= 0x00000020;
+                    gcmId_ = other.gcmId_;
+                    onChanged();
+                }
+                if (other.hasApnId()) {
+                    bitField0_ |= 0x00000040;
+                    apnId_ = other.apnId_;
+                    onChanged();
+                }
+                if (other.hasVoipApnId()) {
+                    bitField0_ |= 0x00000080;
+                    voipApnId_ = other.voipApnId_;
+                    onChanged();
+                }
+                if (other.hasPushTimestamp()) {
+                    setPushTimestamp(other.getPushTimestamp());
+                }
+                if (other.hasFetchesMessages()) {
+                    setFetchesMessages(other.getFetchesMessages());
+                }
+                if (other.hasRegistrationId()) {
+                    setRegistrationId(other.getRegistrationId());
+                }
+                if (other.hasSignedPreKey()) {
+                    mergeSignedPreKey(other.getSignedPreKey());
+                }
+                if (other.hasLastSeen()) {
+                    setLastSeen(other.getLastSeen());
+                }
+                if (other.hasCreated()) {
+                    setCreated(other.getCreated());
+                }
+                if (other.hasVoice()) {
+                    setVoice(other.getVoice());
+                }
+                if (other.hasVideo()) {
+                    setVideo(other.getVideo());
+                }
+                if (other.hasMultiReceipts()) {
+                    setMultiReceipts(other.getMultiReceipts());
+                }
+                if (other.hasUserAgent()) {
+                    bitField0_ |= 0x00020000;
+                    userAgent_ = other.userAgent_;
+                    onChanged();
+                }
+                this.mergeUnknownFields(other.getUnknownFields());
+                return this;
+            }
+
+            public final boolean isInitialized() {
+                return true;
+            }
+
+            public Builder mergeFrom(
+                    com.google.protobuf.CodedInputStream input,
+                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                    throws java.io.IOException {
+                org.whisper.signal.storage.AccountProtos.DeviceRecord parsedMessage = null;
+                try {
+                    parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+                } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+                    parsedMessage = (org.whisper.signal.storage.AccountProtos.DeviceRecord) e.getUnfinishedMessage();
+                    throw e;
+                } finally {
+                    if (parsedMessage != null) {
+                        mergeFrom(parsedMessage);
+                    }
+                }
+                return this;
+            }
+            private int bitField0_;
+
+            private long id_ ;
+            /**
+              * <code>optional uint64 id = 1;</code>
+              */
+            public boolean hasId() {
+                return ((bitField0_ & 0x00000001) == 0x00000001);
+            }
+            /**
+              * <code>optional uint64 id = 1;</code>
+              */
+            public long getId() {
+                return id_;
+            }
+            /**
+              * <code>optional uint64 id = 1;</code>
+              */
+            public Builder setId(long value) {
+                bitField0_ |= 0x00000001;
+                id_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional uint64 id = 1;</code>
+              */
+            public Builder clearId() {
+                bitField0_ = (bitField0_ & ~0x00000001);
+                id_ = 0L;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object name_ = "";
+            /**
+              * <code>optional string name = 2;</code>
+              */
+            public boolean hasName() {
+                return ((bitField0_ & 0x00000002) == 0x00000002);
+            }
+            /**
+              * <code>optional string name = 2;</code>
+              */
+            public java.lang.String getName() {
+                java.lang.Object ref = name_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        name_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string name = 2;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getNameBytes() {
+                java.lang.Object ref = name_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    name_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string name = 2;</code>
+              */
+            public Builder setName(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000002;
+                name_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string name = 2;</code>
+              */
+            public Builder clearName() {
+                bitField0_ = (bitField0_ & ~0x00000002);
+                name_ = getDefaultInstance().getName();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string name = 2;</code>
+              */
+            public Builder setNameBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000002;
+                name_ = value;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object authToken_ = "";
+            /**
+              * <code>optional string authToken = 3;</code>
+              */
+            public boolean hasAuthToken() {
+                return ((bitField0_ & 0x00000004) == 0x00000004);
+            }
+            /**
+              * <code>optional string authToken = 3;</code>
+              */
+            public java.lang.String getAuthToken() {
+                java.lang.Object ref = authToken_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        authToken_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string authToken = 3;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getAuthTokenBytes() {
+                java.lang.Object ref = authToken_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    authToken_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string authToken = 3;</code>
+              */
+            public Builder setAuthToken(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000004;
+                authToken_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string authToken = 3;</code>
+              */
+            public Builder clearAuthToken() {
+                bitField0_ = (bitField0_ & ~0x00000004);
+                authToken_ = getDefaultInstance().getAuthToken();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string authToken = 3;</code>
+              */
+            public Builder setAuthTokenBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000004;
+                authToken_ = value;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object salt_ = "";
+            /**
+              * <code>optional string salt = 4;</code>
+              */
+            public boolean hasSalt() {
+                return ((bitField0_ & 0x00000008) == 0x00000008);
+            }
+            /**
+              * <code>optional string salt = 4;</code>
+              */
+            public java.lang.String getSalt() {
+                java.lang.Object ref = salt_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        salt_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string salt = 4;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getSaltBytes() {
+                java.lang.Object ref = salt_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    salt_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string salt = 4;</code>
+              */
+            public Builder setSalt(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000008;
+                salt_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string salt = 4;</code>
+              */
+            public Builder clearSalt() {
+                bitField0_ = (bitField0_ & ~0x00000008);
+                salt_ = getDefaultInstance().getSalt();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string salt = 4;</code>
+              */
+            public Builder setSaltBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000008;
+                salt_ = value;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object signalingKey_ = "";
+            /**
+              * <code>optional string signalingKey = 5;</code>
+              */
+            public boolean hasSignalingKey() {
+                return ((bitField0_ & 0x00000010) == 0x00000010);
+            }
+            /**
+              * <code>optional string signalingKey = 5;</code>
+              */
+            public java.lang.String getSignalingKey() {
+                java.lang.Object ref = signalingKey_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        signalingKey_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string signalingKey = 5;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getSignalingKeyBytes() {
+                java.lang.Object ref = signalingKey_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    signalingKey_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string signalingKey = 5;</code>
+              */
+            public Builder setSignalingKey(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000010;
+                signalingKey_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string signalingKey = 5;</code>
+              */
+            public Builder clearSignalingKey() {
+                bitField0_ = (bitField0_ & ~0x00000010);
+                signalingKey_ = getDefaultInstance().getSignalingKey();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string signalingKey = 5;</code>
+              */
+            public Builder setSignalingKeyBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000010;
+                signalingKey_ = value;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object gcmId_ = "";
+            /**
+              * <code>optional string gcmId = 6;</code>
+              */
+            public boolean hasGcmId() {
+                return ((bitField0_ & 0x00000020) == 0x00000020);
+            }
+            /**
+              * <code>optional string gcmId = 6;</code>
+              */
+            public java.lang.String getGcmId() {
+                java.lang.Object ref = gcmId_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        gcmId_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string gcmId = 6;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getGcmIdBytes() {
+                java.lang.Object ref = gcmId_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    gcmId_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string gcmId = 6;</code>
+              */
+            public Builder setGcmId(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000020;
+                gcmId_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string gcmId = 6;</code>
+              */
+            public Builder clearGcmId() {
+                bitField0_ = (bitField0_ & ~0x00000020);
+                gcmId_ = getDefaultInstance().getGcmId();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string gcmId = 6;</code>
+              */
+            public Builder setGcmIdBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000020;
+                gcmId_ = value;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object apnId_ = "";
+            /**
+              * <code>optional string apnId = 7;</code>
+              */
+            public boolean hasApnId() {
+                return ((bitField0_ & 0x00000040) == 0x00000040);
+            }
+            /**
+              * <code>optional string apnId = 7;</code>
+              */
+            public java.lang.String getApnId() {
+                java.lang.Object ref = apnId_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        apnId_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string apnId = 7;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getApnIdBytes() {
+                java.lang.Object ref = apnId_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    apnId_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string apnId = 7;</code>
+              */
+            public Builder setApnId(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000040;
+                apnId_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string apnId = 7;</code>
+              */
+            public Builder clearApnId() {
+                bitField0_ = (bitField0_ & ~0x00000040);
+                apnId_ = getDefaultInstance().getApnId();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string apnId = 7;</code>
+              */
+            public Builder setApnIdBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000040;
+                apnId_ = value;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object voipApnId_ = "";
+            /**
+              * <code>optional string voipApnId = 8;</code>
+              */
+            public boolean hasVoipApnId() {
+                return ((bitField0_ & 0x00000080) == 0x00000080);
+            }
+            /**
+              * <code>optional string voipApnId = 8;</code>
+              */
+            public java.lang.String getVoipApnId() {
+                java.lang.Object ref = voipApnId_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        voipApnId_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string voipApnId = 8;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getVoipApnIdBytes() {
+                java.lang.Object ref = voipApnId_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    voipApnId_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string voipApnId = 8;</code>
+              */
+            public Builder setVoipApnId(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000080;
+                voipApnId_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string voipApnId = 8;</code>
+              */
+            public Builder clearVoipApnId() {
+                bitField0_ = (bitField0_ & ~0x00000080);
+                voipApnId_ = getDefaultInstance().getVoipApnId();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string voipApnId = 8;</code>
+              */
+            public Builder setVoipApnIdBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000080;
+                voipApnId_ = value;
+                onChanged();
+                return this;
+            }
+
+            private long pushTimestamp_ ;
+            /**
+              * <code>optional uint64 pushTimestamp = 9;</code>
+              */
+            public boolean hasPushTimestamp() {
+                return ((bitField0_ & 0x00000100) == 0x00000100);
+            }
+            /**
+              * <code>optional uint64 pushTimestamp = 9;</code>
+              */
+            public long getPushTimestamp() {
+                return pushTimestamp_;
+            }
+            /**
+              * <code>optional uint64 pushTimestamp = 9;</code>
+              */
+            public Builder setPushTimestamp(long value) {
+                bitField0_ |= 0x00000100;
+                pushTimestamp_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional uint64 pushTimestamp = 9;</code>
+              */
+            public Builder clearPushTimestamp() {
+                bitField0_ = (bitField0_ & ~0x00000100);
+                pushTimestamp_ = 0L;
+                onChanged();
+                return this;
+            }
+
+            private boolean fetchesMessages_ ;
+            /**
+              * <code>optional bool fetchesMessages = 10;</code>
+              */
+            public boolean hasFetchesMessages() {
+                return ((bitField0_ & 0x00000200) == 0x00000200);
+            }
+            /**
+              * <code>optional bool fetchesMessages = 10;</code>
+              */
+            public boolean getFetchesMessages() {
+                return fetchesMessages_;
+            }
+            /**
+              * <code>optional bool fetchesMessages = 10;</code>
+              */
+            public Builder setFetchesMessages(boolean value) {
+                bitField0_ |= 0x00000200;
+                fetchesMessages_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional bool fetchesMessages = 10;</code>
+              */
+            public Builder clearFetchesMessages() {
+                bitField0_ = (bitField0_ & ~0x00000200);
+                fetchesMessages_ = false;
+                onChanged();
+                return this;
+            }
+
+            private int registrationId_ ;
+            /**
+              * <code>optional uint32 registrationId = 11;</code>
+              */
+            public boolean hasRegistrationId() {
+                return ((bitField0_ & 0x00000400) == 0x00000400);
+            }
+            /**
+              * <code>optional uint32 registrationId = 11;</code>
+              */
+            public int getRegistrationId() {
+                return registrationId_;
+            }
+            /**
+              * <code>optional uint32 registrationId = 11;</code>
+              */
+            public Builder setRegistrationId(int value) {
+                bitField0_ |= 0x00000400;
+                registrationId_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional uint32 registrationId = 11;</code>
+              */
+            public Builder clearRegistrationId() {
+                bitField0_ = (bitField0_ & ~0x00000400);
+                registrationId_ = 0;
+                onChanged();
+                return this;
+            }
+
+            private org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord signedPreKey_ = org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.getDefaultInstance();
+            private com.google.protobuf.SingleFieldBuilder<
+                    org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord, org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.Builder, org.whisper.signal.storage.AccountProtos.SignedPreKeyRecordOrBuilder> signedPreKeyBuilder_;
+            /**
+              * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+              */
+            public boolean hasSignedPreKey() {
+                return ((bitField0_ & 0x00000800) == 0x00000800);
+            }
+            /**
+              * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+              */
+            public org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord getSignedPreKey() {
+                if (signedPreKeyBuilder_ == null) {
+                    return signedPreKey_;
+                } else {
+                    return signedPreKeyBuilder_.getMessage();
+                }
+            }
+            /**
+              * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+              */
+            public Builder setSignedPreKey(org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord value) {
+                if (signedPreKeyBuilder_ == null) {
+                    if (value == null) {
+                        throw new NullPointerException();
+                    }
+                    signedPreKey_ = value;
+                    onChanged();
+                } else {
+                    signedPreKeyBuilder_.setMessage(value);
+                }
+                bitField0_ |= 0x00000800;
+                return this;
+            }
+            /**
+              * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+              */
+            public Builder setSignedPreKey(
+                    org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.Builder builderForValue) {
+                if (signedPreKeyBuilder_ == null) {
+                    signedPreKey_ = builderForValue.build();
+                    onChanged();
+                } else {
+                    signedPreKeyBuilder_.setMessage(builderForValue.build());
+                }
+                bitField0_ |= 0x00000800;
+                return this;
+            }
+            /**
+              * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+              */
+            public Builder mergeSignedPreKey(org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord value) {
+                if (signedPreKeyBuilder_ == null) {
+                    if (((bitField0_ & 0x00000800) == 0x00000800) &&
+                            signedPreKey_ != org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.getDefaultInstance()) {
+                        signedPreKey_ =
+                            org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.newBuilder(signedPreKey_).mergeFrom(value).buildPartial();
+                    } else {
+                        signedPreKey_ = value;
+                    }
+                    onChanged();
+                } else {
+                    signedPreKeyBuilder_.mergeFrom(value);
+                }
+                bitField0_ |= 0x00000800;
+                return this;
+            }
+            /**
+              * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+              */
+            public Builder clearSignedPreKey() {
+                if (signedPreKeyBuilder_ == null) {
+                    signedPreKey_ = org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.getDefaultInstance();
+                    onChanged();
+                } else {
+                    signedPreKeyBuilder_.clear();
+                }
+                bitField0_ = (bitField0_ & ~0x00000800);
+                return this;
+            }
+            /**
+              * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+              */
+            public org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.Builder getSignedPreKeyBuilder() {
+                bitField0_ |= 0x00000800;
+                onChanged();
+                return getSignedPreKeyFieldBuilder().getBuilder();
+            }
+            /**
+              * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+              */
+            public org.whisper.signal.storage.AccountProtos.SignedPreKeyRecordOrBuilder getSignedPreKeyOrBuilder() {
+                if (signedPreKeyBuilder_ != null) {
+                    return signedPreKeyBuilder_.getMessageOrBuilder();
+                } else {
+                    return signedPreKey_;
+                }
+            }
+            /**
+              * <code>optional .textsecure.SignedPreKeyRecord signedPreKey = 12;</code>
+              */
+            private com.google.protobuf.SingleFieldBuilder<
+                    org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord, org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.Builder, org.whisper.signal.storage.AccountProtos.SignedPreKeyRecordOrBuilder> 
+                    getSignedPreKeyFieldBuilder() {
+                if (signedPreKeyBuilder_ == null) {
+                    signedPreKeyBuilder_ = new com.google.protobuf.SingleFieldBuilder<
+                            org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord, org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.Builder, org.whisper.signal.storage.AccountProtos.SignedPreKeyRecordOrBuilder>(
+                                    getSignedPreKey(),
+                                    getParentForChildren(),
+                                    isClean());
+                    signedPreKey_ = null;
+                }
+                return signedPreKeyBuilder_;
+            }
+
+            private long lastSeen_ ;
+            /**
+              * <code>optional uint64 lastSeen = 13;</code>
+              */
+            public boolean hasLastSeen() {
+                return ((bitField0_ & 0x00001000) == 0x00001000);
+            }
+            /**
+              * <code>optional uint64 lastSeen = 13;</code>
+              */
+            public long getLastSeen() {
+                return lastSeen_;
+            }
+            /**
+              * <code>optional uint64 lastSeen = 13;</code>
+              */
+            public Builder setLastSeen(long value) {
+                bitField0_ |= 0x00001000;
+                lastSeen_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional uint64 lastSeen = 13;</code>
+              */
+            public Builder clearLastSeen() {
+                bitField0_ = (bitField0_ & ~0x00001000);
+                lastSeen_ = 0L;
+                onChanged();
+                return this;
+            }
+
+            private long created_ ;
+            /**
+              * <code>optional uint64 created = 14;</code>
+              */
+            public boolean hasCreated() {
+                return ((bitField0_ & 0x00002000) == 0x00002000);
+            }
+            /**
+              * <code>optional uint64 created = 14;</code>
+              */
+            public long getCreated() {
+                return created_;
+            }
+            /**
+              * <code>optional uint64 created = 14;</code>
+              */
+            public Builder setCreated(long value) {
+                bitField0_ |= 0x00002000;
+                created_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional uint64 created = 14;</code>
+              */
+            public Builder clearCreated() {
+                bitField0_ = (bitField0_ & ~0x00002000);
+                created_ = 0L;
+                onChanged();
+                return this;
+            }
+
+            private boolean voice_ ;
+            /**
+              * <code>optional bool voice = 15;</code>
+              */
+            public boolean hasVoice() {
+                return ((bitField0_ & 0x00004000) == 0x00004000);
+            }
+            /**
+              * <code>optional bool voice = 15;</code>
+              */
+            public boolean getVoice() {
+                return voice_;
+            }
+            /**
+              * <code>optional bool voice = 15;</code>
+              */
+            public Builder setVoice(boolean value) {
+                bitField0_ |= 0x00004000;
+                voice_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional bool voice = 15;</code>
+              */
+            public Builder clearVoice() {
+                bitField0_ = (bitField0_ & ~0x00004000);
+                voice_ = false;
+                onChanged();
+                return this;
+            }
+
+            private boolean video_ ;
+            /**
+              * <code>optional bool video = 16;</code>
+              */
+            public boolean hasVideo() {
+                return ((bitField0_ & 0x00008000) == 0x00008000);
+            }
+            /**
+              * <code>optional bool video = 16;</code>
+              */
+            public boolean getVideo() {
+                return video_;
+            }
+            /**
+              * <code>optional bool video = 16;</code>
+              */
+            public Builder setVideo(boolean value) {
+                bitField0_ |= 0x00008000;
+                video_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional bool video = 16;</code>
+              */
+            public Builder clearVideo() {
+                bitField0_ = (bitField0_ & ~0x00008000);
+                video_ = false;
+                onChanged();
+                return this;
+            }
+
+            private boolean multiReceipts_ ;
+            /**
+              * <code>optional bool multiReceipts = 17;</code>
+              */
+            public boolean hasMultiReceipts() {
+                return ((bitField0_ & 0x00010000) == 0x00010000);
+            }
+            /**
+              * <code>optional bool multiReceipts = 17;</code>
+              */
+            public boolean getMultiReceipts() {
+                return multiReceipts_;
+            }
+            /**
+              * <code>optional bool multiReceipts = 17;</code>
+              */
+            public Builder setMultiReceipts(boolean value) {
+                bitField0_ |= 0x00010000;
+                multiReceipts_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional bool multiReceipts = 17;</code>
+              */
+            public Builder clearMultiReceipts() {
+                bitField0_ = (bitField0_ & ~0x00010000);
+                multiReceipts_ = false;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object userAgent_ = "";
+            /**
+              * <code>optional string userAgent = 18;</code>
+              */
+            public boolean hasUserAgent() {
+                return ((bitField0_ & 0x00020000) == 0x00020000);
+            }
+            /**
+              * <code>optional string userAgent = 18;</code>
+              */
+            public java.lang.String getUserAgent() {
+                java.lang.Object ref = userAgent_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        userAgent_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string userAgent = 18;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getUserAgentBytes() {
+                java.lang.Object ref = userAgent_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    userAgent_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string userAgent = 18;</code>
+              */
+            public Builder setUserAgent(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00020000;
+                userAgent_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string userAgent = 18;</code>
+              */
+            public Builder clearUserAgent() {
+                bitField0_ = (bitField0_ & ~0x00020000);
+                userAgent_ = getDefaultInstance().getUserAgent();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string userAgent = 18;</code>
+              */
+            public Builder setUserAgentBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00020000;
+                userAgent_ = value;
+                onChanged();
+                return this;
+            }
+
+            // @@protoc_insertion_point(builder_scope:textsecure.DeviceRecord)
+        }
+
+        static {
+            defaultInstance = new DeviceRecord(true);
+            defaultInstance.initFields();
+        }
+
+        // @@protoc_insertion_point(class_scope:textsecure.DeviceRecord)
+    }
+
+    public interface SignedPreKeyRecordOrBuilder extends
+            // @@protoc_insertion_point(interface_extends:textsecure.SignedPreKeyRecord)
+            com.google.protobuf.MessageOrBuilder {
+
+        /**
+          * <code>optional uint64 keyId = 1;</code>
+          */
+        boolean hasKeyId();
+        /**
+          * <code>optional uint64 keyId = 1;</code>
+          */
+        long getKeyId();
+
+        /**
+          * <code>optional string publicKey = 2;</code>
+          */
+        boolean hasPublicKey();
+        /**
+          * <code>optional string publicKey = 2;</code>
+          */
+        java.lang.String getPublicKey();
+        /**
+          * <code>optional string publicKey = 2;</code>
+          */
+        com.google.protobuf.ByteString
+                getPublicKeyBytes();
+
+        /**
+          * <code>optional string signature = 3;</code>
+          */
+        boolean hasSignature();
+        /**
+          * <code>optional string signature = 3;</code>
+          */
+        java.lang.String getSignature();
+        /**
+          * <code>optional string signature = 3;</code>
+          */
+        com.google.protobuf.ByteString
+                getSignatureBytes();
+    }
+    /**
+      * Protobuf type {@code textsecure.SignedPreKeyRecord}
+      */
+    public static final class SignedPreKeyRecord extends
+            com.google.protobuf.GeneratedMessage implements
+            // @@protoc_insertion_point(message_implements:textsecure.SignedPreKeyRecord)
+            SignedPreKeyRecordOrBuilder {
+        // Use SignedPreKeyRecord.newBuilder() to construct.
+        private SignedPreKeyRecord(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
+            super(builder);
+            this.unknownFields = builder.getUnknownFields();
+        }
+        private SignedPreKeyRecord(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
+
+        private static final SignedPreKeyRecord defaultInstance;
+        public static SignedPreKeyRecord getDefaultInstance() {
+            return defaultInstance;
+        }
+
+        public SignedPreKeyRecord getDefaultInstanceForType() {
+            return defaultInstance;
+        }
+
+        private final com.google.protobuf.UnknownFieldSet unknownFields;
+        @java.lang.Override
+        public final com.google.protobuf.UnknownFieldSet
+                getUnknownFields() {
+            return this.unknownFields;
+        }
+        private SignedPreKeyRecord(
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            initFields();
+            int mutable_bitField0_ = 0;
+            com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+                    com.google.protobuf.UnknownFieldSet.newBuilder();
+            try {
+                boolean done = false;
+                while (!done) {
+                    int tag = input.readTag();
+                    switch (tag) {
+                        case 0:
+                            done = true;
+                            break;
+                        default: {
+                            if (!parseUnknownField(input, unknownFields,
+                                                                          extensionRegistry, tag)) {
+                                done = true;
+                            }
+                            break;
+                        }
+                        case 8: {
+                            bitField0_ |= 0x00000001;
+                            keyId_ = input.readUInt64();
+                            break;
+                        }
+                        case 18: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000002;
+                            publicKey_ = bs;
+                            break;
+                        }
+                        case 26: {
+                            com.google.protobuf.ByteString bs = input.readBytes();
+                            bitField0_ |= 0x00000004;
+                            signature_ = bs;
+                            break;
+                        }
+                    }
+                }
+            } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+                throw e.setUnfinishedMessage(this);
+            } catch (java.io.IOException e) {
+                throw new com.google.protobuf.InvalidProtocolBufferException(
+                        e.getMessage()).setUnfinishedMessage(this);
+            } finally {
+                this.unknownFields = unknownFields.build();
+                makeExtensionsImmutable();
+            }
+        }
+        public static final com.google.protobuf.Descriptors.Descriptor
+                getDescriptor() {
+            return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_SignedPreKeyRecord_descriptor;
+        }
+
+        protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+                internalGetFieldAccessorTable() {
+            return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_SignedPreKeyRecord_fieldAccessorTable
+                    .ensureFieldAccessorsInitialized(
+                            org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.class, org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.Builder.class);
+        }
+
+        public static com.google.protobuf.Parser<SignedPreKeyRecord> PARSER =
+                new com.google.protobuf.AbstractParser<SignedPreKeyRecord>() {
+            public SignedPreKeyRecord parsePartialFrom(
+                    com.google.protobuf.CodedInputStream input,
+                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                    throws com.google.protobuf.InvalidProtocolBufferException {
+                return new SignedPreKeyRecord(input, extensionRegistry);
+            }
+        };
+
+        @java.lang.Override
+        public com.google.protobuf.Parser<SignedPreKeyRecord> getParserForType() {
+            return PARSER;
+        }
+
+        private int bitField0_;
+        public static final int KEYID_FIELD_NUMBER = 1;
+        private long keyId_;
+        /**
+          * <code>optional uint64 keyId = 1;</code>
+          */
+        public boolean hasKeyId() {
+            return ((bitField0_ & 0x00000001) == 0x00000001);
+        }
+        /**
+          * <code>optional uint64 keyId = 1;</code>
+          */
+        public long getKeyId() {
+            return keyId_;
+        }
+
+        public static final int PUBLICKEY_FIELD_NUMBER = 2;
+        private java.lang.Object publicKey_;
+        /**
+          * <code>optional string publicKey = 2;</code>
+          */
+        public boolean hasPublicKey() {
+            return ((bitField0_ & 0x00000002) == 0x00000002);
+        }
+        /**
+          * <code>optional string publicKey = 2;</code>
+          */
+        public java.lang.String getPublicKey() {
+            java.lang.Object ref = publicKey_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    publicKey_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string publicKey = 2;</code>
+          */
+        public com.google.protobuf.ByteString
+                getPublicKeyBytes() {
+            java.lang.Object ref = publicKey_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                publicKey_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        public static final int SIGNATURE_FIELD_NUMBER = 3;
+        private java.lang.Object signature_;
+        /**
+          * <code>optional string signature = 3;</code>
+          */
+        public boolean hasSignature() {
+            return ((bitField0_ & 0x00000004) == 0x00000004);
+        }
+        /**
+          * <code>optional string signature = 3;</code>
+          */
+        public java.lang.String getSignature() {
+            java.lang.Object ref = signature_;
+            if (ref instanceof java.lang.String) {
+                return (java.lang.String) ref;
+            } else {
+                com.google.protobuf.ByteString bs = 
+                        (com.google.protobuf.ByteString) ref;
+                java.lang.String s = bs.toStringUtf8();
+                if (bs.isValidUtf8()) {
+                    signature_ = s;
+                }
+                return s;
+            }
+        }
+        /**
+          * <code>optional string signature = 3;</code>
+          */
+        public com.google.protobuf.ByteString
+                getSignatureBytes() {
+            java.lang.Object ref = signature_;
+            if (ref instanceof java.lang.String) {
+                com.google.protobuf.ByteString b = 
+                        com.google.protobuf.ByteString.copyFromUtf8(
+                                (java.lang.String) ref);
+                signature_ = b;
+                return b;
+            } else {
+                return (com.google.protobuf.ByteString) ref;
+            }
+        }
+
+        private void initFields() {
+            keyId_ = 0L;
+            publicKey_ = "";
+            signature_ = "";
+        }
+        private byte memoizedIsInitialized = -1;
+        public final boolean isInitialized() {
+            byte isInitialized = memoizedIsInitialized;
+            if (isInitialized == 1) return true;
+            if (isInitialized == 0) return false;
+
+            memoizedIsInitialized = 1;
+            return true;
+        }
+
+        public void writeTo(com.google.protobuf.CodedOutputStream output)
+                                                throws java.io.IOException {
+            getSerializedSize();
+            if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                output.writeUInt64(1, keyId_);
+            }
+            if (((bitField0_ & 0x00000002) == 0x00000002)) {
+                output.writeBytes(2, getPublicKeyBytes());
+            }
+            if (((bitField0_ & 0x00000004) == 0x00000004)) {
+                output.writeBytes(3, getSignatureBytes());
+            }
+            getUnknownFields().writeTo(output);
+        }
+
+        private int memoizedSerializedSize = -1;
+        public int getSerializedSize() {
+            int size = memoizedSerializedSize;
+            if (size != -1) return size;
+
+            size = 0;
+            if (((bitField0_ & 0x00000001) == 0x00000001)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeUInt64Size(1, keyId_);
+            }
+            if (((bitField0_ & 0x00000002) == 0x00000002)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(2, getPublicKeyBytes());
+            }
+            if (((bitField0_ & 0x00000004) == 0x00000004)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeBytesSize(3, getSignatureBytes());
+            }
+            size += getUnknownFields().getSerializedSize();
+            memoizedSerializedSize = size;
+            return size;
+        }
+
+        private static final long serialVersionUID = 0L;
+        @java.lang.Override
+        protected java.lang.Object writeReplace()
+                throws java.io.ObjectStreamException {
+            return super.writeReplace();
+        }
+
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseFrom(
+                com.google.protobuf.ByteString data)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data);
+        }
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseFrom(
+                com.google.protobuf.ByteString data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseFrom(byte[] data)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data);
+        }
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseFrom(
+                byte[] data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
+            return PARSER.parseFrom(data, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseFrom(java.io.InputStream input)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input);
+        }
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseFrom(
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseDelimitedFrom(java.io.InputStream input)
+                throws java.io.IOException {
+            return PARSER.parseDelimitedFrom(input);
+        }
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseDelimitedFrom(
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
+            return PARSER.parseDelimitedFrom(input, extensionRegistry);
+        }
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseFrom(
+                com.google.protobuf.CodedInputStream input)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input);
+        }
+        public static org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parseFrom(
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
+            return PARSER.parseFrom(input, extensionRegistry);
+        }
+
+        public static Builder newBuilder() { return Builder.create(); }
+        public Builder newBuilderForType() { return newBuilder(); }
+        public static Builder newBuilder(org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord prototype) {
+            return newBuilder().mergeFrom(prototype);
+        }
+        public Builder toBuilder() { return newBuilder(this); }
+
+        @java.lang.Override
+        protected Builder newBuilderForType(
+                com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+            Builder builder = new Builder(parent);
+            return builder;
+        }
+        /**
+          * Protobuf type {@code textsecure.SignedPreKeyRecord}
+          */
+        public static final class Builder extends
+                com.google.protobuf.GeneratedMessage.Builder<Builder> implements
+                // @@protoc_insertion_point(builder_implements:textsecure.SignedPreKeyRecord)
+                org.whisper.signal.storage.AccountProtos.SignedPreKeyRecordOrBuilder {
+            public static final com.google.protobuf.Descriptors.Descriptor
+                    getDescriptor() {
+                return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_SignedPreKeyRecord_descriptor;
+            }
+
+            protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+                    internalGetFieldAccessorTable() {
+                return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_SignedPreKeyRecord_fieldAccessorTable
+                        .ensureFieldAccessorsInitialized(
+                                org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.class, org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.Builder.class);
+            }
+
+            // Construct using org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.newBuilder()
+            private Builder() {
+                maybeForceBuilderInitialization();
+            }
+
+            private Builder(
+                    com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+                super(parent);
+                maybeForceBuilderInitialization();
+            }
+            private void maybeForceBuilderInitialization() {
+                if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
+                }
+            }
+            private static Builder create() {
+                return new Builder();
+            }
+
+            public Builder clear() {
+                super.clear();
+                keyId_ = 0L;
+                bitField0_ = (bitField0_ & ~0x00000001);
+                publicKey_ = "";
+                bitField0_ = (bitField0_ & ~0x00000002);
+                signature_ = "";
+                bitField0_ = (bitField0_ & ~0x00000004);
+                return this;
+            }
+
+            public Builder clone() {
+                return create().mergeFrom(buildPartial());
+            }
+
+            public com.google.protobuf.Descriptors.Descriptor
+                    getDescriptorForType() {
+                return org.whisper.signal.storage.AccountProtos.internal_static_textsecure_SignedPreKeyRecord_descriptor;
+            }
+
+            public org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord getDefaultInstanceForType() {
+                return org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.getDefaultInstance();
+            }
+
+            public org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord build() {
+                org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord result = buildPartial();
+                if (!result.isInitialized()) {
+                    throw newUninitializedMessageException(result);
+                }
+                return result;
+            }
+
+            public org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord buildPartial() {
+                org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord result = new org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord(this);
+                int from_bitField0_ = bitField0_;
+                int to_bitField0_ = 0;
+                if (((from_bitField0_ & 0x00000001) == 0x00000001)) {
+                    to_bitField0_ |= 0x00000001;
+                }
+                result.keyId_ = keyId_;
+                if (((from_bitField0_ & 0x00000002) == 0x00000002)) {
+                    to_bitField0_ |= 0x00000002;
+                }
+                result.publicKey_ = publicKey_;
+                if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+                    to_bitField0_ |= 0x00000004;
+                }
+                result.signature_ = signature_;
+                result.bitField0_ = to_bitField0_;
+                onBuilt();
+                return result;
+            }
+
+            public Builder mergeFrom(com.google.protobuf.Message other) {
+                if (other instanceof org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord) {
+                    return mergeFrom((org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord)other);
+                } else {
+                    super.mergeFrom(other);
+                    return this;
+                }
+            }
+
+            public Builder mergeFrom(org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord other) {
+                if (other == org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord.getDefaultInstance()) return this;
+                if (other.hasKeyId()) {
+                    setKeyId(other.getKeyId());
+                }
+                if (other.hasPublicKey()) {
+                    bitField0_ |= 0x00000002;
+                    publicKey_ = other.publicKey_;
+                    onChanged();
+                }
+                if (other.hasSignature()) {
+                    bitField0_ |= 0x00000004;
+                    signature_ = other.signature_;
+                    onChanged();
+                }
+                this.mergeUnknownFields(other.getUnknownFields());
+                return this;
+            }
+
+            public final boolean isInitialized() {
+                return true;
+            }
+
+            public Builder mergeFrom(
+                    com.google.protobuf.CodedInputStream input,
+                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                    throws java.io.IOException {
+                org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord parsedMessage = null;
+                try {
+                    parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+                } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+                    parsedMessage = (org.whisper.signal.storage.AccountProtos.SignedPreKeyRecord) e.getUnfinishedMessage();
+                    throw e;
+                } finally {
+                    if (parsedMessage != null) {
+                        mergeFrom(parsedMessage);
+                    }
+                }
+                return this;
+            }
+            private int bitField0_;
+
+            private long keyId_ ;
+            /**
+              * <code>optional uint64 keyId = 1;</code>
+              */
+            public boolean hasKeyId() {
+                return ((bitField0_ & 0x00000001) == 0x00000001);
+            }
+            /**
+              * <code>optional uint64 keyId = 1;</code>
+              */
+            public long getKeyId() {
+                return keyId_;
+            }
+            /**
+              * <code>optional uint64 keyId = 1;</code>
+              */
+            public Builder setKeyId(long value) {
+                bitField0_ |= 0x00000001;
+                keyId_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional uint64 keyId = 1;</code>
+              */
+            public Builder clearKeyId() {
+                bitField0_ = (bitField0_ & ~0x00000001);
+                keyId_ = 0L;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object publicKey_ = "";
+            /**
+              * <code>optional string publicKey = 2;</code>
+              */
+            public boolean hasPublicKey() {
+                return ((bitField0_ & 0x00000002) == 0x00000002);
+            }
+            /**
+              * <code>optional string publicKey = 2;</code>
+              */
+            public java.lang.String getPublicKey() {
+                java.lang.Object ref = publicKey_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        publicKey_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string publicKey = 2;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getPublicKeyBytes() {
+                java.lang.Object ref = publicKey_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    publicKey_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string publicKey = 2;</code>
+              */
+            public Builder setPublicKey(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000002;
+                publicKey_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string publicKey = 2;</code>
+              */
+            public Builder clearPublicKey() {
+                bitField0_ = (bitField0_ & ~0x00000002);
+                publicKey_ = getDefaultInstance().getPublicKey();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string publicKey = 2;</code>
+              */
+            public Builder setPublicKeyBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000002;
+                publicKey_ = value;
+                onChanged();
+                return this;
+            }
+
+            private java.lang.Object signature_ = "";
+            /**
+              * <code>optional string signature = 3;</code>
+              */
+            public boolean hasSignature() {
+                return ((bitField0_ & 0x00000004) == 0x00000004);
+            }
+            /**
+              * <code>optional string signature = 3;</code>
+              */
+            public java.lang.String getSignature() {
+                java.lang.Object ref = signature_;
+                if (!(ref instanceof java.lang.String)) {
+                    com.google.protobuf.ByteString bs =
+                            (com.google.protobuf.ByteString) ref;
+                    java.lang.String s = bs.toStringUtf8();
+                    if (bs.isValidUtf8()) {
+                        signature_ = s;
+                    }
+                    return s;
+                } else {
+                    return (java.lang.String) ref;
+                }
+            }
+            /**
+              * <code>optional string signature = 3;</code>
+              */
+            public com.google.protobuf.ByteString
+                    getSignatureBytes() {
+                java.lang.Object ref = signature_;
+                if (ref instanceof String) {
+                    com.google.protobuf.ByteString b = 
+                            com.google.protobuf.ByteString.copyFromUtf8(
+                                    (java.lang.String) ref);
+                    signature_ = b;
+                    return b;
+                } else {
+                    return (com.google.protobuf.ByteString) ref;
+                }
+            }
+            /**
+              * <code>optional string signature = 3;</code>
+              */
+            public Builder setSignature(
+                    java.lang.String value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000004;
+                signature_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string signature = 3;</code>
+              */
+            public Builder clearSignature() {
+                bitField0_ = (bitField0_ & ~0x00000004);
+                signature_ = getDefaultInstance().getSignature();
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional string signature = 3;</code>
+              */
+            public Builder setSignatureBytes(
+                    com.google.protobuf.ByteString value) {
+                if (value == null) {
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000004;
+                signature_ = value;
+                onChanged();
+                return this;
+            }
+
+            // @@protoc_insertion_point(builder_scope:textsecure.SignedPreKeyRecord)
+        }
+
+        static {
+            defaultInstance = new SignedPreKeyRecord(true);
+            defaultInstance.initFields();
+        }
+
+        // @@protoc_insertion_point(class_scope:textsecure.SignedPreKeyRecord)
+    }
+
+    private static final com.google.protobuf.Descriptors.Descriptor
+        internal_static_textsecure_AccountRecord_descriptor;
+    private static
+        com.google.protobuf.GeneratedMessage.FieldAccessorTable
+            internal_static_textsecure_AccountRecord_fieldAccessorTable;
+    private static final com.google.protobuf.Descriptors.Descriptor
+        internal_static_textsecure_DeviceRecord_descriptor;
+    private static
+        com.google.protobuf.GeneratedMessage.FieldAccessorTable
+            internal_static_textsecure_DeviceRecord_fieldAccessorTable;
+    private static final com.google.protobuf.Descriptors.Descriptor
+        internal_static_textsecure_SignedPreKeyRecord_descriptor;
+    private static
+        com.google.protobuf.GeneratedMessage.FieldAccessorTable
+            internal_static_textsecure_SignedPreKeyRecord_fieldAccessorTable;
+
+    public static com.google.protobuf.Descriptors.FileDescriptor
+            getDescriptor() {
+        return descriptor;
+    }
+    private static com.google.protobuf.Descriptors.FileDescriptor
+            descriptor;
+    static {
+        java.lang.String[] descriptorData = {
+            "\n\023AccountRecord.proto\022\ntextsecure\"_\n\rAcc" +
+            "ountRecord\022\016\n\006number\030\001 \001(\t\022\023\n\013identityKe" +
+            "y\030\002 \001(\t\022)\n\007devices\030\003 \003(\0132\030.textsecure.De" +
+            "viceRecord\"\371\002\n\014DeviceRecord\022\n\n\002id\030\001 \001(\004\022" +
+            "\014\n\004name\030\002 \001(\t\022\021\n\tauthToken\030\003 \001(\t\022\014\n\004salt" +
+            "\030\004 \001(\t\022\024\n\014signalingKey\030\005 \001(\t\022\r\n\005gcmId\030\006 " +
+            "\001(\t\022\r\n\005apnId\030\007 \001(\t\022\021\n\tvoipApnId\030\010 \001(\t\022\025\n" +
+            "\rpushTimestamp\030\t \001(\004\022\027\n\017fetchesMessages\030" +
+            "\n \001(\010\022\026\n\016registrationId\030\013 \001(\r\0224\n\014signedP" +
+            "reKey\030\014 \001(\0132\036.textsecure.SignedPreKeyRec",
+            "ord\022\020\n\010lastSeen\030\r \001(\004\022\017\n\007created\030\016 \001(\004\022\r" +
+            "\n\005voice\030\017 \001(\010\022\r\n\005video\030\020 \001(\010\022\025\n\rmultiRec" +
+            "eipts\030\021 \001(\010\022\021\n\tuserAgent\030\022 \001(\t\"I\n\022Signed" +
+            "PreKeyRecord\022\r\n\005keyId\030\001 \001(\004\022\021\n\tpublicKey" +
+            "\030\002 \001(\t\022\021\n\tsignature\030\003 \001(\tB+\n\032org.whisper" +
+            ".signal.storageB\rAccountProtos"
+        };
+        com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
+                new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
+                    public com.google.protobuf.ExtensionRegistry assignDescriptors(
+                            com.google.protobuf.Descriptors.FileDescriptor root) {
+                        descriptor = root;
+                        return null;
+                    }
+                };
+        com.google.protobuf.Descriptors.FileDescriptor
+            .internalBuildGeneratedFileFrom(descriptorData,
+                new com.google.protobuf.Descriptors.FileDescriptor[] {
+                }, assigner);
+        internal_static_textsecure_AccountRecord_descriptor =
+            getDescriptor().getMessageTypes().get(0);
+        internal_static_textsecure_AccountRecord_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+                internal_static_textsecure_AccountRecord_descriptor,
+                new java.lang.String[] { "Number", "IdentityKey", "Devices", });
+        internal_static_textsecure_DeviceRecord_descriptor =
+            getDescriptor().getMessageTypes().get(1);
+        internal_static_textsecure_DeviceRecord_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+                internal_static_textsecure_DeviceRecord_descriptor,
+                new java.lang.String[] { "Id", "Name", "AuthToken", "Salt", "SignalingKey", "GcmId", "ApnId", "VoipApnId", "PushTimestamp", "FetchesMessages", "RegistrationId", "SignedPreKey", "LastSeen", "Created", "Voice", "Video", "MultiReceipts", "UserAgent", });
+        internal_static_textsecure_SignedPreKeyRecord_descriptor =
+            getDescriptor().getMessageTypes().get(2);
+        internal_static_textsecure_SignedPreKeyRecord_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+                internal_static_textsecure_SignedPreKeyRecord_descriptor,
+                new java.lang.String[] { "KeyId", "PublicKey", "Signature", });
+    }
+
+    // @@protoc_insertion_point(outer_class_scope)
+}
@@ -20,10 +20,13 @@ import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.Binder;
 import org.skife.jdbi.v2.sqlobject.BinderFactory;
 import org.skife.jdbi.v2.sqlobject.BindingAnnotation;
+import org.skife.jdbi.v2.sqlobject.CreateSqlObject;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.Transaction;
 import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
+import org.skife.jdbi.v2.tweak.Argument;
 import org.skife.jdbi.v2.tweak.ResultSetMapper;
 import org.whisper.signal.util.SystemMapper;
 
@@ -33,9 +36,10 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
 
 public abstract class Accounts {
@@ -46,6 +50,45 @@ public abstract class Accounts {
 
     private static final ObjectMapper mapper = SystemMapper.getMapper();
 
+    // Clears push fields on one device in place, leaving the rest of the account document alone.
+    // Only a device whose token still matches, and wasn't re-registered after the cutoff, is touched.
+    private static final String CLEAR_DEVICE_FIELDS =
+        "UPDATE accounts SET " + DATA + " = CAST(jsonb_set(CAST(" + DATA + " AS jsonb), '{devices}', "
+            + "(SELECT jsonb_agg(CASE WHEN device->>'id' = :device_id AND ";
+
+    private static final String CLEAR_DEVICE_FIELDS_FROM =
+        "\\:\\:jsonb ELSE device END ORDER BY position) "
+            + "FROM jsonb_array_elements(CAST(" + DATA + " AS jsonb)->'devices') WITH ORDINALITY AS d(device, position))) AS json) "
+            + "WHERE " + NUMBER + " = :number "
+            + "AND EXISTS (SELECT 1 FROM json_array_elements(" + DATA + "->'devices') device WHERE device->>'id' = :device_id AND ";
+
+    private static final String APN_TOKEN_MATCHES =
+        "(device->>'apnId' = :token OR device->>'voipApnId' = :token) AND (device->>'pushTimestamp')\\:\\:bigint <= :cutoff";
+
+    // GCM ids get the same checks as APN ids. Before the batched path a NotRegistered result
+    // cleared the device's gcmId whatever it held; now a device that re-registered, with a new
+    // id or within the cutoff, keeps its registration and the report is skipped.
+    private static final String GCM_TOKEN_MATCHES =
+        "device->>'gcmId' = :token AND (device->>'pushTimestamp')\\:\\:bigint <= :cutoff";
+
+    // Replaces one device's entry in place, so a concurrent write to another device on the
+    // same account isn't lost. Matches nothing if the stored account doesn't have the device.
+    private static final String REPLACE_DEVICE =
+        "UPDATE accounts SET " + DATA + " = CAST(jsonb_set(CAST(" + DATA + " AS jsonb), '{devices}', "
+            + "(SELECT jsonb_agg(CASE WHEN device->>'id' = :device_id THEN CAST(:device AS jsonb) ELSE device END ORDER BY position) "
+            + "FROM jsonb_array_elements(CAST(" + DATA + " AS jsonb)->'devices') WITH ORDINALITY AS d(device, position))) AS json) "
+            + "WHERE " + NUMBER + " = :number "
+            + "AND EXISTS (SELECT 1 FROM json_array_elements(" + DATA + "->'devices') device WHERE device->>'id' = :device_id)";
+
+    // Master devices, with the day they were last seen from the narrow last_seen table when it's newer.
+    private static final String MASTER_DEVICES =
+        "accounts a CROSS JOIN json_array_elements(a.data->'devices') devices "
+            + "LEFT JOIN last_seen ls ON ls.number = a." + NUMBER + " AND ls.device_id = 1 "
+            + "WHERE devices->>'id' = '1' AND ";
+
+    private static final String LAST_SEEN_SINCE =
+        "GREATEST((devices->>'lastSeen')\\:\\:bigint, ls.last_seen) >= :since";
+
     @SqlUpdate("INSERT INTO accounts (" + NUMBER + ", " + DATA + ") VALUES (:number, CAST(:data AS json))")
     abstract void insertStep(@AccountBinder Account account);
 
@@ -55,33 +98,56 @@ public abstract class Accounts {
     @SqlUpdate("UPDATE accounts SET " + DATA + " = CAST(:data AS json) WHERE " + NUMBER + " = :number")
     abstract void update(@AccountBinder Account account);
 
+    @SqlUpdate(REPLACE_DEVICE)
+    public abstract int updateDevice(@Bind("number") String number, @DeviceBinder Device device);
+
     @Mapper(AccountMapper.class)
     @SqlQuery("SELECT * FROM accounts WHERE " + NUMBER + " = :number")
     abstract Account get(@Bind("number") String number);
 
+    @Mapper(AccountMapper.class)
+    @SqlQuery("SELECT * FROM accounts WHERE " + NUMBER + " = ANY(:numbers)")
+    public abstract List<Account> getAll(@NumbersBinder Collection<String> numbers);
+
     @SqlQuery("SELECT COUNT(DISTINCT " + NUMBER + ") from accounts")
     abstract long getCount();
 
     @Mapper(AccountMapper.class)
-    @SqlQuery("SELECT * FROM accounts OFFSET :offset LIMIT :limit")
+    @SqlQuery("SELECT * FROM accounts ORDER BY " + NUMBER + " OFFSET :offset LIMIT :limit")
     abstract List<Account> getAll(@Bind("offset") int offset, @Bind("limit") int length);
 
+    // Keyset page: the next `limit` accounts after `after` in number order, read straight off the number index.
     @Mapper(AccountMapper.class)
-    @SqlQuery("SELECT * FROM accounts")
-    public abstract Iterator<Account> getAll();
+    @SqlQuery("SELECT * FROM accounts WHERE " + NUMBER + " > :after ORDER BY " + NUMBER + " LIMIT :limit")
+    public abstract List<Account> scan(@Bind("after") String afterNumber, @Bind("limit") int limit);
 
-    @SqlQuery("SELECT COUNT(*) FROM accounts a, json_array_elements(a.data->'devices') devices WHERE devices->>'id' = '1' AND (devices->>'gcmId') is not null AND (devices->>'lastSeen')\\:\\:bigint >= :since")
+    @SqlQuery("SELECT COUNT(*) FROM " + MASTER_DEVICES + "(devices->>'gcmId') is not null AND " + LAST_SEEN_SINCE)
     public abstract int getAndroidActiveSinceCount(@Bind("since") long since);
 
-    @SqlQuery("SELECT COUNT(*) FROM accounts a, json_array_elements(a.data->'devices') devices WHERE devices->>'id' = '1' AND (devices->>'apnId') is not null AND (devices->>'lastSeen')\\:\\:bigint >= :since")
+    @SqlQuery("SELECT COUNT(*) FROM " + MASTER_DEVICES + "(devices->>'apnId') is not null AND " + LAST_SEEN_SINCE)
     public abstract int getIosActiveSinceCount(@Bind("since") long since);
 
-    @SqlQuery("SELECT count(*) FROM accounts a, json_array_elements(a.data->'devices') devices WHERE devices->>'id' = '1' AND (devices->>'lastSeen')\\:\\:bigint >= :since AND (devices->>'signedPreKey') is null AND (devices->>'gcmId') is not null")
+    @SqlQuery("SELECT count(*) FROM " + MASTER_DEVICES + LAST_SEEN_SINCE + " AND (devices->>'signedPreKey') is null AND (devices->>'gcmId') is not null")
     public abstract int getUnsignedKeysCount(@Bind("since") long since);
 
+    @SqlBatch(CLEAR_DEVICE_FIELDS + APN_TOKEN_MATCHES
+        + " THEN device || '{\"apnId\": null, \"voipApnId\": null, \"fetchesMessages\": false}'" + CLEAR_DEVICE_FIELDS_FROM
+        + APN_TOKEN_MATCHES + ")")
+    public abstract int[] clearApnIds(@DeviceTokenBinder List<DeviceToken> tokens, @Bind("cutoff") long cutoff);
+
+    @SqlBatch(CLEAR_DEVICE_FIELDS + GCM_TOKEN_MATCHES
+        + " THEN device || '{\"gcmId\": null, \"fetchesMessages\": false}'" + CLEAR_DEVICE_FIELDS_FROM
+        + GCM_TOKEN_MATCHES + ")")
+    public abstract int[] clearGcmIds(@DeviceTokenBinder List<DeviceToken> tokens, @Bind("cutoff") long cutoff);
+
+    @CreateSqlObject
+    abstract LastSeen lastSeen();
+
+    // A re-registration starts with no sightings, like a new account.
     @Transaction(TransactionIsolationLevel.SERIALIZABLE)
     public boolean create(Account account) {
         int rows = removeAccount(account.getNumber());
+        lastSeen().remove(account.getNumber());
         insertStep(account);
 
         return rows == 0;
@@ -106,6 +172,76 @@ public abstract class Accounts {
         }
     }
 
+    @BindingAnnotation(DeviceTokenBinder.DeviceTokenBinderFactory.class)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.PARAMETER})
+    public @interface DeviceTokenBinder {
+
+        public static class DeviceTokenBinderFactory implements BinderFactory {
+
+            @Override
+            public Binder build(Annotation annotation) {
+                return new Binder<DeviceTokenBinder, DeviceToken>() {
+                    @Override
+                    public void bind(SQLStatement<?> sql, DeviceTokenBinder binder, DeviceToken token) {
+                        sql.bind(NUMBER, token.getNumber());
+                        sql.bind("device_id", String.valueOf(token.getDeviceId()));
+                        sql.bind("token", token.getToken());
+                    }
+                };
+            }
+        }
+    }
+
+    @BindingAnnotation(DeviceBinder.DeviceBinderFactory.class)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.PARAMETER})
+    public @interface DeviceBinder {
+
+        public static class DeviceBinderFactory implements BinderFactory {
+
+            @Override
+            public Binder build(Annotation annotation) {
+                return new Binder<DeviceBinder, Device>() {
+                    @Override
+                    public void bind(SQLStatement<?> sql, DeviceBinder binder, Device device) {
+                        try {
+                            sql.bind("device_id", String.valueOf(device.getId()));
+                            sql.bind("device", mapper.writeValueAsString(device));
+                        } catch (JsonProcessingException e) {
+                            throw new IllegalArgumentException(e);
+                        }
+                    }
+                };
+            }
+        }
+    }
+
+    @BindingAnnotation(NumbersBinder.NumbersBinderFactory.class)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({ElementType.PARAMETER})
+    public @interface NumbersBinder {
+
+        public static class NumbersBinderFactory implements BinderFactory {
+
+            @Override
+            public Binder build(Annotation annotation) {
+                return new Binder<NumbersBinder, Collection<String>>() {
+                    @Override
+                    public void bind(SQLStatement<?> sql, NumbersBinder binder, final Collection<String> numbers) {
+                        sql.bind("numbers", new Argument() {
+                            @Override
+                            public void apply(int position, PreparedStatement statement, StatementContext context)
+                                throws SQLException {
+                                statement.setArray(position, statement.getConnection().createArrayOf("text", numbers.toArray()));
+                            }
+                        });
+                    }
+                };
+            }
+        }
+    }
+
     @BindingAnnotation(AccountBinder.AccountBinderFactory.class)
     @Retention(RetentionPolicy.RUNTIME)
     @Target({ElementType.PARAMETER})
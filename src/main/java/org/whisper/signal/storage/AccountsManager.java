@@ -11,38 +11,85 @@
  */
 package org.whisper.signal.storage;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whisper.signal.entities.ClientContact;
-import org.whisper.signal.util.SystemMapper;
+import org.whisper.signal.util.Constants;
 import org.whisper.signal.util.Util;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Transaction;
 
 public class AccountsManager {
 
+    private static final long PUSH_TOKEN_GRACE = TimeUnit.SECONDS.toMillis(10);
+    private static final int CACHE_PATCH_ATTEMPTS = 3;
+    private static final int REPLICA_FILL_SECONDS = 5;
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter cachePatchConflictMeter = metricRegistry.meter(name(AccountsManager.class, "cache_patch_conflict"));
+
     private final Logger logger = LoggerFactory.getLogger(AccountsManager.class);
 
     private final Accounts accounts;
     private final JedisPool cacheClient;
     private final DirectoryManager directory;
-    private final ObjectMapper mapper;
+    private final AccountsNearCache nearCache;
+    private final ReplicaRouter<Accounts> replicas;
 
+    /**
+     * For offline commands: no near-cache here, but changes are still published on the
+     * cache's invalidation channel so running nodes drop their copies. The publisher is
+     * never started, so it doesn't subscribe to anything.
+     */
     public AccountsManager(Accounts accounts,
         DirectoryManager directory,
         JedisPool cacheClient) {
+        this(accounts, directory, cacheClient, new AccountsNearCache(new PubSubManager(cacheClient, null), false, 1, 1, TimeUnit.SECONDS));
+    }
+
+    public AccountsManager(Accounts accounts,
+        DirectoryManager directory,
+        JedisPool cacheClient,
+        AccountsNearCache nearCache) {
+        this(accounts, directory, cacheClient, nearCache, ReplicaRouter.primaryOnly(accounts));
+    }
+
+    /**
+     * @param replicas where cache misses are read from; writes always go to {@code accounts}.
+     */
+    public AccountsManager(Accounts accounts,
+        DirectoryManager directory,
+        JedisPool cacheClient,
+        AccountsNearCache nearCache,
+        ReplicaRouter<Accounts> replicas) {
         this.accounts = accounts;
         this.directory = directory;
         this.cacheClient = cacheClient;
-        this.mapper = SystemMapper.getMapper();
+        this.nearCache = nearCache;
+        this.replicas = replicas;
     }
 
     public long getCount() {
@@ -53,38 +100,194 @@ public class AccountsManager {
         return accounts.getAll(offset, length);
     }
 
-    public Iterator<Account> getAll() {
-        return accounts.getAll();
+    /**
+     * @return up to {@code limit} accounts whose number sorts after {@code afterNumber},
+     *         in number order. Pass an empty string to start from the beginning.
+     */
+    public List<Account> scan(String afterNumber, int limit) {
+        return accounts.scan(afterNumber, limit);
+    }
+
+    /**
+     * Walks every account in number order, {@code fetchSize} rows at a time.
+     *
+     * Each page is a separate keyset query, so the walk doesn't hold a connection or a
+     * snapshot open between pages, and accounts inserted while it runs are neither
+     * skipped nor returned twice.
+     */
+    public Iterator<Account> scanAll(final int fetchSize) {
+        return new AbstractIterator<Account>() {
+            private Iterator<Account> page = Collections.emptyIterator();
+            private String after = "";
+            private boolean exhausted;
+
+            @Override
+            protected Account computeNext() {
+                if (!page.hasNext() && !exhausted) {
+                    List<Account> next = accounts.scan(after, fetchSize);
+
+                    exhausted = next.size() < fetchSize;
+                    page = next.iterator();
+                }
+
+                if (!page.hasNext()) {
+                    return endOfData();
+                }
+
+                Account account = page.next();
+                after = account.getNumber();
+
+                return account;
+            }
+        };
     }
 
     public boolean create(Account account) {
+        replicas.onWrite(account.getNumber());
+
         boolean freshUser = accounts.create(account);
         memcacheSet(account.getNumber(), account);
+        nearCache.invalidate(account.getNumber());
         updateDirectory(account);
 
         return freshUser;
     }
 
     public void update(Account account) {
+        replicas.onWrite(account.getNumber());
         memcacheSet(account.getNumber(), account);
+        nearCache.invalidate(account.getNumber());
         accounts.update(account);
         updateDirectory(account);
     }
 
+    /**
+     * Writes one device back without rewriting the rest of the account, so concurrent
+     * updates to different devices on the same account don't overwrite each other. Falls
+     * back to a full {@link #update} if the stored account doesn't have the device yet.
+     */
+    public void updateDevice(Account account, Device device) {
+        replicas.onWrite(account.getNumber());
+
+        if (accounts.updateDevice(account.getNumber(), device) == 0) {
+            update(account);
+            return;
+        }
+
+        memcachePatch(account.getNumber(), device);
+        nearCache.invalidate(account.getNumber());
+        updateDirectory(account);
+    }
+
     public Optional<Account> get(String number) {
-        Optional<Account> account = memcacheGet(number);
+        Optional<Account> account = nearCache.get(number);
+
+        if (account.isPresent()) {
+            return account;
+        }
+
+        long generation = nearCache.getGeneration(number);
+
+        account = memcacheGet(number);
 
         if (!account.isPresent()) {
-            account = Optional.fromNullable(accounts.get(number));
+            Accounts source = replicas.forRead(number);
+
+            account = Optional.fromNullable(source.get(number));
 
             if (account.isPresent()) {
-                memcacheSet(number, account.get());
+                memcacheFill(Collections.singletonList(account.get()), replicas.isPrimary(source));
             }
         }
 
+        if (account.isPresent()) {
+            nearCache.put(account.get(), generation);
+        }
+
         return account;
     }
 
+    /**
+     * Looks up several accounts at once: one MGET against the cache, a single query for
+     * whatever the cache is missing, and one pipeline to put those back in the cache.
+     *
+     * @return the accounts that exist, keyed by number.
+     */
+    public Map<String, Account> getAll(Collection<String> numbers) {
+        Map<String, Account> results = new HashMap<>();
+        Map<String, Long> generations = new HashMap<>();
+        List<String> misses = new LinkedList<>();
+
+        for (String number : new LinkedHashSet<>(numbers)) {
+            Optional<Account> account = nearCache.get(number);
+
+            if (account.isPresent()) {
+                results.put(number, account.get());
+            } else {
+                misses.add(number);
+                generations.put(number, nearCache.getGeneration(number));
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return results;
+        }
+
+        List<Account> loaded = memcacheGetAll(misses);
+        List<String> unknown = new LinkedList<>();
+
+        for (int i = 0; i < misses.size(); i++) {
+            if (loaded.get(i) == null) {
+                unknown.add(misses.get(i));
+            }
+        }
+
+        List<Account> stored = Collections.emptyList();
+
+        if (!unknown.isEmpty()) {
+            Accounts source = replicas.forRead(unknown);
+
+            stored = source.getAll(unknown);
+            memcacheFill(stored, replicas.isPrimary(source));
+        }
+
+        loaded.addAll(stored);
+
+        for (Account account : loaded) {
+            if (account != null) {
+                Long generation = generations.get(account.getNumber());
+
+                results.put(account.getNumber(), account);
+
+                if (generation != null) {
+                    nearCache.put(account, generation);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Clears APN and VoIP ids that APNs reported as unregistered, in one batch.
+     *
+     * @return the tokens that were actually cleared; stale reports are skipped.
+     */
+    public List<DeviceToken> clearApnIds(List<DeviceToken> tokens) {
+        return onPushTokensCleared(tokens, accounts.clearApnIds(tokens, System.currentTimeMillis() - PUSH_TOKEN_GRACE));
+    }
+
+    /**
+     * Clears GCM ids that GCM reported as unregistered or invalid, in one batch. As with APN
+     * ids, a device is only cleared while it still holds the reported id and hasn't
+     * re-registered in the last {@code PUSH_TOKEN_GRACE} milliseconds.
+     *
+     * @return the tokens that were actually cleared; stale reports are skipped.
+     */
+    public List<DeviceToken> clearGcmIds(List<DeviceToken> tokens) {
+        return onPushTokensCleared(tokens, accounts.clearGcmIds(tokens, System.currentTimeMillis() - PUSH_TOKEN_GRACE));
+    }
+
     public boolean isRelayListed(String number) {
         byte[] token = Util.getContactToken(number);
         Optional<ClientContact> contact = directory.get(token);
@@ -92,6 +295,51 @@ public class AccountsManager {
         return contact.isPresent() && !Util.isEmpty(contact.get().getRelay());
     }
 
+    private List<DeviceToken> onPushTokensCleared(List<DeviceToken> tokens, int[] updated) {
+        List<DeviceToken> cleared = new LinkedList<>();
+        Set<String> numbers = new HashSet<>();
+        Set<String> masters = new HashSet<>();
+
+        for (int i = 0; i < tokens.size(); i++) {
+            if (updated[i] > 0) {
+                DeviceToken token = tokens.get(i);
+
+                cleared.add(token);
+                numbers.add(token.getNumber());
+                replicas.onWrite(token.getNumber());
+
+                if (token.getDeviceId() == Device.MASTER_ID) {
+                    masters.add(token.getNumber());
+                }
+            }
+        }
+
+        if (!numbers.isEmpty()) {
+            try (Jedis jedis = cacheClient.getResource()) {
+                Pipeline pipeline = jedis.pipelined();
+
+                for (String number : numbers) {
+                    pipeline.del(getKey(number));
+                }
+
+                pipeline.sync();
+            }
+
+            for (String number : numbers) {
+                nearCache.invalidate(number);
+            }
+        }
+
+        // Losing the master device's push token can deactivate the whole account.
+        if (!masters.isEmpty()) {
+            for (Account account : getAll(masters).values()) {
+                updateDirectory(account);
+            }
+        }
+
+        return cleared;
+    }
+
     private void updateDirectory(Account account) {
         if (account.isActive()) {
             byte[] token = Util.getContactToken(account.getNumber());
@@ -108,18 +356,107 @@ public class AccountsManager {
 
     private void memcacheSet(String number, Account account) {
         try (Jedis jedis = cacheClient.getResource()) {
-            jedis.set(getKey(number), mapper.writeValueAsString(account));
-        } catch (JsonProcessingException e) {
-            throw new IllegalArgumentException(e);
+            jedis.set(getKey(number).getBytes(), AccountCodec.encode(account));
+        }
+    }
+
+    // Swaps the device into the cached account under WATCH, dropping the entry instead if
+    // it keeps losing races with other writers or can't be read.
+    private void memcachePatch(String number, Device device) {
+        byte[] key = getKey(number).getBytes();
+
+        try (Jedis jedis = cacheClient.getResource()) {
+            for (int i = 0; i < CACHE_PATCH_ATTEMPTS; i++) {
+                jedis.watch(key);
+
+                byte[] encoded = jedis.get(key);
+
+                if (encoded == null) {
+                    jedis.unwatch();
+                    return;
+                }
+
+                Account cached = AccountCodec.decode(encoded);
+                cached.addDevice(device);
+
+                Transaction transaction = jedis.multi();
+                transaction.set(key, AccountCodec.encode(cached));
+
+                if (transaction.exec() != null) {
+                    return;
+                }
+            }
+
+            cachePatchConflictMeter.mark();
+            jedis.del(key);
+        } catch (IOException e) {
+            logger.warn("Cache patch error", e);
+
+            try (Jedis jedis = cacheClient.getResource()) {
+                jedis.del(key);
+            }
+        }
+    }
+
+    // Puts accounts read on a cache miss back in the cache. A copy read from a replica may
+    // be behind a write made on another node, so it never replaces an entry a writer put
+    // there and it expires after REPLICA_FILL_SECONDS.
+    private void memcacheFill(List<Account> accounts, boolean fromPrimary) {
+        if (accounts.isEmpty()) {
+            return;
+        }
+
+        try (Jedis jedis = cacheClient.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+
+            for (Account account : accounts) {
+                byte[] key = getKey(account.getNumber()).getBytes();
+
+                if (fromPrimary) {
+                    pipeline.set(key, AccountCodec.encode(account));
+                } else {
+                    pipeline.set(key, AccountCodec.encode(account), "NX".getBytes(), "EX".getBytes(), REPLICA_FILL_SECONDS);
+                }
+            }
+
+            pipeline.sync();
+        }
+    }
+
+    // One entry per number, in order, with null for anything not cached or unreadable.
+    private List<Account> memcacheGetAll(List<String> numbers) {
+        byte[][] keys = new byte[numbers.size()][];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = getKey(numbers.get(i)).getBytes();
+        }
+
+        List<Account> results = new ArrayList<>(keys.length);
+
+        try (Jedis jedis = cacheClient.getResource()) {
+            for (byte[] encoded : jedis.mget(keys)) {
+                results.add(encoded == null ? null : decodeOrNull(encoded));
+            }
+        }
+
+        return results;
+    }
+
+    private Account decodeOrNull(byte[] encoded) {
+        try {
+            return AccountCodec.decode(encoded);
+        } catch (IOException e) {
+            logger.warn("Deserialization error", e);
+            return null;
         }
     }
 
     private Optional<Account> memcacheGet(String number) {
         try (Jedis jedis = cacheClient.getResource()) {
-            String json = jedis.get(getKey(number));
+            byte[] encoded = jedis.get(getKey(number).getBytes());
 
-            if (json != null) {
-                return Optional.of(mapper.readValue(json, Account.class));
+            if (encoded != null) {
+                return Optional.of(AccountCodec.decode(encoded));
             } else {
                 return Optional.absent();
             }
@@ -0,0 +1,201 @@
+package org.whisper.signal.storage;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.dispatch.DispatchChannel;
+import org.whisper.signal.util.Constants;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * Bounded in-process cache of accounts in front of the Redis account cache.
+ *
+ * Entries are copies, and every lookup returns a fresh copy, so callers can keep
+ * mutating the accounts they get back. A change to an account is broadcast on the
+ * {@code account_invalidation} channel so every node drops its copy; entries also
+ * expire after a short TTL in case an invalidation is lost, and the whole cache is
+ * cleared whenever the subscription drops. The cache can be switched off at runtime;
+ * invalidations are still published while it's off, since other nodes may have it on.
+ *
+ * A fill races with invalidations: a reader can load an account just before it changes
+ * and put it here just after the invalidation. Readers take a {@link #getGeneration}
+ * before loading and hand it to {@link #put}, which drops the entry again if an
+ * invalidation for the same stripe of numbers happened in between.
+ */
+public class AccountsNearCache implements Managed, DispatchChannel {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountsNearCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "account_invalidation";
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+
+    private final Cache<String, Account> cache;
+    private final PubSubManager pubSubManager;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private volatile boolean enabled;
+
+    public AccountsNearCache(PubSubManager pubSubManager, boolean enabled, long maxSize, long ttl, TimeUnit unit) {
+        this.pubSubManager = pubSubManager;
+        this.enabled = enabled;
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl, unit)
+            .recordStats()
+            .build();
+
+        registerGauge("hit_ratio", new Gauge<Double>() {
+            @Override
+            public Double getValue() {
+                return cache.stats().hitRate();
+            }
+        });
+
+        registerGauge("size", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.size();
+            }
+        });
+
+        registerGauge("evictions", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return cache.stats().evictionCount();
+            }
+        });
+    }
+
+    @Override
+    public void start() {
+        if (pubSubManager != null) {
+            pubSubManager.subscribe(INVALIDATION_CHANNEL, this);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (pubSubManager != null) {
+            pubSubManager.unsubscribe(INVALIDATION_CHANNEL, this);
+        }
+    }
+
+    public Optional<Account> get(String number) {
+        if (!enabled) {
+            return Optional.absent();
+        }
+
+        Account account = cache.getIfPresent(number);
+
+        if (account == null) {
+            return Optional.absent();
+        }
+
+        return Optional.of(account.copy());
+    }
+
+    /**
+     * @return a token to pass to {@link #put} for an account loaded after this call.
+     */
+    public long getGeneration(String number) {
+        return generations.get(getStripe(number));
+    }
+
+    /**
+     * Caches the account unless it was invalidated since {@code generation} was taken.
+     */
+    public void put(Account account, long generation) {
+        if (!enabled) {
+            return;
+        }
+
+        String number = account.getNumber();
+
+        cache.put(number, account.copy());
+
+        if (generations.get(getStripe(number)) != generation) {
+            cache.invalidate(number);
+        }
+    }
+
+    /**
+     * Drops the account here and asks every other node to do the same.
+     */
+    public void invalidate(String number) {
+        invalidateLocal(number);
+
+        if (pubSubManager != null) {
+            pubSubManager.publish(INVALIDATION_CHANNEL, number.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        logger.info((enabled ? "Enabling" : "Disabling") + " account near-cache");
+
+        this.enabled = enabled;
+        invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    @Override
+    public void onDispatchMessage(String channel, byte[] message) {
+        invalidateLocal(new String(message, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void onDispatchSubscribed(String channel) {
+        invalidateAll();
+    }
+
+    @Override
+    public void onDispatchUnsubscribed(String channel) {
+        logger.warn("Account invalidation channel unsubscribed");
+        invalidateAll();
+    }
+
+    private void invalidateLocal(String number) {
+        generations.incrementAndGet(getStripe(number));
+        cache.invalidate(number);
+    }
+
+    private void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+
+        cache.invalidateAll();
+    }
+
+    private int getStripe(String number) {
+        return (number.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    private void registerGauge(String metric, Gauge<?> gauge) {
+        String metricName = name(AccountsNearCache.class, metric);
+
+        if (!metricRegistry.getGauges().containsKey(metricName)) {
+            metricRegistry.register(metricName, gauge);
+        }
+    }
+}
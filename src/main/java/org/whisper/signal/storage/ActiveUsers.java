@@ -0,0 +1,220 @@
+package org.whisper.signal.storage;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.util.Constants;
+import org.whisper.signal.util.Pair;
+import org.whisper.signal.util.Util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import io.dropwizard.lifecycle.Managed;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisException;
+
+/**
+ * Keeps daily and monthly active counts per platform without scanning the accounts table.
+ *
+ * Each day has one HyperLogLog per {@link Segment} in Redis, and a master device is added to
+ * the ones it belongs to the first time it's seen that day, or when it registers a new push
+ * token. Adds are written behind in pipelined batches. Counting active users since a given
+ * day is a single PFCOUNT over that day's keys through today, which is roughly 0.8% off
+ * the exact figure whatever the number of users.
+ */
+public class ActiveUsers implements Managed, MetricSet {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveUsers.class);
+
+    private static final String PREFIX = "active::";
+    private static final int EXPIRATION_SECONDS = (int) TimeUnit.DAYS.toSeconds(40);
+
+    private static final long FLUSH_INTERVAL = 10000;
+    private static final int BATCH_SIZE = 500;
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter failedMeter = metricRegistry.meter(name(ActiveUsers.class, "failed"));
+
+    public enum Segment {
+        ANDROID, IOS, NO_SIGNED_KEYS
+    }
+
+    private final ConcurrentHashMap<Pair<String, String>, Boolean> pending = new ConcurrentHashMap<>();
+
+    private final JedisPool jedisPool;
+
+    private ScheduledExecutorService executor;
+
+    public ActiveUsers(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /**
+     * Counts the account as active today in every segment its master device falls in.
+     * Other devices are ignored.
+     */
+    public void record(Account account, Device device) {
+        if (!device.isMaster()) {
+            return;
+        }
+
+        long today = TimeUnit.MILLISECONDS.toDays(Util.todayInMillis());
+
+        for (Segment segment : getSegments(device)) {
+            pending.put(new Pair<>(getKey(segment, today), account.getNumber()), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * @return the approximate number of distinct accounts active in the segment on any
+     *         day from {@code sinceDay} through today, both in days since the epoch.
+     */
+    public long getActiveSince(Segment segment, long sinceDay) {
+        long today = TimeUnit.MILLISECONDS.toDays(Util.todayInMillis());
+        List<String> keys = new LinkedList<>();
+
+        for (long day = sinceDay; day <= today; day++) {
+            keys.add(getKey(segment, day));
+        }
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.pfcount(keys.toArray(new String[keys.size()]));
+        }
+    }
+
+    public int getBacklog() {
+        return pending.size();
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        flush();
+    }
+
+    @VisibleForTesting
+    public synchronized void flush() {
+        while (true) {
+            List<Pair<String, String>> batch = drain();
+
+            if (batch.isEmpty() || !write(batch)) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+
+        metrics.put(name(ActiveUsers.class, "backlog"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getBacklog();
+            }
+        });
+
+        return metrics;
+    }
+
+    private List<Pair<String, String>> drain() {
+        List<Pair<String, String>> batch = new ArrayList<>();
+
+        for (Pair<String, String> entry : pending.keySet()) {
+            if (batch.size() >= BATCH_SIZE) break;
+
+            if (pending.remove(entry) != null) {
+                batch.add(entry);
+            }
+        }
+
+        return batch;
+    }
+
+    private boolean write(List<Pair<String, String>> batch) {
+        Map<String, List<String>> byKey = new HashMap<>();
+
+        for (Pair<String, String> entry : batch) {
+            List<String> numbers = byKey.get(entry.first());
+
+            if (numbers == null) {
+                numbers = new LinkedList<>();
+                byKey.put(entry.first(), numbers);
+            }
+
+            numbers.add(entry.second());
+        }
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+
+            for (Map.Entry<String, List<String>> entry : byKey.entrySet()) {
+                pipeline.pfadd(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+                pipeline.expire(entry.getKey(), EXPIRATION_SECONDS);
+            }
+
+            pipeline.sync();
+            return true;
+        } catch (JedisException e) {
+            logger.warn("Active users flush", e);
+            failedMeter.mark(batch.size());
+
+            for (Pair<String, String> entry : batch) {
+                pending.putIfAbsent(entry, Boolean.TRUE);
+            }
+
+            return false;
+        }
+    }
+
+    private List<Segment> getSegments(Device device) {
+        List<Segment> segments = new LinkedList<>();
+
+        if (!Util.isEmpty(device.getGcmId())) {
+            segments.add(Segment.ANDROID);
+
+            if (device.getSignedPreKey() == null) {
+                segments.add(Segment.NO_SIGNED_KEYS);
+            }
+        }
+
+        if (!Util.isEmpty(device.getApnId())) {
+            segments.add(Segment.IOS);
+        }
+
+        return segments;
+    }
+
+    private String getKey(Segment segment, long day) {
+        return PREFIX + segment.name().toLowerCase() + "::" + day;
+    }
+}
@@ -70,6 +70,9 @@ public class Device {
     @JsonProperty
     private boolean video;
 
+    @JsonProperty
+    private boolean multiReceipts;
+
     @JsonProperty
     private String userAgent;
 
@@ -180,6 +183,14 @@ public class Device {
         this.video = video;
     }
 
+    public boolean isMultiReceiptsSupported() {
+        return multiReceipts;
+    }
+
+    public void setMultiReceiptsSupported(boolean multiReceipts) {
+        this.multiReceipts = multiReceipts;
+    }
+
     public void setAuthenticationCredentials(AuthenticationCredentials credentials) {
         this.authToken = credentials.getHashedAuthenticationToken();
         this.salt = credentials.getSalt();
@@ -236,6 +247,10 @@ public class Device {
         return pushTimestamp;
     }
 
+    void setPushTimestamp(long pushTimestamp) {
+        this.pushTimestamp = pushTimestamp;
+    }
+
     public void setUserAgent(String userAgent) {
         this.userAgent = userAgent;
     }
@@ -244,6 +259,20 @@ public class Device {
         return this.userAgent;
     }
 
+    /**
+     * @return a copy that can be changed without affecting this device. The signed prekey
+     *         is shared, since it is only ever replaced.
+     */
+    public Device copy() {
+        Device copy = new Device(id, name, authToken, salt, signalingKey, gcmId, apnId, voipApnId,
+            fetchesMessages, registrationId, signedPreKey, lastSeen, created, voice, video, userAgent);
+
+        copy.pushTimestamp = pushTimestamp;
+        copy.multiReceipts = multiReceipts;
+
+        return copy;
+    }
+
     @Override
     public boolean equals(Object other) {
         if (other == null || !(other instanceof Device)) {
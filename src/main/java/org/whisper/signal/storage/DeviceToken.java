@@ -0,0 +1,45 @@
+package org.whisper.signal.storage;
+
+/**
+ * A push token that was registered to one device of an account.
+ */
+public class DeviceToken {
+
+    private final String number;
+    private final long deviceId;
+    private final String token;
+
+    public DeviceToken(String number, long deviceId, String token) {
+        this.number = number;
+        this.deviceId = deviceId;
+        this.token = token;
+    }
+
+    public String getNumber() {
+        return number;
+    }
+
+    public long getDeviceId() {
+        return deviceId;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == null || !(other instanceof DeviceToken)) return false;
+
+        DeviceToken that = (DeviceToken) other;
+
+        return this.number.equals(that.number)
+            && this.deviceId == that.deviceId
+            && this.token.equals(that.token);
+    }
+
+    @Override
+    public int hashCode() {
+        return number.hashCode() ^ (int) deviceId ^ token.hashCode();
+    }
+}
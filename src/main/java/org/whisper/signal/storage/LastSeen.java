@@ -0,0 +1,24 @@
+package org.whisper.signal.storage;
+
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+
+import java.util.List;
+
+/**
+ * Narrow table of the last day each device authenticated, kept outside the account
+ * document so that recording it doesn't rewrite the whole account.
+ */
+public interface LastSeen {
+
+    @SqlBatch("INSERT INTO last_seen (number, device_id, last_seen) VALUES (:number, :device_id, :last_seen) "
+        + "ON CONFLICT (number, device_id) DO UPDATE SET last_seen = EXCLUDED.last_seen WHERE last_seen.last_seen < EXCLUDED.last_seen")
+    void record(@Bind("number") List<String> numbers, @Bind("device_id") List<Long> deviceIds, @Bind("last_seen") List<Long> lastSeen);
+
+    @SqlUpdate("DELETE FROM last_seen WHERE number = :number")
+    void remove(@Bind("number") String number);
+
+    @SqlUpdate("VACUUM last_seen")
+    public void vacuum();
+}
@@ -0,0 +1,199 @@
+package org.whisper.signal.storage;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.util.Constants;
+import org.whisper.signal.util.Pair;
+import org.whisper.signal.util.Util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * Records the day each device last authenticated without rewriting the account.
+ *
+ * Sightings are collapsed per device in memory and written behind to the narrow
+ * {@code last_seen} table in batches every {@code FLUSH_INTERVAL} milliseconds, so the
+ * burst of first authentications after midnight turns into a few batched upserts. The
+ * lastSeen field in the account document, which {@link Device#isActive} reads, is only
+ * refreshed once it falls more than {@code DOCUMENT_INTERVAL} (plus a per-account spread)
+ * behind; that is well inside the 30 and 365 day windows it's checked against.
+ *
+ * The first sighting of a device each day is also counted in {@link ActiveUsers}.
+ */
+public class LastSeenTracker implements Managed, MetricSet {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastSeenTracker.class);
+
+    private static final long FLUSH_INTERVAL = 10000;
+    private static final int BATCH_SIZE = 500;
+    private static final long DOCUMENT_INTERVAL = TimeUnit.DAYS.toMillis(7);
+    private static final int DOCUMENT_SPREAD_DAYS = 7;
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter recordedMeter = metricRegistry.meter(name(LastSeenTracker.class, "recorded"));
+    private static final Meter writtenMeter = metricRegistry.meter(name(LastSeenTracker.class, "written"));
+    private static final Meter failedMeter = metricRegistry.meter(name(LastSeenTracker.class, "failed"));
+    private static final Timer flushTimer = metricRegistry.timer(name(LastSeenTracker.class, "flush"));
+
+    private final ConcurrentHashMap<Pair<String, Long>, Long> pending = new ConcurrentHashMap<>();
+    private final Cache<Pair<String, Long>, Long> written = CacheBuilder.newBuilder()
+        .maximumSize(1000000)
+        .expireAfterWrite(1, TimeUnit.DAYS)
+        .build();
+
+    private final LastSeen lastSeen;
+    private final ActiveUsers activeUsers;
+
+    private ScheduledExecutorService executor;
+
+    public LastSeenTracker(LastSeen lastSeen, ActiveUsers activeUsers) {
+        this.lastSeen = lastSeen;
+        this.activeUsers = activeUsers;
+    }
+
+    /**
+     * Notes that a device authenticated today.
+     *
+     * @return true if the account document's lastSeen for this device is stale enough
+     *         that the caller should update the account as well.
+     */
+    public boolean onAuthenticated(Account account, Device device) {
+        long today = Util.todayInMillis();
+
+        if (device.getLastSeen() >= today) {
+            return false;
+        }
+
+        Pair<String, Long> key = new Pair<>(account.getNumber(), device.getId());
+        Long recorded = written.getIfPresent(key);
+
+        if (recorded == null || recorded < today) {
+            if (pending.put(key, today) == null) {
+                recordedMeter.mark();
+                activeUsers.record(account, device);
+            }
+        }
+
+        return today - device.getLastSeen() >= getDocumentInterval(account.getNumber());
+    }
+
+    public int getBacklog() {
+        return pending.size();
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        flush();
+    }
+
+    @VisibleForTesting
+    public synchronized void flush() {
+        try (Timer.Context timer = flushTimer.time()) {
+            while (true) {
+                Map<Pair<String, Long>, Long> batch = drain();
+
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                if (!write(batch)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+
+        metrics.put(name(LastSeenTracker.class, "backlog"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return getBacklog();
+            }
+        });
+
+        return metrics;
+    }
+
+    private Map<Pair<String, Long>, Long> drain() {
+        Map<Pair<String, Long>, Long> batch = new HashMap<>();
+
+        for (Map.Entry<Pair<String, Long>, Long> entry : pending.entrySet()) {
+            if (batch.size() >= BATCH_SIZE) break;
+
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return batch;
+    }
+
+    private boolean write(Map<Pair<String, Long>, Long> batch) {
+        List<String> numbers = new ArrayList<>(batch.size());
+        List<Long> deviceIds = new ArrayList<>(batch.size());
+        List<Long> days = new ArrayList<>(batch.size());
+
+        for (Map.Entry<Pair<String, Long>, Long> entry : batch.entrySet()) {
+            numbers.add(entry.getKey().first());
+            deviceIds.add(entry.getKey().second());
+            days.add(entry.getValue());
+        }
+
+        try {
+            lastSeen.record(numbers, deviceIds, days);
+            written.putAll(batch);
+            writtenMeter.mark(batch.size());
+
+            return true;
+        } catch (Exception e) {
+            logger.warn("Last seen flush", e);
+            failedMeter.mark(batch.size());
+
+            for (Map.Entry<Pair<String, Long>, Long> entry : batch.entrySet()) {
+                pending.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+
+            return false;
+        }
+    }
+
+    private long getDocumentInterval(String number) {
+        return DOCUMENT_INTERVAL + TimeUnit.DAYS.toMillis((number.hashCode() & Integer.MAX_VALUE) % DOCUMENT_SPREAD_DAYS);
+    }
+}
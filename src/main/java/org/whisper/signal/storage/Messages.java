@@ -1,5 +1,6 @@
 package org.whisper.signal.storage;
 
+import com.google.common.base.Joiner;
 import org.skife.jdbi.v2.SQLStatement;
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.sqlobject.Bind;
@@ -8,6 +9,7 @@ import org.skife.jdbi.v2.sqlobject.BinderFactory;
 import org.skife.jdbi.v2.sqlobject.BindingAnnotation;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.Transaction;
 import org.skife.jdbi.v2.sqlobject.customizers.Mapper;
 import org.skife.jdbi.v2.tweak.ResultSetMapper;
 import org.whisper.signal.entities.MessageProtos.Envelope;
@@ -19,8 +21,10 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.sql.Array;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.LinkedList;
 import java.util.List;
 
 public abstract class Messages {
@@ -37,14 +41,32 @@ public abstract class Messages {
     private static final String DESTINATION_DEVICE = "destination_device";
     private static final String MESSAGE = "message";
     private static final String CONTENT = "content";
+    private static final String TIMESTAMPS = "timestamps";
+
+    // The insert can't share a statement with the queue read: messages has a DO ALSO rule
+    // (bounded_message_queue), and those aren't allowed on data-modifying CTEs.
+    @SqlQuery("SELECT COUNT(*) FILTER (WHERE " + TYPE + " != " + Envelope.Type.RECEIPT_VALUE + ") AS depth, COUNT(*) AS pending, "
+        + "CASE WHEN COUNT(*) <= " + RESULT_SET_CHUNK_SIZE + " THEN ARRAY_AGG(" + ID + ") END AS ahead "
+        + "FROM messages WHERE " + DESTINATION + " = :destination AND " + DESTINATION_DEVICE + " = :destination_device")
+    @Mapper(QueuedMessagesMapper.class)
+    abstract QueuedMessages getQueued(@Bind("destination") String destination,
+        @Bind("destination_device") long destinationDevice);
 
-    @SqlQuery("INSERT INTO messages (" + TYPE + ", " + RELAY + ", " + TIMESTAMP + ", " + SOURCE + ", " + SOURCE_DEVICE + ", " + DESTINATION + ", " + DESTINATION_DEVICE + ", " + MESSAGE + ", " + CONTENT + ") "
-        + "VALUES (:type, :relay, :timestamp, :source, :source_device, :destination, :destination_device, :message, :content) "
-        + "RETURNING (SELECT COUNT(id) FROM messages WHERE " + DESTINATION + " = :destination AND " + DESTINATION_DEVICE + " = :destination_device AND " + TYPE + " != " + Envelope.Type.RECEIPT_VALUE + ")")
-    abstract int store(@MessageBinder Envelope message,
+    @SqlQuery("INSERT INTO messages (" + TYPE + ", " + RELAY + ", " + TIMESTAMP + ", " + SOURCE + ", " + SOURCE_DEVICE + ", " + DESTINATION + ", " + DESTINATION_DEVICE + ", " + MESSAGE + ", " + CONTENT + ", " + TIMESTAMPS + ") "
+        + "VALUES (:type, :relay, :timestamp, :source, :source_device, :destination, :destination_device, :message, :content, :timestamps) "
+        + "RETURNING " + ID)
+    abstract long insert(@MessageBinder Envelope message,
         @Bind("destination") String destination,
         @Bind("destination_device") long destinationDevice);
 
+    @Transaction
+    public StoredMessageInfo store(Envelope message, String destination, long destinationDevice) {
+        QueuedMessages queued = getQueued(destination, destinationDevice);
+        long           id     = insert(message, destination, destinationDevice);
+
+        return new StoredMessageInfo(id, queued.depth, queued.pending, queued.ahead);
+    }
+
     @Mapper(MessageMapper.class)
     @SqlQuery("SELECT * FROM messages WHERE " + DESTINATION + " = :destination AND " + DESTINATION_DEVICE + " = :destination_device  ORDER BY " + TIMESTAMP + " ASC LIMIT " + RESULT_SET_CHUNK_SIZE)
     abstract List<OutgoingMessageEntity> load(@Bind("destination") String destination,
@@ -106,7 +128,53 @@ public abstract class Messages {
                 resultSet.getString(SOURCE),
                 resultSet.getInt(SOURCE_DEVICE),
                 legacyMessage,
-                resultSet.getBytes(CONTENT));
+                resultSet.getBytes(CONTENT),
+                parseTimestamps(resultSet.getString(TIMESTAMPS)));
+        }
+
+        private List<Long> parseTimestamps(String timestamps) {
+            if (timestamps == null || timestamps.isEmpty()) {
+                return null;
+            }
+
+            List<Long> results = new LinkedList<>();
+
+            for (String timestamp : timestamps.split(",")) {
+                results.add(Long.parseLong(timestamp));
+            }
+
+            return results;
+        }
+    }
+
+    public static class QueuedMessagesMapper implements ResultSetMapper<QueuedMessages> {
+
+        @Override
+        public QueuedMessages map(int i, ResultSet resultSet, StatementContext statementContext)
+            throws SQLException {
+            List<Long> ahead = new LinkedList<>();
+            Array      idArray = resultSet.getArray("ahead");
+
+            if (idArray != null) {
+                for (Long id : (Long[]) idArray.getArray()) {
+                    ahead.add(id);
+                }
+            }
+
+            return new QueuedMessages(resultSet.getInt("depth"), resultSet.getInt("pending"), ahead);
+        }
+    }
+
+    // A device's queue as it stood just before an insert.
+    static class QueuedMessages {
+        private final int depth;
+        private final int pending;
+        private final List<Long> ahead;
+
+        private QueuedMessages(int depth, int pending, List<Long> ahead) {
+            this.depth = depth;
+            this.pending = pending;
+            this.ahead = ahead;
         }
     }
 
@@ -131,6 +199,7 @@ public abstract class Messages {
                         sql.bind(SOURCE_DEVICE, message.getSourceDevice());
                         sql.bind(MESSAGE, message.hasLegacyMessage() ? message.getLegacyMessage().toByteArray() : null);
                         sql.bind(CONTENT, message.hasContent() ? message.getContent().toByteArray() : null);
+                        sql.bind(TIMESTAMPS, message.getTimestampsCount() > 0 ? Joiner.on(',').join(message.getTimestampsList()) : null);
                     }
                 };
             }
@@ -15,8 +15,8 @@ public class MessagesManager {
         this.messages = messages;
     }
 
-    public int insert(String destination, long destinationDevice, Envelope message) {
-        return this.messages.store(message, destination, destinationDevice) + 1;
+    public StoredMessageInfo insert(String destination, long destinationDevice, Envelope message) {
+        return this.messages.store(message, destination, destinationDevice);
     }
 
     public OutgoingMessageEntityList getMessagesForDevice(String destination, long destinationDevice) {
@@ -56,6 +56,14 @@ public class PubSubManager implements Managed {
         dispatchManager.unsubscribe(address.serialize(), dispatchChannel);
     }
 
+    public void subscribe(String channel, DispatchChannel dispatchChannel) {
+        dispatchManager.subscribe(channel, dispatchChannel);
+    }
+
+    public void unsubscribe(String channel, DispatchChannel dispatchChannel) {
+        dispatchManager.unsubscribe(channel, dispatchChannel);
+    }
+
     public boolean hasLocalSubscription(PubSubAddress address) {
         return dispatchManager.hasSubscription(address.serialize());
     }
@@ -64,9 +72,17 @@ public class PubSubManager implements Managed {
         return publish(address.serialize().getBytes(), message);
     }
 
+    public boolean publish(String channel, byte[] message) {
+        return publish(channel.getBytes(), message);
+    }
+
     private boolean publish(byte[] channel, PubSubMessage message) {
+        return publish(channel, message.toByteArray());
+    }
+
+    private boolean publish(byte[] channel, byte[] message) {
         try (Jedis jedis = jedisPool.getResource()) {
-            long result = jedis.publish(channel, message.toByteArray());
+            long result = jedis.publish(channel, message);
 
             if (result < 0) {
                 logger.warn("**** Jedis publish result < 0");
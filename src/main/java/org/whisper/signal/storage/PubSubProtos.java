@@ -1,87 +1,115 @@
 // Generated by the protocol buffer compiler.  DO NOT EDIT!
 // source: PubSubMessage.proto
+
 package org.whisper.signal.storage;
 
 public final class PubSubProtos {
-
-    private PubSubProtos() {
-    }
-
+    private PubSubProtos() {}
     public static void registerAllExtensions(
-        com.google.protobuf.ExtensionRegistry registry) {
+            com.google.protobuf.ExtensionRegistry registry) {
     }
+    public interface PubSubMessageOrBuilder extends
+            // @@protoc_insertion_point(interface_extends:textsecure.PubSubMessage)
+            com.google.protobuf.MessageOrBuilder {
 
-    public interface PubSubMessageOrBuilder
-        extends com.google.protobuf.MessageOrBuilder {
-
-        // optional .textsecure.PubSubMessage.Type type = 1;
         /**
-         * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
-         */
+          * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
+          */
         boolean hasType();
-
         /**
-         * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
-         */
+          * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
+          */
         org.whisper.signal.storage.PubSubProtos.PubSubMessage.Type getType();
 
-        // optional bytes content = 2;
         /**
-         * <code>optional bytes content = 2;</code>
-         */
+          * <code>optional bytes content = 2;</code>
+          */
         boolean hasContent();
-
         /**
-         * <code>optional bytes content = 2;</code>
-         */
+          * <code>optional bytes content = 2;</code>
+          */
         com.google.protobuf.ByteString getContent();
-    }
 
+        /**
+          * <code>optional int64 id = 3;</code>
+          *
+          * <pre>
+          * QUERY_DB only: the stored message id carried in content, the number
+          * of messages already stored for the device ahead of it, and their ids
+          * when there are few enough to list.
+          * </pre>
+          */
+        boolean hasId();
+        /**
+          * <code>optional int64 id = 3;</code>
+          *
+          * <pre>
+          * QUERY_DB only: the stored message id carried in content, the number
+          * of messages already stored for the device ahead of it, and their ids
+          * when there are few enough to list.
+          * </pre>
+          */
+        long getId();
+
+        /**
+          * <code>optional uint32 pending = 4;</code>
+          */
+        boolean hasPending();
+        /**
+          * <code>optional uint32 pending = 4;</code>
+          */
+        int getPending();
+
+        /**
+          * <code>repeated int64 ahead = 5;</code>
+          */
+        java.util.List<java.lang.Long> getAheadList();
+        /**
+          * <code>repeated int64 ahead = 5;</code>
+          */
+        int getAheadCount();
+        /**
+          * <code>repeated int64 ahead = 5;</code>
+          */
+        long getAhead(int index);
+    }
     /**
-     * Protobuf type {@code textsecure.PubSubMessage}
-     */
+      * Protobuf type {@code textsecure.PubSubMessage}
+      */
     public static final class PubSubMessage extends
-        com.google.protobuf.GeneratedMessage
-        implements PubSubMessageOrBuilder {
-
+            com.google.protobuf.GeneratedMessage implements
+            // @@protoc_insertion_point(message_implements:textsecure.PubSubMessage)
+            PubSubMessageOrBuilder {
         // Use PubSubMessage.newBuilder() to construct.
-
         private PubSubMessage(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
             super(builder);
             this.unknownFields = builder.getUnknownFields();
         }
-
-        private PubSubMessage(boolean noInit) {
-            this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance();
-        }
+        private PubSubMessage(boolean noInit) { this.unknownFields = com.google.protobuf.UnknownFieldSet.getDefaultInstance(); }
 
         private static final PubSubMessage defaultInstance;
-
         public static PubSubMessage getDefaultInstance() {
             return defaultInstance;
         }
 
-        @Override
         public PubSubMessage getDefaultInstanceForType() {
             return defaultInstance;
         }
 
         private final com.google.protobuf.UnknownFieldSet unknownFields;
-
         @java.lang.Override
         public final com.google.protobuf.UnknownFieldSet
-            getUnknownFields() {
+                getUnknownFields() {
             return this.unknownFields;
         }
-
         private PubSubMessage(
-            com.google.protobuf.CodedInputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             initFields();
             int mutable_bitField0_ = 0;
-            com.google.protobuf.UnknownFieldSet.Builder unknownFields
-                = com.google.protobuf.UnknownFieldSet.newBuilder();
+            com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+                    com.google.protobuf.UnknownFieldSet.newBuilder();
             try {
                 boolean done = false;
                 while (!done) {
@@ -92,7 +120,7 @@ public final class PubSubProtos {
                             break;
                         default: {
                             if (!parseUnknownField(input, unknownFields,
-                                extensionRegistry, tag)) {
+                                                                          extensionRegistry, tag)) {
                                 done = true;
                             }
                             break;
@@ -113,39 +141,73 @@ public final class PubSubProtos {
                             content_ = input.readBytes();
                             break;
                         }
+                        case 24: {
+                            bitField0_ |= 0x00000004;
+                            id_ = input.readInt64();
+                            break;
+                        }
+                        case 32: {
+                            bitField0_ |= 0x00000008;
+                            pending_ = input.readUInt32();
+                            break;
+                        }
+                        case 40: {
+                            if (!((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+                                ahead_ = new java.util.ArrayList<java.lang.Long>();
+                                mutable_bitField0_ |= 0x00000010;
+                            }
+                            ahead_.add(input.readInt64());
+                            break;
+                        }
+                        case 42: {
+                            int length = input.readRawVarint32();
+                            int limit = input.pushLimit(length);
+                            if (!((mutable_bitField0_ & 0x00000010) == 0x00000010) && input.getBytesUntilLimit() > 0) {
+                                ahead_ = new java.util.ArrayList<java.lang.Long>();
+                                mutable_bitField0_ |= 0x00000010;
+                            }
+                            while (input.getBytesUntilLimit() > 0) {
+                                ahead_.add(input.readInt64());
+                            }
+                            input.popLimit(limit);
+                            break;
+                        }
                     }
                 }
             } catch (com.google.protobuf.InvalidProtocolBufferException e) {
                 throw e.setUnfinishedMessage(this);
             } catch (java.io.IOException e) {
                 throw new com.google.protobuf.InvalidProtocolBufferException(
-                    e.getMessage()).setUnfinishedMessage(this);
+                        e.getMessage()).setUnfinishedMessage(this);
             } finally {
+                if (((mutable_bitField0_ & 0x00000010) == 0x00000010)) {
+                    ahead_ = java.util.Collections.unmodifiableList(ahead_);
+                }
                 this.unknownFields = unknownFields.build();
                 makeExtensionsImmutable();
             }
         }
-
         public static final com.google.protobuf.Descriptors.Descriptor
-            getDescriptor() {
+                getDescriptor() {
             return org.whisper.signal.storage.PubSubProtos.internal_static_textsecure_PubSubMessage_descriptor;
         }
 
         protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
-            internalGetFieldAccessorTable() {
+                internalGetFieldAccessorTable() {
             return org.whisper.signal.storage.PubSubProtos.internal_static_textsecure_PubSubMessage_fieldAccessorTable
-                .ensureFieldAccessorsInitialized(org.whisper.signal.storage.PubSubProtos.PubSubMessage.class, org.whisper.signal.storage.PubSubProtos.PubSubMessage.Builder.class);
+                    .ensureFieldAccessorsInitialized(
+                            org.whisper.signal.storage.PubSubProtos.PubSubMessage.class, org.whisper.signal.storage.PubSubProtos.PubSubMessage.Builder.class);
         }
 
-        public static com.google.protobuf.Parser<PubSubMessage> PARSER
-            = new com.google.protobuf.AbstractParser<PubSubMessage>() {
-                public PubSubMessage parsePartialFrom(
+        public static com.google.protobuf.Parser<PubSubMessage> PARSER =
+                new com.google.protobuf.AbstractParser<PubSubMessage>() {
+            public PubSubMessage parsePartialFrom(
                     com.google.protobuf.CodedInputStream input,
                     com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-                throws com.google.protobuf.InvalidProtocolBufferException {
-                    return new PubSubMessage(input, extensionRegistry);
-                }
-            };
+                    throws com.google.protobuf.InvalidProtocolBufferException {
+                return new PubSubMessage(input, extensionRegistry);
+            }
+        };
 
         @java.lang.Override
         public com.google.protobuf.Parser<PubSubMessage> getParserForType() {
@@ -153,114 +215,105 @@ public final class PubSubProtos {
         }
 
         /**
-         * Protobuf enum {@code textsecure.PubSubMessage.Type}
-         */
+          * Protobuf enum {@code textsecure.PubSubMessage.Type}
+          */
         public enum Type
-            implements com.google.protobuf.ProtocolMessageEnum {
-
+                implements com.google.protobuf.ProtocolMessageEnum {
             /**
-             * <code>UNKNOWN = 0;</code>
-             */
+              * <code>UNKNOWN = 0;</code>
+              */
             UNKNOWN(0, 0),
             /**
-             * <code>QUERY_DB = 1;</code>
-             */
+              * <code>QUERY_DB = 1;</code>
+              */
             QUERY_DB(1, 1),
             /**
-             * <code>DELIVER = 2;</code>
-             */
+              * <code>DELIVER = 2;</code>
+              */
             DELIVER(2, 2),
             /**
-             * <code>KEEPALIVE = 3;</code>
-             */
+              * <code>KEEPALIVE = 3;</code>
+              */
             KEEPALIVE(3, 3),
             /**
-             * <code>CLOSE = 4;</code>
-             */
+              * <code>CLOSE = 4;</code>
+              */
             CLOSE(4, 4),
             /**
-             * <code>CONNECTED = 5;</code>
-             */
-            CONNECTED(5, 5),;
+              * <code>CONNECTED = 5;</code>
+              */
+            CONNECTED(5, 5),
+            ;
 
             /**
-             * <code>UNKNOWN = 0;</code>
-             */
+              * <code>UNKNOWN = 0;</code>
+              */
             public static final int UNKNOWN_VALUE = 0;
             /**
-             * <code>QUERY_DB = 1;</code>
-             */
+              * <code>QUERY_DB = 1;</code>
+              */
             public static final int QUERY_DB_VALUE = 1;
             /**
-             * <code>DELIVER = 2;</code>
-             */
+              * <code>DELIVER = 2;</code>
+              */
             public static final int DELIVER_VALUE = 2;
             /**
-             * <code>KEEPALIVE = 3;</code>
-             */
+              * <code>KEEPALIVE = 3;</code>
+              */
             public static final int KEEPALIVE_VALUE = 3;
             /**
-             * <code>CLOSE = 4;</code>
-             */
+              * <code>CLOSE = 4;</code>
+              */
             public static final int CLOSE_VALUE = 4;
             /**
-             * <code>CONNECTED = 5;</code>
-             */
+              * <code>CONNECTED = 5;</code>
+              */
             public static final int CONNECTED_VALUE = 5;
 
-            public final int getNumber() {
-                return value;
-            }
+
+            public final int getNumber() { return value; }
 
             public static Type valueOf(int value) {
                 switch (value) {
-                    case 0:
-                        return UNKNOWN;
-                    case 1:
-                        return QUERY_DB;
-                    case 2:
-                        return DELIVER;
-                    case 3:
-                        return KEEPALIVE;
-                    case 4:
-                        return CLOSE;
-                    case 5:
-                        return CONNECTED;
-                    default:
-                        return null;
+                    case 0: return UNKNOWN;
+                    case 1: return QUERY_DB;
+                    case 2: return DELIVER;
+                    case 3: return KEEPALIVE;
+                    case 4: return CLOSE;
+                    case 5: return CONNECTED;
+                    default: return null;
                 }
             }
 
             public static com.google.protobuf.Internal.EnumLiteMap<Type>
-                internalGetValueMap() {
+                    internalGetValueMap() {
                 return internalValueMap;
             }
-            private static com.google.protobuf.Internal.EnumLiteMap<Type> internalValueMap
-                = new com.google.protobuf.Internal.EnumLiteMap<Type>() {
-                    public Type findValueByNumber(int number) {
-                        return Type.valueOf(number);
-                    }
-                };
+            private static com.google.protobuf.Internal.EnumLiteMap<Type>
+                    internalValueMap =
+                        new com.google.protobuf.Internal.EnumLiteMap<Type>() {
+                            public Type findValueByNumber(int number) {
+                                return Type.valueOf(number);
+                            }
+                        };
 
             public final com.google.protobuf.Descriptors.EnumValueDescriptor
-                getValueDescriptor() {
+                    getValueDescriptor() {
                 return getDescriptor().getValues().get(index);
             }
-
             public final com.google.protobuf.Descriptors.EnumDescriptor
-                getDescriptorForType() {
+                    getDescriptorForType() {
                 return getDescriptor();
             }
-
             public static final com.google.protobuf.Descriptors.EnumDescriptor
-                getDescriptor() {
+                    getDescriptor() {
                 return org.whisper.signal.storage.PubSubProtos.PubSubMessage.getDescriptor().getEnumTypes().get(0);
             }
 
             private static final Type[] VALUES = values();
 
             public static Type valueOf(
-                com.google.protobuf.Descriptors.EnumValueDescriptor desc) {
+                    com.google.protobuf.Descriptors.EnumValueDescriptor desc) {
                 if (desc.getType() != getDescriptor()) {
                     throw new java.lang.IllegalArgumentException(
                         "EnumValueDescriptor is not for this type.");
@@ -280,60 +333,119 @@ public final class PubSubProtos {
         }
 
         private int bitField0_;
-        // optional .textsecure.PubSubMessage.Type type = 1;
         public static final int TYPE_FIELD_NUMBER = 1;
         private org.whisper.signal.storage.PubSubProtos.PubSubMessage.Type type_;
-
         /**
-         * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
-         */
+          * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
+          */
         public boolean hasType() {
             return ((bitField0_ & 0x00000001) == 0x00000001);
         }
-
         /**
-         * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
-         */
+          * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
+          */
         public org.whisper.signal.storage.PubSubProtos.PubSubMessage.Type getType() {
             return type_;
         }
 
-        // optional bytes content = 2;
         public static final int CONTENT_FIELD_NUMBER = 2;
         private com.google.protobuf.ByteString content_;
-
         /**
-         * <code>optional bytes content = 2;</code>
-         */
+          * <code>optional bytes content = 2;</code>
+          */
         public boolean hasContent() {
             return ((bitField0_ & 0x00000002) == 0x00000002);
         }
-
         /**
-         * <code>optional bytes content = 2;</code>
-         */
+          * <code>optional bytes content = 2;</code>
+          */
         public com.google.protobuf.ByteString getContent() {
             return content_;
         }
 
+        public static final int ID_FIELD_NUMBER = 3;
+        private long id_;
+        /**
+          * <code>optional int64 id = 3;</code>
+          *
+          * <pre>
+          * QUERY_DB only: the stored message id carried in content, the number
+          * of messages already stored for the device ahead of it, and their ids
+          * when there are few enough to list.
+          * </pre>
+          */
+        public boolean hasId() {
+            return ((bitField0_ & 0x00000004) == 0x00000004);
+        }
+        /**
+          * <code>optional int64 id = 3;</code>
+          *
+          * <pre>
+          * QUERY_DB only: the stored message id carried in content, the number
+          * of messages already stored for the device ahead of it, and their ids
+          * when there are few enough to list.
+          * </pre>
+          */
+        public long getId() {
+            return id_;
+        }
+
+        public static final int PENDING_FIELD_NUMBER = 4;
+        private int pending_;
+        /**
+          * <code>optional uint32 pending = 4;</code>
+          */
+        public boolean hasPending() {
+            return ((bitField0_ & 0x00000008) == 0x00000008);
+        }
+        /**
+          * <code>optional uint32 pending = 4;</code>
+          */
+        public int getPending() {
+            return pending_;
+        }
+
+        public static final int AHEAD_FIELD_NUMBER = 5;
+        private java.util.List<java.lang.Long> ahead_;
+        /**
+          * <code>repeated int64 ahead = 5;</code>
+          */
+        public java.util.List<java.lang.Long>
+                getAheadList() {
+            return ahead_;
+        }
+        /**
+          * <code>repeated int64 ahead = 5;</code>
+          */
+        public int getAheadCount() {
+            return ahead_.size();
+        }
+        /**
+          * <code>repeated int64 ahead = 5;</code>
+          */
+        public long getAhead(int index) {
+            return ahead_.get(index);
+        }
+
         private void initFields() {
             type_ = org.whisper.signal.storage.PubSubProtos.PubSubMessage.Type.UNKNOWN;
             content_ = com.google.protobuf.ByteString.EMPTY;
+            id_ = 0L;
+            pending_ = 0;
+            ahead_ = java.util.Collections.emptyList();
         }
         private byte memoizedIsInitialized = -1;
-
         public final boolean isInitialized() {
             byte isInitialized = memoizedIsInitialized;
-            if (isInitialized != -1) {
-                return isInitialized == 1;
-            }
+            if (isInitialized == 1) return true;
+            if (isInitialized == 0) return false;
 
             memoizedIsInitialized = 1;
             return true;
         }
 
         public void writeTo(com.google.protobuf.CodedOutputStream output)
-            throws java.io.IOException {
+                                                throws java.io.IOException {
             getSerializedSize();
             if (((bitField0_ & 0x00000001) == 0x00000001)) {
                 output.writeEnum(1, type_.getNumber());
@@ -341,16 +453,22 @@ public final class PubSubProtos {
             if (((bitField0_ & 0x00000002) == 0x00000002)) {
                 output.writeBytes(2, content_);
             }
+            if (((bitField0_ & 0x00000004) == 0x00000004)) {
+                output.writeInt64(3, id_);
+            }
+            if (((bitField0_ & 0x00000008) == 0x00000008)) {
+                output.writeUInt32(4, pending_);
+            }
+            for (int i = 0; i < ahead_.size(); i++) {
+                output.writeInt64(5, ahead_.get(i));
+            }
             getUnknownFields().writeTo(output);
         }
 
         private int memoizedSerializedSize = -1;
-
         public int getSerializedSize() {
             int size = memoizedSerializedSize;
-            if (size != -1) {
-                return size;
-            }
+            if (size != -1) return size;
 
             size = 0;
             if (((bitField0_ & 0x00000001) == 0x00000001)) {
@@ -361,138 +479,134 @@ public final class PubSubProtos {
                 size += com.google.protobuf.CodedOutputStream
                     .computeBytesSize(2, content_);
             }
+            if (((bitField0_ & 0x00000004) == 0x00000004)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeInt64Size(3, id_);
+            }
+            if (((bitField0_ & 0x00000008) == 0x00000008)) {
+                size += com.google.protobuf.CodedOutputStream
+                    .computeUInt32Size(4, pending_);
+            }
+            {
+                int dataSize = 0;
+                for (int i = 0; i < ahead_.size(); i++) {
+                    dataSize += com.google.protobuf.CodedOutputStream
+                        .computeInt64SizeNoTag(ahead_.get(i));
+                }
+                size += dataSize;
+                size += 1 * getAheadList().size();
+            }
             size += getUnknownFields().getSerializedSize();
             memoizedSerializedSize = size;
             return size;
         }
 
         private static final long serialVersionUID = 0L;
-
         @java.lang.Override
         protected java.lang.Object writeReplace()
-            throws java.io.ObjectStreamException {
+                throws java.io.ObjectStreamException {
             return super.writeReplace();
         }
 
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseFrom(
-            com.google.protobuf.ByteString data)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                com.google.protobuf.ByteString data)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data);
         }
-
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseFrom(
-            com.google.protobuf.ByteString data,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                com.google.protobuf.ByteString data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data, extensionRegistry);
         }
-
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseFrom(byte[] data)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data);
         }
-
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseFrom(
-            byte[] data,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws com.google.protobuf.InvalidProtocolBufferException {
+                byte[] data,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws com.google.protobuf.InvalidProtocolBufferException {
             return PARSER.parseFrom(data, extensionRegistry);
         }
-
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseFrom(java.io.InputStream input)
-            throws java.io.IOException {
+                throws java.io.IOException {
             return PARSER.parseFrom(input);
         }
-
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseFrom(
-            java.io.InputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws java.io.IOException {
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
             return PARSER.parseFrom(input, extensionRegistry);
         }
-
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseDelimitedFrom(java.io.InputStream input)
-            throws java.io.IOException {
+                throws java.io.IOException {
             return PARSER.parseDelimitedFrom(input);
         }
-
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseDelimitedFrom(
-            java.io.InputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws java.io.IOException {
+                java.io.InputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
             return PARSER.parseDelimitedFrom(input, extensionRegistry);
         }
-
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseFrom(
-            com.google.protobuf.CodedInputStream input)
-            throws java.io.IOException {
+                com.google.protobuf.CodedInputStream input)
+                throws java.io.IOException {
             return PARSER.parseFrom(input);
         }
-
         public static org.whisper.signal.storage.PubSubProtos.PubSubMessage parseFrom(
-            com.google.protobuf.CodedInputStream input,
-            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-            throws java.io.IOException {
+                com.google.protobuf.CodedInputStream input,
+                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                throws java.io.IOException {
             return PARSER.parseFrom(input, extensionRegistry);
         }
 
-        public static Builder newBuilder() {
-            return Builder.create();
-        }
-
-        public Builder newBuilderForType() {
-            return newBuilder();
-        }
-
+        public static Builder newBuilder() { return Builder.create(); }
+        public Builder newBuilderForType() { return newBuilder(); }
         public static Builder newBuilder(org.whisper.signal.storage.PubSubProtos.PubSubMessage prototype) {
             return newBuilder().mergeFrom(prototype);
         }
-
-        public Builder toBuilder() {
-            return newBuilder(this);
-        }
+        public Builder toBuilder() { return newBuilder(this); }
 
         @java.lang.Override
         protected Builder newBuilderForType(
-            com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+                com.google.protobuf.GeneratedMessage.BuilderParent parent) {
             Builder builder = new Builder(parent);
             return builder;
         }
-
         /**
-         * Protobuf type {@code textsecure.PubSubMessage}
-         */
+          * Protobuf type {@code textsecure.PubSubMessage}
+          */
         public static final class Builder extends
-            com.google.protobuf.GeneratedMessage.Builder<Builder>
-            implements org.whisper.signal.storage.PubSubProtos.PubSubMessageOrBuilder {
-
+                com.google.protobuf.GeneratedMessage.Builder<Builder> implements
+                // @@protoc_insertion_point(builder_implements:textsecure.PubSubMessage)
+                org.whisper.signal.storage.PubSubProtos.PubSubMessageOrBuilder {
             public static final com.google.protobuf.Descriptors.Descriptor
-                getDescriptor() {
+                    getDescriptor() {
                 return org.whisper.signal.storage.PubSubProtos.internal_static_textsecure_PubSubMessage_descriptor;
             }
 
             protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
-                internalGetFieldAccessorTable() {
+                    internalGetFieldAccessorTable() {
                 return org.whisper.signal.storage.PubSubProtos.internal_static_textsecure_PubSubMessage_fieldAccessorTable
-                    .ensureFieldAccessorsInitialized(org.whisper.signal.storage.PubSubProtos.PubSubMessage.class, org.whisper.signal.storage.PubSubProtos.PubSubMessage.Builder.class);
+                        .ensureFieldAccessorsInitialized(
+                                org.whisper.signal.storage.PubSubProtos.PubSubMessage.class, org.whisper.signal.storage.PubSubProtos.PubSubMessage.Builder.class);
             }
 
-            // Construct using org.whispersystems.textsecuregcm.storage.PubSubProtos.PubSubMessage.newBuilder()
+            // Construct using org.whisper.signal.storage.PubSubProtos.PubSubMessage.newBuilder()
             private Builder() {
                 maybeForceBuilderInitialization();
             }
 
             private Builder(
-                com.google.protobuf.GeneratedMessage.BuilderParent parent) {
+                    com.google.protobuf.GeneratedMessage.BuilderParent parent) {
                 super(parent);
                 maybeForceBuilderInitialization();
             }
-
             private void maybeForceBuilderInitialization() {
                 if (com.google.protobuf.GeneratedMessage.alwaysUseFieldBuilders) {
                 }
             }
-
             private static Builder create() {
                 return new Builder();
             }
@@ -503,6 +617,12 @@ public final class PubSubProtos {
                 bitField0_ = (bitField0_ & ~0x00000001);
                 content_ = com.google.protobuf.ByteString.EMPTY;
                 bitField0_ = (bitField0_ & ~0x00000002);
+                id_ = 0L;
+                bitField0_ = (bitField0_ & ~0x00000004);
+                pending_ = 0;
+                bitField0_ = (bitField0_ & ~0x00000008);
+                ahead_ = java.util.Collections.emptyList();
+                bitField0_ = (bitField0_ & ~0x00000010);
                 return this;
             }
 
@@ -511,7 +631,7 @@ public final class PubSubProtos {
             }
 
             public com.google.protobuf.Descriptors.Descriptor
-                getDescriptorForType() {
+                    getDescriptorForType() {
                 return org.whisper.signal.storage.PubSubProtos.internal_static_textsecure_PubSubMessage_descriptor;
             }
 
@@ -539,6 +659,19 @@ public final class PubSubProtos {
                     to_bitField0_ |= 0x00000002;
                 }
                 result.content_ = content_;
+                if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+                    to_bitField0_ |= 0x00000004;
+                }
+                result.id_ = id_;
+                if (((from_bitField0_ & 0x00000008) == 0x00000008)) {
+                    to_bitField0_ |= 0x00000008;
+                }
+                result.pending_ = pending_;
+                if (((bitField0_ & 0x00000010) == 0x00000010)) {
+                    ahead_ = java.util.Collections.unmodifiableList(ahead_);
+                    bitField0_ = (bitField0_ & ~0x00000010);
+                }
+                result.ahead_ = ahead_;
                 result.bitField0_ = to_bitField0_;
                 onBuilt();
                 return result;
@@ -546,7 +679,7 @@ public final class PubSubProtos {
 
             public Builder mergeFrom(com.google.protobuf.Message other) {
                 if (other instanceof org.whisper.signal.storage.PubSubProtos.PubSubMessage) {
-                    return mergeFrom((org.whisper.signal.storage.PubSubProtos.PubSubMessage) other);
+                    return mergeFrom((org.whisper.signal.storage.PubSubProtos.PubSubMessage)other);
                 } else {
                     super.mergeFrom(other);
                     return this;
@@ -554,15 +687,29 @@ public final class PubSubProtos {
             }
 
             public Builder mergeFrom(org.whisper.signal.storage.PubSubProtos.PubSubMessage other) {
-                if (other == org.whisper.signal.storage.PubSubProtos.PubSubMessage.getDefaultInstance()) {
-                    return this;
-                }
+                if (other == org.whisper.signal.storage.PubSubProtos.PubSubMessage.getDefaultInstance()) return this;
                 if (other.hasType()) {
                     setType(other.getType());
                 }
                 if (other.hasContent()) {
                     setContent(other.getContent());
                 }
+                if (other.hasId()) {
+                    setId(other.getId());
+                }
+                if (other.hasPending()) {
+                    setPending(other.getPending());
+                }
+                if (!other.ahead_.isEmpty()) {
+                    if (ahead_.isEmpty()) {
+                        ahead_ = other.ahead_;
+                        bitField0_ = (bitField0_ & ~0x00000010);
+                    } else {
+                        ensureAheadIsMutable();
+                        ahead_.addAll(other.ahead_);
+                    }
+                    onChanged();
+                }
                 this.mergeUnknownFields(other.getUnknownFields());
                 return this;
             }
@@ -572,9 +719,9 @@ public final class PubSubProtos {
             }
 
             public Builder mergeFrom(
-                com.google.protobuf.CodedInputStream input,
-                com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-                throws java.io.IOException {
+                    com.google.protobuf.CodedInputStream input,
+                    com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+                    throws java.io.IOException {
                 org.whisper.signal.storage.PubSubProtos.PubSubMessage parsedMessage = null;
                 try {
                     parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
@@ -590,26 +737,22 @@ public final class PubSubProtos {
             }
             private int bitField0_;
 
-            // optional .textsecure.PubSubMessage.Type type = 1;
             private org.whisper.signal.storage.PubSubProtos.PubSubMessage.Type type_ = org.whisper.signal.storage.PubSubProtos.PubSubMessage.Type.UNKNOWN;
-
             /**
-             * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
-             */
+              * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
+              */
             public boolean hasType() {
                 return ((bitField0_ & 0x00000001) == 0x00000001);
             }
-
             /**
-             * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
-             */
+              * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
+              */
             public org.whisper.signal.storage.PubSubProtos.PubSubMessage.Type getType() {
                 return type_;
             }
-
             /**
-             * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
-             */
+              * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
+              */
             public Builder setType(org.whisper.signal.storage.PubSubProtos.PubSubMessage.Type value) {
                 if (value == null) {
                     throw new NullPointerException();
@@ -619,10 +762,9 @@ public final class PubSubProtos {
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
-             */
+              * <code>optional .textsecure.PubSubMessage.Type type = 1;</code>
+              */
             public Builder clearType() {
                 bitField0_ = (bitField0_ & ~0x00000001);
                 type_ = org.whisper.signal.storage.PubSubProtos.PubSubMessage.Type.UNKNOWN;
@@ -630,39 +772,34 @@ public final class PubSubProtos {
                 return this;
             }
 
-            // optional bytes content = 2;
             private com.google.protobuf.ByteString content_ = com.google.protobuf.ByteString.EMPTY;
-
             /**
-             * <code>optional bytes content = 2;</code>
-             */
+              * <code>optional bytes content = 2;</code>
+              */
             public boolean hasContent() {
                 return ((bitField0_ & 0x00000002) == 0x00000002);
             }
-
             /**
-             * <code>optional bytes content = 2;</code>
-             */
+              * <code>optional bytes content = 2;</code>
+              */
             public com.google.protobuf.ByteString getContent() {
                 return content_;
             }
-
             /**
-             * <code>optional bytes content = 2;</code>
-             */
+              * <code>optional bytes content = 2;</code>
+              */
             public Builder setContent(com.google.protobuf.ByteString value) {
                 if (value == null) {
-                    throw new NullPointerException();
-                }
-                bitField0_ |= 0x00000002;
+        throw new NullPointerException();
+    }
+    bitField0_ |= 0x00000002;
                 content_ = value;
                 onChanged();
                 return this;
             }
-
             /**
-             * <code>optional bytes content = 2;</code>
-             */
+              * <code>optional bytes content = 2;</code>
+              */
             public Builder clearContent() {
                 bitField0_ = (bitField0_ & ~0x00000002);
                 content_ = getDefaultInstance().getContent();
@@ -670,6 +807,160 @@ public final class PubSubProtos {
                 return this;
             }
 
+            private long id_ ;
+            /**
+              * <code>optional int64 id = 3;</code>
+              *
+              * <pre>
+              * QUERY_DB only: the stored message id carried in content, the number
+              * of messages already stored for the device ahead of it, and their ids
+              * when there are few enough to list.
+              * </pre>
+              */
+            public boolean hasId() {
+                return ((bitField0_ & 0x00000004) == 0x00000004);
+            }
+            /**
+              * <code>optional int64 id = 3;</code>
+              *
+              * <pre>
+              * QUERY_DB only: the stored message id carried in content, the number
+              * of messages already stored for the device ahead of it, and their ids
+              * when there are few enough to list.
+              * </pre>
+              */
+            public long getId() {
+                return id_;
+            }
+            /**
+              * <code>optional int64 id = 3;</code>
+              *
+              * <pre>
+              * QUERY_DB only: the stored message id carried in content, the number
+              * of messages already stored for the device ahead of it, and their ids
+              * when there are few enough to list.
+              * </pre>
+              */
+            public Builder setId(long value) {
+                bitField0_ |= 0x00000004;
+                id_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional int64 id = 3;</code>
+              *
+              * <pre>
+              * QUERY_DB only: the stored message id carried in content, the number
+              * of messages already stored for the device ahead of it, and their ids
+              * when there are few enough to list.
+              * </pre>
+              */
+            public Builder clearId() {
+                bitField0_ = (bitField0_ & ~0x00000004);
+                id_ = 0L;
+                onChanged();
+                return this;
+            }
+
+            private int pending_ ;
+            /**
+              * <code>optional uint32 pending = 4;</code>
+              */
+            public boolean hasPending() {
+                return ((bitField0_ & 0x00000008) == 0x00000008);
+            }
+            /**
+              * <code>optional uint32 pending = 4;</code>
+              */
+            public int getPending() {
+                return pending_;
+            }
+            /**
+              * <code>optional uint32 pending = 4;</code>
+              */
+            public Builder setPending(int value) {
+                bitField0_ |= 0x00000008;
+                pending_ = value;
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>optional uint32 pending = 4;</code>
+              */
+            public Builder clearPending() {
+                bitField0_ = (bitField0_ & ~0x00000008);
+                pending_ = 0;
+                onChanged();
+                return this;
+            }
+
+            private java.util.List<java.lang.Long> ahead_ = java.util.Collections.emptyList();
+            private void ensureAheadIsMutable() {
+                if (!((bitField0_ & 0x00000010) == 0x00000010)) {
+                    ahead_ = new java.util.ArrayList<java.lang.Long>(ahead_);
+                    bitField0_ |= 0x00000010;
+                  }
+            }
+            /**
+              * <code>repeated int64 ahead = 5;</code>
+              */
+            public java.util.List<java.lang.Long>
+                    getAheadList() {
+                return java.util.Collections.unmodifiableList(ahead_);
+            }
+            /**
+              * <code>repeated int64 ahead = 5;</code>
+              */
+            public int getAheadCount() {
+                return ahead_.size();
+            }
+            /**
+              * <code>repeated int64 ahead = 5;</code>
+              */
+            public long getAhead(int index) {
+                return ahead_.get(index);
+            }
+            /**
+              * <code>repeated int64 ahead = 5;</code>
+              */
+            public Builder setAhead(
+                    int index, long value) {
+                ensureAheadIsMutable();
+                ahead_.set(index, value);
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>repeated int64 ahead = 5;</code>
+              */
+            public Builder addAhead(long value) {
+                ensureAheadIsMutable();
+                ahead_.add(value);
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>repeated int64 ahead = 5;</code>
+              */
+            public Builder addAllAhead(
+                    java.lang.Iterable<? extends java.lang.Long> values) {
+                ensureAheadIsMutable();
+                com.google.protobuf.AbstractMessageLite.Builder.addAll(
+                        values, ahead_);
+                onChanged();
+                return this;
+            }
+            /**
+              * <code>repeated int64 ahead = 5;</code>
+              */
+            public Builder clearAhead() {
+                ahead_ = java.util.Collections.emptyList();
+                bitField0_ = (bitField0_ & ~0x00000010);
+                onChanged();
+                return this;
+            }
+
             // @@protoc_insertion_point(builder_scope:textsecure.PubSubMessage)
         }
 
@@ -681,42 +972,48 @@ public final class PubSubProtos {
         // @@protoc_insertion_point(class_scope:textsecure.PubSubMessage)
     }
 
-    private static com.google.protobuf.Descriptors.Descriptor internal_static_textsecure_PubSubMessage_descriptor;
-    private static com.google.protobuf.GeneratedMessage.FieldAccessorTable internal_static_textsecure_PubSubMessage_fieldAccessorTable;
+    private static final com.google.protobuf.Descriptors.Descriptor
+        internal_static_textsecure_PubSubMessage_descriptor;
+    private static
+        com.google.protobuf.GeneratedMessage.FieldAccessorTable
+            internal_static_textsecure_PubSubMessage_fieldAccessorTable;
 
     public static com.google.protobuf.Descriptors.FileDescriptor
-        getDescriptor() {
+            getDescriptor() {
         return descriptor;
     }
-    private static com.google.protobuf.Descriptors.FileDescriptor descriptor;
-
+    private static com.google.protobuf.Descriptors.FileDescriptor
+            descriptor;
     static {
         java.lang.String[] descriptorData = {
-            "\n\023PubSubMessage.proto\022\ntextsecure\"\247\001\n\rPu"
-            + "bSubMessage\022,\n\004type\030\001 \001(\0162\036.textsecure.P"
-            + "ubSubMessage.Type\022\017\n\007content\030\002 \001(\014\"W\n\004Ty"
-            + "pe\022\013\n\007UNKNOWN\020\000\022\014\n\010QUERY_DB\020\001\022\013\n\007DELIVER"
-            + "\020\002\022\r\n\tKEEPALIVE\020\003\022\t\n\005CLOSE\020\004\022\r\n\tCONNECTE"
-            + "D\020\005B8\n(org.whispersystems.textsecuregcm."
-            + "storageB\014PubSubProtos"
+            "\n\023PubSubMessage.proto\022\ntextsecure\"\323\001\n\rPu" +
+            "bSubMessage\022,\n\004type\030\001 \001(\0162\036.textsecure.P" +
+            "ubSubMessage.Type\022\017\n\007content\030\002 \001(\014\022\n\n\002id" +
+            "\030\003 \001(\003\022\017\n\007pending\030\004 \001(\r\022\r\n\005ahead\030\005 \003(\003\"W" +
+            "\n\004Type\022\013\n\007UNKNOWN\020\000\022\014\n\010QUERY_DB\020\001\022\013\n\007DEL" +
+            "IVER\020\002\022\r\n\tKEEPALIVE\020\003\022\t\n\005CLOSE\020\004\022\r\n\tCONN" +
+            "ECTED\020\005B*\n\032org.whisper.signal.storageB\014P" +
+            "ubSubProtos"
         };
-        com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner
-            = new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
-                public com.google.protobuf.ExtensionRegistry assignDescriptors(
-                    com.google.protobuf.Descriptors.FileDescriptor root) {
+        com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
+                new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
+                    public com.google.protobuf.ExtensionRegistry assignDescriptors(
+                            com.google.protobuf.Descriptors.FileDescriptor root) {
                         descriptor = root;
-                        internal_static_textsecure_PubSubMessage_descriptor
-                        = getDescriptor().getMessageTypes().get(0);
-                        internal_static_textsecure_PubSubMessage_fieldAccessorTable = new com.google.protobuf.GeneratedMessage.FieldAccessorTable(
-                            internal_static_textsecure_PubSubMessage_descriptor,
-                            new java.lang.String[]{"Type", "Content",});
                         return null;
                     }
-            };
+                };
         com.google.protobuf.Descriptors.FileDescriptor
             .internalBuildGeneratedFileFrom(descriptorData,
-                new com.google.protobuf.Descriptors.FileDescriptor[]{}, assigner);
+                new com.google.protobuf.Descriptors.FileDescriptor[] {
+                }, assigner);
+        internal_static_textsecure_PubSubMessage_descriptor =
+            getDescriptor().getMessageTypes().get(0);
+        internal_static_textsecure_PubSubMessage_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+                internal_static_textsecure_PubSubMessage_descriptor,
+                new java.lang.String[] { "Type", "Content", "Id", "Pending", "Ahead", });
     }
 
-  // @@protoc_insertion_point(outer_class_scope)
+    // @@protoc_insertion_point(outer_class_scope)
 }
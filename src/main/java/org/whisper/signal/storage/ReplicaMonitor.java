@@ -0,0 +1,158 @@
+package org.whisper.signal.storage;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.annotations.VisibleForTesting;
+import org.skife.jdbi.v2.DBI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.util.Constants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * Tracks the replication lag of each read replica of the account database.
+ *
+ * Every {@code probeInterval} milliseconds each replica is asked how far behind it is.
+ * A replica that's more than {@code maxLag} behind, or that couldn't be asked, takes no
+ * reads until a later probe finds it caught up. Until the first probe, no replica does.
+ */
+public class ReplicaMonitor implements Managed, MetricSet {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaMonitor.class);
+
+    private static final long UNKNOWN = Long.MAX_VALUE;
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter probeFailedMeter = metricRegistry.meter(name(ReplicaMonitor.class, "probe_failed"));
+
+    private final List<DBI> replicas;
+    private final List<ReplicationLag> probes = new ArrayList<>();
+    private final AtomicLongArray lags;
+    private final AtomicInteger next = new AtomicInteger();
+    private final long maxLag;
+    private final long probeInterval;
+
+    private ScheduledExecutorService executor;
+
+    public ReplicaMonitor(List<DBI> replicas, long maxLag, long probeInterval) {
+        this.replicas = replicas;
+        this.maxLag = maxLag;
+        this.probeInterval = probeInterval;
+        this.lags = new AtomicLongArray(replicas.size());
+
+        for (int i = 0; i < replicas.size(); i++) {
+            probes.add(replicas.get(i).onDemand(ReplicationLag.class));
+            lags.set(i, UNKNOWN);
+        }
+    }
+
+    /**
+     * @return a router for {@code type}, with one DAO per replica in front of {@code primary}.
+     */
+    public <T> ReplicaRouter<T> route(String name, Class<T> type, T primary) {
+        List<T> daos = new ArrayList<>(replicas.size());
+
+        for (DBI replica : replicas) {
+            daos.add(replica.onDemand(type));
+        }
+
+        return new ReplicaRouter<>(name, primary, daos, this);
+    }
+
+    /**
+     * @return the index of a replica that's caught up, spreading calls over all of them
+     *         round-robin, or -1 if none is.
+     */
+    public int select() {
+        int size = lags.length();
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+
+            if (lags.get(index) <= maxLag) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    public long getProbeInterval() {
+        return probeInterval;
+    }
+
+    @Override
+    public void start() {
+        probe();
+
+        executor = Executors.newSingleThreadScheduledExecutor();
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                probe();
+            }
+        }, probeInterval, probeInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @VisibleForTesting
+    public void probe() {
+        for (int i = 0; i < probes.size(); i++) {
+            try {
+                Long lag = probes.get(i).getLagMillis();
+                lags.set(i, lag == null ? 0 : Math.max(0, lag));
+            } catch (Exception e) {
+                if (lags.getAndSet(i, UNKNOWN) != UNKNOWN) {
+                    logger.warn("Replica " + i + " lag probe failed", e);
+                }
+
+                probeFailedMeter.mark();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+
+        for (int i = 0; i < lags.length(); i++) {
+            final int index = i;
+
+            metrics.put(name(ReplicaMonitor.class, "replica_" + i, "lag"), new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    long lag = lags.get(index);
+                    return lag == UNKNOWN ? -1 : lag;
+                }
+            });
+        }
+
+        return metrics;
+    }
+}
@@ -0,0 +1,114 @@
+package org.whisper.signal.storage;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.skife.jdbi.v2.DBI;
+import org.whisper.signal.util.Constants;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Picks the DAO a read should go to: a replica that's caught up, or else the primary.
+ *
+ * Callers report each write with {@link #onWrite}, and reads of that key stay on the
+ * primary for as long as a replica might still be missing it: the lag a replica is
+ * allowed, plus one probe interval for it to fall further behind unnoticed. That gives
+ * read-your-writes for the rest of the request and anything that follows it on this node.
+ * Other nodes don't know about the write, and can read a stale copy from a replica until
+ * it catches up; callers that cache what they read should check {@link #isPrimary}.
+ */
+public class ReplicaRouter<T> {
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+
+    private final T primary;
+    private final List<T> replicas;
+    private final ReplicaMonitor monitor;
+    private final Cache<String, Boolean> recentWrites;
+    private final Meter replicaMeter;
+    private final Meter primaryMeter;
+    private final Meter laggingMeter;
+
+    ReplicaRouter(String name, T primary, List<T> replicas, ReplicaMonitor monitor) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.monitor = monitor;
+        this.replicaMeter = metricRegistry.meter(name(ReplicaRouter.class, name, "replica"));
+        this.primaryMeter = metricRegistry.meter(name(ReplicaRouter.class, name, "primary"));
+        this.laggingMeter = metricRegistry.meter(name(ReplicaRouter.class, name, "lagging"));
+        this.recentWrites = CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(monitor.getMaxLag() + monitor.getProbeInterval(), TimeUnit.MILLISECONDS)
+            .build();
+
+        String ratioName = name(ReplicaRouter.class, name, "replica_ratio");
+
+        if (!metricRegistry.getGauges().containsKey(ratioName)) {
+            metricRegistry.register(ratioName, new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    return Ratio.of(replicaMeter.getOneMinuteRate(),
+                        replicaMeter.getOneMinuteRate() + primaryMeter.getOneMinuteRate());
+                }
+            });
+        }
+    }
+
+    /**
+     * @return a router that sends everything to {@code primary}.
+     */
+    public static <T> ReplicaRouter<T> primaryOnly(T primary) {
+        return new ReplicaRouter<>("primary_only", primary, Collections.<T>emptyList(),
+            new ReplicaMonitor(Collections.<DBI>emptyList(), 0, 0));
+    }
+
+    public T forRead(String key) {
+        return forRead(Collections.singleton(key));
+    }
+
+    public T forRead(Collection<String> keys) {
+        if (replicas.isEmpty()) {
+            return primary;
+        }
+
+        for (String key : keys) {
+            if (recentWrites.getIfPresent(key) != null) {
+                primaryMeter.mark();
+                return primary;
+            }
+        }
+
+        int index = monitor.select();
+
+        if (index < 0) {
+            laggingMeter.mark();
+            primaryMeter.mark();
+            return primary;
+        }
+
+        replicaMeter.mark();
+        return replicas.get(index);
+    }
+
+    /**
+     * @return whether {@code dao}, as returned by {@link #forRead}, is the primary.
+     */
+    public boolean isPrimary(T dao) {
+        return dao == primary;
+    }
+
+    public void onWrite(String key) {
+        if (!replicas.isEmpty()) {
+            recentWrites.put(key, Boolean.TRUE);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.whisper.signal.storage;
+
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+
+/**
+ * Measures how far a streaming replica is behind its primary.
+ */
+public interface ReplicationLag {
+
+    // Zero once everything received has been replayed, so an idle primary doesn't make
+    // the replica look further and further behind. Null when run against a primary.
+    // This only sees WAL the replica has already received: a replica whose receipt is
+    // behind the primary, a slow or stalled stream, still reads 0 while it has replayed
+    // all of it. Catching that needs the primary's pg_current_xlog_location().
+    @SqlQuery("SELECT CASE WHEN pg_last_xlog_receive_location() = pg_last_xlog_replay_location() THEN 0 "
+        + "ELSE CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS bigint) END")
+    Long getLagMillis();
+}
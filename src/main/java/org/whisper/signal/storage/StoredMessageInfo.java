@@ -0,0 +1,48 @@
+package org.whisper.signal.storage;
+
+import java.util.List;
+
+/**
+ * The result of storing a message: its id, and the state of the device's queue
+ * as seen just before the insert.
+ */
+public class StoredMessageInfo {
+
+    private final long id;
+    private final int depth;
+    private final int pending;
+    private final List<Long> ahead;
+
+    public StoredMessageInfo(long id, int depth, int pending, List<Long> ahead) {
+        this.id = id;
+        this.depth = depth;
+        this.pending = pending;
+        this.ahead = ahead;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the number of non-receipt messages queued, including this one.
+     */
+    public int getQueueDepth() {
+        return depth + 1;
+    }
+
+    /**
+     * @return the number of messages of any type that were already queued ahead of this one.
+     */
+    public int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * @return the ids of the messages queued ahead of this one, or an empty list if there
+     *         were more than a page of them.
+     */
+    public List<Long> getAheadIds() {
+        return ahead;
+    }
+}
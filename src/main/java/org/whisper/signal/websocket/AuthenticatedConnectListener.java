@@ -5,6 +5,8 @@ import com.codahale.metrics.SharedMetricRegistries;
 import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.whisper.signal.push.ApnFallbackManager;
+import org.whisper.signal.push.PushLatencyTracker;
 import org.whisper.signal.push.PushSender;
 import org.whisper.signal.push.ReceiptSender;
 import org.whisper.signal.storage.Account;
@@ -12,11 +14,12 @@ import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.Device;
 import org.whisper.signal.storage.MessagesManager;
 import org.whisper.signal.storage.PubSubManager;
-import org.whisper.signal.storage.PubSubProtos.PubSubMessage;
 import org.whisper.signal.util.Constants;
 import org.whispersystems.websocket.session.WebSocketSessionContext;
 import org.whispersystems.websocket.setup.WebSocketConnectListener;
 
+import java.util.concurrent.Executor;
+
 import static com.codahale.metrics.MetricRegistry.name;
 
 public class AuthenticatedConnectListener implements WebSocketConnectListener {
@@ -30,14 +33,24 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
     private final ReceiptSender receiptSender;
     private final MessagesManager messagesManager;
     private final PubSubManager pubSubManager;
+    private final ApnFallbackManager apnFallbackManager;
+    private final PushLatencyTracker latencyTracker;
+    private final Executor prefetchExecutor;
+    private final WebSocketConnectionRegistry registry;
 
     public AuthenticatedConnectListener(AccountsManager accountsManager, PushSender pushSender,
-        ReceiptSender receiptSender, MessagesManager messagesManager, PubSubManager pubSubManager) {
+        ReceiptSender receiptSender, MessagesManager messagesManager, PubSubManager pubSubManager,
+        ApnFallbackManager apnFallbackManager, PushLatencyTracker latencyTracker, Executor prefetchExecutor,
+        WebSocketConnectionRegistry registry) {
         this.accountsManager = accountsManager;
         this.pushSender = pushSender;
         this.receiptSender = receiptSender;
         this.messagesManager = messagesManager;
         this.pubSubManager = pubSubManager;
+        this.apnFallbackManager = apnFallbackManager;
+        this.latencyTracker = latencyTracker;
+        this.prefetchExecutor = prefetchExecutor;
+        this.registry = registry;
     }
 
     @Override
@@ -46,17 +59,21 @@ public class AuthenticatedConnectListener implements WebSocketConnectListener {
         final Device device = account.getAuthenticatedDevice().get();
         final Timer.Context timer = durationTimer.time();
         final WebsocketAddress address = new WebsocketAddress(account.getNumber(), device.getId());
-        final WebSocketConnectionInfo info = new WebSocketConnectionInfo(address);
         final WebSocketConnection connection = new WebSocketConnection(
             pushSender, receiptSender, messagesManager, account, device, context.getClient());
 
-        pubSubManager.publish(info, PubSubMessage.newBuilder().setType(PubSubMessage.Type.CONNECTED).build());
+        registry.register(address, connection);
+        connection.prefetchStoredMessages(prefetchExecutor);
+
+        apnFallbackManager.cancel(address);
+        latencyTracker.onDeviceArrived(account.getNumber(), device.getId(), PushLatencyTracker.Arrival.WEBSOCKET);
         pubSubManager.subscribe(address, connection);
 
         context.addListener(new WebSocketSessionContext.WebSocketEventListener() {
             @Override
             public void onWebSocketClose(WebSocketSessionContext context, int statusCode, String reason) {
                 pubSubManager.unsubscribe(address, connection);
+                registry.unregister(address, connection);
                 timer.stop();
             }
         });
@@ -0,0 +1,42 @@
+package org.whisper.signal.websocket;
+
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.websocket.WebSocketResourceProviderFactory;
+import org.whispersystems.websocket.setup.WebSocketEnvironment;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * Refuses new websocket sessions with a 503 while this node is draining.
+ */
+public class DrainingWebSocketResourceProviderFactory extends WebSocketResourceProviderFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(DrainingWebSocketResourceProviderFactory.class);
+
+    private final WebSocketConnectionDrainer drainer;
+
+    public DrainingWebSocketResourceProviderFactory(WebSocketEnvironment environment, WebSocketConnectionDrainer drainer)
+        throws ServletException {
+        super(environment);
+        this.drainer = drainer;
+    }
+
+    @Override
+    public Object createWebSocket(ServletUpgradeRequest request, ServletUpgradeResponse response) {
+        if (drainer.isDraining()) {
+            try {
+                response.sendError(503, "Draining");
+            } catch (IOException e) {
+                logger.warn("Failed to reject websocket upgrade", e);
+            }
+
+            return null;
+        }
+
+        return super.createWebSocket(request, response);
+    }
+}
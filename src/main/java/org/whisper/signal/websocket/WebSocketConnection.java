@@ -1,19 +1,21 @@
 package org.whisper.signal.websocket;
 
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whisper.signal.dispatch.DispatchChannel;
 import org.whisper.signal.controllers.MessageController;
-import org.whisper.signal.controllers.NoSuchUserException;
 import org.whisper.signal.entities.CryptoEncodingException;
 import org.whisper.signal.entities.EncryptedOutgoingMessage;
 import org.whisper.signal.entities.OutgoingMessageEntity;
@@ -31,9 +33,21 @@ import org.whispersystems.websocket.messages.WebSocketResponseMessage;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import javax.ws.rs.WebApplicationException;
-import java.io.IOException;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.codahale.metrics.MetricRegistry.name;
 import static org.whisper.signal.entities.MessageProtos.Envelope;
@@ -43,6 +57,14 @@ public class WebSocketConnection implements DispatchChannel {
 
     private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
     public static final Histogram messageTime = metricRegistry.histogram(name(MessageController.class, "message_delivery_duration"));
+    private static final Timer firstMessageTimer = metricRegistry.timer(name(WebSocketConnection.class, "time_to_first_message"));
+    private static final Meter queuedDirectMeter = metricRegistry.meter(name(WebSocketConnection.class, "queued_direct"));
+    private static final Meter queuedGapMeter = metricRegistry.meter(name(WebSocketConnection.class, "queued_gap"));
+    private static final Meter queuedSkippedMeter = metricRegistry.meter(name(WebSocketConnection.class, "queued_skipped"));
+    private static final Meter queueEmptyMeter = metricRegistry.meter(name(WebSocketConnection.class, "queue_empty"));
+
+    private static final int RECENTLY_DELIVERED_LIMIT = 1000;
+    private static final int MAX_FAILED_RELOADS = 3;
 
     private static final Logger logger = LoggerFactory.getLogger(WebSocketConnection.class);
 
@@ -54,6 +76,25 @@ public class WebSocketConnection implements DispatchChannel {
     private final Device device;
     private final WebSocketClient client;
 
+    private final long connectedAt = System.currentTimeMillis();
+    private final AtomicBoolean firstMessageSent = new AtomicBoolean(false);
+    private final AtomicBoolean nodeDraining = new AtomicBoolean(false);
+    private final AtomicBoolean closing = new AtomicBoolean(false);
+    private final AtomicLong lastActivity = new AtomicLong(connectedAt);
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicLong bytesSent = new AtomicLong(0);
+    private final AtomicInteger failedReloads = new AtomicInteger(0);
+    private final Set<Long> inFlightStoredIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+    private final Set<Long> recentlyDelivered = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > RECENTLY_DELIVERED_LIMIT;
+        }
+    }));
+    private final AtomicReference<ListenableFuture<StoredMessagePage>> prefetch = new AtomicReference<>();
+
+    private QueueState queueState = QueueState.DRAINING;
+
     public WebSocketConnection(PushSender pushSender,
         ReceiptSender receiptSender,
         MessagesManager messagesManager,
@@ -75,7 +116,11 @@ public class WebSocketConnection implements DispatchChannel {
 
             switch (pubSubMessage.getType().getNumber()) {
                 case PubSubMessage.Type.QUERY_DB_VALUE:
-                    processStoredMessages();
+                    if (pubSubMessage.hasId() && pubSubMessage.hasContent()) {
+                        processQueuedMessage(pubSubMessage);
+                    } else {
+                        processStoredMessages();
+                    }
                     break;
                 case PubSubMessage.Type.DELIVER_VALUE:
                     sendMessage(Envelope.parseFrom(pubSubMessage.getContent()), Optional.<Long>absent(), false);
@@ -93,8 +138,89 @@ public class WebSocketConnection implements DispatchChannel {
         client.close(1000, "OK");
     }
 
+    @Override
     public void onDispatchSubscribed(String channel) {
-        processStoredMessages();
+        ListenableFuture<StoredMessagePage> prefetched = prefetch.getAndSet(null);
+
+        if (prefetched == null) {
+            processStoredMessages();
+            return;
+        }
+
+        Futures.addCallback(prefetched, new FutureCallback<StoredMessagePage>() {
+            @Override
+            public void onSuccess(@Nullable StoredMessagePage page) {
+                sendStoredMessages(page);
+                // Anything stored between the prefetch and the subscription is picked up here,
+                // the in-flight set keeps us from delivering the prefetched page twice.
+                if (!page.hasMore()) {
+                    processStoredMessages();
+                }
+            }
+
+            @Override
+            public void onFailure(@Nonnull Throwable throwable) {
+                logger.warn("Stored message prefetch failed", throwable);
+                processStoredMessages();
+            }
+        });
+    }
+
+    /**
+     * Delivers a message announced by a QUERY_DB nudge straight from the nudge, without
+     * reloading the queue. If any message stored ahead of it hasn't been loaded or
+     * delivered by this connection, or there were too many to list, the queue is reloaded
+     * instead so nothing is delivered out of order.
+     */
+    private void processQueuedMessage(PubSubMessage pubSubMessage) throws InvalidProtocolBufferException {
+        if (recentlyDelivered.contains(pubSubMessage.getId())) {
+            queuedSkippedMeter.mark();
+            return;
+        }
+
+        if (!isLoadedAhead(pubSubMessage)) {
+            queuedGapMeter.mark();
+            processStoredMessages();
+            return;
+        }
+
+        Envelope message = Envelope.parseFrom(pubSubMessage.getContent());
+
+        if (inFlightStoredIds.add(pubSubMessage.getId())) {
+            queuedDirectMeter.mark();
+            updateQueueState(false);
+            sendMessage(message, Optional.of(pubSubMessage.getId()), false);
+        }
+    }
+
+    private boolean isLoadedAhead(PubSubMessage pubSubMessage) {
+        if (pubSubMessage.getPending() > pubSubMessage.getAheadCount()) {
+            return false;
+        }
+
+        for (long id : pubSubMessage.getAheadList()) {
+            if (!inFlightStoredIds.contains(id) && !recentlyDelivered.contains(id)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Loads and encrypts the first page of stored messages on the given executor, so that
+     * it's ready to send by the time the dispatch subscription has been confirmed.
+     */
+    public void prefetchStoredMessages(Executor executor) {
+        ListenableFutureTask<StoredMessagePage> task = ListenableFutureTask.create(new Callable<StoredMessagePage>() {
+            @Override
+            public StoredMessagePage call() {
+                return loadStoredMessages();
+            }
+        });
+
+        prefetch.set(task);
+        executor.execute(task);
     }
 
     private void sendMessage(final Envelope message,
@@ -102,51 +228,177 @@ public class WebSocketConnection implements DispatchChannel {
         final boolean requery) {
         try {
             EncryptedOutgoingMessage encryptedMessage = new EncryptedOutgoingMessage(message, device.getSignalingKey());
-            Optional<byte[]> body = Optional.fromNullable(encryptedMessage.toByteArray());
-            ListenableFuture<WebSocketResponseMessage> response = client.sendRequest("PUT", "/api/v1/message", null, body);
+            sendMessage(message, encryptedMessage.toByteArray(), storedMessageId, requery);
+        } catch (CryptoEncodingException e) {
+            logger.warn("Bad signaling key", e);
 
-            Futures.addCallback(response, new FutureCallback<WebSocketResponseMessage>() {
-                @Override
-                public void onSuccess(@Nullable WebSocketResponseMessage response) {
-                    boolean isReceipt = message.getType() == Envelope.Type.RECEIPT;
+            if (storedMessageId.isPresent()) {
+                inFlightStoredIds.remove(storedMessageId.get());
+                updateQueueState(true);
+            }
+        }
+    }
 
-                    if (isSuccessResponse(response) && !isReceipt) {
-                        messageTime.update(System.currentTimeMillis() - message.getTimestamp());
-                    }
+    private void sendMessage(final Envelope message,
+        final byte[] encryptedMessage,
+        final Optional<Long> storedMessageId,
+        final boolean requery) {
+        Optional<byte[]> body = Optional.fromNullable(encryptedMessage);
+        ListenableFuture<WebSocketResponseMessage> response = client.sendRequest("PUT", "/api/v1/message", null, body);
+        recordFirstMessage();
 
-                    if (isSuccessResponse(response)) {
-                        if (storedMessageId.isPresent()) {
-                            messagesManager.delete(account.getNumber(), storedMessageId.get());
-                        }
-                        if (!isReceipt) {
-                            sendDeliveryReceiptFor(message);
-                        }
-                        if (requery) {
-                            processStoredMessages();
-                        }
-                    } else if (!isSuccessResponse(response) && !storedMessageId.isPresent()) {
-                        requeueMessage(message);
-                    }
+        inFlight.incrementAndGet();
+        bytesSent.addAndGet(encryptedMessage != null ? encryptedMessage.length : 0);
+        lastActivity.set(System.currentTimeMillis());
+
+        Futures.addCallback(response, new FutureCallback<WebSocketResponseMessage>() {
+            @Override
+            public void onSuccess(@Nullable WebSocketResponseMessage response) {
+                inFlight.decrementAndGet();
+                lastActivity.set(System.currentTimeMillis());
+
+                boolean isReceipt = message.getType() == Envelope.Type.RECEIPT;
+
+                if (isSuccessResponse(response) && !isReceipt) {
+                    messageTime.update(System.currentTimeMillis() - message.getTimestamp());
                 }
 
-                @Override
-                public void onFailure(@Nonnull Throwable throwable) {
-                    if (!storedMessageId.isPresent()) {
-                        requeueMessage(message);
+                if (isSuccessResponse(response)) {
+                    if (storedMessageId.isPresent()) {
+                        messagesManager.delete(account.getNumber(), storedMessageId.get());
+                        recentlyDelivered.add(storedMessageId.get());
+                        inFlightStoredIds.remove(storedMessageId.get());
+                        failedReloads.set(0);
+                        onStoredMessageDelivered();
                     }
+                    if (!isReceipt) {
+                        sendDeliveryReceiptFor(message);
+                    }
+                    if (requery) {
+                        processStoredMessages();
+                    }
+                } else if (!isSuccessResponse(response) && !storedMessageId.isPresent()) {
+                    requeueMessage(message);
+                } else if (storedMessageId.isPresent()) {
+                    onStoredMessageFailed(storedMessageId.get(), requery);
                 }
+            }
+
+            @Override
+            public void onFailure(@Nonnull Throwable throwable) {
+                inFlight.decrementAndGet();
 
-                private boolean isSuccessResponse(WebSocketResponseMessage response) {
-                    return response != null && response.getStatus() >= 200 && response.getStatus() < 300;
+                if (!storedMessageId.isPresent()) {
+                    requeueMessage(message);
+                } else {
+                    onStoredMessageFailed(storedMessageId.get(), requery);
                 }
-            });
-        } catch (CryptoEncodingException e) {
-            logger.warn("Bad signaling key", e);
+            }
+
+            private boolean isSuccessResponse(WebSocketResponseMessage response) {
+                return response != null && response.getStatus() >= 200 && response.getStatus() < 300;
+            }
+        });
+    }
+
+    private void recordFirstMessage() {
+        if (firstMessageSent.compareAndSet(false, true)) {
+            firstMessageTimer.update(System.currentTimeMillis() - connectedAt, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Marks this connection as about to be closed by a node drain. Failed live deliveries
+     * are still persisted, but no push is sent since the device is expected to reconnect.
+     */
+    public void setDraining() {
+        nodeDraining.set(true);
+    }
+
+    public void close(int code, String reason) {
+        if (closing.compareAndSet(false, true)) {
+            client.close(code, reason);
+        }
+    }
+
+    public boolean isClosing() {
+        return closing.get();
+    }
+
+    public long getConnectedAt() {
+        return connectedAt;
+    }
+
+    public long getLastActivity() {
+        return lastActivity.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public synchronized QueueState getQueueState() {
+        return queueState;
+    }
+
+    private synchronized void onStoredMessageDelivered() {
+        if (queueState != QueueState.DRAINING) {
+            updateQueueState(false);
+        }
+    }
+
+    /**
+     * A stored message that fails stays stored, so the queue is reloaded once the page that
+     * carried it has settled: either it was the message that would have loaded the next
+     * page, or it was the last one still in flight. Reloads after failures stop after a few
+     * in a row, so a connection whose sends keep failing doesn't spin.
+     */
+    private void onStoredMessageFailed(long id, boolean requery) {
+        inFlightStoredIds.remove(id);
+        updateQueueState(true);
+
+        if ((requery || inFlightStoredIds.isEmpty()) && !closing.get() &&
+            failedReloads.getAndIncrement() < MAX_FAILED_RELOADS) {
+            processStoredMessages();
+        }
+    }
+
+    /**
+     * Moves the stored queue state machine forward. The device is told its queue is
+     * empty once per transition into IDLE, never while it stays there.
+     *
+     * @param storedRemaining whether there may be stored messages this connection hasn't loaded.
+     */
+    private synchronized void updateQueueState(boolean storedRemaining) {
+        QueueState next;
+
+        if (storedRemaining) {
+            next = QueueState.DRAINING;
+        } else if (!inFlightStoredIds.isEmpty()) {
+            next = QueueState.LIVE;
+        } else {
+            next = QueueState.IDLE;
+        }
+
+        if (next == QueueState.IDLE && queueState != QueueState.IDLE) {
+            client.sendRequest("PUT", "/api/v1/queue/empty", null, Optional.<byte[]>absent());
+            queueEmptyMeter.mark();
+            recordFirstMessage();
         }
+
+        queueState = next;
     }
 
     private void requeueMessage(Envelope message) {
         int queueDepth = pushSender.getWebSocketSender().queueMessage(account, device, message);
+
+        if (nodeDraining.get()) {
+            return;
+        }
         boolean fallback = !message.getSource().equals(account.getNumber()) && message.getType() != Envelope.Type.RECEIPT;
 
         try {
@@ -157,25 +409,20 @@ public class WebSocketConnection implements DispatchChannel {
     }
 
     private void sendDeliveryReceiptFor(Envelope message) {
-        try {
-            receiptSender.sendReceipt(account, message.getSource(), message.getTimestamp(),
-                message.hasRelay() ? Optional.of(message.getRelay())
-                    : Optional.<String>absent());
-        } catch (NoSuchUserException | NotPushRegisteredException e) {
-            logger.info("No longer registered " + e.getMessage());
-        } catch (IOException | TransientPushFailureException e) {
-            logger.warn("Something wrong while sending receipt", e);
-        } catch (WebApplicationException e) {
-            logger.warn("Bad federated response for receipt: " + e.getResponse().getStatus());
-        }
+        receiptSender.sendReceiptAsync(account, message.getSource(), message.getTimestamp(),
+            message.hasRelay() ? Optional.of(message.getRelay())
+                : Optional.<String>absent());
     }
 
     private void processStoredMessages() {
+        sendStoredMessages(loadStoredMessages());
+    }
+
+    private StoredMessagePage loadStoredMessages() {
         OutgoingMessageEntityList messages = messagesManager.getMessagesForDevice(account.getNumber(), device.getId());
-        Iterator<OutgoingMessageEntity> iterator = messages.getMessages().iterator();
+        List<StoredMessage> prepared = new LinkedList<>();
 
-        while (iterator.hasNext()) {
-            OutgoingMessageEntity message = iterator.next();
+        for (OutgoingMessageEntity message : messages.getMessages()) {
             Envelope.Builder builder = Envelope.newBuilder()
                 .setType(Envelope.Type.valueOf(message.getType()))
                 .setSourceDevice(message.getSourceDevice())
@@ -190,15 +437,101 @@ public class WebSocketConnection implements DispatchChannel {
                 builder.setContent(ByteString.copyFrom(message.getContent()));
             }
 
+            if (message.getTimestamps() != null) {
+                builder.addAllTimestamps(message.getTimestamps());
+            }
+
             if (message.getRelay() != null && !message.getRelay().isEmpty()) {
                 builder.setRelay(message.getRelay());
             }
 
-            sendMessage(builder.build(), Optional.of(message.getId()), !iterator.hasNext() && messages.hasMore());
+            Envelope envelope = builder.build();
+
+            try {
+                byte[] encrypted = new EncryptedOutgoingMessage(envelope, device.getSignalingKey()).toByteArray();
+                prepared.add(new StoredMessage(message.getId(), envelope, encrypted));
+            } catch (CryptoEncodingException e) {
+                logger.warn("Bad signaling key", e);
+            }
         }
 
-        if (!messages.hasMore()) {
-            client.sendRequest("PUT", "/api/v1/queue/empty", null, Optional.<byte[]>absent());
+        return new StoredMessagePage(prepared, messages.hasMore());
+    }
+
+    private void sendStoredMessages(StoredMessagePage page) {
+        List<StoredMessage> pending = new LinkedList<>();
+
+        for (StoredMessage message : page.getMessages()) {
+            if (!recentlyDelivered.contains(message.getId()) && inFlightStoredIds.add(message.getId())) {
+                pending.add(message);
+            }
+        }
+
+        updateQueueState(page.hasMore());
+
+        Iterator<StoredMessage> iterator = pending.iterator();
+
+        while (iterator.hasNext()) {
+            StoredMessage message = iterator.next();
+            sendMessage(message.getEnvelope(), message.getEncrypted(), Optional.of(message.getId()),
+                !iterator.hasNext() && page.hasMore());
+        }
+
+    }
+
+    /**
+     * State of a device's stored message queue, as seen by its connection.
+     */
+    public enum QueueState {
+        /** Stored messages remain that haven't been loaded yet. */
+        DRAINING,
+        /** Everything stored has been loaded, and some of it is still in flight. */
+        LIVE,
+        /** Nothing stored is outstanding. */
+        IDLE
+    }
+
+    private static class StoredMessage {
+
+        private final long id;
+        private final Envelope envelope;
+        private final byte[] encrypted;
+
+        StoredMessage(long id, Envelope envelope, byte[] encrypted) {
+            this.id = id;
+            this.envelope = envelope;
+            this.encrypted = encrypted;
+        }
+
+        long getId() {
+            return id;
+        }
+
+        Envelope getEnvelope() {
+            return envelope;
+        }
+
+        byte[] getEncrypted() {
+            return encrypted;
+        }
+    }
+
+    private static class StoredMessagePage {
+
+        private final List<StoredMessage> messages;
+        private final boolean hasMore;
+
+        StoredMessagePage(List<StoredMessage> messages, boolean hasMore) {
+            this.messages = messages;
+            this.hasMore = hasMore;
+        }
+
+        List<StoredMessage> getMessages() {
+            return messages;
+        }
+
+        boolean hasMore() {
+            return hasMore;
         }
     }
 }
@@ -0,0 +1,158 @@
+package org.whisper.signal.websocket;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whisper.signal.configuration.WebSocketDrainConfiguration;
+import org.whisper.signal.util.Constants;
+import org.whisper.signal.util.Util;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Drains websocket connections off this node ahead of a restart.
+ *
+ * Once draining, new sessions are refused, failed in-flight deliveries are persisted
+ * without a push, and open connections are closed at a bounded rate with a randomized
+ * reconnect hint so that clients don't all land on the remaining nodes at once. Each
+ * tick earns a fractional share of the close rate, and whole closes are spent as the
+ * credit adds up, so rates below the tick rate are honoured too.
+ */
+public class WebSocketConnectionDrainer extends AbstractLifeCycle.AbstractLifeCycleListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConnectionDrainer.class);
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter closedMeter = metricRegistry.meter(name(WebSocketConnectionDrainer.class, "closed"));
+
+    private static final int TICKS_PER_SECOND = 10;
+    private static final int CLOSE_GOING_AWAY = 1001;
+
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final SecureRandom random = new SecureRandom();
+
+    private final WebSocketDrainConfiguration configuration;
+    private final WebSocketConnectionRegistry registry;
+
+    private ScheduledExecutorService executor;
+
+    public WebSocketConnectionDrainer(WebSocketDrainConfiguration configuration, WebSocketConnectionRegistry registry) {
+        this.configuration = configuration;
+        this.registry = registry;
+    }
+
+    public boolean isDraining() {
+        return draining.get();
+    }
+
+    public int getConnectionCount() {
+        return registry.size();
+    }
+
+    public synchronized void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+
+        logger.info("Draining " + registry.size() + " websocket connections at " + configuration.getCloseRate() + "/s");
+
+        for (WebSocketConnection connection : registry.getConnections()) {
+            connection.setDraining();
+        }
+
+        final double perTick = configuration.getCloseRate() / (double) TICKS_PER_SECOND;
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                        .setNameFormat("websocket-drainer")
+                                                                                        .build());
+        executor.scheduleAtFixedRate(new Runnable() {
+            private double credit;
+
+            @Override
+            public void run() {
+                credit += perTick;
+
+                int count = (int) credit;
+                credit -= count;
+
+                closeConnections(count);
+            }
+        }, 0, 1000 / TICKS_PER_SECOND, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean awaitDrained(long timeout, TimeUnit unit) {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+
+        while (registry.size() > 0 && System.currentTimeMillis() < deadline) {
+            Util.sleep(100);
+        }
+
+        return registry.size() == 0;
+    }
+
+    @Override
+    public void lifeCycleStopping(LifeCycle event) {
+        drain();
+
+        if (!awaitDrained(configuration.getTimeout(), TimeUnit.SECONDS)) {
+            logger.warn("Timed out draining websockets, " + registry.size() + " still open");
+        }
+
+        shutdownExecutor();
+    }
+
+    private synchronized void shutdownExecutor() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void closeConnections(int count) {
+        if (registry.size() == 0) {
+            logger.info("Websocket drain complete");
+            shutdownExecutor();
+            return;
+        }
+
+        if (count == 0) {
+            return;
+        }
+
+        Iterator<WebSocketConnection> iterator = registry.getConnections().iterator();
+        int closed = 0;
+
+        while (closed < count && iterator.hasNext()) {
+            WebSocketConnection connection = iterator.next();
+
+            if (connection.isClosing()) {
+                continue;
+            }
+
+            try {
+                connection.setDraining();
+                connection.close(CLOSE_GOING_AWAY, "reconnect-after:" + getReconnectDelay());
+                closedMeter.mark();
+            } catch (Exception e) {
+                logger.warn("Failed to close draining connection", e);
+            }
+
+            closed++;
+        }
+    }
+
+    private int getReconnectDelay() {
+        return configuration.getMaxReconnectDelay() > 0 ? random.nextInt(configuration.getMaxReconnectDelay() + 1) : 0;
+    }
+}
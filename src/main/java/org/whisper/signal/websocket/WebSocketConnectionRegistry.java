@@ -0,0 +1,108 @@
+package org.whisper.signal.websocket;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the authenticated websocket connections open on this node.
+ */
+public class WebSocketConnectionRegistry implements MetricSet {
+
+    private final ConcurrentHashMap<WebsocketAddress, WebSocketConnection> connections = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a connection, replacing any older connection from the same device.
+     */
+    public void register(WebsocketAddress address, WebSocketConnection connection) {
+        connections.put(address, connection);
+    }
+
+    /**
+     * Removes the connection only if it's still the one registered for the address, so a
+     * replaced connection closing late can't remove the device's live one.
+     */
+    public void unregister(WebsocketAddress address, WebSocketConnection connection) {
+        connections.remove(address, connection);
+    }
+
+    public int size() {
+        return connections.size();
+    }
+
+    public Collection<WebSocketConnection> getConnections() {
+        return connections.values();
+    }
+
+    /**
+     * Returns a page of connections, ordered by connect time (oldest first).
+     */
+    public List<Map.Entry<WebsocketAddress, WebSocketConnection>> getConnections(int offset, int limit) {
+        List<Map.Entry<WebsocketAddress, WebSocketConnection>> snapshot = new ArrayList<>(connections.entrySet());
+
+        Collections.sort(snapshot, new Comparator<Map.Entry<WebsocketAddress, WebSocketConnection>>() {
+            @Override
+            public int compare(Map.Entry<WebsocketAddress, WebSocketConnection> one,
+                Map.Entry<WebsocketAddress, WebSocketConnection> two) {
+                return Long.compare(one.getValue().getConnectedAt(), two.getValue().getConnectedAt());
+            }
+        });
+
+        if (offset >= snapshot.size()) {
+            return Collections.emptyList();
+        }
+
+        return snapshot.subList(offset, Math.min(snapshot.size(), offset + limit));
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+
+        metrics.put("connected", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return connections.size();
+            }
+        });
+
+        metrics.put("in_flight", new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                long inFlight = 0;
+
+                for (WebSocketConnection connection : connections.values()) {
+                    inFlight += connection.getInFlightCount();
+                }
+
+                return inFlight;
+            }
+        });
+
+        metrics.put("idle", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                int idle = 0;
+
+                for (WebSocketConnection connection : connections.values()) {
+                    if (connection.getQueueState() == WebSocketConnection.QueueState.IDLE) {
+                        idle++;
+                    }
+                }
+
+                return idle;
+            }
+        });
+
+        return metrics;
+    }
+}
@@ -0,0 +1,117 @@
+package org.whisper.signal.websocket;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.whisper.signal.util.SystemMapper;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin view of the websocket connections open on this node, paged with
+ * <code>offset</code> and <code>limit</code> query parameters.
+ */
+public class WebSocketConnectionsServlet extends HttpServlet {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    private final WebSocketConnectionRegistry registry;
+
+    public WebSocketConnectionsServlet(WebSocketConnectionRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        int offset;
+        int limit;
+
+        try {
+            offset = Math.max(0, getIntParameter(request, "offset", 0));
+            limit = Math.min(MAX_LIMIT, Math.max(0, getIntParameter(request, "limit", DEFAULT_LIMIT)));
+        } catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad offset or limit");
+            return;
+        }
+
+        List<ConnectionEntity> page = new LinkedList<>();
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<WebsocketAddress, WebSocketConnection> entry : registry.getConnections(offset, limit)) {
+            page.add(new ConnectionEntity(entry.getKey(), entry.getValue(), now));
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+
+        SystemMapper.getMapper().writeValue(response.getOutputStream(),
+            new ConnectionListEntity(registry.size(), offset, page));
+    }
+
+    private int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+        String value = request.getParameter(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static class ConnectionListEntity {
+
+        @JsonProperty
+        private int total;
+
+        @JsonProperty
+        private int offset;
+
+        @JsonProperty
+        private List<ConnectionEntity> connections;
+
+        ConnectionListEntity(int total, int offset, List<ConnectionEntity> connections) {
+            this.total = total;
+            this.offset = offset;
+            this.connections = connections;
+        }
+    }
+
+    private static class ConnectionEntity {
+
+        @JsonProperty
+        private String number;
+
+        @JsonProperty
+        private long deviceId;
+
+        @JsonProperty
+        private long connectedAt;
+
+        @JsonProperty
+        private long duration;
+
+        @JsonProperty
+        private long lastActivity;
+
+        @JsonProperty
+        private int inFlight;
+
+        @JsonProperty
+        private long bytesSent;
+
+        @JsonProperty
+        private String queueState;
+
+        ConnectionEntity(WebsocketAddress address, WebSocketConnection connection, long now) {
+            this.number = address.getNumber();
+            this.deviceId = address.getDeviceId();
+            this.connectedAt = connection.getConnectedAt();
+            this.duration = now - connection.getConnectedAt();
+            this.lastActivity = connection.getLastActivity();
+            this.inFlight = connection.getInFlightCount();
+            this.bytesSent = connection.getBytesSent();
+            this.queueState = connection.getQueueState().name();
+        }
+    }
+}
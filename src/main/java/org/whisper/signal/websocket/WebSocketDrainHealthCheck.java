@@ -0,0 +1,21 @@
+package org.whisper.signal.websocket;
+
+import com.codahale.metrics.health.HealthCheck;
+
+public class WebSocketDrainHealthCheck extends HealthCheck {
+
+    private final WebSocketConnectionDrainer drainer;
+
+    public WebSocketDrainHealthCheck(WebSocketConnectionDrainer drainer) {
+        this.drainer = drainer;
+    }
+
+    @Override
+    protected Result check() throws Exception {
+        if (drainer.isDraining()) {
+            return Result.unhealthy("draining, " + drainer.getConnectionCount() + " connections open");
+        }
+
+        return Result.healthy();
+    }
+}
@@ -0,0 +1,22 @@
+package org.whisper.signal.websocket;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+
+public class WebSocketDrainTask extends Task {
+
+    private final WebSocketConnectionDrainer drainer;
+
+    public WebSocketDrainTask(WebSocketConnectionDrainer drainer) {
+        super("drain-websockets");
+        this.drainer = drainer;
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) throws Exception {
+        drainer.drain();
+        output.println("Draining, " + drainer.getConnectionCount() + " connections open");
+    }
+}
@@ -0,0 +1,90 @@
+package org.whisper.signal.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.dropwizard.lifecycle.Managed;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+/**
+ * Periodically publishes this node's websocket connection count to Redis.
+ *
+ * Counts live in the <code>presence::nodes</code> sorted set, scored by connection count,
+ * so a load balancer can pick the least loaded node with a ZRANGE. Each node also keeps a
+ * short-lived <code>presence::heartbeat::{node}</code> key; members without a heartbeat
+ * are stale and should be ignored.
+ */
+public class WebSocketPresencePublisher implements Managed, Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketPresencePublisher.class);
+
+    public static final String NODES_KEY = "presence::nodes";
+    private static final String HEARTBEAT_PREFIX = "presence::heartbeat::";
+
+    private static final int PUBLISH_INTERVAL_SECONDS = 10;
+    private static final int HEARTBEAT_TTL_SECONDS = 3 * PUBLISH_INTERVAL_SECONDS;
+
+    private final JedisPool jedisPool;
+    private final WebSocketConnectionRegistry registry;
+    private final String nodeId;
+
+    private ScheduledExecutorService executor;
+
+    public WebSocketPresencePublisher(JedisPool jedisPool, WebSocketConnectionRegistry registry) {
+        this(jedisPool, registry, getHostName());
+    }
+
+    public WebSocketPresencePublisher(JedisPool jedisPool, WebSocketConnectionRegistry registry, String nodeId) {
+        this.jedisPool = jedisPool;
+        this.registry = registry;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        executor.scheduleAtFixedRate(this, 0, PUBLISH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop() {
+        executor.shutdownNow();
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.zrem(NODES_KEY, nodeId);
+            pipeline.del(HEARTBEAT_PREFIX + nodeId);
+            pipeline.sync();
+        }
+    }
+
+    @Override
+    public void run() {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.zadd(NODES_KEY, registry.size(), nodeId);
+            pipeline.setex(HEARTBEAT_PREFIX + nodeId, HEARTBEAT_TTL_SECONDS, String.valueOf(System.currentTimeMillis()));
+            pipeline.sync();
+        } catch (Exception e) {
+            logger.warn("Failed to publish presence", e);
+        }
+    }
+
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            logger.warn("Unable to resolve local hostname", e);
+            return UUID.randomUUID().toString();
+        }
+    }
+}
@@ -15,9 +15,12 @@ import org.whisper.signal.storage.Accounts;
 import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.Device;
 import org.whisper.signal.storage.DirectoryManager;
+import org.whisper.signal.storage.LastSeen;
 import org.whisper.signal.util.Base64;
 
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
 
 import io.dropwizard.Application;
 import io.dropwizard.cli.EnvironmentCommand;
@@ -69,13 +72,16 @@ public class DeleteUserCommand extends EnvironmentCommand<WhisperServerConfigura
             dbi.registerContainerFactory(new OptionalContainerFactory());
 
             Accounts accounts = dbi.onDemand(Accounts.class);
+            LastSeen lastSeen = dbi.onDemand(LastSeen.class);
             JedisPool cacheClient = new RedisClientFactory(configuration.getCacheConfiguration().getUrl()).getRedisClientPool();
             JedisPool redisClient = new RedisClientFactory(configuration.getDirectoryConfiguration().getUrl()).getRedisClientPool();
             DirectoryManager directory = new DirectoryManager(redisClient);
             AccountsManager accountsManager = new AccountsManager(accounts, directory, cacheClient);
 
+            Map<String, Account> found = accountsManager.getAll(Arrays.asList(users));
+
             for (String user : users) {
-                Optional<Account> account = accountsManager.get(user);
+                Optional<Account> account = Optional.fromNullable(found.get(user));
 
                 if (account.isPresent()) {
                     Optional<Device> device = account.get().getDevice(1);
@@ -88,7 +94,8 @@ public class DeleteUserCommand extends EnvironmentCommand<WhisperServerConfigura
                         device.get().setFetchesMessages(false);
                         device.get().setAuthenticationCredentials(new AuthenticationCredentials(Base64.encodeBytes(random)));
 
-                        accountsManager.update(account.get());
+                        accountsManager.updateDevice(account.get(), device.get());
+                        lastSeen.remove(account.get().getNumber());
 
                         logger.warn("Removed " + account.get().getNumber());
                     } else {
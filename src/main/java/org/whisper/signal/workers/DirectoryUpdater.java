@@ -11,6 +11,12 @@
  */
 package org.whisper.signal.workers;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whisper.signal.entities.ClientContact;
@@ -18,23 +24,51 @@ import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.DirectoryManager;
 import org.whisper.signal.storage.DirectoryManager.BatchOperationHandle;
+import org.whisper.signal.util.Constants;
 import org.whisper.signal.util.Util;
 
-import java.util.List;
+import java.util.Iterator;
+
+import static com.codahale.metrics.MetricRegistry.name;
 
 
 public class DirectoryUpdater {
 
     private static final int CHUNK_SIZE = 10000;
 
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+    private static final Meter scannedMeter = metricRegistry.meter(name(DirectoryUpdater.class, "scanned"));
+    private static final Timer chunkTimer = metricRegistry.timer(name(DirectoryUpdater.class, "chunk"));
+
     private final Logger logger = LoggerFactory.getLogger(DirectoryUpdater.class);
 
     private final AccountsManager accountsManager;
     private final DirectoryManager directory;
+    private final int chunkSize;
+
+    private volatile long processed;
+    private volatile long total;
 
     public DirectoryUpdater(AccountsManager accountsManager, DirectoryManager directory) {
+        this(accountsManager, directory, CHUNK_SIZE);
+    }
+
+    @VisibleForTesting
+    public DirectoryUpdater(AccountsManager accountsManager, DirectoryManager directory, int chunkSize) {
         this.accountsManager = accountsManager;
         this.directory = directory;
+        this.chunkSize = chunkSize;
+
+        String progressName = name(DirectoryUpdater.class, "progress");
+
+        if (!metricRegistry.getGauges().containsKey(progressName)) {
+            metricRegistry.register(progressName, new Gauge<Double>() {
+                @Override
+                public Double getValue() {
+                    return getProgress();
+                }
+            });
+        }
     }
 
     public void updateFromLocalDatabase() {
@@ -44,31 +78,42 @@ public class DirectoryUpdater {
 
         try {
             logger.info("Updating from local DB.");
-            int offset = 0;
 
-            for (;;) {
-                List<Account> accounts = accountsManager.getAll(offset, CHUNK_SIZE);
+            long started = System.currentTimeMillis();
+
+            processed = 0;
+            total = accountsManager.getCount();
 
-                if (accounts == null || accounts.isEmpty()) {
-                    break;
+            Iterator<Account> accounts = accountsManager.scanAll(chunkSize);
+            Timer.Context timer = chunkTimer.time();
+
+            while (accounts.hasNext()) {
+                Account account = accounts.next();
+
+                if (account.isActive()) {
+                    byte[] token = Util.getContactToken(account.getNumber());
+                    ClientContact clientContact = new ClientContact(token, null, account.isVoiceSupported(), account.isVideoSupported());
+
+                    directory.add(batchOperation, clientContact);
+                    contactsAdded++;
                 } else {
-                    offset += accounts.size();
+                    directory.remove(batchOperation, account.getNumber());
+                    contactsRemoved++;
                 }
 
-                for (Account account : accounts) {
-                    if (account.isActive()) {
-                        byte[] token = Util.getContactToken(account.getNumber());
-                        ClientContact clientContact = new ClientContact(token, null, account.isVoiceSupported(), account.isVideoSupported());
-
-                        directory.add(batchOperation, clientContact);
-                        contactsAdded++;
-                    } else {
-                        directory.remove(batchOperation, account.getNumber());
-                        contactsRemoved++;
-                    }
-                }
+                processed++;
+                scannedMeter.mark();
+
+                if (processed % chunkSize == 0 || !accounts.hasNext()) {
+                    timer.stop();
 
-                logger.info("Processed " + CHUNK_SIZE + " local accounts...");
+                    long elapsed = Math.max(1, System.currentTimeMillis() - started);
+
+                    logger.info(String.format("Processed %d/%d local accounts (%d/s)...",
+                        processed, total, processed * 1000 / elapsed));
+
+                    timer = chunkTimer.time();
+                }
             }
         } finally {
             directory.stopBatchOperation(batchOperation);
@@ -77,6 +122,14 @@ public class DirectoryUpdater {
         logger.info(String.format("Local directory is updated (%d added, %d removed).", contactsAdded, contactsRemoved));
     }
 
+    /**
+     * @return the fraction of accounts the current or last run has processed so far.
+     */
+    public double getProgress() {
+        long total = this.total;
+        return total == 0 ? 0 : Math.min(1, (double) processed / total);
+    }
+
 //  public void updateFromPeers() {
 //    logger.info("Updating peer directories.");
 //
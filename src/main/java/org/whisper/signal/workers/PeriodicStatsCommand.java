@@ -3,12 +3,17 @@ package org.whisper.signal.workers;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.ScheduledReporter;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
 import org.skife.jdbi.v2.DBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whisper.signal.WhisperServerConfiguration;
+import org.whisper.signal.providers.RedisClientFactory;
 import org.whisper.signal.storage.Accounts;
+import org.whisper.signal.storage.ActiveUsers;
+import org.whisper.signal.storage.ActiveUsers.Segment;
 
 import java.util.concurrent.TimeUnit;
 
@@ -22,6 +27,7 @@ import io.dropwizard.jdbi.OptionalContainerFactory;
 import io.dropwizard.jdbi.args.OptionalArgumentFactory;
 import io.dropwizard.metrics.ReporterFactory;
 import io.dropwizard.setup.Environment;
+import redis.clients.jedis.JedisPool;
 
 public class PeriodicStatsCommand extends EnvironmentCommand<WhisperServerConfiguration> {
 
@@ -37,6 +43,15 @@ public class PeriodicStatsCommand extends EnvironmentCommand<WhisperServerConfig
         }, "stats", "Update periodic stats.");
     }
 
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+        subparser.addArgument("--scan")
+            .dest("scan")
+            .action(Arguments.storeTrue())
+            .help("Count exactly by scanning the accounts table instead of reading the Redis counters");
+    }
+
     @Override
     protected void run(Environment environment, Namespace namespace,
         WhisperServerConfiguration configuration)
@@ -44,96 +59,116 @@ public class PeriodicStatsCommand extends EnvironmentCommand<WhisperServerConfig
         try {
             environment.getObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
-            DataSourceFactory dbConfig = configuration.getReadDataSourceFactory();
-
-            if (dbConfig == null) {
-                logger.warn("No slave database configuration found!");
-                return;
-            }
-
-            DBI dbi = new DBI(dbConfig.getUrl(), dbConfig.getUser(), dbConfig.getPassword());
-            dbi.registerArgumentFactory(new OptionalArgumentFactory(dbConfig.getDriverClass()));
-            dbi.registerContainerFactory(new ImmutableListContainerFactory());
-            dbi.registerContainerFactory(new ImmutableSetContainerFactory());
-            dbi.registerContainerFactory(new OptionalContainerFactory());
-
-            Accounts accounts = dbi.onDemand(Accounts.class);
             long yesterday = TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis()) - 1;
             long monthAgo = yesterday - 30;
 
-            logger.info("Calculating daily active");
-            final int dailyActiveAndroid = accounts.getAndroidActiveSinceCount(TimeUnit.DAYS.toMillis(yesterday));
-            final int dailyActiveIos = accounts.getIosActiveSinceCount(TimeUnit.DAYS.toMillis(yesterday));
-
-            logger.info("Calculating monthly active");
-            final int monthlyActiveAndroid = accounts.getAndroidActiveSinceCount(TimeUnit.DAYS.toMillis(monthAgo));
-            final int monthlyActiveIos = accounts.getIosActiveSinceCount(TimeUnit.DAYS.toMillis(monthAgo));
-
-            logger.info("Calculating daily signed keys");
-            final int dailyActiveNoSignedKeys = accounts.getUnsignedKeysCount(TimeUnit.DAYS.toMillis(yesterday));
-            logger.info("Calculating monthly signed keys");
-            final int monthlyActiveNoSignedKeys = accounts.getUnsignedKeysCount(TimeUnit.DAYS.toMillis(monthAgo));
+            final long dailyActiveAndroid;
+            final long dailyActiveIos;
+            final long monthlyActiveAndroid;
+            final long monthlyActiveIos;
+            final long dailyActiveNoSignedKeys;
+            final long monthlyActiveNoSignedKeys;
+
+            if (namespace.getBoolean("scan")) {
+                DataSourceFactory dbConfig = configuration.getReadDataSourceFactory();
+
+                if (dbConfig == null) {
+                    logger.warn("No slave database configuration found!");
+                    return;
+                }
+
+                DBI dbi = new DBI(dbConfig.getUrl(), dbConfig.getUser(), dbConfig.getPassword());
+                dbi.registerArgumentFactory(new OptionalArgumentFactory(dbConfig.getDriverClass()));
+                dbi.registerContainerFactory(new ImmutableListContainerFactory());
+                dbi.registerContainerFactory(new ImmutableSetContainerFactory());
+                dbi.registerContainerFactory(new OptionalContainerFactory());
+
+                Accounts accounts = dbi.onDemand(Accounts.class);
+
+                logger.info("Calculating daily active");
+                dailyActiveAndroid = accounts.getAndroidActiveSinceCount(TimeUnit.DAYS.toMillis(yesterday));
+                dailyActiveIos = accounts.getIosActiveSinceCount(TimeUnit.DAYS.toMillis(yesterday));
+
+                logger.info("Calculating monthly active");
+                monthlyActiveAndroid = accounts.getAndroidActiveSinceCount(TimeUnit.DAYS.toMillis(monthAgo));
+                monthlyActiveIos = accounts.getIosActiveSinceCount(TimeUnit.DAYS.toMillis(monthAgo));
+
+                logger.info("Calculating daily signed keys");
+                dailyActiveNoSignedKeys = accounts.getUnsignedKeysCount(TimeUnit.DAYS.toMillis(yesterday));
+                logger.info("Calculating monthly signed keys");
+                monthlyActiveNoSignedKeys = accounts.getUnsignedKeysCount(TimeUnit.DAYS.toMillis(monthAgo));
+            } else {
+                JedisPool cacheClient = new RedisClientFactory(configuration.getCacheConfiguration().getUrl()).getRedisClientPool();
+                ActiveUsers activeUsers = new ActiveUsers(cacheClient);
+
+                dailyActiveAndroid = activeUsers.getActiveSince(Segment.ANDROID, yesterday);
+                dailyActiveIos = activeUsers.getActiveSince(Segment.IOS, yesterday);
+                monthlyActiveAndroid = activeUsers.getActiveSince(Segment.ANDROID, monthAgo);
+                monthlyActiveIos = activeUsers.getActiveSince(Segment.IOS, monthAgo);
+                dailyActiveNoSignedKeys = activeUsers.getActiveSince(Segment.NO_SIGNED_KEYS, yesterday);
+                monthlyActiveNoSignedKeys = activeUsers.getActiveSince(Segment.NO_SIGNED_KEYS, monthAgo);
+            }
 
             environment.metrics().register(name(PeriodicStatsCommand.class, "daily_active"),
-                new Gauge<Integer>() {
+                new Gauge<Long>() {
                     @Override
-                    public Integer getValue() {
+                    public Long getValue() {
                         return dailyActiveAndroid + dailyActiveIos;
                     }
                 });
 
             environment.metrics().register(name(PeriodicStatsCommand.class, "daily_active_android"),
-                new Gauge<Integer>() {
+                new Gauge<Long>() {
                     @Override
-                    public Integer getValue() {
+                    public Long getValue() {
                         return dailyActiveAndroid;
                     }
                 });
 
             environment.metrics().register(name(PeriodicStatsCommand.class, "daily_active_ios"),
-                new Gauge<Integer>() {
+                new Gauge<Long>() {
                     @Override
-                    public Integer getValue() {
+                    public Long getValue() {
                         return dailyActiveIos;
                     }
                 });
 
             environment.metrics().register(name(PeriodicStatsCommand.class, "monthly_active"),
-                new Gauge<Integer>() {
+                new Gauge<Long>() {
                     @Override
-                    public Integer getValue() {
+                    public Long getValue() {
                         return monthlyActiveAndroid + monthlyActiveIos;
                     }
                 });
 
             environment.metrics().register(name(PeriodicStatsCommand.class, "monthly_active_android"),
-                new Gauge<Integer>() {
+                new Gauge<Long>() {
                     @Override
-                    public Integer getValue() {
+                    public Long getValue() {
                         return monthlyActiveAndroid;
                     }
                 });
 
             environment.metrics().register(name(PeriodicStatsCommand.class, "monthly_active_ios"),
-                new Gauge<Integer>() {
+                new Gauge<Long>() {
                     @Override
-                    public Integer getValue() {
+                    public Long getValue() {
                         return monthlyActiveIos;
                     }
                 });
 
             environment.metrics().register(name(PeriodicStatsCommand.class, "daily_no_signed_keys"),
-                new Gauge<Integer>() {
+                new Gauge<Long>() {
                     @Override
-                    public Integer getValue() {
+                    public Long getValue() {
                         return dailyActiveNoSignedKeys;
                     }
                 });
 
             environment.metrics().register(name(PeriodicStatsCommand.class, "monthly_no_signed_keys"),
-                new Gauge<Integer>() {
+                new Gauge<Long>() {
                     @Override
-                    public Integer getValue() {
+                    public Long getValue() {
                         return monthlyActiveNoSignedKeys;
                     }
                 });
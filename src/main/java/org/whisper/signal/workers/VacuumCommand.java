@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import org.whisper.signal.WhisperServerConfiguration;
 import org.whisper.signal.storage.Accounts;
 import org.whisper.signal.storage.Keys;
+import org.whisper.signal.storage.LastSeen;
 import org.whisper.signal.storage.Messages;
 import org.whisper.signal.storage.PendingAccounts;
 
@@ -49,6 +50,7 @@ public class VacuumCommand extends ConfiguredCommand<WhisperServerConfiguration>
         Accounts accounts = dbi.onDemand(Accounts.class);
         Keys keys = dbi.onDemand(Keys.class);
         PendingAccounts pendingAccounts = dbi.onDemand(PendingAccounts.class);
+        LastSeen lastSeen = dbi.onDemand(LastSeen.class);
         Messages messages = messageDbi.onDemand(Messages.class);
 
         logger.info("Vacuuming accounts...");
@@ -60,6 +62,9 @@ public class VacuumCommand extends ConfiguredCommand<WhisperServerConfiguration>
         logger.info("Vacuuming keys...");
         keys.vacuum();
 
+        logger.info("Vacuuming last_seen...");
+        lastSeen.vacuum();
+
         logger.info("Vacuuming messages...");
         messages.vacuum();
 
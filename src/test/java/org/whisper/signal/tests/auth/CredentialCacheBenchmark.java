@@ -0,0 +1,64 @@
+package org.whisper.signal.tests.auth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.whisper.signal.auth.AuthenticationCredentials;
+import org.whisper.signal.auth.CredentialCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a {@link CredentialCache} hit against checking the salted hash directly
+ * with {@link AuthenticationCredentials#verify}, for a password like the ones clients
+ * generate.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=org.whisper.signal.tests.auth.CredentialCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CredentialCacheBenchmark {
+
+    private static final String NUMBER   = "+14152222222";
+    private static final String PASSWORD = "8c5dDBjYwJD2wUnVV8D3KhrV";
+
+    private AuthenticationCredentials credentials;
+    private CredentialCache           credentialCache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        credentials     = new AuthenticationCredentials(PASSWORD);
+        credentialCache = new CredentialCache(1000, 1, TimeUnit.HOURS);
+
+        credentialCache.verify(NUMBER, 1, PASSWORD, credentials);
+    }
+
+    @Benchmark
+    public boolean saltedHash() {
+        return credentials.verify(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean cacheHit() {
+        return credentialCache.verify(NUMBER, 1, PASSWORD, credentials);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(CredentialCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
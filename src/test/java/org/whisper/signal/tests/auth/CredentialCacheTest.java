@@ -0,0 +1,56 @@
+package org.whisper.signal.tests.auth;
+
+import org.junit.Test;
+import org.whisper.signal.auth.AuthenticationCredentials;
+import org.whisper.signal.auth.CredentialCache;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CredentialCacheTest {
+
+    private static final String NUMBER = "+14152222222";
+
+    @Test
+    public void testRepeatSkipsHash() {
+        CredentialCache           cache       = new CredentialCache(10, 1, TimeUnit.MINUTES);
+        AuthenticationCredentials credentials = spy(new AuthenticationCredentials("password"));
+
+        assertTrue(cache.verify(NUMBER, 1, "password", credentials));
+        assertTrue(cache.verify(NUMBER, 1, "password", credentials));
+        assertTrue(cache.verify(NUMBER, 1, "password", credentials));
+
+        verify(credentials, times(1)).verify("password");
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testWrongPasswordNotCached() {
+        CredentialCache           cache       = new CredentialCache(10, 1, TimeUnit.MINUTES);
+        AuthenticationCredentials credentials = spy(new AuthenticationCredentials("password"));
+
+        assertTrue(cache.verify(NUMBER, 1, "password", credentials));
+        assertFalse(cache.verify(NUMBER, 1, "wrong", credentials));
+        assertFalse(cache.verify(NUMBER, 1, "wrong", credentials));
+        assertFalse(cache.verify(NUMBER, 2, "password", new AuthenticationCredentials("other")));
+
+        verify(credentials, times(2)).verify("wrong");
+    }
+
+    @Test
+    public void testCredentialChangeInvalidates() {
+        CredentialCache           cache    = new CredentialCache(10, 1, TimeUnit.MINUTES);
+        AuthenticationCredentials original = new AuthenticationCredentials("password");
+
+        assertTrue(cache.verify(NUMBER, 1, "password", original));
+
+        AuthenticationCredentials changed = spy(new AuthenticationCredentials("newpassword"));
+
+        assertFalse(cache.verify(NUMBER, 1, "password", changed));
+        verify(changed, times(1)).verify("password");
+
+        assertTrue(cache.verify(NUMBER, 1, "newpassword", changed));
+    }
+}
@@ -18,6 +18,7 @@ import org.whisper.signal.providers.TimeProvider;
 import org.whisper.signal.sms.SmsSender;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.ActiveUsers;
 import org.whisper.signal.storage.MessagesManager;
 import org.whisper.signal.storage.PendingAccountsManager;
 import org.whisper.signal.tests.util.AuthHelper;
@@ -62,7 +63,8 @@ public class AccountControllerTest {
                 timeProvider,
                 Optional.of(authorizationKey),
                 turnTokenGenerator,
-                new HashMap<String, Integer>()))
+                new HashMap<String, Integer>(),
+                mock(ActiveUsers.class)))
         .build();
 
     @Before
@@ -19,6 +19,7 @@ import org.whisper.signal.entities.SignedPreKey;
 import org.whisper.signal.federation.FederatedClientManager;
 import org.whisper.signal.limits.RateLimiter;
 import org.whisper.signal.limits.RateLimiters;
+import org.whisper.signal.push.PushLatencyTracker;
 import org.whisper.signal.push.PushSender;
 import org.whisper.signal.push.ReceiptSender;
 import org.whisper.signal.storage.Account;
@@ -49,6 +50,7 @@ public class FederatedControllerTest {
     private PushSender pushSender = mock(PushSender.class);
     private ReceiptSender receiptSender = mock(ReceiptSender.class);
     private FederatedClientManager federatedClientManager = mock(FederatedClientManager.class);
+    private PushLatencyTracker latencyTracker = mock(PushLatencyTracker.class);
     private AccountsManager accountsManager = mock(AccountsManager.class);
     private MessagesManager messagesManager = mock(MessagesManager.class);
     private RateLimiters rateLimiters = mock(RateLimiters.class);
@@ -59,7 +61,7 @@ public class FederatedControllerTest {
 
     private final ObjectMapper mapper = new ObjectMapper();
 
-    private final MessageController messageController = new MessageController(rateLimiters, pushSender, receiptSender, accountsManager, messagesManager, federatedClientManager);
+    private final MessageController messageController = new MessageController(rateLimiters, pushSender, receiptSender, accountsManager, messagesManager, federatedClientManager, latencyTracker);
     private final KeysController keysControllerV2 = mock(KeysController.class);
 
     @Rule
@@ -171,7 +171,8 @@ public class KeyControllerTest {
         assertThat(response.getStatus() == 204);
 
         verify(AuthHelper.VALID_DEVICE).setSignedPreKey(eq(test));
-        verify(accounts).update(eq(AuthHelper.VALID_ACCOUNT));
+        verify(accounts).updateDevice(eq(AuthHelper.VALID_ACCOUNT), eq(AuthHelper.VALID_DEVICE));
+        verify(accounts, never()).update(any(Account.class));
     }
 
     @Test
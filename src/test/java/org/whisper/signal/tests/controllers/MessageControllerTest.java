@@ -18,6 +18,7 @@ import org.whisper.signal.entities.StaleDevices;
 import org.whisper.signal.federation.FederatedClientManager;
 import org.whisper.signal.limits.RateLimiter;
 import org.whisper.signal.limits.RateLimiters;
+import org.whisper.signal.push.PushLatencyTracker;
 import org.whisper.signal.push.PushSender;
 import org.whisper.signal.push.ReceiptSender;
 import org.whisper.signal.storage.Account;
@@ -52,6 +53,7 @@ public class MessageControllerTest {
     private final PushSender pushSender = mock(PushSender.class);
     private final ReceiptSender receiptSender = mock(ReceiptSender.class);
     private final FederatedClientManager federatedClientManager = mock(FederatedClientManager.class);
+    private final PushLatencyTracker latencyTracker = mock(PushLatencyTracker.class);
     private final AccountsManager accountsManager = mock(AccountsManager.class);
     private final MessagesManager messagesManager = mock(MessagesManager.class);
     private final RateLimiters rateLimiters = mock(RateLimiters.class);
@@ -65,7 +67,7 @@ public class MessageControllerTest {
         .addProvider(new AuthValueFactoryProvider.Binder())
         .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
         .addResource(new MessageController(rateLimiters, pushSender, receiptSender, accountsManager,
-                messagesManager, federatedClientManager))
+                messagesManager, federatedClientManager, latencyTracker))
         .build();
 
     @Before
@@ -211,6 +213,8 @@ public class MessageControllerTest {
 
         assertEquals(response.getMessages().get(0).getTimestamp(), timestampOne);
         assertEquals(response.getMessages().get(1).getTimestamp(), timestampTwo);
+
+        verify(latencyTracker).onDeviceArrived(eq(AuthHelper.VALID_NUMBER), eq(1L), eq(PushLatencyTracker.Arrival.FETCH));
     }
 
     @Test
@@ -264,7 +268,7 @@ public class MessageControllerTest {
             .delete();
 
         assertThat("Good Response Code", response.getStatus(), is(equalTo(204)));
-        verify(receiptSender).sendReceipt(any(Account.class), eq("+14152222222"), eq(timestamp), eq(Optional.<String>absent()));
+        verify(receiptSender).sendReceiptAsync(any(Account.class), eq("+14152222222"), eq(timestamp), eq(Optional.<String>absent()));
 
         response = resources.getJerseyTest()
             .target(String.format("/v1/messages/%s/%d", "+14152222222", 31338))
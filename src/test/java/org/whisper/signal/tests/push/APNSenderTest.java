@@ -1,6 +1,5 @@
 package org.whisper.signal.tests.push;
 
-import com.google.common.base.Optional;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.relayrides.pushy.apns.ApnsClient;
 import com.relayrides.pushy.apns.ApnsServerException;
@@ -8,22 +7,19 @@ import com.relayrides.pushy.apns.ClientNotConnectedException;
 import com.relayrides.pushy.apns.DeliveryPriority;
 import com.relayrides.pushy.apns.PushNotificationResponse;
 import com.relayrides.pushy.apns.util.SimpleApnsPushNotification;
-import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.whisper.signal.push.APNSender;
-import org.whisper.signal.push.ApnFallbackManager;
 import org.whisper.signal.push.ApnMessage;
+import org.whisper.signal.push.ConcurrencyLimiter;
+import org.whisper.signal.push.PushTokenInvalidator;
 import org.whisper.signal.push.RetryingApnsClient;
 import org.whisper.signal.push.RetryingApnsClient.ApnResult;
-import org.whisper.signal.storage.Account;
-import org.whisper.signal.storage.AccountsManager;
-import org.whisper.signal.storage.Device;
 import org.whisper.signal.tests.util.SynchronousExecutorService;
-import org.whisper.signal.websocket.WebsocketAddress;
 
 import java.util.Date;
-import java.util.concurrent.TimeUnit;
 
 import io.netty.util.concurrent.DefaultEventExecutor;
 import io.netty.util.concurrent.DefaultPromise;
@@ -35,21 +31,10 @@ public class APNSenderTest {
     private static final String DESTINATION_NUMBER = "+14151231234";
     private static final String DESTINATION_APN_ID = "foo";
 
-    private final AccountsManager accountsManager = mock(AccountsManager.class);
-
-    private final Account destinationAccount = mock(Account.class);
-    private final Device destinationDevice = mock(Device.class);
-    private final ApnFallbackManager fallbackManager = mock(ApnFallbackManager.class);
+    private final PushTokenInvalidator tokenInvalidator = mock(PushTokenInvalidator.class);
 
     private final DefaultEventExecutor executor = new DefaultEventExecutor();
 
-    @Before
-    public void setup() {
-        when(destinationAccount.getDevice(1)).thenReturn(Optional.of(destinationDevice));
-        when(destinationDevice.getApnId()).thenReturn(DESTINATION_APN_ID);
-        when(accountsManager.get(DESTINATION_NUMBER)).thenReturn(Optional.of(destinationAccount));
-    }
-
     @Test
     public void testSendVoip() throws Exception {
         ApnsClient apnsClient = mock(ApnsClient.class);
@@ -65,9 +50,8 @@ public class APNSenderTest {
 
         RetryingApnsClient retryingApnsClient = new RetryingApnsClient(apnsClient, 10);
         ApnMessage message = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", true, 30);
-        APNSender apnSender = new APNSender(new SynchronousExecutorService(), accountsManager, retryingApnsClient, "foo", false);
+        APNSender apnSender = new APNSender(new SynchronousExecutorService(), tokenInvalidator, retryingApnsClient, "foo", false);
 
-        apnSender.setApnFallbackManager(fallbackManager);
         ListenableFuture<ApnResult> sendFuture = apnSender.sendMessage(message);
         ApnResult apnResult = sendFuture.get();
 
@@ -83,8 +67,7 @@ public class APNSenderTest {
         assertThat(apnResult.getStatus()).isEqualTo(ApnResult.Status.SUCCESS);
 
         verifyNoMoreInteractions(apnsClient);
-        verifyNoMoreInteractions(accountsManager);
-        verifyNoMoreInteractions(fallbackManager);
+        verifyNoMoreInteractions(tokenInvalidator);
     }
 
     @Test
@@ -102,8 +85,7 @@ public class APNSenderTest {
 
         RetryingApnsClient retryingApnsClient = new RetryingApnsClient(apnsClient, 10);
         ApnMessage message = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", false, 30);
-        APNSender apnSender = new APNSender(new SynchronousExecutorService(), accountsManager, retryingApnsClient, "foo", false);
-        apnSender.setApnFallbackManager(fallbackManager);
+        APNSender apnSender = new APNSender(new SynchronousExecutorService(), tokenInvalidator, retryingApnsClient, "foo", false);
 
         ListenableFuture<ApnResult> sendFuture = apnSender.sendMessage(message);
         ApnResult apnResult = sendFuture.get();
@@ -120,8 +102,7 @@ public class APNSenderTest {
         assertThat(apnResult.getStatus()).isEqualTo(ApnResult.Status.SUCCESS);
 
         verifyNoMoreInteractions(apnsClient);
-        verifyNoMoreInteractions(accountsManager);
-        verifyNoMoreInteractions(fallbackManager);
+        verifyNoMoreInteractions(tokenInvalidator);
     }
 
     @Test
@@ -140,11 +121,8 @@ public class APNSenderTest {
 
         RetryingApnsClient retryingApnsClient = new RetryingApnsClient(apnsClient, 10);
         ApnMessage message = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", true, 30);
-        APNSender apnSender = new APNSender(new SynchronousExecutorService(), accountsManager, retryingApnsClient, "foo", false);
-        apnSender.setApnFallbackManager(fallbackManager);
+        APNSender apnSender = new APNSender(new SynchronousExecutorService(), tokenInvalidator, retryingApnsClient, "foo", false);
 
-        when(destinationDevice.getApnId()).thenReturn(DESTINATION_APN_ID);
-        when(destinationDevice.getPushTimestamp()).thenReturn(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(11));
 
         ListenableFuture<ApnResult> sendFuture = apnSender.sendMessage(message);
         ApnResult apnResult = sendFuture.get();
@@ -162,18 +140,9 @@ public class APNSenderTest {
         assertThat(apnResult.getStatus()).isEqualTo(ApnResult.Status.NO_SUCH_USER);
 
         verifyNoMoreInteractions(apnsClient);
-        verify(accountsManager, times(1)).get(eq(DESTINATION_NUMBER));
-        verify(destinationAccount, times(1)).getDevice(1);
-        verify(destinationDevice, times(1)).getApnId();
-        verify(destinationDevice, times(1)).getPushTimestamp();
-        verify(destinationDevice, times(1)).setApnId(eq((String) null));
-        verify(destinationDevice, times(1)).setVoipApnId(eq((String) null));
-        verify(destinationDevice, times(1)).setFetchesMessages(eq(false));
-        verify(accountsManager, times(1)).update(eq(destinationAccount));
-        verify(fallbackManager, times(1)).cancel(eq(new WebsocketAddress(DESTINATION_NUMBER, 1)));
-
-        verifyNoMoreInteractions(accountsManager);
-        verifyNoMoreInteractions(fallbackManager);
+        verify(tokenInvalidator, times(1)).invalidateApnId(eq(DESTINATION_NUMBER), eq(1L), eq(DESTINATION_APN_ID));
+
+        verifyNoMoreInteractions(tokenInvalidator);
     }
 
     @Test
@@ -192,12 +161,8 @@ public class APNSenderTest {
 
         RetryingApnsClient retryingApnsClient = new RetryingApnsClient(apnsClient, 10);
         ApnMessage message = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", true, 30);
-        APNSender apnSender = new APNSender(new SynchronousExecutorService(), accountsManager, retryingApnsClient, "foo", false);
-        apnSender.setApnFallbackManager(fallbackManager);
+        APNSender apnSender = new APNSender(new SynchronousExecutorService(), tokenInvalidator, retryingApnsClient, "foo", false);
 
-        when(destinationDevice.getApnId()).thenReturn("baz");
-        when(destinationDevice.getVoipApnId()).thenReturn(DESTINATION_APN_ID);
-        when(destinationDevice.getPushTimestamp()).thenReturn(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(11));
 
         ListenableFuture<ApnResult> sendFuture = apnSender.sendMessage(message);
         ApnResult apnResult = sendFuture.get();
@@ -215,117 +180,9 @@ public class APNSenderTest {
         assertThat(apnResult.getStatus()).isEqualTo(ApnResult.Status.NO_SUCH_USER);
 
         verifyNoMoreInteractions(apnsClient);
-        verify(accountsManager, times(1)).get(eq(DESTINATION_NUMBER));
-        verify(destinationAccount, times(1)).getDevice(1);
-        verify(destinationDevice, times(1)).getApnId();
-        verify(destinationDevice, times(1)).getVoipApnId();
-        verify(destinationDevice, times(1)).getPushTimestamp();
-        verify(destinationDevice, times(1)).setApnId(eq((String) null));
-        verify(destinationDevice, times(1)).setVoipApnId(eq((String) null));
-        verify(destinationDevice, times(1)).setFetchesMessages(eq(false));
-        verify(accountsManager, times(1)).update(eq(destinationAccount));
-        verify(fallbackManager, times(1)).cancel(eq(new WebsocketAddress(DESTINATION_NUMBER, 1)));
-
-        verifyNoMoreInteractions(accountsManager);
-        verifyNoMoreInteractions(fallbackManager);
-    }
-
-    @Test
-    public void testRecentUnregisteredUser() throws Exception {
-        ApnsClient apnsClient = mock(ApnsClient.class);
-
-        PushNotificationResponse<SimpleApnsPushNotification> response = mock(PushNotificationResponse.class);
-        when(response.isAccepted()).thenReturn(false);
-        when(response.getRejectionReason()).thenReturn("Unregistered");
-
-        DefaultPromise<PushNotificationResponse<SimpleApnsPushNotification>> result = new DefaultPromise<>(executor);
-        result.setSuccess(response);
+        verify(tokenInvalidator, times(1)).invalidateApnId(eq(DESTINATION_NUMBER), eq(1L), eq(DESTINATION_APN_ID));
 
-        when(apnsClient.sendNotification(any(SimpleApnsPushNotification.class)))
-            .thenReturn(result);
-
-        RetryingApnsClient retryingApnsClient = new RetryingApnsClient(apnsClient, 10);
-        ApnMessage message = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", true, 30);
-        APNSender apnSender = new APNSender(new SynchronousExecutorService(), accountsManager, retryingApnsClient, "foo", false);
-        apnSender.setApnFallbackManager(fallbackManager);
-
-        when(destinationDevice.getApnId()).thenReturn(DESTINATION_APN_ID);
-        when(destinationDevice.getPushTimestamp()).thenReturn(System.currentTimeMillis());
-
-        ListenableFuture<ApnResult> sendFuture = apnSender.sendMessage(message);
-        ApnResult apnResult = sendFuture.get();
-
-        Thread.sleep(1000); // =(
-
-        ArgumentCaptor<SimpleApnsPushNotification> notification = ArgumentCaptor.forClass(SimpleApnsPushNotification.class);
-        verify(apnsClient, times(1)).sendNotification(notification.capture());
-
-        assertThat(notification.getValue().getToken()).isEqualTo(DESTINATION_APN_ID);
-        assertThat(notification.getValue().getExpiration()).isEqualTo(new Date(30));
-        assertThat(notification.getValue().getPayload()).isEqualTo("message");
-        assertThat(notification.getValue().getPriority()).isEqualTo(DeliveryPriority.IMMEDIATE);
-
-        assertThat(apnResult.getStatus()).isEqualTo(ApnResult.Status.NO_SUCH_USER);
-
-        verifyNoMoreInteractions(apnsClient);
-        verify(accountsManager, times(1)).get(eq(DESTINATION_NUMBER));
-        verify(destinationAccount, times(1)).getDevice(1);
-        verify(destinationDevice, times(1)).getApnId();
-        verify(destinationDevice, times(1)).getPushTimestamp();
-
-        verifyNoMoreInteractions(destinationDevice);
-        verifyNoMoreInteractions(destinationAccount);
-        verifyNoMoreInteractions(accountsManager);
-        verifyNoMoreInteractions(fallbackManager);
-    }
-
-    @Test
-    public void testUnregisteredUserOldApnId() throws Exception {
-        ApnsClient apnsClient = mock(ApnsClient.class);
-
-        PushNotificationResponse<SimpleApnsPushNotification> response = mock(PushNotificationResponse.class);
-        when(response.isAccepted()).thenReturn(false);
-        when(response.getRejectionReason()).thenReturn("Unregistered");
-
-        DefaultPromise<PushNotificationResponse<SimpleApnsPushNotification>> result = new DefaultPromise<>(executor);
-        result.setSuccess(response);
-
-        when(apnsClient.sendNotification(any(SimpleApnsPushNotification.class)))
-            .thenReturn(result);
-
-        RetryingApnsClient retryingApnsClient = new RetryingApnsClient(apnsClient, 10);
-        ApnMessage message = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", true, 30);
-        APNSender apnSender = new APNSender(new SynchronousExecutorService(), accountsManager, retryingApnsClient, "foo", false);
-        apnSender.setApnFallbackManager(fallbackManager);
-
-        when(destinationDevice.getApnId()).thenReturn("baz");
-        when(destinationDevice.getPushTimestamp()).thenReturn(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(12));
-
-        ListenableFuture<ApnResult> sendFuture = apnSender.sendMessage(message);
-        ApnResult apnResult = sendFuture.get();
-
-        Thread.sleep(1000); // =(
-
-        ArgumentCaptor<SimpleApnsPushNotification> notification = ArgumentCaptor.forClass(SimpleApnsPushNotification.class);
-        verify(apnsClient, times(1)).sendNotification(notification.capture());
-
-        assertThat(notification.getValue().getToken()).isEqualTo(DESTINATION_APN_ID);
-        assertThat(notification.getValue().getExpiration()).isEqualTo(new Date(30));
-        assertThat(notification.getValue().getPayload()).isEqualTo("message");
-        assertThat(notification.getValue().getPriority()).isEqualTo(DeliveryPriority.IMMEDIATE);
-
-        assertThat(apnResult.getStatus()).isEqualTo(ApnResult.Status.NO_SUCH_USER);
-
-        verifyNoMoreInteractions(apnsClient);
-        verify(accountsManager, times(1)).get(eq(DESTINATION_NUMBER));
-        verify(destinationAccount, times(1)).getDevice(1);
-        verify(destinationDevice, times(2)).getApnId();
-        verify(destinationDevice, times(2)).getVoipApnId();
-
-        verifyNoMoreInteractions(destinationDevice);
-        verifyNoMoreInteractions(destinationAccount);
-        verifyNoMoreInteractions(accountsManager);
-        verifyNoMoreInteractions(fallbackManager);
+        verifyNoMoreInteractions(tokenInvalidator);
     }
 
     @Test
@@ -344,8 +201,7 @@ public class APNSenderTest {
 
         RetryingApnsClient retryingApnsClient = new RetryingApnsClient(apnsClient, 10);
         ApnMessage message = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", true, 30);
-        APNSender apnSender = new APNSender(new SynchronousExecutorService(), accountsManager, retryingApnsClient, "foo", false);
-        apnSender.setApnFallbackManager(fallbackManager);
+        APNSender apnSender = new APNSender(new SynchronousExecutorService(), tokenInvalidator, retryingApnsClient, "foo", false);
 
         ListenableFuture<ApnResult> sendFuture = apnSender.sendMessage(message);
         ApnResult apnResult = sendFuture.get();
@@ -361,8 +217,7 @@ public class APNSenderTest {
         assertThat(apnResult.getStatus()).isEqualTo(ApnResult.Status.GENERIC_FAILURE);
 
         verifyNoMoreInteractions(apnsClient);
-        verifyNoMoreInteractions(accountsManager);
-        verifyNoMoreInteractions(fallbackManager);
+        verifyNoMoreInteractions(tokenInvalidator);
     }
 
     @Test
@@ -385,8 +240,7 @@ public class APNSenderTest {
 
         RetryingApnsClient retryingApnsClient = new RetryingApnsClient(apnsClient, 10);
         ApnMessage message = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", true, 30);
-        APNSender apnSender = new APNSender(new SynchronousExecutorService(), accountsManager, retryingApnsClient, "foo", false);
-        apnSender.setApnFallbackManager(fallbackManager);
+        APNSender apnSender = new APNSender(new SynchronousExecutorService(), tokenInvalidator, retryingApnsClient, "foo", false);
 
         ListenableFuture<ApnResult> sendFuture = apnSender.sendMessage(message);
 
@@ -416,8 +270,7 @@ public class APNSenderTest {
         assertThat(apnResult.getStatus()).isEqualTo(ApnResult.Status.SUCCESS);
 
         verifyNoMoreInteractions(apnsClient);
-        verifyNoMoreInteractions(accountsManager);
-        verifyNoMoreInteractions(fallbackManager);
+        verifyNoMoreInteractions(tokenInvalidator);
     }
 
     @Test
@@ -435,8 +288,7 @@ public class APNSenderTest {
 
         RetryingApnsClient retryingApnsClient = new RetryingApnsClient(apnsClient, 3);
         ApnMessage message = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", true, 30);
-        APNSender apnSender = new APNSender(new SynchronousExecutorService(), accountsManager, retryingApnsClient, "foo", false);
-        apnSender.setApnFallbackManager(fallbackManager);
+        APNSender apnSender = new APNSender(new SynchronousExecutorService(), tokenInvalidator, retryingApnsClient, "foo", false);
 
         ListenableFuture<ApnResult> sendFuture = apnSender.sendMessage(message);
 
@@ -456,8 +308,31 @@ public class APNSenderTest {
         assertThat(notification.getValue().getPriority()).isEqualTo(DeliveryPriority.IMMEDIATE);
 
         verifyNoMoreInteractions(apnsClient);
-        verifyNoMoreInteractions(accountsManager);
-        verifyNoMoreInteractions(fallbackManager);
+        verifyNoMoreInteractions(tokenInvalidator);
     }
 
+    @Test
+    public void testSynchronousFailureReleasesLimiter() throws Exception {
+        RetryingApnsClient apnsClient = mock(RetryingApnsClient.class, new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                throw new IllegalStateException("closed");
+            }
+        });
+
+        ConcurrencyLimiter limiter   = new ConcurrencyLimiter("apn-release-test", 1, 1, 1, 1000);
+        APNSender          apnSender = new APNSender(new SynchronousExecutorService(), tokenInvalidator, apnsClient, limiter, "foo", false);
+        ApnMessage         message   = new ApnMessage(DESTINATION_APN_ID, DESTINATION_NUMBER, 1, "message", false, 30);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                apnSender.sendMessage(message);
+                throw new AssertionError();
+            } catch (IllegalStateException e) {
+                // good
+            }
+        }
+
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+    }
 }
@@ -1,17 +1,18 @@
 package org.whisper.signal.tests.push;
 
+import com.google.common.base.Optional;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.whisper.signal.push.APNSender;
 import org.whisper.signal.push.ApnFallbackManager;
 import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTask;
+import org.whisper.signal.push.ApnFallbackSchedule;
 import org.whisper.signal.push.ApnMessage;
-import org.whisper.signal.storage.PubSubManager;
-import org.whisper.signal.storage.PubSubProtos;
+import org.whisper.signal.push.TransientPushFailureException;
 import org.whisper.signal.util.Util;
-import org.whisper.signal.websocket.WebSocketConnectionInfo;
 import org.whisper.signal.websocket.WebsocketAddress;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -22,13 +23,16 @@ public class ApnFallbackManagerTest {
     @Test
     public void testFullFallback() throws Exception {
         APNSender apnSender = mock(APNSender.class);
-        PubSubManager pubSubManager = mock(PubSubManager.class);
+        ApnFallbackSchedule schedule = mock(ApnFallbackSchedule.class);
         WebsocketAddress address = new WebsocketAddress("+14152222223", 1L);
-        WebSocketConnectionInfo info = new WebSocketConnectionInfo(address);
         ApnMessage message = new ApnMessage("bar", "123", 1, "hmm", true, 1111);
         ApnFallbackTask task = new ApnFallbackTask("foo", "voipfoo", message, 500, 0);
+        ApnFallbackTask retry = new ApnFallbackTask("foo", "voipfoo", message, 500, 1);
 
-        ApnFallbackManager apnFallbackManager = new ApnFallbackManager(apnSender, pubSubManager);
+        when(schedule.claim(address)).thenReturn(Optional.of(task), Optional.of(retry));
+        when(schedule.putIfMissing(eq(address), any(ApnFallbackTask.class))).thenReturn(true);
+
+        ApnFallbackManager apnFallbackManager = new ApnFallbackManager(apnSender, schedule);
         apnFallbackManager.start();
 
         apnFallbackManager.schedule(address, task);
@@ -37,42 +41,115 @@ public class ApnFallbackManagerTest {
 
         ArgumentCaptor<ApnMessage> captor = ArgumentCaptor.forClass(ApnMessage.class);
         verify(apnSender, times(2)).sendMessage(captor.capture());
-        verify(pubSubManager).unsubscribe(eq(info), eq(apnFallbackManager));
+        verify(schedule).put(eq(address), eq(task));
+        verify(schedule, times(2)).claim(eq(address));
 
         List<ApnMessage> arguments = captor.getAllValues();
 
         assertEquals(arguments.get(0).getMessage(), message.getMessage());
         assertEquals(arguments.get(0).getApnId(), task.getVoipApnId());
-//    assertEquals(arguments.get(0).getExpirationTime(), Integer.MAX_VALUE * 1000L);
 
         assertEquals(arguments.get(1).getMessage(), message.getMessage());
         assertEquals(arguments.get(1).getApnId(), task.getApnId());
         assertEquals(arguments.get(1).getExpirationTime(), Integer.MAX_VALUE * 1000L);
+
+        apnFallbackManager.stop();
     }
 
     @Test
     public void testNoFallback() throws Exception {
         APNSender pushServiceClient = mock(APNSender.class);
-        PubSubManager pubSubManager = mock(PubSubManager.class);
+        ApnFallbackSchedule schedule = mock(ApnFallbackSchedule.class);
         WebsocketAddress address = new WebsocketAddress("+14152222222", 1);
-        WebSocketConnectionInfo info = new WebSocketConnectionInfo(address);
         ApnMessage message = new ApnMessage("bar", "123", 1, "hmm", true, 5555);
         ApnFallbackTask task = new ApnFallbackTask("foo", "voipfoo", message, 500, 0);
 
-        ApnFallbackManager apnFallbackManager = new ApnFallbackManager(pushServiceClient, pubSubManager);
+        when(schedule.remove(address)).thenReturn(Optional.of(task));
+        when(schedule.claim(address)).thenReturn(Optional.<ApnFallbackTask>absent());
+
+        ApnFallbackManager apnFallbackManager = new ApnFallbackManager(pushServiceClient, schedule);
         apnFallbackManager.start();
 
         apnFallbackManager.schedule(address, task);
-        apnFallbackManager.onDispatchMessage(info.serialize(),
-            PubSubProtos.PubSubMessage.newBuilder()
-            .setType(PubSubProtos.PubSubMessage.Type.CONNECTED)
-            .build().toByteArray());
+        apnFallbackManager.cancel(address);
 
-        verify(pubSubManager).unsubscribe(eq(info), eq(apnFallbackManager));
+        verify(schedule).remove(eq(address));
 
         Util.sleep(1100);
 
         verifyNoMoreInteractions(pushServiceClient);
+
+        apnFallbackManager.stop();
+    }
+
+    @Test
+    public void testOrphanedFallback() throws Exception {
+        APNSender apnSender = mock(APNSender.class);
+        ApnFallbackSchedule schedule = mock(ApnFallbackSchedule.class);
+        WebsocketAddress address = new WebsocketAddress("+14152222224", 1L);
+        ApnMessage message = new ApnMessage("bar", "123", 1, "hmm", true, 1111);
+        ApnFallbackTask retry = new ApnFallbackTask("foo", "voipfoo", message, 500, 1);
+
+        when(schedule.getDue(anyLong(), anyInt())).thenReturn(Arrays.asList(address));
+        when(schedule.claim(address)).thenReturn(Optional.of(retry));
+
+        ApnFallbackManager apnFallbackManager = new ApnFallbackManager(apnSender, schedule);
+        apnFallbackManager.claimOrphans();
+
+        ArgumentCaptor<ApnMessage> captor = ArgumentCaptor.forClass(ApnMessage.class);
+        verify(apnSender).sendMessage(captor.capture());
+
+        assertEquals(captor.getValue().getApnId(), retry.getApnId());
+
+        apnFallbackManager.stop();
+    }
+
+    @Test
+    public void testTransientFailureRescheduled() throws Exception {
+        APNSender apnSender = mock(APNSender.class);
+        ApnFallbackSchedule schedule = mock(ApnFallbackSchedule.class);
+        WebsocketAddress address = new WebsocketAddress("+14152222225", 1L);
+        ApnMessage message = new ApnMessage("bar", "123", 1, "hmm", true, 1111);
+        ApnFallbackTask voip = new ApnFallbackTask("foo", "voipfoo", message, 500, 0);
+
+        when(schedule.getDue(anyLong(), anyInt())).thenReturn(Arrays.asList(address));
+        when(schedule.claim(address)).thenReturn(Optional.of(voip));
+        when(apnSender.sendMessage(any(ApnMessage.class))).thenThrow(new TransientPushFailureException("limit"));
+
+        ApnFallbackManager apnFallbackManager = new ApnFallbackManager(apnSender, schedule);
+        apnFallbackManager.claimOrphans();
+
+        ArgumentCaptor<ApnFallbackTask> rescheduled = ArgumentCaptor.forClass(ApnFallbackTask.class);
+        verify(schedule, times(1)).putIfMissing(eq(address), rescheduled.capture());
+
+        assertEquals(0, rescheduled.getValue().getAttempt());
+        assertEquals(1, rescheduled.getValue().getFailures());
+        assertEquals(1000, rescheduled.getValue().getDelay());
+
+        apnFallbackManager.stop();
     }
 
+    @Test
+    public void testTransientFailureGivesUp() throws Exception {
+        APNSender apnSender = mock(APNSender.class);
+        ApnFallbackSchedule schedule = mock(ApnFallbackSchedule.class);
+        WebsocketAddress address = new WebsocketAddress("+14152222226", 1L);
+        ApnMessage message = new ApnMessage("bar", "123", 1, "hmm", true, 1111);
+        ApnFallbackTask voip = new ApnFallbackTask("foo", "voipfoo", message, 0, 500, 0, 5);
+
+        when(schedule.getDue(anyLong(), anyInt())).thenReturn(Arrays.asList(address));
+        when(schedule.claim(address)).thenReturn(Optional.of(voip));
+        when(apnSender.sendMessage(any(ApnMessage.class))).thenThrow(new TransientPushFailureException("limit"));
+
+        ApnFallbackManager apnFallbackManager = new ApnFallbackManager(apnSender, schedule);
+        apnFallbackManager.claimOrphans();
+
+        ArgumentCaptor<ApnFallbackTask> rescheduled = ArgumentCaptor.forClass(ApnFallbackTask.class);
+        verify(schedule, times(1)).putIfMissing(eq(address), rescheduled.capture());
+
+        assertEquals(1, rescheduled.getValue().getAttempt());
+        assertEquals(0, rescheduled.getValue().getFailures());
+
+        apnFallbackManager.stop();
+    }
 }
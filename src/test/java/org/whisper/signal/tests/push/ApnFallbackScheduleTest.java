@@ -0,0 +1,142 @@
+package org.whisper.signal.tests.push;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTask;
+import org.whisper.signal.push.ApnFallbackSchedule;
+import org.whisper.signal.push.ApnMessage;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class ApnFallbackScheduleTest {
+
+    private static final int THREADS = 4;
+    private static final int ITERATIONS = 500;
+
+    @Test
+    public void testConcurrentPutAndRemove() throws Exception {
+        final ScriptedRedis redis = new ScriptedRedis();
+        JedisPool jedisPool = mock(JedisPool.class);
+        Jedis jedis = mock(Jedis.class);
+
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.eval(anyString(), ArgumentMatchers.<List<String>>any(), ArgumentMatchers.<List<String>>any())).thenAnswer(redis);
+
+        final ApnFallbackSchedule schedule = new ApnFallbackSchedule(jedisPool);
+        final WebsocketAddress address = new WebsocketAddress("+14152222223", 1L);
+        final ApnFallbackTask task = new ApnFallbackTask("foo", "voipfoo", new ApnMessage("bar", "+14152222223", 1, "hmm", true, 1111), 500, 0);
+
+        final AtomicInteger put = new AtomicInteger(0);
+        final AtomicInteger removed = new AtomicInteger(0);
+        final AtomicInteger lost = new AtomicInteger(0);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS * 2);
+
+        for (int i = 0; i < THREADS; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        if (schedule.putIfMissing(address, task)) put.incrementAndGet();
+                    }
+                }
+            });
+
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        Optional<ApnFallbackTask> removedTask = schedule.remove(address);
+
+                        if (removedTask.isPresent()) {
+                            removed.incrementAndGet();
+
+                            if (!removedTask.get().getVoipApnId().equals("voipfoo")) lost.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertTrue(put.get() > 0);
+        assertEquals(0, lost.get());
+        assertEquals(redis.getScheduled().keySet(), redis.getTasks().keySet());
+        assertEquals(put.get() - removed.get(), redis.getScheduled().size());
+
+        verify(jedis, never()).hsetnx(anyString(), anyString(), anyString());
+        verify(jedis, never()).zrem(anyString(), ArgumentMatchers.<String>any());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Runs the schedule's scripts one at a time, the way Redis would.
+     */
+    private static class ScriptedRedis implements Answer<Object> {
+
+        private final Map<String, String> scheduled = new HashMap<>();
+        private final Map<String, String> tasks = new HashMap<>();
+
+        @Override
+        public synchronized Object answer(InvocationOnMock invocation) {
+            String script = invocation.getArgument(0);
+            List<String> args = invocation.getArgument(2);
+            String member = args.get(0);
+
+            if (script.contains("hsetnx")) {
+                if (tasks.containsKey(member)) {
+                    return 0L;
+                }
+
+                tasks.put(member, args.get(1));
+                scheduled.put(member, args.get(2));
+                return 1L;
+            }
+
+            if (scheduled.remove(member) == null) {
+                return null;
+            }
+
+            return tasks.remove(member);
+        }
+
+        synchronized Map<String, String> getScheduled() {
+            return new HashMap<>(scheduled);
+        }
+
+        synchronized Map<String, String> getTasks() {
+            return new HashMap<>(tasks);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.whisper.signal.tests.push;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTask;
+import org.whisper.signal.push.ApnFallbackTaskWheel;
+import org.whisper.signal.push.ApnMessage;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scheduling and cancelling APN fallbacks on {@link ApnFallbackTaskQueue} and
+ * {@link ApnFallbackTaskWheel} with 100k fallbacks pending.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=org.whisper.signal.tests.push.ApnFallbackSchedulingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApnFallbackSchedulingBenchmark {
+
+    private static final int PENDING = 100000;
+    private static final long DELAY = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"queue", "wheel"})
+    public String scheduler;
+
+    private WebsocketAddress[] addresses;
+    private ApnFallbackTask[] tasks;
+
+    private ApnFallbackTaskQueue queue;
+    private ApnFallbackTaskWheel wheel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ApnMessage message = new ApnMessage("voip", "+14152222222", 1, "{}", true, Long.MAX_VALUE);
+
+        addresses = new WebsocketAddress[PENDING];
+        tasks = new ApnFallbackTask[PENDING];
+
+        for (int i = 0; i < PENDING; i++) {
+            addresses[i] = new WebsocketAddress("+1415" + (2000000 + i), 1);
+            tasks[i] = new ApnFallbackTask("apn" + i, "voip" + i, message, DELAY, 0);
+        }
+
+        if ("queue".equals(scheduler)) {
+            queue = new ApnFallbackTaskQueue();
+        } else {
+            wheel = new ApnFallbackTaskWheel(new ApnFallbackTaskWheel.Listener() {
+                @Override
+                public void onExpired(WebsocketAddress address, ApnFallbackTask task) {
+                }
+            }, 4);
+        }
+
+        for (int i = 0; i < PENDING; i++) {
+            put(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    @Benchmark
+    public Object cancelAndReschedule() {
+        return cancelAndPut();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object cancelAndRescheduleContended() {
+        return cancelAndPut();
+    }
+
+    private Object cancelAndPut() {
+        int index = ThreadLocalRandom.current().nextInt(PENDING);
+        Object removed = queue != null ? queue.remove(addresses[index]) : wheel.remove(addresses[index]);
+
+        put(index);
+        return removed;
+    }
+
+    private void put(int index) {
+        if (queue != null) {
+            queue.put(addresses[index], tasks[index]);
+        } else {
+            wheel.put(addresses[index], tasks[index]);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ApnFallbackSchedulingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
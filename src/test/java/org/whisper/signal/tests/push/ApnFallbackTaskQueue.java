@@ -0,0 +1,67 @@
+package org.whisper.signal.tests.push;
+
+import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTask;
+import org.whisper.signal.push.ApnFallbackTaskWheel;
+import org.whisper.signal.util.Util;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * The original single-monitor fallback queue, superseded by {@link ApnFallbackTaskWheel}
+ * and kept as the baseline for its benchmark.
+ */
+public class ApnFallbackTaskQueue {
+
+    private final LinkedHashMap<WebsocketAddress, ApnFallbackTask> tasks = new LinkedHashMap<>();
+
+    public Entry<WebsocketAddress, ApnFallbackTask> get() {
+        while (true) {
+            long timeDelta;
+
+            synchronized (tasks) {
+                while (tasks.isEmpty()) {
+                    Util.wait(tasks);
+                }
+
+                Iterator<Entry<WebsocketAddress, ApnFallbackTask>> iterator = tasks.entrySet().iterator();
+                Entry<WebsocketAddress, ApnFallbackTask> nextTask = iterator.next();
+
+                timeDelta = nextTask.getValue().getExecutionTime() - System.currentTimeMillis();
+
+                if (timeDelta <= 0) {
+                    iterator.remove();
+                    return nextTask;
+                }
+            }
+
+            Util.sleep(timeDelta);
+        }
+    }
+
+    public boolean put(WebsocketAddress address, ApnFallbackTask task) {
+        synchronized (tasks) {
+            ApnFallbackTask previous = tasks.put(address, task);
+            tasks.notifyAll();
+
+            return previous == null;
+        }
+    }
+
+    public boolean putIfMissing(WebsocketAddress address, ApnFallbackTask task) {
+        synchronized (tasks) {
+            if (tasks.containsKey(address)) {
+                return false;
+            }
+            return put(address, task);
+        }
+    }
+
+    public ApnFallbackTask remove(WebsocketAddress address) {
+        synchronized (tasks) {
+            return tasks.remove(address);
+        }
+    }
+}
@@ -2,7 +2,6 @@ package org.whisper.signal.tests.push;
 
 import org.junit.Test;
 import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTask;
-import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTaskQueue;
 import org.whisper.signal.util.Util;
 import org.whisper.signal.websocket.WebsocketAddress;
 
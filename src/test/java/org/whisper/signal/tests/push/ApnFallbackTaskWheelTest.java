@@ -0,0 +1,70 @@
+package org.whisper.signal.tests.push;
+
+import org.junit.Test;
+import org.whisper.signal.push.ApnFallbackManager.ApnFallbackTask;
+import org.whisper.signal.push.ApnFallbackTaskWheel;
+import org.whisper.signal.push.ApnMessage;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ApnFallbackTaskWheelTest {
+
+    private final ApnMessage message = new ApnMessage("bar", "123", 1, "hmm", true, 1111);
+
+    @Test
+    public void testEarlierDeadlineFiresFirst() throws Exception {
+        final List<WebsocketAddress> fired = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(2);
+
+        ApnFallbackTaskWheel wheel = new ApnFallbackTaskWheel(new ApnFallbackTaskWheel.Listener() {
+            @Override
+            public void onExpired(WebsocketAddress address, ApnFallbackTask task) {
+                fired.add(address);
+                latch.countDown();
+            }
+        }, 1);
+
+        WebsocketAddress later = new WebsocketAddress("+14152222222", 1);
+        WebsocketAddress earlier = new WebsocketAddress("+14152222223", 1);
+
+        wheel.put(later, new ApnFallbackTask("foo", "voipfoo", message, 600, 0));
+        wheel.put(earlier, new ApnFallbackTask("bar", "voipbar", message, 100, 0));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(earlier, fired.get(0));
+        assertEquals(later, fired.get(1));
+        assertEquals(0, wheel.size());
+
+        wheel.stop();
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        ApnFallbackTaskWheel wheel = new ApnFallbackTaskWheel(new ApnFallbackTaskWheel.Listener() {
+            @Override
+            public void onExpired(WebsocketAddress address, ApnFallbackTask task) {
+                latch.countDown();
+            }
+        }, 1);
+
+        WebsocketAddress address = new WebsocketAddress("+14152222222", 1);
+        ApnFallbackTask task = new ApnFallbackTask("foo", "voipfoo", message, 200, 0);
+
+        assertTrue(wheel.put(address, task));
+        assertFalse(wheel.putIfMissing(address, new ApnFallbackTask("bar", "voipbar", message, 100, 0)));
+        assertEquals(task, wheel.remove(address));
+        assertNull(wheel.remove(address));
+
+        assertFalse(latch.await(500, TimeUnit.MILLISECONDS));
+
+        wheel.stop();
+    }
+}
@@ -0,0 +1,146 @@
+package org.whisper.signal.tests.push;
+
+import com.relayrides.pushy.apns.ApnsClient;
+import com.relayrides.pushy.apns.PushNotificationResponse;
+import com.relayrides.pushy.apns.util.SimpleApnsPushNotification;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+import static org.mockito.Mockito.*;
+
+/**
+ * A simulated APNs connection at the {@link ApnsClient} boundary, for tests and load runs.
+ *
+ * Every notification is answered after {@code latency} milliseconds on a netty executor,
+ * the same way pushy completes its futures. A fraction of notifications are rejected with
+ * a generic reason, and any token registered with {@link #unregister} is rejected as
+ * "Unregistered".
+ */
+public class ApnsSimulator {
+
+    public interface Listener {
+        void onResponse(String token, String rejectionReason);
+    }
+
+    private final Set<String> unregistered = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicLong  delivered    = new AtomicLong();
+
+    private final DefaultEventExecutorGroup executors;
+    private final ApnsClient                client;
+
+    private volatile long     latency;
+    private volatile double   errorRate;
+    private volatile Listener listener;
+
+    public ApnsSimulator(int threads) {
+        this.executors = new DefaultEventExecutorGroup(threads);
+        this.client    = mock(ApnsClient.class);
+
+        when(client.sendNotification(any(SimpleApnsPushNotification.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return respond((SimpleApnsPushNotification) invocation.getArguments()[0]);
+            }
+        });
+
+        when(client.connect(anyString())).thenReturn(executors.next().<Void>newSucceededFuture(null));
+        when(client.disconnect()).thenReturn(executors.next().<Void>newSucceededFuture(null));
+    }
+
+    public ApnsClient getClient() {
+        return client;
+    }
+
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void unregister(String token) {
+        unregistered.add(token);
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public void stop() {
+        executors.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    private Promise<PushNotificationResponse<SimpleApnsPushNotification>> respond(final SimpleApnsPushNotification notification) {
+        EventExecutor executor = executors.next();
+        final Promise<PushNotificationResponse<SimpleApnsPushNotification>> promise = executor.newPromise();
+
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                String rejectionReason = null;
+
+                if (unregistered.contains(notification.getToken())) {
+                    rejectionReason = "Unregistered";
+                } else if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    rejectionReason = "BadDeviceToken";
+                } else {
+                    delivered.incrementAndGet();
+                }
+
+                Listener listener = ApnsSimulator.this.listener;
+                if (listener != null) listener.onResponse(notification.getToken(), rejectionReason);
+
+                promise.setSuccess(new Response(notification, rejectionReason));
+            }
+        }, latency, TimeUnit.MILLISECONDS);
+
+        return promise;
+    }
+
+    private static class Response implements PushNotificationResponse<SimpleApnsPushNotification> {
+
+        private final SimpleApnsPushNotification notification;
+        private final String                     rejectionReason;
+
+        private Response(SimpleApnsPushNotification notification, String rejectionReason) {
+            this.notification    = notification;
+            this.rejectionReason = rejectionReason;
+        }
+
+        @Override
+        public SimpleApnsPushNotification getPushNotification() {
+            return notification;
+        }
+
+        @Override
+        public boolean isAccepted() {
+            return rejectionReason == null;
+        }
+
+        @Override
+        public String getRejectionReason() {
+            return rejectionReason;
+        }
+
+        @Override
+        public Date getTokenInvalidationTimestamp() {
+            return null;
+        }
+    }
+}
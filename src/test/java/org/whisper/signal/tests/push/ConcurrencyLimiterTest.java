@@ -0,0 +1,82 @@
+package org.whisper.signal.tests.push;
+
+import org.junit.Test;
+import org.whisper.signal.push.ConcurrencyLimiter;
+import org.whisper.signal.push.ConcurrencyLimiter.State;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test-limit", 2, 1, 10, 100);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+
+        limiter.onSuccess(1, TimeUnit.MILLISECONDS);
+        limiter.onSuccess(1, TimeUnit.MILLISECONDS);
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testAdditiveIncreaseMultiplicativeDecrease() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test-aimd", 4, 1, 10, 100);
+
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < limiter.getLimit(); j++) assertTrue(limiter.tryAcquire());
+            while (limiter.getInFlight() > 0) limiter.onSuccess(1, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(10, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.onSuccess(500, TimeUnit.MILLISECONDS);
+
+        assertEquals(7, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.onFailure();
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(State.CLOSED, limiter.getState());
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test-breaker", 100, 1, 100, 100, 50);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onFailure();
+        }
+
+        assertEquals(State.OPEN, limiter.getState());
+        assertFalse(limiter.tryAcquire());
+
+        Thread.sleep(100);
+
+        assertTrue(limiter.tryAcquire());
+        assertEquals(State.HALF_OPEN, limiter.getState());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.onFailure();
+        assertEquals(State.OPEN, limiter.getState());
+
+        Thread.sleep(100);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.onSuccess(1, TimeUnit.MILLISECONDS);
+
+        assertEquals(State.CLOSED, limiter.getState());
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1, limiter.getInFlight());
+    }
+}
@@ -3,25 +3,35 @@ package org.whisper.signal.tests.push;
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.SettableFuture;
 import org.junit.Test;
-import org.mockito.Matchers;
-import org.whispersystems.gcm.server.Message;
-import org.whispersystems.gcm.server.Result;
-import org.whispersystems.gcm.server.Sender;
+import org.whisper.signal.push.ConcurrencyLimiter;
 import org.whisper.signal.push.GCMSender;
+import org.whisper.signal.push.GcmMulticastSender;
+import org.whisper.signal.push.GcmMulticastSender.Result;
 import org.whisper.signal.push.GcmMessage;
+import org.whisper.signal.push.PushTokenInvalidator;
+import org.whisper.signal.push.TransientPushFailureException;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.Device;
 import org.whisper.signal.tests.util.SynchronousExecutorService;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 public class GCMSenderTest {
 
     @Test
-    public void testSendMessage() {
+    public void testSendMessage() throws Exception {
         AccountsManager accountsManager = mock(AccountsManager.class);
-        Sender sender = mock(Sender.class);
+        PushTokenInvalidator tokenInvalidator = mock(PushTokenInvalidator.class);
+        GcmMulticastSender sender = mock(GcmMulticastSender.class);
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
         Result successResult = mock(Result.class);
         SynchronousExecutorService executorService = new SynchronousExecutorService();
 
@@ -31,26 +41,28 @@ public class GCMSenderTest {
         when(successResult.isSuccess()).thenReturn(true);
 
         GcmMessage message = new GcmMessage("foo", "+12223334444", 1, false);
-        GCMSender gcmSender = new GCMSender(accountsManager, sender, executorService);
+        GCMSender gcmSender = new GCMSender(accountsManager, tokenInvalidator, sender, executorService, scheduler, 50);
 
-        SettableFuture<Result> successFuture = SettableFuture.create();
-        successFuture.set(successResult);
+        SettableFuture<List<Result>> successFuture = SettableFuture.create();
+        successFuture.set(Collections.singletonList(successResult));
 
-        when(sender.send(any(Message.class), Matchers.anyObject())).thenReturn(successFuture);
-        when(successResult.getContext()).thenReturn(message);
+        when(sender.send(anyString(), anyListOf(String.class))).thenReturn(successFuture);
 
         gcmSender.sendMessage(message);
+        gcmSender.flush();
 
-        verify(sender, times(1)).send(any(Message.class), eq(message));
+        verify(sender, times(1)).send(eq("notification"), eq(Collections.singletonList(message.getGcmId())));
     }
 
     @Test
-    public void testSendError() {
+    public void testSendError() throws Exception {
         String destinationNumber = "+12223334444";
         String gcmId = "foo";
 
         AccountsManager accountsManager = mock(AccountsManager.class);
-        Sender sender = mock(Sender.class);
+        PushTokenInvalidator tokenInvalidator = mock(PushTokenInvalidator.class);
+        GcmMulticastSender sender = mock(GcmMulticastSender.class);
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
         Result invalidResult = mock(Result.class);
         SynchronousExecutorService executorService = new SynchronousExecutorService();
 
@@ -67,30 +79,31 @@ public class GCMSenderTest {
         when(invalidResult.isSuccess()).thenReturn(true);
 
         GcmMessage message = new GcmMessage(gcmId, destinationNumber, 1, false);
-        GCMSender gcmSender = new GCMSender(accountsManager, sender, executorService);
+        GCMSender gcmSender = new GCMSender(accountsManager, tokenInvalidator, sender, executorService, scheduler, 50);
 
-        SettableFuture<Result> invalidFuture = SettableFuture.create();
-        invalidFuture.set(invalidResult);
+        SettableFuture<List<Result>> invalidFuture = SettableFuture.create();
+        invalidFuture.set(Collections.singletonList(invalidResult));
 
-        when(sender.send(any(Message.class), Matchers.anyObject())).thenReturn(invalidFuture);
-        when(invalidResult.getContext()).thenReturn(message);
+        when(sender.send(anyString(), anyListOf(String.class))).thenReturn(invalidFuture);
 
         gcmSender.sendMessage(message);
+        gcmSender.flush();
 
-        verify(sender, times(1)).send(any(Message.class), eq(message));
-        verify(accountsManager, times(1)).get(eq(destinationNumber));
-        verify(accountsManager, times(1)).update(eq(destinationAccount));
-        verify(destinationDevice, times(1)).setGcmId(eq((String) null));
+        verify(sender, times(1)).send(eq("notification"), eq(Collections.singletonList(message.getGcmId())));
+        verify(tokenInvalidator, times(1)).invalidateGcmId(eq(destinationNumber), eq(1L), eq(gcmId));
+        verifyZeroInteractions(accountsManager);
     }
 
     @Test
-    public void testCanonicalId() {
+    public void testCanonicalId() throws Exception {
         String destinationNumber = "+12223334444";
         String gcmId = "foo";
         String canonicalId = "bar";
 
         AccountsManager accountsManager = mock(AccountsManager.class);
-        Sender sender = mock(Sender.class);
+        PushTokenInvalidator tokenInvalidator = mock(PushTokenInvalidator.class);
+        GcmMulticastSender sender = mock(GcmMulticastSender.class);
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
         Result canonicalResult = mock(Result.class);
         SynchronousExecutorService executorService = new SynchronousExecutorService();
 
@@ -108,20 +121,139 @@ public class GCMSenderTest {
         when(canonicalResult.getCanonicalRegistrationId()).thenReturn(canonicalId);
 
         GcmMessage message = new GcmMessage(gcmId, destinationNumber, 1, false);
-        GCMSender gcmSender = new GCMSender(accountsManager, sender, executorService);
+        GCMSender gcmSender = new GCMSender(accountsManager, tokenInvalidator, sender, executorService, scheduler, 50);
 
-        SettableFuture<Result> invalidFuture = SettableFuture.create();
-        invalidFuture.set(canonicalResult);
+        SettableFuture<List<Result>> invalidFuture = SettableFuture.create();
+        invalidFuture.set(Collections.singletonList(canonicalResult));
 
-        when(sender.send(any(Message.class), Matchers.anyObject())).thenReturn(invalidFuture);
-        when(canonicalResult.getContext()).thenReturn(message);
+        when(sender.send(anyString(), anyListOf(String.class))).thenReturn(invalidFuture);
 
         gcmSender.sendMessage(message);
+        gcmSender.flush();
 
-        verify(sender, times(1)).send(any(Message.class), eq(message));
+        verify(sender, times(1)).send(eq("notification"), eq(Collections.singletonList(message.getGcmId())));
         verify(accountsManager, times(1)).get(eq(destinationNumber));
-        verify(accountsManager, times(1)).update(eq(destinationAccount));
+        verify(accountsManager, times(1)).updateDevice(eq(destinationAccount), eq(destinationDevice));
         verify(destinationDevice, times(1)).setGcmId(eq(canonicalId));
     }
 
+    @Test
+    public void testBatching() throws Exception {
+        String destinationNumber = "+12223334444";
+
+        AccountsManager accountsManager = mock(AccountsManager.class);
+        PushTokenInvalidator tokenInvalidator = mock(PushTokenInvalidator.class);
+        GcmMulticastSender sender = mock(GcmMulticastSender.class);
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        SynchronousExecutorService executorService = new SynchronousExecutorService();
+
+        Account destinationAccount = mock(Account.class);
+        Device destinationDevice = mock(Device.class);
+
+        when(destinationAccount.getDevice(2)).thenReturn(Optional.of(destinationDevice));
+        when(accountsManager.get(destinationNumber)).thenReturn(Optional.of(destinationAccount));
+        when(destinationDevice.getGcmId()).thenReturn("bar");
+
+        SettableFuture<List<Result>> notificationFuture = SettableFuture.create();
+        notificationFuture.set(Arrays.asList(new Result("1:1", null, null), new Result(null, null, "NotRegistered")));
+
+        SettableFuture<List<Result>> receiptFuture = SettableFuture.create();
+        receiptFuture.set(Collections.singletonList(new Result("1:2", null, null)));
+
+        when(sender.send(eq("notification"), anyListOf(String.class))).thenReturn(notificationFuture);
+        when(sender.send(eq("receipt"), anyListOf(String.class))).thenReturn(receiptFuture);
+
+        GCMSender gcmSender = new GCMSender(accountsManager, tokenInvalidator, sender, executorService, scheduler, 50);
+
+        gcmSender.sendMessage(new GcmMessage("foo", destinationNumber, 1, false));
+        gcmSender.sendMessage(new GcmMessage("bar", destinationNumber, 2, false));
+        gcmSender.sendMessage(new GcmMessage("baz", destinationNumber, 3, true));
+
+        verify(scheduler, times(2)).schedule(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+        verifyZeroInteractions(sender);
+
+        gcmSender.flush();
+
+        verify(sender, times(1)).send(eq("notification"), eq(Arrays.asList("foo", "bar")));
+        verify(sender, times(1)).send(eq("receipt"), eq(Collections.singletonList("baz")));
+        verify(tokenInvalidator, times(1)).invalidateGcmId(eq(destinationNumber), eq(2L), eq("bar"));
+        verifyNoMoreInteractions(tokenInvalidator);
+        verifyZeroInteractions(accountsManager);
+    }
+
+    @Test
+    public void testLimited() throws Exception {
+        AccountsManager accountsManager = mock(AccountsManager.class);
+        PushTokenInvalidator tokenInvalidator = mock(PushTokenInvalidator.class);
+        GcmMulticastSender sender = mock(GcmMulticastSender.class);
+        ConcurrencyLimiter limiter = mock(ConcurrencyLimiter.class);
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        SynchronousExecutorService executorService = new SynchronousExecutorService();
+
+        SettableFuture<List<Result>> future = SettableFuture.create();
+        future.set(Arrays.asList(new Result("1:1", null, null), new Result("1:2", null, null)));
+
+        when(sender.send(eq("notification"), anyListOf(String.class))).thenReturn(future);
+        when(limiter.tryAcquire()).thenReturn(false, true);
+
+        GCMSender gcmSender = new GCMSender(accountsManager, tokenInvalidator, sender, limiter, executorService, scheduler, 50);
+
+        gcmSender.sendMessage(new GcmMessage("foo", "+12223334444", 1, false));
+        gcmSender.flush();
+
+        verifyZeroInteractions(sender);
+        verify(scheduler, times(2)).schedule(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+
+        gcmSender.sendMessage(new GcmMessage("bar", "+12223334444", 2, false));
+        gcmSender.flush();
+
+        verify(sender, times(1)).send(eq("notification"), eq(Arrays.asList("foo", "bar")));
+        verify(limiter, times(1)).onSuccess(anyLong(), eq(TimeUnit.NANOSECONDS));
+
+        when(limiter.isOpen()).thenReturn(true);
+
+        try {
+            gcmSender.sendMessage(new GcmMessage("baz", "+12223334444", 3, false));
+            fail("Sent through an open circuit");
+        } catch (TransientPushFailureException e) {
+            // good
+        }
+    }
+
+    @Test
+    public void testOpenCircuitRecoversWithoutBacklog() throws Exception {
+        GcmMulticastSender         sender          = mock(GcmMulticastSender.class);
+        ConcurrencyLimiter         limiter         = new ConcurrencyLimiter("gcm-recover-test", 10, 1, 10, 1000, 1000);
+        SynchronousExecutorService executorService = new SynchronousExecutorService();
+
+        SettableFuture<List<Result>> future = SettableFuture.create();
+        future.set(Collections.singletonList(new Result("1:1", null, null)));
+
+        when(sender.send(eq("notification"), anyListOf(String.class))).thenReturn(future);
+
+        GCMSender gcmSender = new GCMSender(mock(AccountsManager.class), mock(PushTokenInvalidator.class), sender, limiter,
+                                            executorService, mock(ScheduledExecutorService.class), 50);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onFailure();
+        }
+
+        assertEquals(ConcurrencyLimiter.State.OPEN, limiter.getState());
+
+        try {
+            gcmSender.sendMessage(new GcmMessage("foo", "+12223334444", 1, false));
+            fail("Sent through an open circuit");
+        } catch (TransientPushFailureException e) {
+            // good
+        }
+
+        Thread.sleep(1100);
+
+        gcmSender.sendMessage(new GcmMessage("foo", "+12223334444", 1, false));
+        gcmSender.flush();
+
+        verify(sender, times(1)).send(eq("notification"), eq(Collections.singletonList("foo")));
+        assertEquals(ConcurrencyLimiter.State.CLOSED, limiter.getState());
+    }
 }
@@ -0,0 +1,80 @@
+package org.whisper.signal.tests.push;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.whisper.signal.push.GcmMulticastSender;
+import org.whisper.signal.push.GcmMulticastSender.MalformedResponseException;
+import org.whisper.signal.push.GcmMulticastSender.Result;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class GcmMulticastSenderTest {
+
+    private GcmSimulator simulator;
+    private GcmMulticastSender sender;
+
+    @Before
+    public void setup() throws Exception {
+        simulator = new GcmSimulator(2);
+        simulator.start();
+
+        sender = new GcmMulticastSender("key", 2, simulator.getUrl());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sender.stop();
+        simulator.stop();
+    }
+
+    @Test
+    public void testMulticast() throws Exception {
+        simulator.unregister("bar");
+
+        List<Result> results = sender.send("notification", Arrays.asList("foo", "bar", "baz"))
+                                     .get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, simulator.getRequests());
+        assertEquals(3, results.size());
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).isUnregistered());
+        assertTrue(results.get(2).isSuccess());
+    }
+
+    @Test
+    public void testProviderErrors() throws Exception {
+        simulator.setErrorRate(1.0);
+
+        List<Result> results = sender.send("receipt", Arrays.asList("foo", "bar")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, results.size());
+
+        for (Result result : results) {
+            assertFalse(result.isSuccess());
+            assertFalse(result.isUnregistered());
+            assertEquals("Unavailable", result.getError());
+        }
+    }
+
+    @Test
+    public void testResultMismatchNotRetried() throws Exception {
+        simulator.setTruncateResults(true);
+
+        try {
+            sender.send("notification", Arrays.asList("foo", "bar")).get(5, TimeUnit.SECONDS);
+            fail("Mismatched results accepted");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MalformedResponseException);
+        }
+
+        assertEquals(1, simulator.getRequests());
+    }
+}
@@ -0,0 +1,161 @@
+package org.whisper.signal.tests.push;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An embeddable GCM HTTP endpoint for tests and load runs.
+ *
+ * Each request is answered after {@code latency} milliseconds. A fraction of requests
+ * fail with a 503, a fraction of registration ids come back as "Unavailable", and any
+ * id registered with {@link #unregister} comes back as "NotRegistered".
+ */
+public class GcmSimulator {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public interface Listener {
+        void onResult(String registrationId, String error);
+    }
+
+    private final Set<String> unregistered = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicLong  requests     = new AtomicLong();
+    private final AtomicLong  delivered    = new AtomicLong();
+
+    private final HttpServer      server;
+    private final ExecutorService executor;
+
+    private volatile long     latency;
+    private volatile double   serverErrorRate;
+    private volatile double   errorRate;
+    private volatile boolean  truncateResults;
+    private volatile Listener listener;
+
+    public GcmSimulator(int threads) throws IOException {
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server   = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/gcm/send", new SendHandler());
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/gcm/send";
+    }
+
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    public void setServerErrorRate(double serverErrorRate) {
+        this.serverErrorRate = serverErrorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void setTruncateResults(boolean truncateResults) {
+        this.truncateResults = truncateResults;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void unregister(String registrationId) {
+        unregistered.add(registrationId);
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    private class SendHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                requests.incrementAndGet();
+
+                if (latency > 0) {
+                    TimeUnit.MILLISECONDS.sleep(latency);
+                }
+
+                if (ThreadLocalRandom.current().nextDouble() < serverErrorRate) {
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+
+                JsonNode request = mapper.readTree(exchange.getRequestBody());
+                ObjectNode response = mapper.createObjectNode();
+                ArrayNode results = response.putArray("results");
+
+                for (JsonNode node : request.get("registration_ids")) {
+                    String registrationId = node.asText();
+                    String error = null;
+                    ObjectNode result = results.addObject();
+
+                    if (unregistered.contains(registrationId)) {
+                        error = "NotRegistered";
+                    } else if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                        error = "Unavailable";
+                    }
+
+                    if (error == null) {
+                        result.put("message_id", "0:" + delivered.incrementAndGet());
+                    } else {
+                        result.put("error", error);
+                    }
+
+                    Listener listener = GcmSimulator.this.listener;
+                    if (listener != null) listener.onResult(registrationId, error);
+                }
+
+                if (truncateResults && results.size() > 0) {
+                    results.remove(results.size() - 1);
+                }
+
+                byte[] body = mapper.writeValueAsBytes(response);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                exchange.sendResponseHeaders(503, -1);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.whisper.signal.tests.push;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.whisper.signal.push.PushCoalescer;
+import org.whisper.signal.push.PushCoalescer.Notification;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.Device;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class PushCoalescerTest {
+
+    @Test
+    public void testCoalesce() throws Exception {
+        PushCoalescer.NotificationSender sender = mock(PushCoalescer.NotificationSender.class);
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        Account account = mock(Account.class);
+        Device device = mock(Device.class);
+
+        when(account.getNumber()).thenReturn("+14152222222");
+        when(device.getId()).thenReturn(1L);
+
+        PushCoalescer coalescer = new PushCoalescer(1000, sender, executor);
+
+        coalescer.send(account, device, 1, false);
+
+        ArgumentCaptor<Notification> notifications = ArgumentCaptor.forClass(Notification.class);
+        verify(sender, times(1)).send(notifications.capture());
+        assertEquals(1, notifications.getValue().getMessageQueueDepth());
+
+        coalescer.send(account, device, 2, true);
+        coalescer.send(account, device, 3, false);
+
+        verify(sender, times(1)).send(any(Notification.class));
+
+        ArgumentCaptor<Runnable> windowClose = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).schedule(windowClose.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+        windowClose.getValue().run();
+
+        verify(sender, times(2)).send(notifications.capture());
+
+        List<Notification> sent = notifications.getAllValues();
+        Notification coalesced = sent.get(sent.size() - 1);
+
+        assertEquals(3, coalesced.getMessageQueueDepth());
+        assertTrue(coalesced.isFallback());
+
+        verify(executor, times(2)).schedule(windowClose.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+        windowClose.getValue().run();
+        verify(sender, times(2)).send(any(Notification.class));
+
+        coalescer.send(account, device, 1, false);
+        verify(sender, times(3)).send(any(Notification.class));
+    }
+
+    @Test
+    public void testSenderFailureClosesWindow() throws Exception {
+        PushCoalescer.NotificationSender sender = mock(PushCoalescer.NotificationSender.class);
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        Account account = mock(Account.class);
+        Device device = mock(Device.class);
+
+        when(account.getNumber()).thenReturn("+14152222222");
+        when(device.getId()).thenReturn(1L);
+
+        doThrow(new IllegalStateException("gcm down"))
+            .doNothing()
+            .when(sender).send(any(Notification.class));
+
+        PushCoalescer coalescer = new PushCoalescer(1000, sender, executor);
+
+        coalescer.send(account, device, 1, false);
+
+        ArgumentCaptor<Runnable> windowClose = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, times(1)).schedule(windowClose.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+
+        windowClose.getValue().run();
+
+        coalescer.send(account, device, 2, false);
+
+        ArgumentCaptor<Notification> notifications = ArgumentCaptor.forClass(Notification.class);
+        verify(sender, times(2)).send(notifications.capture());
+        assertEquals(2, notifications.getValue().getMessageQueueDepth());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        PushCoalescer.NotificationSender sender = mock(PushCoalescer.NotificationSender.class);
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        Account account = mock(Account.class);
+        Device device = mock(Device.class);
+
+        PushCoalescer coalescer = new PushCoalescer(0, sender, executor);
+
+        coalescer.send(account, device, 1, false);
+        coalescer.send(account, device, 2, false);
+
+        verify(sender, times(2)).send(any(Notification.class));
+        verifyZeroInteractions(executor);
+    }
+}
@@ -0,0 +1,77 @@
+package org.whisper.signal.tests.push;
+
+import org.junit.Test;
+import org.whisper.signal.push.PushLaneExecutor;
+import org.whisper.signal.push.PushLaneExecutor.Lane;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PushLaneExecutorTest {
+
+    @Test
+    public void testPriorityAndAdmission() throws Exception {
+        PushLaneExecutor executor = new PushLaneExecutor(1, 2);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> order = new LinkedList<>();
+
+        assertTrue(executor.offer(Lane.USER, new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }));
+
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        assertTrue(executor.offer(Lane.RECEIPT, new Recorder(order, "receipt-1")));
+        assertTrue(executor.offer(Lane.RECEIPT, new Recorder(order, "receipt-2")));
+        assertFalse(executor.offer(Lane.RECEIPT, new Recorder(order, "receipt-3")));
+
+        assertTrue(executor.offer(Lane.SYNC, new Recorder(order, "sync-1")));
+        assertTrue(executor.offer(Lane.USER, new Recorder(order, "user-1")));
+
+        assertEquals(2, executor.getSize(Lane.RECEIPT));
+        assertEquals(1, executor.getSize(Lane.USER));
+
+        release.countDown();
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(4, order.size());
+        assertEquals("user-1", order.get(0));
+        assertEquals("sync-1", order.get(1));
+        assertEquals("receipt-1", order.get(2));
+        assertEquals("receipt-2", order.get(3));
+
+        assertFalse(executor.offer(Lane.USER, new Recorder(order, "user-2")));
+    }
+
+    private static class Recorder implements Runnable {
+        private final List<String> order;
+        private final String       name;
+
+        private Recorder(List<String> order, String name) {
+            this.order = order;
+            this.name  = name;
+        }
+
+        @Override
+        public void run() {
+            synchronized (order) {
+                order.add(name);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.whisper.signal.tests.push;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.whisper.signal.push.PushLatencyTracker;
+import org.whisper.signal.util.Constants;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+public class PushLatencyTrackerTest {
+
+    private final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+
+    @Test
+    public void testPushSent() {
+        JedisPool jedisPool = mock(JedisPool.class);
+        Jedis jedis = mock(Jedis.class);
+        Pipeline pipeline = mock(Pipeline.class);
+
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+
+        PushLatencyTracker tracker = new PushLatencyTracker(jedisPool);
+        tracker.onPushSent("apn", "+14152222222", 1);
+        tracker.onPushSent("gcm", "+14152222222", 1);
+
+        verifyZeroInteractions(jedisPool);
+        assertEquals(1, tracker.getBacklog());
+
+        tracker.flush();
+
+        verify(pipeline).set(eq("push_sent::+14152222222:1"), startsWith("apn:"), eq("NX"), eq("EX"), eq(3600));
+        verify(pipeline).sync();
+        verify(jedis).close();
+        assertEquals(0, tracker.getBacklog());
+    }
+
+    @Test
+    public void testDeviceArrived() {
+        JedisPool jedisPool = mock(JedisPool.class);
+        Jedis jedis = mock(Jedis.class);
+        Pipeline pipeline = mock(Pipeline.class);
+        Response<String> mark = mock(Response.class);
+        Timer timer = metricRegistry.timer(name(PushLatencyTracker.class, "gcm", "push_to_websocket"));
+        long count = timer.getCount();
+
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(mark.get()).thenReturn("gcm:" + (System.currentTimeMillis() - 1000));
+        when(pipeline.eval(anyString(), eq(Collections.singletonList("push_sent::+14152222222:1")), ArgumentMatchers.<List<String>>any()))
+            .thenReturn(mark);
+
+        PushLatencyTracker tracker = new PushLatencyTracker(jedisPool);
+        tracker.onDeviceArrived("+14152222222", 1, PushLatencyTracker.Arrival.WEBSOCKET);
+
+        verifyZeroInteractions(jedisPool);
+
+        tracker.flush();
+
+        verify(pipeline).sync();
+        assertEquals(count + 1, timer.getCount());
+        assertTrue(timer.getSnapshot().getMax() >= 1000);
+    }
+
+    @Test
+    public void testDeviceArrivedWithoutPush() {
+        JedisPool jedisPool = mock(JedisPool.class);
+        Jedis jedis = mock(Jedis.class);
+        Pipeline pipeline = mock(Pipeline.class);
+        Response<String> mark = mock(Response.class);
+        Timer timer = metricRegistry.timer(name(PushLatencyTracker.class, "apn", "push_to_fetch"));
+        long count = timer.getCount();
+
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(pipeline.eval(anyString(), ArgumentMatchers.<List<String>>any(), ArgumentMatchers.<List<String>>any())).thenReturn(mark);
+
+        PushLatencyTracker tracker = new PushLatencyTracker(jedisPool);
+        tracker.onDeviceArrived("+14152222222", 1, PushLatencyTracker.Arrival.FETCH);
+        tracker.flush();
+
+        assertEquals(count, timer.getCount());
+    }
+
+    @Test
+    public void testArrivalBeforeFlushMatchesLocalPush() {
+        JedisPool jedisPool = mock(JedisPool.class);
+        Jedis jedis = mock(Jedis.class);
+        Pipeline pipeline = mock(Pipeline.class);
+        Response<String> mark = mock(Response.class);
+        Timer timer = metricRegistry.timer(name(PushLatencyTracker.class, "voip", "push_to_fetch"));
+        long count = timer.getCount();
+
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(pipeline.eval(anyString(), ArgumentMatchers.<List<String>>any(), ArgumentMatchers.<List<String>>any())).thenReturn(mark);
+
+        PushLatencyTracker tracker = new PushLatencyTracker(jedisPool);
+        tracker.onPushSent("voip", "+14152222222", 1);
+        tracker.onDeviceArrived("+14152222222", 1, PushLatencyTracker.Arrival.FETCH);
+        tracker.flush();
+
+        assertEquals(count + 1, timer.getCount());
+        verify(pipeline, never()).set(anyString(), anyString(), anyString(), anyString(), anyInt());
+    }
+}
@@ -0,0 +1,202 @@
+package org.whisper.signal.tests.push;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.base.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.whisper.signal.entities.MessageProtos.Envelope;
+import org.whisper.signal.push.APNSender;
+import org.whisper.signal.push.ApnFallbackManager;
+import org.whisper.signal.push.GCMSender;
+import org.whisper.signal.push.GcmMulticastSender;
+import org.whisper.signal.push.PushLaneExecutor;
+import org.whisper.signal.push.PushLatencyTracker;
+import org.whisper.signal.push.PushSender;
+import org.whisper.signal.push.PushTokenInvalidator;
+import org.whisper.signal.push.RetryingApnsClient;
+import org.whisper.signal.push.WebsocketSender;
+import org.whisper.signal.push.WebsocketSender.DeliveryStatus;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.util.Constants;
+
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.mockito.Mockito.*;
+
+/**
+ * Drives {@link PushSender} against {@link GcmSimulator} and {@link ApnsSimulator}.
+ *
+ * Each operation sends one message to a device with no open socket and waits until the
+ * simulated provider has answered for it, so the throughput score is notifications/sec
+ * and the sample-time run reports the p99 push latency. The deepest user lane seen
+ * during each iteration is printed after it.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=org.whisper.signal.tests.push.PushSenderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class PushSenderBenchmark {
+
+    private static final String NUMBER = "+14152222222";
+
+    private static final MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME);
+
+    @Param({"gcm", "apn"})
+    public String platform;
+
+    @Param({"10"})
+    public long latency;
+
+    @Param({"0.01"})
+    public double errorRate;
+
+    private final ConcurrentHashMap<String, CountDownLatch> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger tokens = new AtomicInteger();
+    private final AtomicLong maxDepth = new AtomicLong();
+
+    private GcmSimulator gcmSimulator;
+    private ApnsSimulator apnsSimulator;
+    private PushSender pushSender;
+    private ScheduledExecutorService sampler;
+    private Envelope envelope;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        AccountsManager accountsManager = mock(AccountsManager.class);
+        WebsocketSender websocketSender = mock(WebsocketSender.class);
+        PushTokenInvalidator tokenInvalidator = mock(PushTokenInvalidator.class);
+
+        when(accountsManager.get(anyString())).thenReturn(Optional.<Account>absent());
+        when(websocketSender.sendMessage(any(Account.class), any(Device.class), any(Envelope.class), any(WebsocketSender.Type.class)))
+            .thenReturn(new DeliveryStatus(false, 1));
+
+        gcmSimulator = new GcmSimulator(16);
+        gcmSimulator.setLatency(latency);
+        gcmSimulator.setErrorRate(errorRate);
+        gcmSimulator.setListener(new GcmSimulator.Listener() {
+            @Override
+            public void onResult(String registrationId, String error) {
+                complete(registrationId);
+            }
+        });
+        gcmSimulator.start();
+
+        apnsSimulator = new ApnsSimulator(4);
+        apnsSimulator.setLatency(latency);
+        apnsSimulator.setErrorRate(errorRate);
+        apnsSimulator.setListener(new ApnsSimulator.Listener() {
+            @Override
+            public void onResponse(String token, String rejectionReason) {
+                complete(token);
+            }
+        });
+
+        GCMSender gcmSender = new GCMSender(accountsManager, tokenInvalidator, new GcmMulticastSender("key", 50, gcmSimulator.getUrl()),
+            Executors.newSingleThreadExecutor(), Executors.newSingleThreadScheduledExecutor(), 50);
+        APNSender apnSender = new APNSender(Executors.newSingleThreadExecutor(), tokenInvalidator,
+            new RetryingApnsClient(apnsSimulator.getClient(), 10), "org.whisper.benchmark", false);
+
+        pushSender = new PushSender(mock(ApnFallbackManager.class), gcmSender, apnSender, websocketSender, mock(PushLatencyTracker.class), 1000, 0);
+        envelope = Envelope.newBuilder()
+            .setType(Envelope.Type.CIPHERTEXT)
+            .setSource("+14153333333")
+            .setSourceDevice(1)
+            .setTimestamp(System.currentTimeMillis())
+            .build();
+
+        final Gauge<?> depth = metricRegistry.getGauges().get(name(PushLaneExecutor.class, "user", "depth"));
+
+        sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                long value = ((Number) depth.getValue()).longValue();
+                long max;
+
+                while (value > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, value));
+            }
+        }, 10, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        Histogram batchSize = metricRegistry.histogram(name(GCMSender.class, "batch_size"));
+
+        System.out.println(String.format("max user lane depth: %d, mean gcm batch: %.1f, gcm requests: %d",
+            maxDepth.getAndSet(0), batchSize.getSnapshot().getMean(), gcmSimulator.getRequests()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        sampler.shutdownNow();
+        pushSender.stop();
+        gcmSimulator.stop();
+        apnsSimulator.stop();
+    }
+
+    @Benchmark
+    public void sendNotification() throws Exception {
+        String token = platform + tokens.incrementAndGet();
+        CountDownLatch latch = new CountDownLatch(1);
+        Device device = new Device();
+
+        device.setId(1);
+
+        if ("gcm".equals(platform)) device.setGcmId(token);
+        else device.setApnId(token);
+
+        pending.put(token, latch);
+        pushSender.sendMessage(new Account(NUMBER, Collections.singleton(device)), device, envelope, false);
+
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+            pending.remove(token);
+            throw new TimeoutException(token);
+        }
+    }
+
+    private void complete(String token) {
+        CountDownLatch latch = pending.remove(token);
+
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(PushSenderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,107 @@
+package org.whisper.signal.tests.push;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.whisper.signal.push.ApnFallbackManager;
+import org.whisper.signal.push.PushTokenInvalidator;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.DeviceToken;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class PushTokenInvalidatorTest {
+
+    @Test
+    public void testBatchedApnInvalidation() {
+        AccountsManager accountsManager = mock(AccountsManager.class);
+        ApnFallbackManager fallbackManager = mock(ApnFallbackManager.class);
+
+        DeviceToken cleared = new DeviceToken("+14152222222", 1, "foo");
+
+        when(accountsManager.clearApnIds(anyListOf(DeviceToken.class))).thenReturn(Collections.singletonList(cleared));
+
+        PushTokenInvalidator invalidator = new PushTokenInvalidator(accountsManager);
+        invalidator.setApnFallbackManager(fallbackManager);
+
+        invalidator.invalidateApnId("+14152222222", 1, "foo");
+        invalidator.invalidateApnId("+14152222222", 1, "foo");
+        invalidator.invalidateApnId("+14153333333", 2, "bar");
+
+        assertEquals(2, invalidator.getBacklog());
+
+        invalidator.flush();
+
+        ArgumentCaptor<List> batch = ArgumentCaptor.forClass(List.class);
+        verify(accountsManager, times(1)).clearApnIds(batch.capture());
+        verify(accountsManager, never()).clearGcmIds(anyListOf(DeviceToken.class));
+
+        assertEquals(2, batch.getValue().size());
+        assertTrue(batch.getValue().contains(cleared));
+        assertTrue(batch.getValue().contains(new DeviceToken("+14153333333", 2, "bar")));
+
+        verify(fallbackManager, times(1)).cancel(eq(new WebsocketAddress("+14152222222", 1)));
+        verifyNoMoreInteractions(fallbackManager);
+
+        assertEquals(0, invalidator.getBacklog());
+    }
+
+    @Test
+    public void testGcmInvalidationSplitsBatches() {
+        AccountsManager accountsManager = mock(AccountsManager.class);
+
+        when(accountsManager.clearGcmIds(anyListOf(DeviceToken.class))).thenReturn(new LinkedList<DeviceToken>());
+
+        PushTokenInvalidator invalidator = new PushTokenInvalidator(accountsManager);
+
+        for (int i = 0; i < 1200; i++) {
+            invalidator.invalidateGcmId("+1415" + (2000000 + i), 1, "gcm" + i);
+        }
+
+        invalidator.flush();
+
+        ArgumentCaptor<List> batch = ArgumentCaptor.forClass(List.class);
+        verify(accountsManager, times(3)).clearGcmIds(batch.capture());
+
+        assertEquals(500, batch.getAllValues().get(0).size());
+        assertEquals(500, batch.getAllValues().get(1).size());
+        assertEquals(200, batch.getAllValues().get(2).size());
+        assertEquals(0, invalidator.getBacklog());
+    }
+
+    @Test
+    public void testFailedFlushRequeues() {
+        AccountsManager accountsManager = mock(AccountsManager.class);
+
+        when(accountsManager.clearApnIds(anyListOf(DeviceToken.class)))
+            .thenThrow(new RuntimeException("database down"))
+            .thenReturn(new LinkedList<DeviceToken>());
+
+        PushTokenInvalidator invalidator = new PushTokenInvalidator(accountsManager);
+
+        invalidator.invalidateApnId("+14152222222", 1, "foo");
+        invalidator.invalidateGcmId("+14153333333", 2, "bar");
+
+        invalidator.flush();
+
+        verify(accountsManager, times(1)).clearApnIds(anyListOf(DeviceToken.class));
+        verify(accountsManager, never()).clearGcmIds(anyListOf(DeviceToken.class));
+        assertEquals(2, invalidator.getBacklog());
+
+        invalidator.invalidateApnId("+14152222222", 1, "newer");
+
+        invalidator.flush();
+
+        ArgumentCaptor<List> batch = ArgumentCaptor.forClass(List.class);
+        verify(accountsManager, times(2)).clearApnIds(batch.capture());
+        verify(accountsManager, times(1)).clearGcmIds(anyListOf(DeviceToken.class));
+
+        assertEquals(Collections.singletonList(new DeviceToken("+14152222222", 1, "newer")), batch.getValue());
+        assertEquals(0, invalidator.getBacklog());
+    }
+}
@@ -0,0 +1,222 @@
+package org.whisper.signal.tests.push;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.base.Optional;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.whisper.signal.entities.MessageProtos.Envelope;
+import org.whisper.signal.federation.FederatedClient;
+import org.whisper.signal.federation.FederatedClientManager;
+import org.whisper.signal.push.PushSender;
+import org.whisper.signal.push.ReceiptSender;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.util.Constants;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ReceiptSenderTest {
+
+    private static final String SOURCE      = "+14151111111";
+    private static final String DESTINATION = "+14152222222";
+
+    @Test
+    public void testOrderedDelivery() throws Exception {
+        AccountsManager accountsManager = mock(AccountsManager.class);
+        PushSender      pushSender      = mock(PushSender.class);
+        Device          device          = new Device();
+        Account         destination     = new Account(DESTINATION, Collections.singleton(device));
+
+        device.setId(1);
+        when(accountsManager.get(DESTINATION)).thenReturn(Optional.of(destination));
+
+        ReceiptSender receiptSender = new ReceiptSender(accountsManager, pushSender, mock(FederatedClientManager.class), 4, 100, 1, 0);
+
+        for (int i = 0; i < 50; i++) {
+            receiptSender.sendReceiptAsync(getSource(), DESTINATION, i, Optional.<String>absent());
+        }
+
+        receiptSender.stop();
+
+        ArgumentCaptor<Envelope> envelopes = ArgumentCaptor.forClass(Envelope.class);
+        verify(pushSender, times(50)).sendMessage(eq(destination), eq(device), envelopes.capture(), eq(true));
+
+        List<Envelope> sent = envelopes.getAllValues();
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, sent.get(i).getTimestamp());
+            assertEquals(Envelope.Type.RECEIPT, sent.get(i).getType());
+        }
+    }
+
+    @Test
+    public void testAggregation() throws Exception {
+        AccountsManager accountsManager = mock(AccountsManager.class);
+        PushSender      pushSender      = mock(PushSender.class);
+        Device          multiDevice     = new Device();
+        Device          legacyDevice    = new Device();
+
+        multiDevice.setId(1);
+        multiDevice.setMultiReceiptsSupported(true);
+        legacyDevice.setId(2);
+
+        Account destination = new Account(DESTINATION, new HashSet<>(Arrays.asList(multiDevice, legacyDevice)));
+
+        when(accountsManager.get(DESTINATION)).thenReturn(Optional.of(destination));
+
+        ReceiptSender receiptSender = new ReceiptSender(accountsManager, pushSender, mock(FederatedClientManager.class), 1, 100, 1, TimeUnit.MINUTES.toMillis(1));
+
+        receiptSender.sendReceiptAsync(getSource(), DESTINATION, 1, Optional.<String>absent());
+        receiptSender.sendReceiptAsync(getSource(), DESTINATION, 2, Optional.<String>absent());
+        receiptSender.sendReceiptAsync(getSource(), DESTINATION, 3, Optional.<String>absent());
+
+        verifyZeroInteractions(pushSender);
+
+        receiptSender.stop();
+
+        ArgumentCaptor<Envelope> multi = ArgumentCaptor.forClass(Envelope.class);
+        verify(pushSender, times(1)).sendMessage(eq(destination), eq(multiDevice), multi.capture(), eq(true));
+
+        assertEquals(Envelope.Type.RECEIPT, multi.getValue().getType());
+        assertEquals(1, multi.getValue().getTimestamp());
+        assertEquals(Arrays.asList(1L, 2L, 3L), multi.getValue().getTimestampsList());
+
+        ArgumentCaptor<Envelope> legacy = ArgumentCaptor.forClass(Envelope.class);
+        verify(pushSender, times(3)).sendMessage(eq(destination), eq(legacyDevice), legacy.capture(), eq(true));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, legacy.getAllValues().get(i).getTimestamp());
+            assertEquals(0, legacy.getAllValues().get(i).getTimestampsCount());
+        }
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        FederatedClientManager federatedClientManager = mock(FederatedClientManager.class);
+        FederatedClient        federatedClient        = mock(FederatedClient.class);
+
+        when(federatedClientManager.getClient("relay")).thenReturn(federatedClient);
+
+        doThrow(new IOException("busy"))
+            .doNothing()
+            .when(federatedClient).sendDeliveryReceipt(anyString(), anyLong(), anyString(), anyLong());
+
+        ReceiptSender receiptSender = new ReceiptSender(mock(AccountsManager.class), mock(PushSender.class), federatedClientManager, 1, 100, 1, 0);
+
+        receiptSender.sendReceiptAsync(getSource(), DESTINATION, 1, Optional.of("relay"));
+        receiptSender.sendReceiptAsync(getSource(), DESTINATION, 2, Optional.of("relay"));
+        receiptSender.stop();
+
+        InOrder inOrder = inOrder(federatedClient);
+        inOrder.verify(federatedClient, times(2)).sendDeliveryReceipt(eq(SOURCE), eq(1L), eq(DESTINATION), eq(1L));
+        inOrder.verify(federatedClient, times(1)).sendDeliveryReceipt(eq(SOURCE), eq(1L), eq(DESTINATION), eq(2L));
+    }
+
+    @Test
+    public void testRetryFailedDeviceOnly() throws Exception {
+        AccountsManager accountsManager = mock(AccountsManager.class);
+        PushSender      pushSender      = mock(PushSender.class);
+        Device          healthyDevice   = new Device();
+        Device          failingDevice   = new Device();
+
+        healthyDevice.setId(1);
+        failingDevice.setId(2);
+
+        Account destination = new Account(DESTINATION, new HashSet<>(Arrays.asList(healthyDevice, failingDevice)));
+
+        when(accountsManager.get(DESTINATION)).thenReturn(Optional.of(destination));
+
+        doThrow(new IllegalStateException("busy"))
+            .doNothing()
+            .when(pushSender).sendMessage(eq(destination), eq(failingDevice), any(Envelope.class), eq(true));
+
+        ReceiptSender receiptSender = new ReceiptSender(accountsManager, pushSender, mock(FederatedClientManager.class), 1, 100, 1, 0);
+
+        receiptSender.sendReceiptAsync(getSource(), DESTINATION, 1, Optional.<String>absent());
+        receiptSender.stop();
+
+        verify(pushSender, times(1)).sendMessage(eq(destination), eq(healthyDevice), any(Envelope.class), eq(true));
+        verify(pushSender, times(2)).sendMessage(eq(destination), eq(failingDevice), any(Envelope.class), eq(true));
+    }
+
+    @Test
+    public void testFullStripeDrops() throws Exception {
+        AccountsManager      accountsManager = mock(AccountsManager.class);
+        PushSender           pushSender      = mock(PushSender.class);
+        Device               device          = new Device();
+        Account              destination     = new Account(DESTINATION, Collections.singleton(device));
+        final CountDownLatch started         = new CountDownLatch(1);
+        final CountDownLatch release         = new CountDownLatch(1);
+
+        device.setId(1);
+        when(accountsManager.get(DESTINATION)).thenReturn(Optional.of(destination));
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                release.await();
+                return null;
+            }
+        }).when(pushSender).sendMessage(eq(destination), eq(device), any(Envelope.class), eq(true));
+
+        Meter         dropped       = SharedMetricRegistries.getOrCreate(Constants.METRICS_NAME).meter(name(ReceiptSender.class, "dropped"));
+        long          droppedBefore = dropped.getCount();
+        ReceiptSender receiptSender = new ReceiptSender(accountsManager, pushSender, mock(FederatedClientManager.class), 1, 1, 1, 0);
+
+        receiptSender.sendReceiptAsync(getSource(), DESTINATION, 1, Optional.<String>absent());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        receiptSender.sendReceiptAsync(getSource(), DESTINATION, 2, Optional.<String>absent());
+        receiptSender.sendReceiptAsync(getSource(), DESTINATION, 3, Optional.<String>absent());
+
+        release.countDown();
+        receiptSender.stop();
+
+        assertEquals(droppedBefore + 1, dropped.getCount());
+
+        ArgumentCaptor<Envelope> envelopes = ArgumentCaptor.forClass(Envelope.class);
+        verify(pushSender, times(2)).sendMessage(eq(destination), eq(device), envelopes.capture(), eq(true));
+
+        assertEquals(1, envelopes.getAllValues().get(0).getTimestamp());
+        assertEquals(2, envelopes.getAllValues().get(1).getTimestamp());
+    }
+
+    @Test
+    public void testSelfReceipt() throws Exception {
+        AccountsManager accountsManager = mock(AccountsManager.class);
+        PushSender      pushSender      = mock(PushSender.class);
+
+        ReceiptSender receiptSender = new ReceiptSender(accountsManager, pushSender, mock(FederatedClientManager.class), 1, 100, 1, 0);
+
+        receiptSender.sendReceiptAsync(getSource(), SOURCE, 1, Optional.<String>absent());
+        receiptSender.stop();
+
+        verifyZeroInteractions(accountsManager, pushSender);
+    }
+
+    private Account getSource() {
+        Device  device = new Device();
+        Account source = new Account(SOURCE, Collections.singleton(device));
+
+        device.setId(1);
+        source.setAuthenticatedDevice(device);
+
+        return source;
+    }
+}
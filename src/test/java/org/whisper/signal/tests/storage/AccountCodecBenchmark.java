@@ -0,0 +1,77 @@
+package org.whisper.signal.tests.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.AccountCodec;
+import org.whisper.signal.util.SystemMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding and decoding a two device account as JSON and with
+ * {@link AccountCodec}. The encoded size of each is printed at setup.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=org.whisper.signal.tests.storage.AccountCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountCodecBenchmark {
+
+    private static final ObjectMapper mapper = SystemMapper.getMapper();
+
+    @Param({"json", "binary"})
+    public String encoding;
+
+    private Account account;
+    private byte[]  encoded;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        account = AccountCodecTest.getAccount();
+        encoded = encode();
+
+        System.out.println("\n" + encoding + " size: " + encoded.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeAccount() throws Exception {
+        return encode();
+    }
+
+    @Benchmark
+    public Account decodeAccount() throws Exception {
+        return AccountCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public Account roundTrip() throws Exception {
+        return AccountCodec.decode(encode());
+    }
+
+    private byte[] encode() throws Exception {
+        return "json".equals(encoding) ? mapper.writeValueAsBytes(account) : AccountCodec.encode(account);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(AccountCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
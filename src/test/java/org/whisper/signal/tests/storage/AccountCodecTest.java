@@ -0,0 +1,64 @@
+package org.whisper.signal.tests.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.whisper.signal.auth.AuthenticationCredentials;
+import org.whisper.signal.entities.SignedPreKey;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.AccountCodec;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.util.SystemMapper;
+
+import java.io.IOException;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class AccountCodecTest {
+
+    private static final ObjectMapper mapper = SystemMapper.getMapper();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Account account = getAccount();
+        byte[]  encoded = AccountCodec.encode(account);
+
+        assertEquals(AccountCodec.VERSION_1, encoded[0]);
+        assertEquals(mapper.readTree(mapper.writeValueAsString(account)),
+                     mapper.readTree(mapper.writeValueAsString(AccountCodec.decode(encoded))));
+        assertTrue(encoded.length < mapper.writeValueAsBytes(account).length);
+    }
+
+    @Test
+    public void testLegacyJson() throws Exception {
+        Account account = getAccount();
+        byte[]  json    = mapper.writeValueAsBytes(account);
+
+        assertEquals(mapper.readTree(json),
+                     mapper.readTree(mapper.writeValueAsString(AccountCodec.decode(json))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownVersion() throws Exception {
+        AccountCodec.decode(new byte[] {(byte) 0x7f, 0x01});
+    }
+
+    static Account getAccount() {
+        Device master = new Device(1, "master", null, null, "signaling", "gcm", null, null, false, 1234,
+                                   new SignedPreKey(5, "publicKey", "signature"), 1000, 2000, true, false, "OWA");
+        Device linked = new Device(2, null, null, null, "linked", null, "apn", "voip", true, 99,
+                                   null, 3000, 4000, false, true, null);
+
+        master.setAuthenticationCredentials(new AuthenticationCredentials("password"));
+        linked.setMultiReceiptsSupported(true);
+
+        HashSet<Device> devices = new HashSet<>();
+        devices.add(master);
+        devices.add(linked);
+
+        Account account = new Account("+14152222222", devices);
+        account.setIdentityKey("identityKey");
+
+        return account;
+    }
+}
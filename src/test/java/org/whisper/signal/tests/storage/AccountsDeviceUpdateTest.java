@@ -0,0 +1,96 @@
+package org.whisper.signal.tests.storage;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.AccountCodec;
+import org.whisper.signal.storage.Accounts;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.storage.DirectoryManager;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Transaction;
+
+public class AccountsDeviceUpdateTest {
+
+    private static final String NUMBER = "+14152222222";
+
+    @Test
+    public void testPatchesCachedDevice() throws Exception {
+        Accounts    accounts    = mock(Accounts.class);
+        JedisPool   cacheClient = mock(JedisPool.class);
+        Jedis       jedis       = mock(Jedis.class);
+        Transaction transaction = mock(Transaction.class);
+
+        Account cached  = getAccount("cached");
+        Account account = getAccount("updated");
+        Device  device  = account.getDevice(2).get();
+
+        when(cacheClient.getResource()).thenReturn(jedis);
+        when(jedis.get(any(byte[].class))).thenReturn(AccountCodec.encode(cached));
+        when(jedis.multi()).thenReturn(transaction);
+        when(transaction.exec()).thenReturn(null, Collections.<Object>singletonList("OK"));
+        when(accounts.updateDevice(NUMBER, device)).thenReturn(1);
+
+        new AccountsManager(accounts, mock(DirectoryManager.class), cacheClient).updateDevice(account, device);
+
+        verify(jedis, never()).set(any(byte[].class), any(byte[].class));
+        verify(jedis, times(2)).watch(any(byte[].class));
+
+        ArgumentCaptor<byte[]> written = ArgumentCaptor.forClass(byte[].class);
+        verify(transaction, times(2)).set(any(byte[].class), written.capture());
+
+        List<byte[]> values  = written.getAllValues();
+        Account      patched = AccountCodec.decode(values.get(values.size() - 1));
+
+        assertEquals("cached", patched.getDevice(1).get().getName());
+        assertEquals("updated", patched.getDevice(2).get().getName());
+        verify(jedis, never()).del(any(byte[].class));
+    }
+
+    @Test
+    public void testFallsBackToFullUpdate() throws Exception {
+        Accounts  accounts    = mock(Accounts.class);
+        JedisPool cacheClient = mock(JedisPool.class);
+        Jedis     jedis       = mock(Jedis.class);
+
+        Account account = getAccount("new");
+        Device  device  = account.getDevice(2).get();
+
+        when(cacheClient.getResource()).thenReturn(jedis);
+        when(accounts.updateDevice(NUMBER, device)).thenReturn(0);
+
+        new AccountsManager(accounts, mock(DirectoryManager.class), cacheClient).updateDevice(account, device);
+
+        verify(jedis, never()).watch(any(byte[].class));
+
+        ArgumentCaptor<byte[]> written = ArgumentCaptor.forClass(byte[].class);
+        verify(jedis).set(any(byte[].class), written.capture());
+
+        assertEquals("new", AccountCodec.decode(written.getValue()).getDevice(2).get().getName());
+    }
+
+    private Account getAccount(String name) {
+        Device master = new Device();
+        Device linked = new Device();
+
+        master.setId(1);
+        master.setName("cached");
+        linked.setId(2);
+        linked.setName(name);
+
+        HashSet<Device> devices = new HashSet<>();
+        devices.add(master);
+        devices.add(linked);
+
+        return new Account(NUMBER, devices);
+    }
+}
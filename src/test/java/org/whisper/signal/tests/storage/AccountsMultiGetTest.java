@@ -0,0 +1,104 @@
+package org.whisper.signal.tests.storage;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.skife.jdbi.v2.DBI;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.AccountCodec;
+import org.whisper.signal.storage.Accounts;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.AccountsNearCache;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.storage.DirectoryManager;
+import org.whisper.signal.storage.ReplicaMonitor;
+import org.whisper.signal.storage.ReplicationLag;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Mockito.*;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+public class AccountsMultiGetTest {
+
+    private static final String CACHED  = "+14151111111";
+    private static final String STORED  = "+14152222222";
+    private static final String MISSING = "+14153333333";
+
+    @Test
+    public void testGetAll() throws Exception {
+        Accounts  accounts    = mock(Accounts.class);
+        JedisPool cacheClient = mock(JedisPool.class);
+        Jedis     jedis       = mock(Jedis.class);
+        Pipeline  pipeline    = mock(Pipeline.class);
+
+        Account cached = new Account(CACHED, Collections.<Device>emptySet());
+        Account stored = new Account(STORED, Collections.<Device>emptySet());
+
+        when(cacheClient.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(jedis.mget(Matchers.<byte[]>anyVararg())).thenReturn(Arrays.asList(AccountCodec.encode(cached), null, null));
+        when(accounts.getAll(anyCollectionOf(String.class))).thenReturn(Collections.singletonList(stored));
+
+        AccountsManager      accountsManager = new AccountsManager(accounts, mock(DirectoryManager.class), cacheClient);
+        Map<String, Account> results         = accountsManager.getAll(Arrays.asList(CACHED, STORED, MISSING, CACHED));
+
+        assertEquals(2, results.size());
+        assertEquals(CACHED, results.get(CACHED).getNumber());
+        assertEquals(STORED, results.get(STORED).getNumber());
+        assertFalse(results.containsKey(MISSING));
+
+        verify(jedis, times(1)).mget(Matchers.<byte[]>anyVararg());
+
+        ArgumentCaptor<Collection> queried = ArgumentCaptor.forClass(Collection.class);
+        verify(accounts, times(1)).getAll(queried.capture());
+        assertEquals(Arrays.asList(STORED, MISSING), queried.getValue());
+
+        verify(pipeline, times(1)).set(any(byte[].class), any(byte[].class));
+        verify(pipeline).sync();
+        verify(jedis, never()).get(any(byte[].class));
+    }
+
+    @Test
+    public void testReplicaFillExpires() throws Exception {
+        Accounts       primary     = mock(Accounts.class);
+        Accounts       replica     = mock(Accounts.class);
+        ReplicationLag lag         = mock(ReplicationLag.class);
+        DBI            dbi         = mock(DBI.class);
+        JedisPool      cacheClient = mock(JedisPool.class);
+        Jedis          jedis       = mock(Jedis.class);
+        Pipeline       pipeline    = mock(Pipeline.class);
+
+        Account stored = new Account(STORED, Collections.<Device>emptySet());
+
+        when(dbi.onDemand(Accounts.class)).thenReturn(replica);
+        when(dbi.onDemand(ReplicationLag.class)).thenReturn(lag);
+        when(lag.getLagMillis()).thenReturn(0L);
+        when(cacheClient.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(jedis.mget(Matchers.<byte[]>anyVararg())).thenReturn(Collections.<byte[]>singletonList(null));
+        when(replica.getAll(anyCollectionOf(String.class))).thenReturn(Collections.singletonList(stored));
+
+        ReplicaMonitor monitor = new ReplicaMonitor(Collections.singletonList(dbi), 1000, 1000);
+        monitor.probe();
+
+        AccountsNearCache    nearCache       = new AccountsNearCache(null, false, 1, 1, TimeUnit.SECONDS);
+        AccountsManager      accountsManager = new AccountsManager(primary, mock(DirectoryManager.class), cacheClient, nearCache,
+                                                                   monitor.route("test-fill", Accounts.class, primary));
+        Map<String, Account> results         = accountsManager.getAll(Collections.singletonList(STORED));
+
+        assertEquals(STORED, results.get(STORED).getNumber());
+
+        verify(pipeline).set(any(byte[].class), any(byte[].class), aryEq("NX".getBytes()), aryEq("EX".getBytes()), anyInt());
+        verify(pipeline, never()).set(any(byte[].class), any(byte[].class));
+        verify(primary, never()).getAll(anyCollectionOf(String.class));
+    }
+}
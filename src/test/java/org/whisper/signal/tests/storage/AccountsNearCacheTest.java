@@ -0,0 +1,147 @@
+package org.whisper.signal.tests.storage;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.AccountCodec;
+import org.whisper.signal.storage.Accounts;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.AccountsNearCache;
+import org.whisper.signal.storage.DirectoryManager;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.storage.PubSubManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Mockito.*;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class AccountsNearCacheTest {
+
+    private static final String NUMBER = "+14152222222";
+
+    @Test
+    public void testReturnsCopies() {
+        AccountsNearCache nearCache = new AccountsNearCache(mock(PubSubManager.class), true, 10, 1, TimeUnit.MINUTES);
+        Account           account   = getAccount();
+
+        nearCache.put(account, nearCache.getGeneration(NUMBER));
+        account.getMasterDevice().get().setName("changed");
+
+        Account cached = nearCache.get(NUMBER).get();
+        assertNull(cached.getMasterDevice().get().getName());
+
+        cached.getMasterDevice().get().setName("changed");
+        cached.setAuthenticatedDevice(cached.getMasterDevice().get());
+
+        Account again = nearCache.get(NUMBER).get();
+        assertNull(again.getMasterDevice().get().getName());
+        assertFalse(again.getAuthenticatedDevice().isPresent());
+    }
+
+    @Test
+    public void testInvalidation() {
+        PubSubManager     pubSubManager = mock(PubSubManager.class);
+        AccountsNearCache nearCache     = new AccountsNearCache(pubSubManager, true, 10, 1, TimeUnit.MINUTES);
+
+        nearCache.put(getAccount(), nearCache.getGeneration(NUMBER));
+        nearCache.invalidate(NUMBER);
+
+        assertFalse(nearCache.get(NUMBER).isPresent());
+        verify(pubSubManager).publish(eq(AccountsNearCache.INVALIDATION_CHANNEL), aryEq(NUMBER.getBytes(StandardCharsets.UTF_8)));
+
+        nearCache.put(getAccount(), nearCache.getGeneration(NUMBER));
+        nearCache.onDispatchMessage(AccountsNearCache.INVALIDATION_CHANNEL, NUMBER.getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(nearCache.get(NUMBER).isPresent());
+    }
+
+    @Test
+    public void testKillSwitch() {
+        AccountsNearCache nearCache = new AccountsNearCache(mock(PubSubManager.class), true, 10, 1, TimeUnit.MINUTES);
+
+        nearCache.put(getAccount(), nearCache.getGeneration(NUMBER));
+        nearCache.setEnabled(false);
+
+        assertFalse(nearCache.get(NUMBER).isPresent());
+
+        nearCache.put(getAccount(), nearCache.getGeneration(NUMBER));
+        assertEquals(0, nearCache.size());
+    }
+
+    @Test
+    public void testDisabledStillPublishes() {
+        PubSubManager     pubSubManager = mock(PubSubManager.class);
+        AccountsNearCache nearCache     = new AccountsNearCache(pubSubManager, false, 10, 1, TimeUnit.MINUTES);
+
+        nearCache.invalidate(NUMBER);
+
+        verify(pubSubManager).publish(eq(AccountsNearCache.INVALIDATION_CHANNEL), aryEq(NUMBER.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testStaleFillDropped() {
+        AccountsNearCache nearCache  = new AccountsNearCache(mock(PubSubManager.class), true, 10, 1, TimeUnit.MINUTES);
+        long              generation = nearCache.getGeneration(NUMBER);
+
+        nearCache.onDispatchMessage(AccountsNearCache.INVALIDATION_CHANNEL, NUMBER.getBytes(StandardCharsets.UTF_8));
+        nearCache.put(getAccount(), generation);
+
+        assertFalse(nearCache.get(NUMBER).isPresent());
+
+        nearCache.put(getAccount(), nearCache.getGeneration(NUMBER));
+
+        assertTrue(nearCache.get(NUMBER).isPresent());
+    }
+
+    @Test
+    public void testOfflineManagerPublishes() {
+        Accounts  accounts    = mock(Accounts.class);
+        JedisPool cacheClient = mock(JedisPool.class);
+        Jedis     jedis       = mock(Jedis.class);
+
+        when(cacheClient.getResource()).thenReturn(jedis);
+
+        new AccountsManager(accounts, mock(DirectoryManager.class), cacheClient).update(getAccount());
+
+        verify(jedis).publish(aryEq(AccountsNearCache.INVALIDATION_CHANNEL.getBytes()), aryEq(NUMBER.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testManagerSkipsRedis() throws Exception {
+        Accounts          accounts    = mock(Accounts.class);
+        JedisPool         cacheClient = mock(JedisPool.class);
+        Jedis             jedis       = mock(Jedis.class);
+        AccountsNearCache nearCache   = new AccountsNearCache(mock(PubSubManager.class), true, 10, 1, TimeUnit.MINUTES);
+
+        when(cacheClient.getResource()).thenReturn(jedis);
+        when(jedis.get(any(byte[].class))).thenReturn(AccountCodec.encode(getAccount()));
+
+        AccountsManager accountsManager = new AccountsManager(accounts, mock(DirectoryManager.class), cacheClient, nearCache);
+
+        Optional<Account> first  = accountsManager.get(NUMBER);
+        Optional<Account> second = accountsManager.get(NUMBER);
+
+        assertTrue(first.isPresent());
+        assertTrue(second.isPresent());
+        assertNotSame(first.get(), second.get());
+
+        verify(jedis, times(1)).get(any(byte[].class));
+        verifyZeroInteractions(accounts);
+    }
+
+    private Account getAccount() {
+        Device device = new Device();
+        device.setId(Device.MASTER_ID);
+
+        HashSet<Device> devices = new HashSet<>();
+        devices.add(device);
+
+        return new Account(NUMBER, devices);
+    }
+}
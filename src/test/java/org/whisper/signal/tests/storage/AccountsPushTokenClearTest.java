@@ -0,0 +1,130 @@
+package org.whisper.signal.tests.storage;
+
+import org.junit.Test;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.whisper.signal.storage.Accounts;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.DeviceToken;
+import org.whisper.signal.storage.DirectoryManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+public class AccountsPushTokenClearTest {
+
+    private static final long GRACE = TimeUnit.SECONDS.toMillis(10);
+
+    @Test
+    public void testRecentlyReregisteredSkipped() {
+        Accounts  accounts    = mock(Accounts.class);
+        JedisPool cacheClient = mock(JedisPool.class);
+
+        List<DeviceToken> tokens = Collections.singletonList(new DeviceToken("+14152222222", 2, "apn"));
+
+        when(accounts.clearApnIds(eq(tokens), anyLong())).thenReturn(new int[] {0});
+
+        long before = System.currentTimeMillis();
+        List<DeviceToken> cleared = new AccountsManager(accounts, mock(DirectoryManager.class), cacheClient).clearApnIds(tokens);
+        long after = System.currentTimeMillis();
+
+        assertTrue(cleared.isEmpty());
+        verify(accounts).clearApnIds(eq(tokens), longThat(between(before - GRACE, after - GRACE)));
+        verifyZeroInteractions(cacheClient);
+    }
+
+    @Test
+    public void testStaleGcmTokenSkipped() {
+        Accounts  accounts    = mock(Accounts.class);
+        JedisPool cacheClient = mock(JedisPool.class);
+        Jedis     jedis       = mock(Jedis.class);
+        Pipeline  pipeline    = mock(Pipeline.class);
+
+        DeviceToken current = new DeviceToken("+14152222222", 2, "gcm-current");
+        DeviceToken stale   = new DeviceToken("+14153333333", 2, "gcm-old");
+
+        List<DeviceToken> tokens = Arrays.asList(current, stale);
+
+        when(cacheClient.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(accounts.clearGcmIds(eq(tokens), anyLong())).thenReturn(new int[] {1, 0});
+
+        long before = System.currentTimeMillis();
+        List<DeviceToken> cleared = new AccountsManager(accounts, mock(DirectoryManager.class), cacheClient).clearGcmIds(tokens);
+        long after = System.currentTimeMillis();
+
+        assertEquals(Collections.singletonList(current), cleared);
+        verify(accounts).clearGcmIds(eq(tokens), longThat(between(before - GRACE, after - GRACE)));
+        verify(pipeline, times(1)).del(contains("+14152222222"));
+        verify(pipeline, never()).del(contains("+14153333333"));
+        verify(pipeline).sync();
+    }
+
+    @Test
+    public void testVoipTokenCleared() {
+        Accounts  accounts    = mock(Accounts.class);
+        JedisPool cacheClient = mock(JedisPool.class);
+        Jedis     jedis       = mock(Jedis.class);
+        Pipeline  pipeline    = mock(Pipeline.class);
+
+        List<DeviceToken> tokens = Collections.singletonList(new DeviceToken("+14152222222", 2, "voip"));
+
+        when(cacheClient.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(accounts.clearApnIds(eq(tokens), anyLong())).thenReturn(new int[] {1});
+
+        List<DeviceToken> cleared = new AccountsManager(accounts, mock(DirectoryManager.class), cacheClient).clearApnIds(tokens);
+
+        assertEquals(tokens, cleared);
+        verify(pipeline, times(1)).del(contains("+14152222222"));
+    }
+
+    @Test
+    public void testClearStatements() throws Exception {
+        String apn = Accounts.class.getMethod("clearApnIds", List.class, long.class).getAnnotation(SqlBatch.class).value();
+        String gcm = Accounts.class.getMethod("clearGcmIds", List.class, long.class).getAnnotation(SqlBatch.class).value();
+
+        // A report matches the APN or the VoIP token, and only one the device hasn't re-registered since the cutoff.
+        assertEquals(2, count(apn, "(device->>'apnId' = :token OR device->>'voipApnId' = :token)"));
+        assertEquals(2, count(apn, "(device->>'pushTimestamp')\\:\\:bigint <= :cutoff"));
+        assertTrue(apn.contains("{\"apnId\": null, \"voipApnId\": null, \"fetchesMessages\": false}"));
+        assertFalse(apn.contains("gcmId"));
+
+        // GCM reports need the exact registered id too, rather than clearing whatever the device holds.
+        assertEquals(2, count(gcm, "device->>'gcmId' = :token"));
+        assertEquals(2, count(gcm, "(device->>'pushTimestamp')\\:\\:bigint <= :cutoff"));
+        assertTrue(gcm.contains("{\"gcmId\": null, \"fetchesMessages\": false}"));
+        assertFalse(gcm.contains("apnId"));
+
+        for (String statement : Arrays.asList(apn, gcm)) {
+            assertTrue(statement.contains("WHERE number = :number"));
+            assertEquals(2, count(statement, "device->>'id' = :device_id"));
+        }
+    }
+
+    private static int count(String statement, String fragment) {
+        int count = 0;
+
+        for (int index = statement.indexOf(fragment); index >= 0; index = statement.indexOf(fragment, index + 1)) {
+            count++;
+        }
+
+        return count;
+    }
+
+    private static org.mockito.ArgumentMatcher<Long> between(final long low, final long high) {
+        return new org.mockito.ArgumentMatcher<Long>() {
+            @Override
+            public boolean matches(Long value) {
+                return value != null && value >= low && value <= high;
+            }
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package org.whisper.signal.tests.storage;
+
+import org.junit.Test;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.Accounts;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.storage.DirectoryManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import redis.clients.jedis.JedisPool;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AccountsScanTest {
+
+    @Test
+    public void testScanAllPages() {
+        Accounts        accounts        = mock(Accounts.class);
+        AccountsManager accountsManager = new AccountsManager(accounts, mock(DirectoryManager.class), mock(JedisPool.class));
+
+        Account first  = new Account("+14151111111", Collections.<Device>emptySet());
+        Account second = new Account("+14152222222", Collections.<Device>emptySet());
+        Account third  = new Account("+14153333333", Collections.<Device>emptySet());
+
+        when(accounts.scan("", 2)).thenReturn(Arrays.asList(first, second));
+        when(accounts.scan("+14152222222", 2)).thenReturn(Collections.singletonList(third));
+
+        List<Account>     scanned  = new LinkedList<>();
+        Iterator<Account> iterator = accountsManager.scanAll(2);
+
+        while (iterator.hasNext()) {
+            scanned.add(iterator.next());
+        }
+
+        assertEquals(Arrays.asList(first, second, third), scanned);
+
+        verify(accounts).scan("", 2);
+        verify(accounts).scan("+14152222222", 2);
+        verifyNoMoreInteractions(accounts);
+    }
+}
@@ -0,0 +1,80 @@
+package org.whisper.signal.tests.storage;
+
+import org.junit.Test;
+import org.whisper.signal.entities.SignedPreKey;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.ActiveUsers;
+import org.whisper.signal.storage.ActiveUsers.Segment;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.util.Util;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+public class ActiveUsersTest {
+
+    @Test
+    public void testRecordBySegment() {
+        JedisPool jedisPool = mock(JedisPool.class);
+        Jedis     jedis     = mock(Jedis.class);
+        Pipeline  pipeline  = mock(Pipeline.class);
+
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+
+        ActiveUsers activeUsers = new ActiveUsers(jedisPool);
+        long        today       = TimeUnit.MILLISECONDS.toDays(Util.todayInMillis());
+
+        Account android = getAccount("+14151111111", 1, "gcm", null, null);
+        Account ios     = getAccount("+14152222222", 1, null, "apn", new SignedPreKey(1, "foo", "bar"));
+        Account linked  = getAccount("+14153333333", 2, "gcm", null, null);
+
+        activeUsers.record(android, android.getDevice(1).get());
+        activeUsers.record(android, android.getDevice(1).get());
+        activeUsers.record(ios, ios.getDevice(1).get());
+        activeUsers.record(linked, linked.getDevice(2).get());
+
+        assertEquals(3, activeUsers.getBacklog());
+
+        activeUsers.flush();
+
+        verify(pipeline).pfadd("active::android::" + today, "+14151111111");
+        verify(pipeline).pfadd("active::no_signed_keys::" + today, "+14151111111");
+        verify(pipeline).pfadd("active::ios::" + today, "+14152222222");
+        verify(pipeline, times(3)).expire(anyString(), anyInt());
+        verify(pipeline).sync();
+
+        assertEquals(0, activeUsers.getBacklog());
+    }
+
+    @Test
+    public void testActiveSince() {
+        JedisPool jedisPool = mock(JedisPool.class);
+        Jedis     jedis     = mock(Jedis.class);
+        long      today     = TimeUnit.MILLISECONDS.toDays(Util.todayInMillis());
+
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pfcount("active::ios::" + (today - 1), "active::ios::" + today)).thenReturn(42L);
+
+        ActiveUsers activeUsers = new ActiveUsers(jedisPool);
+
+        assertEquals(42L, activeUsers.getActiveSince(Segment.IOS, today - 1));
+    }
+
+    private Account getAccount(String number, long deviceId, String gcmId, String apnId, SignedPreKey signedPreKey) {
+        Device device = new Device();
+
+        device.setId(deviceId);
+        device.setGcmId(gcmId);
+        device.setApnId(apnId);
+        device.setSignedPreKey(signedPreKey);
+
+        return new Account(number, Collections.singleton(device));
+    }
+}
@@ -0,0 +1,103 @@
+package org.whisper.signal.tests.storage;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.ActiveUsers;
+import org.whisper.signal.storage.Device;
+import org.whisper.signal.storage.LastSeen;
+import org.whisper.signal.storage.LastSeenTracker;
+import org.whisper.signal.util.Util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class LastSeenTrackerTest {
+
+    @Test
+    public void testBatchedWriteBehind() {
+        LastSeen        lastSeen    = mock(LastSeen.class);
+        ActiveUsers     activeUsers = mock(ActiveUsers.class);
+        LastSeenTracker tracker     = new LastSeenTracker(lastSeen, activeUsers);
+
+        for (int i = 0; i < 1200; i++) {
+            Account account = getAccount("+1415" + (2000000 + i), Util.todayInMillis() - TimeUnit.DAYS.toMillis(1));
+
+            assertFalse(tracker.onAuthenticated(account, account.getMasterDevice().get()));
+            assertFalse(tracker.onAuthenticated(account, account.getMasterDevice().get()));
+        }
+
+        assertEquals(1200, tracker.getBacklog());
+        verify(activeUsers, times(1200)).record(any(Account.class), any(Device.class));
+
+        tracker.flush();
+
+        ArgumentCaptor<List> numbers = ArgumentCaptor.forClass(List.class);
+        verify(lastSeen, times(3)).record(numbers.capture(), anyListOf(Long.class), anyListOf(Long.class));
+
+        assertEquals(500, numbers.getAllValues().get(0).size());
+        assertEquals(500, numbers.getAllValues().get(1).size());
+        assertEquals(200, numbers.getAllValues().get(2).size());
+        assertEquals(0, tracker.getBacklog());
+
+        Account again = getAccount("+14152000000", Util.todayInMillis() - TimeUnit.DAYS.toMillis(1));
+        tracker.onAuthenticated(again, again.getMasterDevice().get());
+
+        assertEquals(0, tracker.getBacklog());
+    }
+
+    @Test
+    public void testUpsertOnlyMovesForward() throws Exception {
+        String sql = LastSeen.class.getMethod("record", List.class, List.class, List.class).getAnnotation(SqlBatch.class).value();
+
+        assertTrue(sql.contains("ON CONFLICT (number, device_id) DO UPDATE"));
+        assertTrue(sql.contains("WHERE last_seen.last_seen < EXCLUDED.last_seen"));
+    }
+
+    @Test
+    public void testStaleDocument() {
+        LastSeenTracker tracker = new LastSeenTracker(mock(LastSeen.class), mock(ActiveUsers.class));
+
+        Account current = getAccount("+14152222222", Util.todayInMillis());
+        Account stale   = getAccount("+14153333333", Util.todayInMillis() - TimeUnit.DAYS.toMillis(30));
+
+        assertFalse(tracker.onAuthenticated(current, current.getMasterDevice().get()));
+        assertTrue(tracker.onAuthenticated(stale, stale.getMasterDevice().get()));
+        assertEquals(1, tracker.getBacklog());
+    }
+
+    @Test
+    public void testFailedFlushRequeues() {
+        LastSeen        lastSeen = mock(LastSeen.class);
+        LastSeenTracker tracker  = new LastSeenTracker(lastSeen, mock(ActiveUsers.class));
+        Account         account  = getAccount("+14152222222", 0);
+
+        doThrow(new RuntimeException("down")).doNothing()
+            .when(lastSeen).record(anyListOf(String.class), anyListOf(Long.class), anyListOf(Long.class));
+
+        tracker.onAuthenticated(account, account.getMasterDevice().get());
+        tracker.flush();
+
+        assertEquals(1, tracker.getBacklog());
+
+        tracker.flush();
+
+        assertEquals(0, tracker.getBacklog());
+        verify(lastSeen, times(2)).record(eq(Collections.singletonList("+14152222222")),
+                                          eq(Collections.singletonList(1L)),
+                                          eq(Collections.singletonList(Util.todayInMillis())));
+    }
+
+    private Account getAccount(String number, long lastSeen) {
+        Device device = new Device();
+        device.setId(Device.MASTER_ID);
+        device.setLastSeen(lastSeen);
+
+        return new Account(number, Collections.singleton(device));
+    }
+}
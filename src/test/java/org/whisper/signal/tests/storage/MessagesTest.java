@@ -0,0 +1,100 @@
+package org.whisper.signal.tests.storage;
+
+import com.google.protobuf.ByteString;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.whisper.signal.entities.MessageProtos.Envelope;
+import org.whisper.signal.entities.OutgoingMessageEntity;
+import org.whisper.signal.storage.Messages;
+import org.whisper.signal.storage.MessagesManager;
+import org.whisper.signal.storage.StoredMessageInfo;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Runs the message queries against a real Postgres with the migrated messages schema.
+ */
+public class MessagesTest {
+
+    private static final String DESTINATION = "+14152222222";
+
+    private static EmbeddedPostgres postgres;
+    private static MessagesManager  messagesManager;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        assumeFalse("Postgres refuses to run as root", "root".equals(System.getProperty("user.name")));
+
+        postgres = EmbeddedPostgres.start();
+
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            new Liquibase("messagedb.xml", new ClassLoaderResourceAccessor(), new JdbcConnection(connection)).update("");
+        }
+
+        messagesManager = new MessagesManager(new DBI(postgres.getPostgresDatabase()).onDemand(Messages.class));
+    }
+
+    @AfterClass
+    public static void teardown() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    public void testStore() {
+        StoredMessageInfo first   = messagesManager.insert(DESTINATION, 1, getMessage(Envelope.Type.CIPHERTEXT, 1));
+        StoredMessageInfo receipt = messagesManager.insert(DESTINATION, 1, getMessage(Envelope.Type.RECEIPT, 2));
+        StoredMessageInfo third   = messagesManager.insert(DESTINATION, 1, getMessage(Envelope.Type.CIPHERTEXT, 3));
+        StoredMessageInfo other   = messagesManager.insert(DESTINATION, 2, getMessage(Envelope.Type.CIPHERTEXT, 4));
+
+        assertEquals(1, first.getQueueDepth());
+        assertEquals(0, first.getPendingCount());
+        assertEquals(Collections.<Long>emptyList(), first.getAheadIds());
+
+        assertEquals(1, receipt.getPendingCount());
+        assertEquals(Collections.singletonList(first.getId()), receipt.getAheadIds());
+
+        assertEquals(2, third.getQueueDepth());
+        assertEquals(2, third.getPendingCount());
+        assertEquals(Arrays.asList(first.getId(), receipt.getId()), sorted(third.getAheadIds()));
+
+        assertEquals(1, other.getQueueDepth());
+        assertEquals(0, other.getPendingCount());
+
+        List<OutgoingMessageEntity> loaded = messagesManager.getMessagesForDevice(DESTINATION, 1).getMessages();
+
+        assertEquals(3, loaded.size());
+        assertEquals(first.getId(), loaded.get(0).getId());
+        assertEquals(third.getId(), loaded.get(2).getId());
+    }
+
+    private List<Long> sorted(List<Long> ids) {
+        Long[] sorted = ids.toArray(new Long[ids.size()]);
+        Arrays.sort(sorted);
+
+        return Arrays.asList(sorted);
+    }
+
+    private Envelope getMessage(Envelope.Type type, long timestamp) {
+        return Envelope.newBuilder()
+                       .setType(type)
+                       .setSource("+14151111111")
+                       .setSourceDevice(1)
+                       .setTimestamp(timestamp)
+                       .setContent(ByteString.copyFromUtf8("content"))
+                       .build();
+    }
+}
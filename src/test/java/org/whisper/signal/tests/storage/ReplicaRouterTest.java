@@ -0,0 +1,97 @@
+package org.whisper.signal.tests.storage;
+
+import org.junit.Test;
+import org.skife.jdbi.v2.DBI;
+import org.whisper.signal.storage.Keys;
+import org.whisper.signal.storage.ReplicaMonitor;
+import org.whisper.signal.storage.ReplicaRouter;
+import org.whisper.signal.storage.ReplicationLag;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRouterTest {
+
+    private static final String NUMBER = "+14152222222";
+
+    @Test
+    public void testRoutesToFreshReplica() {
+        Keys           primary = mock(Keys.class);
+        Keys           replica = mock(Keys.class);
+        ReplicationLag lag     = mock(ReplicationLag.class);
+        DBI            dbi     = getReplica(replica, lag);
+
+        when(lag.getLagMillis()).thenReturn(10L);
+
+        ReplicaMonitor      monitor = new ReplicaMonitor(Collections.singletonList(dbi), 1000, 1000);
+        ReplicaRouter<Keys> router  = monitor.route("test-fresh", Keys.class, primary);
+
+        assertSame(primary, router.forRead(NUMBER));
+
+        monitor.probe();
+
+        assertSame(replica, router.forRead(NUMBER));
+    }
+
+    @Test
+    public void testReadYourWrites() {
+        Keys           primary = mock(Keys.class);
+        Keys           replica = mock(Keys.class);
+        ReplicationLag lag     = mock(ReplicationLag.class);
+
+        when(lag.getLagMillis()).thenReturn(0L);
+
+        ReplicaMonitor      monitor = new ReplicaMonitor(Collections.singletonList(getReplica(replica, lag)), 1000, 1000);
+        ReplicaRouter<Keys> router  = monitor.route("test-ryw", Keys.class, primary);
+
+        monitor.probe();
+        router.onWrite(NUMBER);
+
+        assertSame(primary, router.forRead(NUMBER));
+        assertSame(primary, router.forRead(Arrays.asList("+14153333333", NUMBER)));
+        assertSame(replica, router.forRead("+14153333333"));
+    }
+
+    @Test
+    public void testLaggingAndFailedReplicas() {
+        Keys           primary = mock(Keys.class);
+        Keys           lagging = mock(Keys.class);
+        Keys           failing = mock(Keys.class);
+        ReplicationLag slow    = mock(ReplicationLag.class);
+        ReplicationLag broken  = mock(ReplicationLag.class);
+
+        when(slow.getLagMillis()).thenReturn(5000L);
+        when(broken.getLagMillis()).thenReturn(0L).thenThrow(new RuntimeException("down"));
+
+        ReplicaMonitor      monitor = new ReplicaMonitor(Arrays.asList(getReplica(lagging, slow), getReplica(failing, broken)), 1000, 1000);
+        ReplicaRouter<Keys> router  = monitor.route("test-lag", Keys.class, primary);
+
+        monitor.probe();
+
+        assertSame(failing, router.forRead(NUMBER));
+        assertSame(failing, router.forRead(NUMBER));
+
+        monitor.probe();
+
+        assertSame(primary, router.forRead(NUMBER));
+    }
+
+    @Test
+    public void testPrimaryOnly() {
+        Keys primary = mock(Keys.class);
+
+        assertSame(primary, ReplicaRouter.primaryOnly(primary).forRead(NUMBER));
+    }
+
+    private DBI getReplica(Keys keys, ReplicationLag lag) {
+        DBI dbi = mock(DBI.class);
+
+        when(dbi.onDemand(Keys.class)).thenReturn(keys);
+        when(dbi.onDemand(ReplicationLag.class)).thenReturn(lag);
+
+        return dbi;
+    }
+}
@@ -11,6 +11,7 @@ import org.whisper.signal.federation.FederatedPeer;
 import org.whisper.signal.storage.Account;
 import org.whisper.signal.storage.AccountsManager;
 import org.whisper.signal.storage.Device;
+import org.whisper.signal.storage.LastSeenTracker;
 import org.whisper.signal.util.Base64;
 
 import java.util.LinkedList;
@@ -69,7 +70,7 @@ public class AuthHelper {
         when(federationConfiguration.getPeers()).thenReturn(peer);
 
         return new AuthDynamicFeature(new BasicCredentialAuthFilter.Builder<Account>()
-            .setAuthenticator(new AccountAuthenticator(ACCOUNTS_MANAGER))
+            .setAuthenticator(new AccountAuthenticator(ACCOUNTS_MANAGER, mock(LastSeenTracker.class)))
             .setPrincipal(Account.class)
             .buildAuthFilter(),
             new BasicCredentialAuthFilter.Builder<FederatedPeer>()
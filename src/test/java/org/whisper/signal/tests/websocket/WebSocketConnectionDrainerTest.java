@@ -0,0 +1,63 @@
+package org.whisper.signal.tests.websocket;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.whisper.signal.configuration.WebSocketDrainConfiguration;
+import org.whisper.signal.websocket.WebSocketConnection;
+import org.whisper.signal.websocket.WebSocketConnectionDrainer;
+import org.whisper.signal.websocket.WebSocketConnectionRegistry;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class WebSocketConnectionDrainerTest {
+
+    @Test
+    public void testSlowCloseRate() throws Exception {
+        WebSocketDrainConfiguration configuration = mock(WebSocketDrainConfiguration.class);
+        WebSocketConnectionRegistry registry      = new WebSocketConnectionRegistry();
+        final AtomicInteger         closed        = new AtomicInteger();
+
+        when(configuration.getCloseRate()).thenReturn(2);
+
+        WebsocketAddress[]    addresses   = new WebsocketAddress[20];
+        WebSocketConnection[] connections = new WebSocketConnection[20];
+
+        for (int i = 0; i < connections.length; i++) {
+            final WebSocketConnection connection = mock(WebSocketConnection.class);
+
+            doAnswer(new Answer<Void>() {
+                @Override
+                public Void answer(InvocationOnMock invocation) {
+                    closed.incrementAndGet();
+                    when(connection.isClosing()).thenReturn(true);
+                    return null;
+                }
+            }).when(connection).close(anyInt(), anyString());
+
+            addresses[i]   = new WebsocketAddress("+1415222" + String.format("%04d", i), 1);
+            connections[i] = connection;
+
+            registry.register(addresses[i], connection);
+        }
+
+        WebSocketConnectionDrainer drainer = new WebSocketConnectionDrainer(configuration, registry);
+        drainer.drain();
+
+        Thread.sleep(2050);
+
+        assertFalse(drainer.awaitDrained(0, TimeUnit.SECONDS));
+        assertTrue("closed " + closed.get(), closed.get() >= 3 && closed.get() <= 5);
+
+        for (int i = 0; i < connections.length; i++) {
+            registry.unregister(addresses[i], connections[i]);
+        }
+
+        assertTrue(drainer.awaitDrained(1, TimeUnit.SECONDS));
+    }
+}
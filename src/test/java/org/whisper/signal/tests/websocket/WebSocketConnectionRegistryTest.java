@@ -0,0 +1,53 @@
+package org.whisper.signal.tests.websocket;
+
+import org.junit.Test;
+import org.whisper.signal.websocket.WebSocketConnection;
+import org.whisper.signal.websocket.WebSocketConnectionRegistry;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class WebSocketConnectionRegistryTest {
+
+    @Test
+    public void testReconnectSurvivesLateUnregister() {
+        WebSocketConnectionRegistry registry = new WebSocketConnectionRegistry();
+        WebsocketAddress            address  = new WebsocketAddress("+14152222222", 1);
+        WebSocketConnection         stale    = mock(WebSocketConnection.class);
+        WebSocketConnection         live     = mock(WebSocketConnection.class);
+
+        registry.register(address, stale);
+        registry.register(address, live);
+        registry.unregister(address, stale);
+
+        assertEquals(1, registry.size());
+        assertSame(live, registry.getConnections().iterator().next());
+
+        registry.unregister(address, live);
+
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testPagesOldestFirst() {
+        WebSocketConnectionRegistry registry = new WebSocketConnectionRegistry();
+
+        for (int i = 0; i < 5; i++) {
+            WebSocketConnection connection = mock(WebSocketConnection.class);
+            when(connection.getConnectedAt()).thenReturn(1000L - i);
+
+            registry.register(new WebsocketAddress("+1415222222" + i, 1), connection);
+        }
+
+        List<Map.Entry<WebsocketAddress, WebSocketConnection>> page = registry.getConnections(1, 2);
+
+        assertEquals(2, page.size());
+        assertEquals(997L, page.get(0).getValue().getConnectedAt());
+        assertEquals(998L, page.get(1).getValue().getConnectedAt());
+        assertTrue(registry.getConnections(5, 2).isEmpty());
+    }
+}
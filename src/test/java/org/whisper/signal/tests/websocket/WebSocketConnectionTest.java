@@ -9,8 +9,11 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.whisper.signal.auth.AccountAuthenticator;
+import org.whisper.signal.configuration.WebSocketDrainConfiguration;
 import org.whisper.signal.entities.OutgoingMessageEntity;
 import org.whisper.signal.entities.OutgoingMessageEntityList;
+import org.whisper.signal.push.ApnFallbackManager;
+import org.whisper.signal.push.PushLatencyTracker;
 import org.whisper.signal.push.PushSender;
 import org.whisper.signal.push.ReceiptSender;
 import org.whisper.signal.push.WebsocketSender;
@@ -20,10 +23,13 @@ import org.whisper.signal.storage.Device;
 import org.whisper.signal.storage.MessagesManager;
 import org.whisper.signal.storage.PubSubManager;
 import org.whisper.signal.storage.PubSubProtos;
+import org.whisper.signal.tests.util.SynchronousExecutorService;
 import org.whisper.signal.util.Base64;
 import org.whisper.signal.websocket.AuthenticatedConnectListener;
 import org.whisper.signal.websocket.WebSocketAccountAuthenticator;
 import org.whisper.signal.websocket.WebSocketConnection;
+import org.whisper.signal.websocket.WebSocketConnectionDrainer;
+import org.whisper.signal.websocket.WebSocketConnectionRegistry;
 import org.whisper.signal.websocket.WebsocketAddress;
 import org.whispersystems.websocket.WebSocketClient;
 import org.whispersystems.websocket.messages.WebSocketResponseMessage;
@@ -35,6 +41,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import io.dropwizard.auth.basic.BasicCredentials;
 import static org.junit.Assert.*;
@@ -57,12 +64,16 @@ public class WebSocketConnectionTest {
     private static final UpgradeRequest upgradeRequest = mock(UpgradeRequest.class);
     private static final PushSender pushSender = mock(PushSender.class);
     private static final ReceiptSender receiptSender = mock(ReceiptSender.class);
+    private static final ApnFallbackManager apnFallbackManager = mock(ApnFallbackManager.class);
+    private static final PushLatencyTracker latencyTracker = mock(PushLatencyTracker.class);
 
     @Test
     public void testCredentials() throws Exception {
         MessagesManager storedMessages = mock(MessagesManager.class);
         WebSocketAccountAuthenticator webSocketAuthenticator = new WebSocketAccountAuthenticator(accountAuthenticator);
-        AuthenticatedConnectListener connectListener = new AuthenticatedConnectListener(accountsManager, pushSender, receiptSender, storedMessages, pubSubManager);
+        WebSocketConnectionRegistry registry = new WebSocketConnectionRegistry();
+        AuthenticatedConnectListener connectListener = new AuthenticatedConnectListener(accountsManager, pushSender, receiptSender, storedMessages, pubSubManager, apnFallbackManager, latencyTracker, new SynchronousExecutorService(),
+            registry);
         WebSocketSessionContext sessionContext = mock(WebSocketSessionContext.class);
 
         when(accountAuthenticator.authenticate(eq(new BasicCredentials(VALID_USER, VALID_PASSWORD))))
@@ -94,6 +105,8 @@ public class WebSocketConnectionTest {
         connectListener.onWebSocketConnect(sessionContext);
 
         verify(sessionContext).addListener(any(WebSocketSessionContext.WebSocketEventListener.class));
+        verify(apnFallbackManager).cancel(any(WebsocketAddress.class));
+        assertEquals(1, registry.size());
 
         when(upgradeRequest.getParameterMap()).thenReturn(new HashMap<String, List<String>>() {
             {
@@ -181,12 +194,233 @@ public class WebSocketConnectionTest {
         futures.get(2).setException(new IOException());
 
         verify(storedMessages, times(1)).delete(eq(account.getNumber()), eq(2L));
-        verify(receiptSender, times(1)).sendReceipt(eq(account), eq("sender1"), eq(2222L), eq(Optional.<String>absent()));
+        verify(receiptSender, times(1)).sendReceiptAsync(eq(account), eq("sender1"), eq(2222L), eq(Optional.<String>absent()));
 
         connection.onDispatchUnsubscribed(websocketAddress.serialize());
         verify(client).close(anyInt(), anyString());
     }
 
+    @Test
+    public void testPrefetchedOpen() throws Exception {
+        MessagesManager storedMessages = mock(MessagesManager.class);
+
+        List<OutgoingMessageEntity> outgoingMessages = new LinkedList<OutgoingMessageEntity>() {
+            {
+                add(createMessage(1L, "sender1", 1111, false, "first"));
+                add(createMessage(2L, "sender1", 2222, false, "second"));
+            }
+        };
+
+        when(device.getId()).thenReturn(2L);
+        when(device.getSignalingKey()).thenReturn(Base64.encodeBytes(new byte[52]));
+
+        when(account.getAuthenticatedDevice()).thenReturn(Optional.of(device));
+        when(account.getNumber()).thenReturn("+14152222222");
+
+        when(storedMessages.getMessagesForDevice(account.getNumber(), device.getId()))
+            .thenReturn(new OutgoingMessageEntityList(outgoingMessages, false));
+
+        final List<SettableFuture<WebSocketResponseMessage>> futures = new LinkedList<>();
+        final WebSocketClient client = mock(WebSocketClient.class);
+
+        when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any()))
+            .thenAnswer(new Answer<SettableFuture<WebSocketResponseMessage>>() {
+                @Override
+                public SettableFuture<WebSocketResponseMessage> answer(InvocationOnMock invocationOnMock) throws Throwable {
+                    SettableFuture<WebSocketResponseMessage> future = SettableFuture.create();
+                    futures.add(future);
+                    return future;
+                }
+            });
+
+        WebsocketAddress websocketAddress = new WebsocketAddress(account.getNumber(), device.getId());
+        WebSocketConnection connection = new WebSocketConnection(pushSender, receiptSender, storedMessages,
+            account, device, client);
+
+        connection.prefetchStoredMessages(new SynchronousExecutorService());
+
+        verify(storedMessages, times(1)).getMessagesForDevice(account.getNumber(), device.getId());
+        verify(client, never()).sendRequest(anyString(), anyString(), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any());
+
+        connection.onDispatchSubscribed(websocketAddress.serialize());
+
+        verify(storedMessages, times(2)).getMessagesForDevice(account.getNumber(), device.getId());
+        verify(client, times(2)).sendRequest(eq("PUT"), eq("/api/v1/message"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any());
+        verify(client, never()).sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any());
+        assertEquals(WebSocketConnection.QueueState.LIVE, connection.getQueueState());
+
+        WebSocketResponseMessage response = mock(WebSocketResponseMessage.class);
+        when(response.getStatus()).thenReturn(200);
+
+        for (SettableFuture<WebSocketResponseMessage> future : futures) {
+            future.set(response);
+        }
+
+        assertEquals(WebSocketConnection.QueueState.IDLE, connection.getQueueState());
+        verify(client, times(1)).sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any());
+
+        when(storedMessages.getMessagesForDevice(account.getNumber(), device.getId()))
+            .thenReturn(new OutgoingMessageEntityList(new LinkedList<OutgoingMessageEntity>(), false));
+
+        connection.onDispatchMessage(websocketAddress.serialize(), PubSubProtos.PubSubMessage.newBuilder()
+            .setType(PubSubProtos.PubSubMessage.Type.QUERY_DB)
+            .setContent(createEnvelope("sender1", 1111, "first").toByteString())
+            .setId(1)
+            .setPending(0)
+            .build().toByteArray());
+
+        connection.onDispatchMessage(websocketAddress.serialize(), PubSubProtos.PubSubMessage.newBuilder()
+            .setType(PubSubProtos.PubSubMessage.Type.QUERY_DB)
+            .build().toByteArray());
+
+        verify(client, times(2)).sendRequest(eq("PUT"), eq("/api/v1/message"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any());
+        verify(client, times(1)).sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any());
+    }
+
+    @Test
+    public void testDrainingSend() throws Exception {
+        MessagesManager storedMessages = mock(MessagesManager.class);
+        PushSender pushSender = mock(PushSender.class);
+        WebsocketSender websocketSender = mock(WebsocketSender.class);
+
+        when(pushSender.getWebSocketSender()).thenReturn(websocketSender);
+        when(websocketSender.queueMessage(any(Account.class), any(Device.class), any(Envelope.class))).thenReturn(10);
+
+        Envelope message = Envelope.newBuilder()
+            .setLegacyMessage(ByteString.copyFrom("first".getBytes()))
+            .setSource("sender1")
+            .setTimestamp(System.currentTimeMillis())
+            .setSourceDevice(1)
+            .setType(Envelope.Type.CIPHERTEXT)
+            .build();
+
+        when(device.getId()).thenReturn(2L);
+        when(device.getSignalingKey()).thenReturn(Base64.encodeBytes(new byte[52]));
+        when(account.getNumber()).thenReturn("+14152222222");
+
+        final SettableFuture<WebSocketResponseMessage> future = SettableFuture.create();
+        final WebSocketClient client = mock(WebSocketClient.class);
+
+        when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any()))
+            .thenReturn(future);
+
+        WebsocketAddress websocketAddress = new WebsocketAddress(account.getNumber(), device.getId());
+        WebSocketConnection connection = new WebSocketConnection(pushSender, receiptSender, storedMessages,
+            account, device, client);
+
+        WebSocketConnectionRegistry registry = new WebSocketConnectionRegistry();
+        WebSocketConnectionDrainer drainer = new WebSocketConnectionDrainer(new WebSocketDrainConfiguration(), registry);
+        registry.register(websocketAddress, connection);
+
+        connection.onDispatchMessage(websocketAddress.serialize(), PubSubProtos.PubSubMessage.newBuilder()
+            .setType(PubSubProtos.PubSubMessage.Type.DELIVER)
+            .setContent(ByteString.copyFrom(message.toByteArray()))
+            .build().toByteArray());
+
+        drainer.drain();
+        future.setException(new IOException());
+
+        verify(websocketSender, times(1)).queueMessage(eq(account), eq(device), any(Envelope.class));
+        verify(pushSender, never()).sendQueuedNotification(any(Account.class), any(Device.class), anyInt(), anyBoolean());
+
+        verify(client, timeout(5000)).close(eq(1001), startsWith("reconnect-after:"));
+        assertTrue(connection.isClosing());
+
+        registry.unregister(websocketAddress, connection);
+        assertTrue(drainer.awaitDrained(5, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (isDrainerRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertFalse(isDrainerRunning());
+    }
+
+    private boolean isDrainerRunning() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("websocket-drainer")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Test
+    public void testQueuedSend() throws Exception {
+        MessagesManager storedMessages = mock(MessagesManager.class);
+
+        Envelope message = Envelope.newBuilder()
+            .setLegacyMessage(ByteString.copyFrom("first".getBytes()))
+            .setSource("sender1")
+            .setTimestamp(System.currentTimeMillis())
+            .setSourceDevice(1)
+            .setType(Envelope.Type.CIPHERTEXT)
+            .build();
+
+        when(device.getId()).thenReturn(2L);
+        when(device.getSignalingKey()).thenReturn(Base64.encodeBytes(new byte[52]));
+        when(account.getNumber()).thenReturn("+14152222222");
+
+        when(storedMessages.getMessagesForDevice(account.getNumber(), device.getId()))
+            .thenReturn(new OutgoingMessageEntityList(new LinkedList<OutgoingMessageEntity>(), false));
+
+        final WebSocketClient client = mock(WebSocketClient.class);
+
+        when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any()))
+            .thenReturn(SettableFuture.<WebSocketResponseMessage>create());
+
+        WebsocketAddress websocketAddress = new WebsocketAddress(account.getNumber(), device.getId());
+        WebSocketConnection connection = new WebSocketConnection(pushSender, receiptSender, storedMessages,
+            account, device, client);
+
+        PubSubProtos.PubSubMessage queued = PubSubProtos.PubSubMessage.newBuilder()
+            .setType(PubSubProtos.PubSubMessage.Type.QUERY_DB)
+            .setContent(message.toByteString())
+            .setId(7)
+            .setPending(0)
+            .build();
+
+        connection.onDispatchMessage(websocketAddress.serialize(), queued.toByteArray());
+        connection.onDispatchMessage(websocketAddress.serialize(), queued.toByteArray());
+
+        verify(storedMessages, never()).getMessagesForDevice(anyString(), anyLong());
+        verify(client, times(1)).sendRequest(eq("PUT"), eq("/api/v1/message"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any());
+
+        connection.onDispatchMessage(websocketAddress.serialize(), PubSubProtos.PubSubMessage.newBuilder()
+            .setType(PubSubProtos.PubSubMessage.Type.QUERY_DB)
+            .setContent(message.toByteString())
+            .setId(8)
+            .setPending(1)
+            .addAhead(7)
+            .build().toByteArray());
+
+        verify(storedMessages, never()).getMessagesForDevice(anyString(), anyLong());
+        verify(client, times(2)).sendRequest(eq("PUT"), eq("/api/v1/message"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any());
+
+        connection.onDispatchMessage(websocketAddress.serialize(), PubSubProtos.PubSubMessage.newBuilder()
+            .setType(PubSubProtos.PubSubMessage.Type.QUERY_DB)
+            .setContent(message.toByteString())
+            .setId(10)
+            .setPending(2)
+            .addAhead(7)
+            .addAhead(9)
+            .build().toByteArray());
+
+        verify(storedMessages, times(1)).getMessagesForDevice(account.getNumber(), device.getId());
+
+        connection.onDispatchMessage(websocketAddress.serialize(), PubSubProtos.PubSubMessage.newBuilder()
+            .setType(PubSubProtos.PubSubMessage.Type.QUERY_DB)
+            .setContent(message.toByteString())
+            .setId(200)
+            .setPending(150)
+            .build().toByteArray());
+
+        verify(storedMessages, times(2)).getMessagesForDevice(account.getNumber(), device.getId());
+    }
+
     @Test
     public void testOnlineSend() throws Exception {
         MessagesManager storedMessages = mock(MessagesManager.class);
@@ -274,7 +508,7 @@ public class WebSocketConnectionTest {
         futures.get(1).set(response);
         futures.get(0).setException(new IOException());
 
-        verify(receiptSender, times(1)).sendReceipt(eq(account), eq("sender2"), eq(secondMessage.getTimestamp()), eq(Optional.<String>absent()));
+        verify(receiptSender, times(1)).sendReceiptAsync(eq(account), eq("sender2"), eq(secondMessage.getTimestamp()), eq(Optional.<String>absent()));
         verify(websocketSender, times(1)).queueMessage(eq(account), eq(device), any(Envelope.class));
         verify(pushSender, times(1)).sendQueuedNotification(eq(account), eq(device), eq(10), eq(true));
 
@@ -375,7 +609,7 @@ public class WebSocketConnectionTest {
         futures.get(1).set(response);
         futures.get(0).setException(new IOException());
 
-        verify(receiptSender, times(1)).sendReceipt(eq(account), eq("sender2"), eq(secondMessage.getTimestamp()), eq(Optional.<String>absent()));
+        verify(receiptSender, times(1)).sendReceiptAsync(eq(account), eq("sender2"), eq(secondMessage.getTimestamp()), eq(Optional.<String>absent()));
         verifyNoMoreInteractions(websocketSender);
         verifyNoMoreInteractions(pushSender);
 
@@ -383,9 +617,123 @@ public class WebSocketConnectionTest {
         verify(client).close(anyInt(), anyString());
     }
 
+    @Test
+    public void testFailedRequery() throws Exception {
+        MessagesManager storedMessages = mock(MessagesManager.class);
+
+        List<OutgoingMessageEntity> firstPage = new LinkedList<OutgoingMessageEntity>() {
+            {
+                add(createMessage(1L, "sender1", 1111, false, "first"));
+                add(createMessage(2L, "sender1", 2222, false, "second"));
+            }
+        };
+
+        List<OutgoingMessageEntity> secondPage = new LinkedList<OutgoingMessageEntity>() {
+            {
+                add(createMessage(2L, "sender1", 2222, false, "second"));
+            }
+        };
+
+        when(device.getId()).thenReturn(2L);
+        when(device.getSignalingKey()).thenReturn(Base64.encodeBytes(new byte[52]));
+        when(account.getNumber()).thenReturn("+14152222222");
+
+        when(storedMessages.getMessagesForDevice(account.getNumber(), device.getId()))
+            .thenReturn(new OutgoingMessageEntityList(firstPage, true))
+            .thenReturn(new OutgoingMessageEntityList(secondPage, false));
+
+        final List<SettableFuture<WebSocketResponseMessage>> futures = new LinkedList<>();
+        final WebSocketClient client = mock(WebSocketClient.class);
+
+        when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any()))
+            .thenAnswer(new Answer<SettableFuture<WebSocketResponseMessage>>() {
+                @Override
+                public SettableFuture<WebSocketResponseMessage> answer(InvocationOnMock invocationOnMock) throws Throwable {
+                    SettableFuture<WebSocketResponseMessage> future = SettableFuture.create();
+                    futures.add(future);
+                    return future;
+                }
+            });
+
+        WebsocketAddress websocketAddress = new WebsocketAddress(account.getNumber(), device.getId());
+        WebSocketConnection connection = new WebSocketConnection(pushSender, receiptSender, storedMessages,
+            account, device, client);
+
+        connection.onDispatchSubscribed(websocketAddress.serialize());
+
+        assertEquals(2, futures.size());
+        assertEquals(WebSocketConnection.QueueState.DRAINING, connection.getQueueState());
+
+        WebSocketResponseMessage success = mock(WebSocketResponseMessage.class);
+        when(success.getStatus()).thenReturn(200);
+
+        WebSocketResponseMessage failure = mock(WebSocketResponseMessage.class);
+        when(failure.getStatus()).thenReturn(500);
+
+        futures.get(0).set(success);
+        futures.get(1).set(failure);
+
+        verify(storedMessages, times(2)).getMessagesForDevice(account.getNumber(), device.getId());
+        assertEquals(3, futures.size());
+
+        futures.get(2).set(success);
+
+        verify(storedMessages, times(1)).delete(account.getNumber(), 2L);
+        assertEquals(WebSocketConnection.QueueState.IDLE, connection.getQueueState());
+    }
+
+    @Test
+    public void testFailedRequeryBounded() throws Exception {
+        MessagesManager storedMessages = mock(MessagesManager.class);
+
+        List<OutgoingMessageEntity> page = new LinkedList<OutgoingMessageEntity>() {
+            {
+                add(createMessage(1L, "sender1", 1111, false, "first"));
+            }
+        };
+
+        when(device.getId()).thenReturn(2L);
+        when(device.getSignalingKey()).thenReturn(Base64.encodeBytes(new byte[52]));
+        when(account.getNumber()).thenReturn("+14152222222");
+
+        when(storedMessages.getMessagesForDevice(account.getNumber(), device.getId()))
+            .thenReturn(new OutgoingMessageEntityList(page, true));
+
+        final WebSocketClient client = mock(WebSocketClient.class);
+
+        when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), ArgumentMatchers.nullable(List.class), ArgumentMatchers.<Optional<byte[]>>any()))
+            .thenAnswer(new Answer<SettableFuture<WebSocketResponseMessage>>() {
+                @Override
+                public SettableFuture<WebSocketResponseMessage> answer(InvocationOnMock invocationOnMock) throws Throwable {
+                    SettableFuture<WebSocketResponseMessage> future = SettableFuture.create();
+                    future.setException(new IOException("closed"));
+                    return future;
+                }
+            });
+
+        WebsocketAddress websocketAddress = new WebsocketAddress(account.getNumber(), device.getId());
+        WebSocketConnection connection = new WebSocketConnection(pushSender, receiptSender, storedMessages,
+            account, device, client);
+
+        connection.onDispatchSubscribed(websocketAddress.serialize());
+
+        verify(storedMessages, times(4)).getMessagesForDevice(account.getNumber(), device.getId());
+        assertEquals(WebSocketConnection.QueueState.DRAINING, connection.getQueueState());
+    }
+
     private OutgoingMessageEntity createMessage(long id, String sender, long timestamp, boolean receipt, String content) {
         return new OutgoingMessageEntity(id, receipt ? Envelope.Type.RECEIPT_VALUE : Envelope.Type.CIPHERTEXT_VALUE,
             null, timestamp, sender, 1, content.getBytes(), null);
     }
 
+    private Envelope createEnvelope(String sender, long timestamp, String content) {
+        return Envelope.newBuilder()
+            .setType(Envelope.Type.CIPHERTEXT)
+            .setSource(sender)
+            .setSourceDevice(1)
+            .setTimestamp(timestamp)
+            .setLegacyMessage(ByteString.copyFrom(content.getBytes()))
+            .build();
+    }
+
 }
@@ -0,0 +1,89 @@
+package org.whisper.signal.tests.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import org.whisper.signal.util.SystemMapper;
+import org.whisper.signal.websocket.WebSocketConnection;
+import org.whisper.signal.websocket.WebSocketConnectionRegistry;
+import org.whisper.signal.websocket.WebSocketConnectionsServlet;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class WebSocketConnectionsServletTest {
+
+    @Test
+    public void testPage() throws Exception {
+        WebSocketConnectionRegistry registry = new WebSocketConnectionRegistry();
+
+        for (int i = 0; i < 3; i++) {
+            WebSocketConnection connection = mock(WebSocketConnection.class);
+
+            when(connection.getConnectedAt()).thenReturn(1000L + i);
+            when(connection.getInFlightCount()).thenReturn(i);
+            when(connection.getQueueState()).thenReturn(WebSocketConnection.QueueState.IDLE);
+
+            registry.register(new WebsocketAddress("+1415222222" + i, 1), connection);
+        }
+
+        HttpServletRequest    request  = mock(HttpServletRequest.class);
+        HttpServletResponse   response = mock(HttpServletResponse.class);
+        ByteArrayOutputStream body     = new ByteArrayOutputStream();
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getParameter("offset")).thenReturn("1");
+        when(request.getParameter("limit")).thenReturn("1");
+        when(response.getOutputStream()).thenReturn(getOutputStream(body));
+
+        new WebSocketConnectionsServlet(registry).service(request, response);
+
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+
+        JsonNode result = SystemMapper.getMapper().readTree(body.toByteArray());
+
+        assertEquals(3, result.get("total").asInt());
+        assertEquals(1, result.get("offset").asInt());
+        assertEquals(1, result.get("connections").size());
+        assertEquals("+14152222221", result.get("connections").get(0).get("number").asText());
+        assertEquals(1, result.get("connections").get(0).get("inFlight").asInt());
+        assertEquals("IDLE", result.get("connections").get(0).get("queueState").asText());
+    }
+
+    @Test
+    public void testBadLimit() throws Exception {
+        HttpServletRequest  request  = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getParameter("limit")).thenReturn("lots");
+
+        new WebSocketConnectionsServlet(new WebSocketConnectionRegistry()).service(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(response, never()).getOutputStream();
+    }
+
+    private ServletOutputStream getOutputStream(final ByteArrayOutputStream body) {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {}
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        };
+    }
+}
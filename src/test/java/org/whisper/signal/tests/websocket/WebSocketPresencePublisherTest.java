@@ -0,0 +1,51 @@
+package org.whisper.signal.tests.websocket;
+
+import org.junit.Test;
+import org.whisper.signal.websocket.WebSocketConnection;
+import org.whisper.signal.websocket.WebSocketConnectionRegistry;
+import org.whisper.signal.websocket.WebSocketPresencePublisher;
+import org.whisper.signal.websocket.WebsocketAddress;
+
+import static org.mockito.Mockito.*;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+public class WebSocketPresencePublisherTest {
+
+    @Test
+    public void testPublishAndWithdraw() {
+        JedisPool                   jedisPool = mock(JedisPool.class);
+        Jedis                       jedis     = mock(Jedis.class);
+        Pipeline                    pipeline  = mock(Pipeline.class);
+        WebSocketConnectionRegistry registry  = new WebSocketConnectionRegistry();
+
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+
+        registry.register(new WebsocketAddress("+14152222222", 1), mock(WebSocketConnection.class));
+        registry.register(new WebsocketAddress("+14153333333", 1), mock(WebSocketConnection.class));
+
+        WebSocketPresencePublisher publisher = new WebSocketPresencePublisher(jedisPool, registry, "node-a");
+        publisher.run();
+
+        verify(pipeline).zadd(WebSocketPresencePublisher.NODES_KEY, 2, "node-a");
+        verify(pipeline).setex(eq("presence::heartbeat::node-a"), anyInt(), anyString());
+        verify(pipeline).sync();
+
+        publisher.start();
+        publisher.stop();
+
+        verify(pipeline).zrem(WebSocketPresencePublisher.NODES_KEY, "node-a");
+        verify(pipeline).del("presence::heartbeat::node-a");
+    }
+
+    @Test
+    public void testRedisFailureIsContained() {
+        JedisPool jedisPool = mock(JedisPool.class);
+
+        when(jedisPool.getResource()).thenThrow(new RuntimeException("down"));
+
+        new WebSocketPresencePublisher(jedisPool, new WebSocketConnectionRegistry(), "node-a").run();
+    }
+}
@@ -0,0 +1,52 @@
+package org.whisper.signal.tests.workers;
+
+import org.junit.Test;
+import org.whisper.signal.entities.ClientContact;
+import org.whisper.signal.storage.Account;
+import org.whisper.signal.storage.AccountsManager;
+import org.whisper.signal.storage.DirectoryManager;
+import org.whisper.signal.storage.DirectoryManager.BatchOperationHandle;
+import org.whisper.signal.workers.DirectoryUpdater;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DirectoryUpdaterTest {
+
+    @Test
+    public void testScan() {
+        AccountsManager      accountsManager = mock(AccountsManager.class);
+        DirectoryManager     directory       = mock(DirectoryManager.class);
+        BatchOperationHandle handle          = mock(BatchOperationHandle.class);
+
+        Account first  = getAccount("+14151111111", true);
+        Account second = getAccount("+14152222222", false);
+        Account third  = getAccount("+14153333333", true);
+
+        when(directory.startBatchOperation()).thenReturn(handle);
+        when(accountsManager.getCount()).thenReturn(3L);
+        when(accountsManager.scanAll(2)).thenReturn(Arrays.asList(first, second, third).iterator());
+
+        DirectoryUpdater updater = new DirectoryUpdater(accountsManager, directory, 2);
+        updater.updateFromLocalDatabase();
+
+        verify(accountsManager).scanAll(2);
+
+        verify(directory, times(2)).add(eq(handle), any(ClientContact.class));
+        verify(directory).remove(handle, "+14152222222");
+        verify(directory).stopBatchOperation(handle);
+
+        assertEquals(1.0, updater.getProgress(), 0.0);
+    }
+
+    private Account getAccount(String number, boolean active) {
+        Account account = mock(Account.class);
+
+        when(account.getNumber()).thenReturn(number);
+        when(account.isActive()).thenReturn(active);
+
+        return account;
+    }
+}